@@ -0,0 +1,101 @@
+package com.fiscalsystemapi.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fiscalsystemapi.cache.MemoriaCacheStore;
+import com.fiscalsystemapi.dto.ProcessNumber;
+import com.fiscalsystemapi.dto.calculo.CalculoMemorizado;
+import com.fiscalsystemapi.dto.fepa.CalculoFepaRequest;
+import com.fiscalsystemapi.dto.fepa.CalculoFepaResult;
+import com.fiscalsystemapi.dto.fepa.FepaDetalhamento;
+import com.fiscalsystemapi.service.CalculoCacheService;
+import com.fiscalsystemapi.service.CalculoFepaService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo de um acerto no cache para o cálculo FEPA com detalhamento mensal. {@code derivadoACadaAcerto}:
+ * o resumo vem do cache e o detalhamento é montado e serializado em toda requisição (comportamento
+ * anterior). {@code respostaEmCache}: a resposta detalhada já serializada também vem do cache.
+ * Execute com {@code -prof gc} para ver a alocação por operação (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CalculoFepaDetalhadoBenchmark {
+
+    private static final DateTimeFormatter FORMATO = DateTimeFormatter.ofPattern("MM/yyyy");
+
+    // Meses do período: 3 anos e 30 anos
+    @Param({"36", "360"})
+    public int meses;
+
+    private CalculoCacheService calculoCacheService;
+    private CalculoFepaService calculoFepaService;
+    private CalculoFepaRequest resumo;
+    private CalculoFepaRequest detalhado;
+
+    @Setup
+    public void preparar() {
+        // Mesma configuração padrão do ObjectMapper criado pelo Spring Boot
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        calculoCacheService = new CalculoCacheService(objectMapper, new MemoriaCacheStore(1 << 24), true,
+                1 << 24, 86_400_000);
+        calculoFepaService = new CalculoFepaService(null, null, calculoCacheService);
+        YearMonth inicio = YearMonth.of(1995, 1);
+        resumo = new CalculoFepaRequest();
+        resumo.setNumProcesso(ProcessNumber.parse("0001234-62.2024.8.05.0001"));
+        resumo.setNomeParteAutora("João da Conceição");
+        resumo.setNomeParteRe("Estado (Fazenda Pública)");
+        resumo.setPeriodoInicial(inicio.format(FORMATO));
+        resumo.setPeriodoFinal(inicio.plusMonths(meses - 1).format(FORMATO));
+        resumo.setValorBruto(new BigDecimal("123456.78"));
+        resumo.setDetalhado(false);
+        detalhado = new CalculoFepaRequest();
+        detalhado.setNumProcesso(resumo.getNumProcesso());
+        detalhado.setNomeParteAutora(resumo.getNomeParteAutora());
+        detalhado.setNomeParteRe(resumo.getNomeParteRe());
+        detalhado.setPeriodoInicial(resumo.getPeriodoInicial());
+        detalhado.setPeriodoFinal(resumo.getPeriodoFinal());
+        detalhado.setValorBruto(resumo.getValorBruto());
+        detalhado.setDetalhado(true);
+        // Os dois benchmarks medem apenas acertos
+        calculoFepaService.calcularMemorizado(detalhado);
+    }
+
+    @Benchmark
+    public byte[] derivadoACadaAcerto() {
+        CalculoMemorizado<CalculoFepaResult> calculo = calculoFepaService.calcularMemorizado(resumo);
+        CalculoFepaResult resultado = calculo.getResultado();
+        BigDecimal valorCorrigidoPorMes = resultado.getTotalValorCorrigido()
+                .divide(BigDecimal.valueOf(resultado.getMeses()), 2, RoundingMode.HALF_UP);
+        CalculoFepaResult comDetalhamento = resultado.toBuilder()
+                .detalhamento(new FepaDetalhamento(YearMonth.parse(resultado.getPeriodoInicial(), FORMATO),
+                        resultado.getMeses(), valorCorrigidoPorMes))
+                .build();
+        return calculoCacheService.serializar(comDetalhamento);
+    }
+
+    @Benchmark
+    public byte[] respostaEmCache() {
+        return calculoFepaService.calcularMemorizado(detalhado).getResposta();
+    }
+}
@@ -0,0 +1,68 @@
+package com.fiscalsystemapi.benchmark;
+
+import com.fiscalsystemapi.util.FormatUtils;
+import com.fiscalsystemapi.util.FormatUtilsLegado;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo da formatação de um relatório: dez valores (sete em moeda e três em percentual), o número do
+ * processo e o CPF, com a implementação anterior (NumberFormat, regex e String.format) e com a atual.
+ * Execute com {@code -prof gc} para ver a alocação por operação (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormatUtilsBenchmark {
+
+    private static final int VALORES = 10;
+
+    private BigDecimal[] valores;
+    private String numProcesso;
+    private String cpf;
+
+    @Setup
+    public void preparar() {
+        Random random = new Random(42);
+        valores = new BigDecimal[VALORES];
+        for (int i = 0; i < VALORES; i++) {
+            valores[i] = BigDecimal.valueOf(random.nextInt(100_000_000), 2);
+        }
+        numProcesso = "0001234-56.2024.5.01.0001";
+        cpf = "123.456.789-01";
+    }
+
+    @Benchmark
+    public void legado(Blackhole blackhole) {
+        for (int i = 0; i < VALORES; i++) {
+            blackhole.consume(FormatUtilsLegado.formatCurrency(valores[i], i % 4 == 3));
+        }
+        blackhole.consume(FormatUtilsLegado.formatProcessNumber(numProcesso));
+        blackhole.consume(FormatUtilsLegado.formatCPF(cpf));
+    }
+
+    @Benchmark
+    public void atual(Blackhole blackhole) {
+        for (int i = 0; i < VALORES; i++) {
+            blackhole.consume(FormatUtils.formatCurrency(valores[i], i % 4 == 3));
+        }
+        blackhole.consume(FormatUtils.formatProcessNumber(numProcesso));
+        blackhole.consume(FormatUtils.formatCPF(cpf));
+    }
+}
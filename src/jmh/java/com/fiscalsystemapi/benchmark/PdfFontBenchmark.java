@@ -0,0 +1,96 @@
+package com.fiscalsystemapi.benchmark;
+
+import com.fiscalsystemapi.util.PdfFontRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo das fontes em um relatório de uma página: Helvetica padrão (sem incorporação, anterior às fontes
+ * TrueType), DejaVu Sans analisada a cada documento e DejaVu Sans analisada uma vez e compartilhada por
+ * {@link PdfFontRegistry}. Nos dois últimos casos o documento incorpora só o subconjunto de glifos usados.
+ * Execute com {@code -prof gc} para ver a alocação por operação (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PdfFontBenchmark {
+
+    private static final String[] LINHAS = {
+            "Cálculo de Imposto de Renda - Lei 14.848/2024",
+            "Número do processo: 0001234-62.2024.8.05.0001",
+            "Nome da parte autora: João da Conceição",
+            "Nome da parte ré: Estado (Fazenda Pública)",
+            "Valor Bruto do Pagamento: R$ 12.345,67",
+            "Imposto de Renda Retido: R$ 1.234,56",
+    };
+
+    @Setup
+    public void preparar() {
+        PdfFontRegistry.carregar();
+    }
+
+    @Benchmark
+    public byte[] helvetica() throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            return gerar(document, PDType1Font.HELVETICA, PDType1Font.HELVETICA_BOLD);
+        }
+    }
+
+    @Benchmark
+    public byte[] analisadaPorDocumento() throws IOException {
+        try (PDDocument document = new PDDocument();
+             InputStream regular = PdfFontRegistry.class.getResourceAsStream("/fonts/DejaVuSans.ttf");
+             InputStream negrito = PdfFontRegistry.class.getResourceAsStream("/fonts/DejaVuSans-Bold.ttf")) {
+            return gerar(document, PDType0Font.load(document, regular), PDType0Font.load(document, negrito));
+        }
+    }
+
+    @Benchmark
+    public byte[] compartilhada() throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            return gerar(document, PdfFontRegistry.regular(document), PdfFontRegistry.negrito(document));
+        }
+    }
+
+    private static byte[] gerar(PDDocument document, PDFont regular, PDFont negrito) throws IOException {
+        PDPage page = new PDPage();
+        document.addPage(page);
+        try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+            content.beginText();
+            content.setFont(negrito, 14);
+            content.newLineAtOffset(50, 740);
+            content.showText("RELATÓRIO OFICIAL");
+            content.setFont(regular, 11);
+            for (String linha : LINHAS) {
+                content.newLineAtOffset(0, -18);
+                content.showText(linha);
+            }
+            content.endText();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        document.save(out);
+        return out.toByteArray();
+    }
+}
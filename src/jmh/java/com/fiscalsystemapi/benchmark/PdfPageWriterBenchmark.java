@@ -0,0 +1,76 @@
+package com.fiscalsystemapi.benchmark;
+
+import com.fiscalsystemapi.util.PdfFontRegistry;
+import com.fiscalsystemapi.util.PdfPageWriter;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Geração e assinatura de um relatório de várias páginas pelo {@link PdfPageWriter}, com as páginas
+ * renderizadas na própria thread e em um pool com um worker por núcleo. O ganho do paralelo depende
+ * do número de núcleos disponíveis; com um único núcleo só aparece o custo da troca de thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfPageWriterBenchmark {
+
+    // Linhas que cabem em uma página A4 abaixo do cabeçalho
+    private static final int LINHAS_POR_PAGINA = 47;
+
+    @Param({"1", "20", "200"})
+    private int paginas;
+
+    private ExecutorService executor;
+
+    @Setup
+    public void preparar() {
+        PdfFontRegistry.carregar();
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown
+    public void encerrar() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public byte[] sequencial() throws IOException {
+        return gerar(null);
+    }
+
+    @Benchmark
+    public byte[] paralelo() throws IOException {
+        return gerar(executor);
+    }
+
+    private byte[] gerar(ExecutorService executorPaginas) throws IOException {
+        PDDocument document = PdfPageWriter.novoDocumento();
+        try (PdfPageWriter writer = new PdfPageWriter(document, "Cálculo FEPA - Detalhado", executorPaginas)) {
+            for (int i = 0; i < paginas * LINHAS_POR_PAGINA; i++) {
+                writer.escreverLinha("Competência " + i + ": base R$ 12.345,67 - imposto R$ 1.234,56 - líquido R$ 11.111,11");
+            }
+            writer.assinar("Assinado por Maria Ribeiro (12345678900)", "01/02/2025 10:20:30");
+        }
+        return PdfPageWriter.salvar(document);
+    }
+}
@@ -0,0 +1,84 @@
+package com.fiscalsystemapi.benchmark;
+
+import com.fiscalsystemapi.dto.ProcessData;
+import com.fiscalsystemapi.dto.ProcessNumber;
+import com.fiscalsystemapi.dto.rra.CalculoRraResult;
+import com.fiscalsystemapi.service.PdfRraService;
+import com.fiscalsystemapi.util.DirectPdfWriter;
+import com.fiscalsystemapi.util.PdfFontRegistry;
+import com.fiscalsystemapi.util.PdfPageWriter;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo de um relatório RRA assinado de uma página pelos dois caminhos de geração: PDFBox
+ * ({@link PdfPageWriter}, com a assinatura aplicada na mesma etapa) e {@link DirectPdfWriter}, que
+ * escreve o PDF a partir de objetos pré-serializados. O conteúdo é escrito pelo próprio
+ * {@link PdfRraService#escreverRelatorio}, sem cache de PDF.
+ * Execute com {@code -prof gc} para ver a alocação por operação (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PdfWriterBenchmark {
+
+    private static final String ASSINATURA = "Assinado por Maria Ribeiro (12345678900)";
+    private static final String DATA_ASSINATURA = "01/02/2025 10:20:30";
+
+    private PdfRraService pdfRraService;
+    private CalculoRraResult resultado;
+    private ProcessData dados;
+
+    @Setup
+    public void preparar() {
+        PdfFontRegistry.carregar();
+        pdfRraService = new PdfRraService(null, null, null, false);
+        dados = new ProcessData();
+        dados.setNumProcesso(ProcessNumber.parse("0001234-62.2024.8.05.0001"));
+        dados.setNomeParteAutora("João da Conceição");
+        dados.setNomeParteRe("Estado (Fazenda Pública)");
+        resultado = CalculoRraResult.builder()
+                .quantidadeMeses(36)
+                .valorBrutoRPV(new BigDecimal("250000.00"))
+                .baseCalculo(new BigDecimal("250000.00"))
+                .mediaMensal(new BigDecimal("6944.44"))
+                .impostoMensal(new BigDecimal("1032.94"))
+                .impostoTotal(new BigDecimal("37185.84"))
+                .aliquotaEfetiva(new BigDecimal("14.87"))
+                .valorLiquido(new BigDecimal("212814.16"))
+                .build();
+    }
+
+    @Benchmark
+    public byte[] pdfbox() throws IOException {
+        PDDocument document = PdfPageWriter.novoDocumento();
+        try (PdfPageWriter writer = new PdfPageWriter(document, PdfRraService.SUBTITULO)) {
+            pdfRraService.escreverRelatorio(writer, resultado, dados);
+            writer.assinar(ASSINATURA, DATA_ASSINATURA);
+        }
+        return PdfPageWriter.salvar(document);
+    }
+
+    @Benchmark
+    public byte[] direto() throws IOException {
+        DirectPdfWriter writer = new DirectPdfWriter(PdfRraService.SUBTITULO);
+        pdfRraService.escreverRelatorio(writer, resultado, dados);
+        return writer.gerarAssinado(ASSINATURA, DATA_ASSINATURA);
+    }
+}
@@ -0,0 +1,84 @@
+package com.fiscalsystemapi.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import com.fiscalsystemapi.dto.fepa.CalculoFepaResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo por requisição da serialização do resultado de um cálculo. {@code antes}: o serviço gera o JSON
+ * do registro como String e o conversor de mensagens serializa o DTO outra vez para a resposta.
+ * {@code depois}: um único JSON em bytes, com o ObjectWriter do tipo reutilizado, gravado no registro e
+ * escrito na resposta. Execute com {@code -prof gc} para ver a alocação por operação (gc.alloc.rate.norm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializacaoResultadoBenchmark {
+
+    @Param({"false", "true"})
+    public boolean blackbird;
+
+    private ObjectMapper objectMapper;
+    private ObjectWriter writer;
+    private CalculoFepaResult resultado;
+
+    @Setup
+    public void preparar() {
+        // Mesma configuração padrão do ObjectMapper criado pelo Spring Boot
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        if (blackbird) {
+            objectMapper.registerModule(new BlackbirdModule());
+        }
+        writer = objectMapper.writerFor(CalculoFepaResult.class);
+        resultado = CalculoFepaResult.builder()
+                .numProcesso("0001234-56.2024.8.05.0001")
+                .nomeParteAutora("João da Conceição")
+                .nomeParteRe("Estado (Fazenda Pública)")
+                .periodoInicial("01/2019")
+                .periodoFinal("12/2021")
+                .meses(36)
+                .valorBrutoRPV(new BigDecimal("123456.78"))
+                .totalValorCorrigido(new BigDecimal("104938.27"))
+                .totalFEPA(new BigDecimal("11543.21"))
+                .ir(new BigDecimal("1234.56"))
+                .aliquotaEfetiva(new BigDecimal("1.18"))
+                .liquido(new BigDecimal("110679.01"))
+                .mediaMensal(new BigDecimal("2914.95"))
+                .build();
+    }
+
+    @Benchmark
+    public void antes(Blackhole blackhole) throws Exception {
+        blackhole.consume(objectMapper.writeValueAsString(resultado));
+        blackhole.consume(objectMapper.writeValueAsBytes(resultado));
+    }
+
+    @Benchmark
+    public void depois(Blackhole blackhole) throws Exception {
+        byte[] json = writer.writeValueAsBytes(resultado);
+        // A coluna resultado_json continua sendo texto
+        blackhole.consume(new String(json, StandardCharsets.UTF_8));
+        blackhole.consume(json);
+    }
+}
@@ -1,9 +1,14 @@
 package com.fiscalsystemapi;
 
+import com.fiscalsystemapi.config.FiscalSystemRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
+@ImportRuntimeHints(FiscalSystemRuntimeHints.class)
 public class FiscalSystemApiApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,180 @@
+package com.fiscalsystemapi.cache;
+
+import com.fiscalsystemapi.util.Metricas;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Cache de uma região (cálculos, PDFs, tokens) em duas camadas: uma cópia local dos objetos mais usados
+ * (Caffeine, limitada em bytes estimados) e o {@link CacheStore} compartilhado, com os valores serializados.
+ * Uma falta local consulta o armazenamento compartilhado e guarda o valor desserializado na camada local.
+ * Gravações e remoções são propagadas às camadas locais das demais instâncias pelo canal de invalidação do
+ * armazenamento, para que nenhuma continue servindo a versão anterior de uma chave sobrescrita.
+ * Se o armazenamento não for distribuído, apenas a camada local é usada.
+ *
+ * @param <V> Tipo do valor mantido na camada local.
+ */
+public class CacheEmCamadas<V> {
+
+    // Mensagem de invalidação: "<região>\n<chave>\n<origem>"; a chave TODAS esvazia a região inteira
+    private static final char SEPARADOR = '\n';
+    private static final String TODAS = "*";
+
+    private final String regiao;
+    // Identifica esta instância nas mensagens, para que ela não descarte o valor que acabou de gravar
+    private final String origem = UUID.randomUUID().toString();
+    private final CacheStore remoto;
+    private final Cache<String, V> local;
+    private final AtomicLong acertosRemotos = new AtomicLong();
+    private final Counter consultasRemotasComAcerto;
+    private final Counter consultasRemotasComFalta;
+
+    /**
+     * @param regiao        Nome da região; prefixa as chaves no armazenamento e identifica as métricas
+     *                      ({@code cache="fiscal.<regiao>"}).
+     * @param store         Armazenamento compartilhado.
+     * @param maxBytesLocal Limite da camada local, em bytes estimados.
+     * @param validadeLocal Tempo máximo de um valor na camada local; null para não expirar.
+     * @param peso          Estimativa do tamanho de um valor, em bytes.
+     */
+    public CacheEmCamadas(String regiao, CacheStore store, long maxBytesLocal, Duration validadeLocal,
+                          ToIntFunction<V> peso) {
+        this.regiao = regiao;
+        this.remoto = store.distribuido() ? store : null;
+        Caffeine<String, V> builder = Caffeine.newBuilder()
+                .maximumWeight(maxBytesLocal)
+                .weigher((String chave, V valor) -> 2 * chave.length() + peso.applyAsInt(valor))
+                .recordStats();
+        if (validadeLocal != null) {
+            builder.expireAfterWrite(validadeLocal);
+        }
+        this.local = builder.build();
+        this.consultasRemotasComAcerto = Metricas.cacheRemoto(regiao, true);
+        this.consultasRemotasComFalta = Metricas.cacheRemoto(regiao, false);
+        CaffeineCacheMetrics.monitor(Metrics.globalRegistry, local, "fiscal." + regiao);
+        if (remoto != null) {
+            remoto.inscreverInvalidacao(this::aoReceberInvalidacao);
+        }
+    }
+
+    /**
+     * Busca um valor na camada local e, se não houver, no armazenamento compartilhado.
+     *
+     * @param chave        Chave dentro da região.
+     * @param desserializar Converte o valor compartilhado; pode devolver null se os bytes forem inválidos.
+     * @return Valor encontrado, ou null.
+     */
+    public V buscar(String chave, Function<byte[], V> desserializar) {
+        V valor = local.getIfPresent(chave);
+        if (valor != null || remoto == null) {
+            return valor;
+        }
+        Optional<byte[]> serializado = remoto.buscar(chaveRemota(chave));
+        if (serializado.isPresent()) {
+            valor = desserializar.apply(serializado.get());
+        }
+        if (valor != null) {
+            consultasRemotasComAcerto.increment();
+            acertosRemotos.incrementAndGet();
+            local.put(chave, valor);
+        } else {
+            consultasRemotasComFalta.increment();
+        }
+        return valor;
+    }
+
+    /**
+     * Guarda o valor nas duas camadas e descarta a cópia local das demais instâncias, que pode ser de
+     * uma versão anterior.
+     *
+     * @param chave       Chave dentro da região.
+     * @param valor       Valor para a camada local.
+     * @param serializado Mesmo valor já serializado, para o armazenamento compartilhado.
+     * @param validade    Validade no armazenamento compartilhado; null para não expirar.
+     */
+    public void armazenar(String chave, V valor, byte[] serializado, Duration validade) {
+        local.put(chave, valor);
+        if (remoto != null) {
+            remoto.armazenar(chaveRemota(chave), serializado, validade);
+            publicarInvalidacao(chave);
+        }
+    }
+
+    /**
+     * Remove a chave das duas camadas, nesta e nas demais instâncias.
+     */
+    public void remover(String chave) {
+        local.invalidate(chave);
+        if (remoto != null) {
+            remoto.remover(chaveRemota(chave));
+            publicarInvalidacao(chave);
+        }
+    }
+
+    /**
+     * Esvazia a região nas duas camadas, nesta e nas demais instâncias.
+     */
+    public void limpar() {
+        local.invalidateAll();
+        if (remoto != null) {
+            remoto.removerPorPrefixo(regiao + ":");
+            publicarInvalidacao(TODAS);
+        }
+    }
+
+    public boolean isDistribuido() {
+        return remoto != null;
+    }
+
+    public CacheStats getEstatisticasLocais() {
+        return local.stats();
+    }
+
+    public long getAcertosRemotos() {
+        return acertosRemotos.get();
+    }
+
+    public long getEntradasLocais() {
+        return local.estimatedSize();
+    }
+
+    public long getBytesLocais() {
+        return local.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    private String chaveRemota(String chave) {
+        return regiao + ":" + chave;
+    }
+
+    private void publicarInvalidacao(String chave) {
+        remoto.publicarInvalidacao(regiao + SEPARADOR + chave + SEPARADOR + origem);
+    }
+
+    private void aoReceberInvalidacao(String mensagem) {
+        int separador = mensagem.indexOf(SEPARADOR);
+        int separadorOrigem = mensagem.lastIndexOf(SEPARADOR);
+        if (separadorOrigem <= separador || !regiao.equals(mensagem.substring(0, separador))
+                || origem.equals(mensagem.substring(separadorOrigem + 1))) {
+            return;
+        }
+        String chave = mensagem.substring(separador + 1, separadorOrigem);
+        if (TODAS.equals(chave)) {
+            local.invalidateAll();
+        } else {
+            local.invalidate(chave);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.fiscalsystemapi.cache;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Armazenamento de cache em bytes, compartilhável entre instâncias da aplicação.
+ * Os valores são sempre bytes já serializados (JSON do resultado, PDF, etc.); cabe a quem usa
+ * o cache convertê-los. Há uma implementação em memória ({@link MemoriaCacheStore}), para uma
+ * única instância, e uma que fala o protocolo do Redis ({@link RedisCacheStore}), escolhidas por
+ * {@code cache.store}. Falhas de acesso não devem ser propagadas: um cache indisponível equivale a uma falta.
+ * Normalmente é usado através de {@link CacheEmCamadas}, que mantém uma cópia local dos valores mais usados.
+ */
+public interface CacheStore {
+
+    /**
+     * @param chave Chave completa (já com o prefixo da região).
+     * @return Valor armazenado, se existir e não tiver expirado.
+     */
+    Optional<byte[]> buscar(String chave);
+
+    /**
+     * @param chave    Chave completa (já com o prefixo da região).
+     * @param valor    Valor serializado.
+     * @param validade Tempo até a expiração; null para não expirar (o armazenamento ainda pode remover por espaço).
+     */
+    void armazenar(String chave, byte[] valor, Duration validade);
+
+    void remover(String chave);
+
+    /**
+     * Remove todas as chaves que começam com o prefixo informado. Operação administrativa,
+     * que pode percorrer todo o armazenamento.
+     */
+    void removerPorPrefixo(String prefixo);
+
+    /**
+     * Publica uma mensagem de invalidação para todas as instâncias inscritas, inclusive a própria.
+     */
+    void publicarInvalidacao(String mensagem);
+
+    /**
+     * Inscreve um ouvinte para as mensagens de invalidação publicadas por qualquer instância.
+     */
+    void inscreverInvalidacao(Consumer<String> ouvinte);
+
+    /**
+     * Indica se o armazenamento é compartilhado entre instâncias (e portanto acessado pela rede).
+     * Se não for, {@link CacheEmCamadas} usa apenas a camada local.
+     */
+    boolean distribuido();
+}
@@ -0,0 +1,90 @@
+package com.fiscalsystemapi.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * {@link CacheStore} em memória, para uma única instância (padrão) e para testes.
+ * Limitado pelo total de bytes armazenados; cada entrada expira segundo a validade informada.
+ * As mensagens de invalidação são entregues apenas aos ouvintes da própria instância.
+ */
+public class MemoriaCacheStore implements CacheStore {
+
+    private final Cache<String, Entrada> cache;
+    private final List<Consumer<String>> ouvintes = new CopyOnWriteArrayList<>();
+
+    public MemoriaCacheStore(long maxBytes) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String chave, Entrada entrada) -> 2 * chave.length() + entrada.valor.length)
+                .expireAfter(new Expiry<String, Entrada>() {
+                    @Override
+                    public long expireAfterCreate(String chave, Entrada entrada, long agora) {
+                        return entrada.validadeNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String chave, Entrada entrada, long agora, long restante) {
+                        return entrada.validadeNanos;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String chave, Entrada entrada, long agora, long restante) {
+                        return restante;
+                    }
+                })
+                .build();
+    }
+
+    @Override
+    public Optional<byte[]> buscar(String chave) {
+        Entrada entrada = cache.getIfPresent(chave);
+        return entrada == null ? Optional.empty() : Optional.of(entrada.valor);
+    }
+
+    @Override
+    public void armazenar(String chave, byte[] valor, Duration validade) {
+        long validadeNanos = validade == null ? Long.MAX_VALUE : validade.toNanos();
+        if (validadeNanos <= 0) {
+            return;
+        }
+        cache.put(chave, new Entrada(valor, validadeNanos));
+    }
+
+    @Override
+    public void remover(String chave) {
+        cache.invalidate(chave);
+    }
+
+    @Override
+    public void removerPorPrefixo(String prefixo) {
+        cache.asMap().keySet().removeIf(chave -> chave.startsWith(prefixo));
+    }
+
+    @Override
+    public void publicarInvalidacao(String mensagem) {
+        for (Consumer<String> ouvinte : ouvintes) {
+            ouvinte.accept(mensagem);
+        }
+    }
+
+    @Override
+    public void inscreverInvalidacao(Consumer<String> ouvinte) {
+        ouvintes.add(ouvinte);
+    }
+
+    @Override
+    public boolean distribuido() {
+        return false;
+    }
+
+    private record Entrada(byte[] valor, long validadeNanos) {
+    }
+}
@@ -0,0 +1,216 @@
+package com.fiscalsystemapi.cache;
+
+import com.fiscalsystemapi.util.Metricas;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.KeyScanCursor;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.ScanCursor;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.protocol.ProtocolVersion;
+import io.lettuce.core.pubsub.RedisPubSubAdapter;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * {@link CacheStore} sobre o protocolo do Redis (Redis, Valkey, KeyDB ou compatíveis), compartilhado
+ * entre as instâncias. Usa uma única conexão multiplexada para os comandos e outra para o canal de
+ * invalidação. As chaves recebem o prefixo {@code cache.redis.prefixo}, para que várias aplicações
+ * possam dividir o mesmo servidor. Erros de comunicação são registrados e tratados como falta no cache.
+ * <p>
+ * A conexão é aberta na criação, mas uma falha não impede a subida da aplicação: enquanto o servidor estiver
+ * fora do ar o cache funciona só com a camada local, e a conexão é tentada de novo em uma operação posterior,
+ * no máximo a cada {@value #INTERVALO_RECONEXAO_MS} ms. Depois de conectada, a reconexão fica com o Lettuce.
+ */
+public class RedisCacheStore implements CacheStore, AutoCloseable {
+
+    private static final long INTERVALO_RECONEXAO_MS = 5000;
+
+    private final String prefixo;
+    private final String canal;
+    private final RedisClient cliente;
+    private final List<Consumer<String>> ouvintes = new CopyOnWriteArrayList<>();
+    private final ReentrantLock conectando = new ReentrantLock();
+    private volatile StatefulRedisConnection<String, byte[]> conexao;
+    private volatile StatefulRedisPubSubConnection<String, String> conexaoPubSub;
+    private volatile long proximaTentativa;
+
+    public RedisCacheStore(String url, String prefixo, Duration timeout) {
+        this.prefixo = prefixo;
+        this.canal = prefixo + "invalidacao";
+        RedisURI uri = RedisURI.create(url);
+        uri.setTimeout(timeout);
+        this.cliente = RedisClient.create(uri);
+        // RESP2 dispensa o HELLO e funciona com qualquer servidor compatível, inclusive versões anteriores ao Redis 6
+        this.cliente.setOptions(ClientOptions.builder()
+                .protocolVersion(ProtocolVersion.RESP2)
+                .autoReconnect(true)
+                .build());
+        conectar();
+    }
+
+    // Conexão dos comandos, ou null enquanto o servidor estiver inacessível
+    private StatefulRedisConnection<String, byte[]> conexao() {
+        StatefulRedisConnection<String, byte[]> atual = conexao;
+        return atual != null ? atual : conectar();
+    }
+
+    // Uma thread por vez tenta conectar; as demais seguem sem cache em vez de esperar o timeout
+    private StatefulRedisConnection<String, byte[]> conectar() {
+        if (System.currentTimeMillis() < proximaTentativa || !conectando.tryLock()) {
+            return conexao;
+        }
+        StatefulRedisConnection<String, byte[]> novaConexao = null;
+        StatefulRedisPubSubConnection<String, String> novaConexaoPubSub = null;
+        try {
+            if (conexao != null) {
+                return conexao;
+            }
+            novaConexao = cliente.connect(RedisCodec.of(StringCodec.UTF8, ByteArrayCodec.INSTANCE));
+            novaConexaoPubSub = cliente.connectPubSub(StringCodec.UTF8);
+            novaConexaoPubSub.addListener(new RedisPubSubAdapter<>() {
+                @Override
+                public void message(String canalRecebido, String mensagem) {
+                    for (Consumer<String> ouvinte : ouvintes) {
+                        ouvinte.accept(mensagem);
+                    }
+                }
+            });
+            novaConexaoPubSub.sync().subscribe(canal);
+            conexaoPubSub = novaConexaoPubSub;
+            conexao = novaConexao;
+            return novaConexao;
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            Metricas.erroIgnorado(RedisCacheStore.class, e);
+            proximaTentativa = System.currentTimeMillis() + INTERVALO_RECONEXAO_MS;
+            if (novaConexaoPubSub != null) {
+                novaConexaoPubSub.close();
+            }
+            if (novaConexao != null) {
+                novaConexao.close();
+            }
+            return null;
+        } finally {
+            conectando.unlock();
+        }
+    }
+
+    @Override
+    public Optional<byte[]> buscar(String chave) {
+        StatefulRedisConnection<String, byte[]> atual = conexao();
+        if (atual == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.ofNullable(atual.sync().get(prefixo + chave));
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            Metricas.erroIgnorado(RedisCacheStore.class, e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void armazenar(String chave, byte[] valor, Duration validade) {
+        StatefulRedisConnection<String, byte[]> atual = conexao();
+        if (atual == null) {
+            return;
+        }
+        try {
+            if (validade == null) {
+                atual.sync().set(prefixo + chave, valor);
+            } else if (validade.toMillis() > 0) {
+                atual.sync().set(prefixo + chave, valor, SetArgs.Builder.px(validade.toMillis()));
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            Metricas.erroIgnorado(RedisCacheStore.class, e);
+        }
+    }
+
+    @Override
+    public void remover(String chave) {
+        StatefulRedisConnection<String, byte[]> atual = conexao();
+        if (atual == null) {
+            return;
+        }
+        try {
+            atual.sync().del(prefixo + chave);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            Metricas.erroIgnorado(RedisCacheStore.class, e);
+        }
+    }
+
+    @Override
+    public void removerPorPrefixo(String prefixoChave) {
+        StatefulRedisConnection<String, byte[]> atual = conexao();
+        if (atual == null) {
+            return;
+        }
+        try {
+            RedisCommands<String, byte[]> comandos = atual.sync();
+            ScanArgs args = ScanArgs.Builder.matches(prefixo + prefixoChave + "*").limit(500);
+            ScanCursor cursor = ScanCursor.INITIAL;
+            do {
+                KeyScanCursor<String> pagina = comandos.scan(cursor, args);
+                if (!pagina.getKeys().isEmpty()) {
+                    comandos.del(pagina.getKeys().toArray(new String[0]));
+                }
+                cursor = pagina;
+            } while (!cursor.isFinished());
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            Metricas.erroIgnorado(RedisCacheStore.class, e);
+        }
+    }
+
+    @Override
+    public void publicarInvalidacao(String mensagem) {
+        StatefulRedisConnection<String, byte[]> atual = conexao();
+        if (atual == null) {
+            return;
+        }
+        try {
+            atual.sync().publish(canal, mensagem.getBytes(StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            Metricas.erroIgnorado(RedisCacheStore.class, e);
+        }
+    }
+
+    @Override
+    public void inscreverInvalidacao(Consumer<String> ouvinte) {
+        ouvintes.add(ouvinte);
+    }
+
+    @Override
+    public boolean distribuido() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+        if (conexaoPubSub != null) {
+            conexaoPubSub.close();
+        }
+        if (conexao != null) {
+            conexao.close();
+        }
+        cliente.shutdown();
+    }
+}
@@ -0,0 +1,26 @@
+package com.fiscalsystemapi.config;
+
+import com.fiscalsystemapi.dto.aquecimento.AquecimentoResponse;
+import com.fiscalsystemapi.service.AquecimentoService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Endpoint do Actuator (/actuator/aquecimento) com a duração do aquecimento e as latências atingidas.
+ */
+@Component
+@Endpoint(id = "aquecimento")
+public class AquecimentoEndpoint {
+
+    private final AquecimentoService aquecimentoService;
+
+    public AquecimentoEndpoint(AquecimentoService aquecimentoService) {
+        this.aquecimentoService = aquecimentoService;
+    }
+
+    @ReadOperation
+    public AquecimentoResponse aquecimento() {
+        return aquecimentoService.status();
+    }
+}
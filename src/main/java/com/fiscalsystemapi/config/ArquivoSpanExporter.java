@@ -0,0 +1,92 @@
+package com.fiscalsystemapi.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fiscalsystemapi.util.Metricas;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exportador de spans para arquivo local, um JSON por linha, para uso sem coletor externo.
+ */
+public class ArquivoSpanExporter implements SpanExporter {
+
+    private final BufferedWriter writer;
+    private final ObjectMapper objectMapper;
+
+    public ArquivoSpanExporter(Path arquivo, ObjectMapper objectMapper) throws IOException {
+        if (arquivo.getParent() != null) {
+            Files.createDirectories(arquivo.getParent());
+        }
+        this.writer = Files.newBufferedWriter(arquivo, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> spans) {
+        try {
+            for (SpanData span : spans) {
+                writer.write(objectMapper.writeValueAsString(linha(span)));
+                writer.newLine();
+            }
+            writer.flush();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            e.printStackTrace();
+            Metricas.erroIgnorado(ArquivoSpanExporter.class, e);
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    @Override
+    public synchronized CompletableResultCode flush() {
+        try {
+            writer.flush();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            e.printStackTrace();
+            Metricas.erroIgnorado(ArquivoSpanExporter.class, e);
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    @Override
+    public synchronized CompletableResultCode shutdown() {
+        try {
+            writer.close();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            e.printStackTrace();
+            Metricas.erroIgnorado(ArquivoSpanExporter.class, e);
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    private static Map<String, Object> linha(SpanData span) {
+        Map<String, Object> linha = new LinkedHashMap<>();
+        linha.put("traceId", span.getTraceId());
+        linha.put("spanId", span.getSpanId());
+        linha.put("parentSpanId", span.getParentSpanContext().isValid() ? span.getParentSpanId() : null);
+        linha.put("nome", span.getName());
+        linha.put("inicio", TimeUnit.NANOSECONDS.toMillis(span.getStartEpochNanos()));
+        linha.put("duracaoMs", (span.getEndEpochNanos() - span.getStartEpochNanos()) / 1_000_000.0);
+        linha.put("status", span.getStatus().getStatusCode().name());
+        Map<String, Object> atributos = new LinkedHashMap<>();
+        span.getAttributes().forEach((AttributeKey<?> chave, Object valor) -> atributos.put(chave.getKey(), valor));
+        linha.put("atributos", atributos);
+        return linha;
+    }
+}
@@ -0,0 +1,34 @@
+package com.fiscalsystemapi.config;
+
+import com.fiscalsystemapi.cache.CacheStore;
+import com.fiscalsystemapi.cache.MemoriaCacheStore;
+import com.fiscalsystemapi.cache.RedisCacheStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Escolhe o armazenamento compartilhado dos caches de cálculos, PDFs e tokens ({@code cache.store}):
+ * {@code memoria} (padrão) para uma única instância, ou {@code redis} para que várias instâncias
+ * atrás do balanceador dividam os mesmos resultados.
+ */
+@Configuration
+public class CacheConfig {
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "cache.store", havingValue = "redis")
+    public CacheStore redisCacheStore(@Value("${cache.redis.url:redis://localhost:6379}") String url,
+                                      @Value("${cache.redis.prefixo:fiscalsystem:}") String prefixo,
+                                      @Value("${cache.redis.timeout-ms:200}") long timeoutMs) {
+        return new RedisCacheStore(url, prefixo, Duration.ofMillis(timeoutMs));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "cache.store", havingValue = "memoria", matchIfMissing = true)
+    public CacheStore memoriaCacheStore(@Value("${cache.memoria.max-bytes:67108864}") long maxBytes) {
+        return new MemoriaCacheStore(maxBytes);
+    }
+}
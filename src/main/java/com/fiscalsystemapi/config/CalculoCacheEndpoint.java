@@ -0,0 +1,35 @@
+package com.fiscalsystemapi.config;
+
+import com.fiscalsystemapi.dto.calculo.CalculoCacheResponse;
+import com.fiscalsystemapi.service.CalculoCacheService;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Endpoint do Actuator (/actuator/calculocache) com a taxa de acerto e as remoções do cache de cálculos.
+ * DELETE descarta todas as entradas, em todas as instâncias; por isso o endpoint só atende o usuário de
+ * serviço do actuator (veja {@link SecurityConfig}).
+ */
+@Component
+@Endpoint(id = "calculocache")
+public class CalculoCacheEndpoint {
+
+    private final CalculoCacheService calculoCacheService;
+
+    public CalculoCacheEndpoint(CalculoCacheService calculoCacheService) {
+        this.calculoCacheService = calculoCacheService;
+    }
+
+    @ReadOperation
+    public CalculoCacheResponse status() {
+        return calculoCacheService.status();
+    }
+
+    @DeleteOperation
+    public CalculoCacheResponse invalidar() {
+        calculoCacheService.invalidar();
+        return calculoCacheService.status();
+    }
+}
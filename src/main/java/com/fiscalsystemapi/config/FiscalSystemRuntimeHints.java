@@ -0,0 +1,34 @@
+package com.fiscalsystemapi.config;
+
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Dicas de reflexão e de recursos para a imagem nativa (GraalVM).
+ * Os DTOs são serializados pelo Jackson fora dos controllers (registro dos cálculos, chave do cache
+ * de PDF e leitura dos cálculos gravados), onde o processamento AOT não consegue inferir os tipos;
+ * por isso todas as classes do pacote dto são registradas. As fontes dos relatórios e os recursos
+ * internos do PDFBox também precisam ser incluídos explicitamente na imagem.
+ */
+public class FiscalSystemRuntimeHints implements RuntimeHintsRegistrar {
+
+    private static final String PACOTE_DTO = "com.fiscalsystemapi.dto";
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        BindingReflectionHintsRegistrar binding = new BindingReflectionHintsRegistrar();
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        scanner.addIncludeFilter((leitor, fabrica) -> true);
+        for (BeanDefinition definicao : scanner.findCandidateComponents(PACOTE_DTO)) {
+            binding.registerReflectionHints(hints.reflection(),
+                    ClassUtils.resolveClassName(definicao.getBeanClassName(), classLoader));
+        }
+
+        hints.resources().registerPattern("fonts/*");
+        hints.resources().registerPattern("org/apache/pdfbox/resources/**");
+    }
+}
@@ -0,0 +1,39 @@
+package com.fiscalsystemapi.config;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.data.LinkData;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import io.opentelemetry.sdk.trace.samplers.SamplingDecision;
+import io.opentelemetry.sdk.trace.samplers.SamplingResult;
+
+import java.util.List;
+
+/**
+ * Amostragem que decide apenas a exportação: os traces descartados pela amostragem de
+ * {@code management.tracing.sampling.probability} continuam sendo gravados localmente (RECORD_ONLY), para que
+ * {@link RequisicaoLentaSpanProcessor} veja todas as requisições. Os exportadores (OTLP e arquivo) recebem
+ * apenas os traces amostrados, como antes.
+ */
+public class GravacaoLocalSampler implements Sampler {
+
+    private final Sampler amostragem;
+
+    public GravacaoLocalSampler(Sampler amostragem) {
+        this.amostragem = amostragem;
+    }
+
+    @Override
+    public SamplingResult shouldSample(Context parentContext, String traceId, String name, SpanKind spanKind,
+                                       Attributes attributes, List<LinkData> parentLinks) {
+        SamplingResult resultado = amostragem.shouldSample(parentContext, traceId, name, spanKind, attributes,
+                parentLinks);
+        return resultado.getDecision() == SamplingDecision.DROP ? SamplingResult.recordOnly() : resultado;
+    }
+
+    @Override
+    public String getDescription() {
+        return "GravacaoLocal{" + amostragem.getDescription() + "}";
+    }
+}
@@ -0,0 +1,239 @@
+package com.fiscalsystemapi.config;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fiscalsystemapi.entity.RequisicaoIdempotente;
+import com.fiscalsystemapi.service.AuthService;
+import com.fiscalsystemapi.service.IdempotenciaService;
+import com.fiscalsystemapi.util.HashUtils;
+import com.fiscalsystemapi.util.Metricas;
+import io.micrometer.core.instrument.Counter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Atende as novas tentativas de POST em /calculos/* e /pdf/* enviadas com o cabeçalho
+ * {@code Idempotency-Key}: a primeira requisição executa normalmente e sua resposta fica gravada
+ * (ver {@link IdempotenciaService}); as repetições com o mesmo corpo recebem a resposta gravada, com o
+ * cabeçalho {@code Idempotent-Replayed: true}, sem recalcular, gerar o PDF ou gravar outro registro.
+ * A mesma chave com outro endpoint ou outro corpo, ou enquanto a original ainda está em andamento,
+ * resulta em 409. Respostas 5xx não são gravadas, para que a requisição possa ser repetida.
+ * Executa depois da cadeia do Spring Security, com o usuário já autenticado.
+ */
+@Component
+public class IdempotenciaFilter extends OncePerRequestFilter {
+
+    public static final String CABECALHO = "Idempotency-Key";
+    public static final String CABECALHO_REPETIDA = "Idempotent-Replayed";
+
+    private static final int TAMANHO_MAXIMO_CHAVE = 255;
+
+    // Números decimais lidos como BigDecimal, sem arredondamento para double; conteúdo após o JSON o invalida
+    private static final ObjectMapper LEITOR_JSON = JsonMapper.builder()
+            .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+            .enable(DeserializationFeature.FAIL_ON_TRAILING_TOKENS)
+            .build();
+
+    private final IdempotenciaService idempotenciaService;
+    private final AuthService authService;
+    private final boolean habilitado;
+    // Contadores de cada endpoint, registrados na primeira repetição e reaproveitados nas seguintes
+    private final ConcurrentHashMap<String, Contadores> contadores = new ConcurrentHashMap<>();
+
+    public IdempotenciaFilter(IdempotenciaService idempotenciaService, AuthService authService,
+                              @Value("${idempotencia.enabled:true}") boolean habilitado) {
+        this.idempotenciaService = idempotenciaService;
+        this.authService = authService;
+        this.habilitado = habilitado;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!habilitado || !"POST".equals(request.getMethod()) || request.getHeader(CABECALHO) == null) {
+            return true;
+        }
+        return !endpointIdempotente(request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        String chave = request.getHeader(CABECALHO);
+        if (chave.isBlank() || chave.length() > TAMANHO_MAXIMO_CHAVE) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                    "Idempotency-Key deve ter entre 1 e " + TAMANHO_MAXIMO_CHAVE + " caracteres");
+            return;
+        }
+
+        String endpoint = request.getServletPath().substring(1);
+        byte[] corpo = request.getInputStream().readAllBytes();
+        IdempotenciaService.Reserva reserva = idempotenciaService.reservar(authService.getLoggedUserId(), chave,
+                endpoint, hashCorpo(corpo));
+
+        switch (reserva.situacao()) {
+            case REPETIDA -> {
+                contadores.computeIfAbsent(endpoint, Contadores::registrar).repetida().increment();
+                responderGravada(reserva.registro(), response);
+            }
+            case CONFLITO -> {
+                contadores.computeIfAbsent(endpoint, Contadores::registrar).conflito().increment();
+                response.sendError(HttpServletResponse.SC_CONFLICT,
+                        "Idempotency-Key já usada com outra requisição");
+            }
+            case EM_ANDAMENTO -> {
+                contadores.computeIfAbsent(endpoint, Contadores::registrar).emAndamento().increment();
+                response.sendError(HttpServletResponse.SC_CONFLICT,
+                        "Requisição com esta Idempotency-Key ainda em andamento");
+            }
+            case NOVA -> executar(reserva.registro(), new CorpoLidoRequest(request, corpo), response, filterChain);
+        }
+    }
+
+    // Executa a requisição original e grava a resposta; em erro de servidor a reserva é desfeita
+    private void executar(RequisicaoIdempotente registro, HttpServletRequest request,
+                          HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ContentCachingResponseWrapper resposta = new ContentCachingResponseWrapper(response);
+        try {
+            filterChain.doFilter(request, resposta);
+        } catch (IOException | ServletException | RuntimeException | Error e) {
+            idempotenciaService.liberar(registro);
+            throw e;
+        }
+        if (resposta.getStatus() >= HttpServletResponse.SC_INTERNAL_SERVER_ERROR) {
+            idempotenciaService.liberar(registro);
+        } else {
+            idempotenciaService.concluir(registro, resposta.getStatus(), resposta.getContentType(),
+                    resposta.getContentAsByteArray());
+        }
+        resposta.copyBodyToResponse();
+    }
+
+    // Hash do JSON canônico (como em CoalescenciaService): a mesma requisição com outra ordem de propriedades
+    // ou outra formatação não é tratada como conflito. Um corpo que não é JSON válido é comparado byte a byte
+    static String hashCorpo(byte[] corpo) {
+        try {
+            return HashUtils.sha256Hex(LEITOR_JSON.readValue(corpo, Object.class));
+        } catch (IOException e) {
+            return HashUtils.sha256HexBytes(corpo);
+        }
+    }
+
+    private static void responderGravada(RequisicaoIdempotente registro, HttpServletResponse response)
+            throws IOException {
+        response.setStatus(registro.getStatus());
+        response.setHeader(CABECALHO_REPETIDA, "true");
+        if (registro.getContentType() != null) {
+            response.setContentType(registro.getContentType());
+        }
+        byte[] corpo = registro.getCorpo() == null ? new byte[0] : registro.getCorpo();
+        response.setContentLength(corpo.length);
+        response.getOutputStream().write(corpo);
+    }
+
+    // Endpoints síncronos de CalculoController e PdfController; a exportação em ZIP (streaming) e os
+    // endpoints assíncronos não gravam a resposta em memória e ficam de fora
+    private static boolean endpointIdempotente(String caminho) {
+        if (caminho.startsWith("/calculos/")) {
+            return !caminho.startsWith("/calculos/async/");
+        }
+        return caminho.startsWith("/pdf/generate/") || caminho.equals("/pdf/sign");
+    }
+
+    private record Contadores(Counter repetida, Counter conflito, Counter emAndamento) {
+
+        static Contadores registrar(String endpoint) {
+            return new Contadores(Metricas.idempotencia(endpoint, "repetida"),
+                    Metricas.idempotencia(endpoint, "conflito"),
+                    Metricas.idempotencia(endpoint, "em_andamento"));
+        }
+    }
+
+    // Requisição cujo corpo já foi lido para o hash; o controller lê a cópia em memória
+    static final class CorpoLidoRequest extends HttpServletRequestWrapper {
+
+        private final byte[] corpo;
+
+        CorpoLidoRequest(HttpServletRequest request, byte[] corpo) {
+            super(request);
+            this.corpo = corpo;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream entrada = new ByteArrayInputStream(corpo);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return entrada.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // O corpo já está todo em memória: os dados estão disponíveis e a leitura termina de imediato
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        readListener.onAllDataRead();
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return entrada.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return entrada.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            Charset charset = getCharacterEncoding() == null
+                    ? StandardCharsets.UTF_8
+                    : Charset.forName(getCharacterEncoding());
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+
+        @Override
+        public int getContentLength() {
+            return corpo.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return corpo.length;
+        }
+    }
+}
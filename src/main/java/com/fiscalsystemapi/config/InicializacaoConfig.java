@@ -0,0 +1,29 @@
+package com.fiscalsystemapi.config;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuração da inicialização preguiçosa ({@code spring.main.lazy-initialization=true}).
+ * Apenas os beans de PDF (serviços, controllers e writers) e os do springdoc são adiados para o
+ * primeiro uso; os demais continuam sendo criados na subida, para que a primeira requisição de
+ * login ou cálculo não pague o custo de inicializar segurança, JPA e controllers.
+ */
+@Configuration
+public class InicializacaoConfig {
+
+    @Bean
+    static LazyInitializationExcludeFilter manterEagerExcetoPdfEOpenApi() {
+        return (nomeBean, definicao, tipo) -> !adiavel(tipo);
+    }
+
+    private static boolean adiavel(Class<?> tipo) {
+        if (tipo == null) {
+            return false;
+        }
+        String nome = tipo.getName();
+        return nome.startsWith("org.springdoc.")
+                || (nome.startsWith("com.fiscalsystemapi.") && tipo.getSimpleName().startsWith("Pdf"));
+    }
+}
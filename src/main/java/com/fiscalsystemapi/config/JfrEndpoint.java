@@ -0,0 +1,118 @@
+package com.fiscalsystemapi.config;
+
+import com.fiscalsystemapi.dto.jfr.GravacaoJfrResponse;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Date;
+
+/**
+ * Endpoint do Actuator (/actuator/jfr) para gravar o JDK Flight Recorder sob demanda, com a
+ * configuração jfr/fiscalsystem.jfc (eventos da aplicação, amostragem de CPU e alocação, GC).
+ * POST inicia uma gravação com duração limitada, GET baixa o que já foi gravado e DELETE descarta
+ * a gravação. Há no máximo uma gravação por vez.
+ */
+@Component
+@WebEndpoint(id = "jfr")
+public class JfrEndpoint {
+
+    private static final String CONFIGURACAO = "/jfr/fiscalsystem.jfc";
+
+    private final long duracaoPadraoSegundos;
+    private final long duracaoMaximaSegundos;
+
+    private Recording gravacao;
+
+    public JfrEndpoint(@Value("${jfr.duracao-padrao-s:60}") long duracaoPadraoSegundos,
+                       @Value("${jfr.duracao-maxima-s:600}") long duracaoMaximaSegundos) {
+        this.duracaoPadraoSegundos = duracaoPadraoSegundos;
+        this.duracaoMaximaSegundos = duracaoMaximaSegundos;
+    }
+
+    /**
+     * Inicia uma gravação. Se já houver uma em andamento, apenas retorna a sua situação.
+     *
+     * @param duracaoSegundos Duração da gravação (padrão jfr.duracao-padrao-s, limitada a jfr.duracao-maxima-s).
+     */
+    @WriteOperation
+    public synchronized GravacaoJfrResponse iniciar(@Nullable Long duracaoSegundos) throws IOException, ParseException {
+        if (gravacao != null && gravacao.getState() == RecordingState.RUNNING) {
+            return situacao();
+        }
+        descartar();
+
+        long duracao = Math.min(duracaoSegundos == null || duracaoSegundos <= 0 ? duracaoPadraoSegundos : duracaoSegundos,
+                duracaoMaximaSegundos);
+        Recording nova = new Recording(carregarConfiguracao());
+        nova.setName("fiscalsystem");
+        nova.setToDisk(true);
+        nova.setDuration(Duration.ofSeconds(duracao));
+        nova.start();
+        gravacao = nova;
+        return situacao();
+    }
+
+    /**
+     * Baixa o conteúdo gravado até o momento (arquivo .jfr). A gravação continua, se ainda estiver em andamento.
+     */
+    @ReadOperation(produces = "application/octet-stream")
+    public synchronized WebEndpointResponse<Resource> baixar() throws IOException {
+        if (gravacao == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        Path arquivo = Files.createTempFile("fiscalsystem-", ".jfr");
+        try {
+            gravacao.dump(arquivo);
+            return new WebEndpointResponse<>(new ByteArrayResource(Files.readAllBytes(arquivo)), WebEndpointResponse.STATUS_OK);
+        } finally {
+            Files.deleteIfExists(arquivo);
+        }
+    }
+
+    /**
+     * Interrompe e descarta a gravação atual.
+     */
+    @DeleteOperation
+    public synchronized void descartar() {
+        if (gravacao != null) {
+            gravacao.close();
+            gravacao = null;
+        }
+    }
+
+    private GravacaoJfrResponse situacao() {
+        return GravacaoJfrResponse.builder()
+                .estado(gravacao.getState().name())
+                .inicio(gravacao.getStartTime() == null ? null : Date.from(gravacao.getStartTime()))
+                .duracaoSegundos(gravacao.getDuration() == null ? 0 : gravacao.getDuration().getSeconds())
+                .build();
+    }
+
+    private static Configuration carregarConfiguracao() throws IOException, ParseException {
+        try (InputStream in = JfrEndpoint.class.getResourceAsStream(CONFIGURACAO)) {
+            if (in == null) {
+                throw new IOException("Configuração do JFR não encontrada: " + CONFIGURACAO);
+            }
+            return Configuration.create(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+    }
+}
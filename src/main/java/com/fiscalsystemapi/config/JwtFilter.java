@@ -1,5 +1,9 @@
 package com.fiscalsystemapi.config;
 
+import com.fiscalsystemapi.cache.CacheEmCamadas;
+import com.fiscalsystemapi.cache.CacheStore;
+import com.fiscalsystemapi.util.HashUtils;
+import com.fiscalsystemapi.util.Rastreamento;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
@@ -16,15 +20,33 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.time.Duration;
 import java.util.Collections;
 
 @Component
 public class JwtFilter extends OncePerRequestFilter {
 
+    // Estimativa do espaço de um token verificado na camada local (hash da chave, id do usuário e objeto)
+    private static final int PESO_TOKEN = 256;
+
     @Value("${jwt.secret}")
     private String jwtSecret;
 
+    // Tokens já verificados, pelo hash SHA-256 do token: um acerto dispensa a validação da assinatura.
+    // O valor compartilhado é "<expiração em ms>\n<id do usuário>"
+    private final CacheEmCamadas<TokenVerificado> tokensVerificados;
+    private final Duration validadeCache;
+
+    public JwtFilter(CacheStore cacheStore,
+                     @Value("${jwt.cache.max-bytes:4194304}") long maxBytes,
+                     @Value("${jwt.cache.validade-ms:300000}") long validadeCacheMs) {
+        this.validadeCache = Duration.ofMillis(validadeCacheMs);
+        this.tokensVerificados = new CacheEmCamadas<>("jwt", cacheStore, maxBytes, validadeCache,
+                token -> PESO_TOKEN);
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
@@ -36,24 +58,11 @@ public class JwtFilter extends OncePerRequestFilter {
         }
 
         String header = request.getHeader("Authorization");
-        String token = null;
-
-        if (header != null && header.startsWith("Bearer ")) {
-            token = header.substring(7);
-        }
+        String token = header != null && header.startsWith("Bearer ") ? header.substring(7) : null;
 
         if (token != null && SecurityContextHolder.getContext().getAuthentication() == null) {
             try {
-                byte[] keyBytes = Decoders.BASE64.decode(jwtSecret);
-                Key key = Keys.hmacShaKeyFor(keyBytes);
-                Claims claims = Jwts.parserBuilder()
-                        .setSigningKey(key)
-                        .build()
-                        .parseClaimsJws(token)
-                        .getBody();
-
-
-                String userId = claims.getSubject();
+                String userId = Rastreamento.etapa("fiscal.span.jwt", () -> verificar(token));
 
                 if (userId != null) {
                     UsernamePasswordAuthenticationToken authentication =
@@ -67,4 +76,53 @@ public class JwtFilter extends OncePerRequestFilter {
         }
         filterChain.doFilter(request, response);
     }
+
+    // Devolve o id do usuário do token, consultando primeiro os tokens já verificados nesta ou em outra instância
+    private String verificar(String token) {
+        String chaveCache = HashUtils.sha256HexTexto(token);
+        long agora = System.currentTimeMillis();
+        TokenVerificado verificado = tokensVerificados.buscar(chaveCache, JwtFilter::desserializar);
+        if (verificado != null && verificado.expiraEm > agora) {
+            return verificado.usuarioId;
+        }
+
+        byte[] keyBytes = Decoders.BASE64.decode(jwtSecret);
+        Key key = Keys.hmacShaKeyFor(keyBytes);
+        Claims claims = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+
+        String userId = claims.getSubject();
+        if (userId != null) {
+            // O token nunca fica no cache além da própria expiração
+            long expiraEm = claims.getExpiration() == null
+                    ? agora + validadeCache.toMillis()
+                    : Math.min(claims.getExpiration().getTime(), agora + validadeCache.toMillis());
+            TokenVerificado novo = new TokenVerificado(userId, expiraEm);
+            tokensVerificados.armazenar(chaveCache, novo, serializar(novo), Duration.ofMillis(expiraEm - agora));
+        }
+        return userId;
+    }
+
+    private static byte[] serializar(TokenVerificado token) {
+        return (token.expiraEm + "\n" + token.usuarioId).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static TokenVerificado desserializar(byte[] valor) {
+        String texto = new String(valor, StandardCharsets.UTF_8);
+        int separador = texto.indexOf('\n');
+        if (separador < 0) {
+            return null;
+        }
+        try {
+            return new TokenVerificado(texto.substring(separador + 1), Long.parseLong(texto.substring(0, separador)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private record TokenVerificado(String usuarioId, long expiraEm) {
+    }
 }
@@ -0,0 +1,114 @@
+package com.fiscalsystemapi.config;
+
+import com.fiscalsystemapi.service.LimiteRequisicoesService;
+import com.fiscalsystemapi.service.LimiteRequisicoesService.Classe;
+import com.fiscalsystemapi.util.Metricas;
+import io.micrometer.core.instrument.Counter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aplica os limites de {@link LimiteRequisicoesService} a /calculos/* e aos endpoints de PDF: cada
+ * requisição consome uma ficha do balde do usuário autenticado na classe do endpoint e, sem ficha,
+ * recebe 429 com {@code Retry-After}. As gerações e assinaturas síncronas de PDF também precisam de uma
+ * vaga no limite global de concorrência; sem vaga, recebem 429. A exportação em ZIP e os jobs de PDF
+ * já executam em pools próprios e consomem apenas a ficha. Executa depois da cadeia do Spring Security,
+ * com o usuário já autenticado, e antes de {@link IdempotenciaFilter}.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class LimiteRequisicoesFilter extends OncePerRequestFilter {
+
+    private final LimiteRequisicoesService limiteRequisicoesService;
+    private final Map<Classe, Counter> limitadasPorTaxa = new EnumMap<>(Classe.class);
+    private final Map<Classe, Counter> limitadasPorConcorrencia = new EnumMap<>(Classe.class);
+
+    public LimiteRequisicoesFilter(LimiteRequisicoesService limiteRequisicoesService) {
+        this.limiteRequisicoesService = limiteRequisicoesService;
+        for (Classe classe : Classe.values()) {
+            limitadasPorTaxa.put(classe, Metricas.requisicoesLimitadas(classe.getNome(), "taxa"));
+            limitadasPorConcorrencia.put(classe, Metricas.requisicoesLimitadas(classe.getNome(), "concorrencia"));
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !limiteRequisicoesService.isHabilitado() || classe(request.getServletPath()) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String caminho = request.getServletPath();
+        Classe classe = classe(caminho);
+        long esperaNanos = limiteRequisicoesService.consumir(classe, authentication.getName());
+        if (esperaNanos > 0) {
+            limitadasPorTaxa.get(classe).increment();
+            recusar(response, esperaNanos, "Limite de requisições excedido. Tente novamente em instantes.");
+            return;
+        }
+
+        if (!geracaoPdfSincrona(caminho)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (!limiteRequisicoesService.entrarPdf()) {
+            limitadasPorConcorrencia.get(classe).increment();
+            recusar(response, TimeUnit.SECONDS.toNanos(1),
+                    "Servidor ocupado gerando relatórios. Tente novamente em instantes.");
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            limiteRequisicoesService.sairPdf();
+        }
+    }
+
+    private static void recusar(HttpServletResponse response, long esperaNanos, String mensagem) throws IOException {
+        // Retry-After em segundos inteiros, arredondado para cima
+        long segundos = Math.max(1, (esperaNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(segundos));
+        response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), mensagem);
+    }
+
+    // Consultas de situação e download de jobs de PDF não são limitadas
+    private static Classe classe(String caminho) {
+        if (caminho.startsWith("/calculos/")) {
+            return Classe.CALCULO;
+        }
+        if (caminho.startsWith("/pdf/jobs/")) {
+            return caminho.startsWith("/pdf/jobs/generate/") || caminho.equals("/pdf/jobs/sign") ? Classe.PDF : null;
+        }
+        return caminho.startsWith("/pdf/") ? Classe.PDF : null;
+    }
+
+    // Endpoints de PdfController que geram ou assinam o PDF na própria thread da requisição
+    private static boolean geracaoPdfSincrona(String caminho) {
+        return caminho.startsWith("/pdf/generate/") || caminho.equals("/pdf/sign")
+                || caminho.startsWith("/pdf/calculos/");
+    }
+}
@@ -0,0 +1,51 @@
+package com.fiscalsystemapi.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fiscalsystemapi.util.Rastreamento;
+import io.micrometer.observation.ObservationRegistry;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Configuração do rastreamento. Além do exportador OTLP do Spring Boot (habilitado ao definir
+ * management.otlp.tracing.endpoint), os spans podem ser gravados em arquivo (tracing.arquivo) e as
+ * requisições acima de tracing.lento-ms têm o detalhamento dos spans registrado no log. Para que esse log
+ * alcance todas as requisições, e não só as amostradas, os traces não amostrados são gravados localmente
+ * sem exportação (ver {@link GravacaoLocalSampler}).
+ */
+@Configuration
+public class RastreamentoConfig {
+
+    public RastreamentoConfig(ObservationRegistry observationRegistry) {
+        Rastreamento.configurar(observationRegistry);
+    }
+
+    @Bean
+    @ConditionalOnExpression("!'${tracing.arquivo:}'.isEmpty()")
+    public SpanExporter arquivoSpanExporter(@Value("${tracing.arquivo}") String arquivo,
+                                            ObjectMapper objectMapper) throws IOException {
+        return new ArquivoSpanExporter(Path.of(arquivo), objectMapper);
+    }
+
+    // Substitui a amostragem padrão do Spring Boot (a mesma probabilidade, com o trace pai prevalecendo);
+    // com o log de requisições lentas desabilitado, os traces não amostrados continuam descartados
+    @Bean
+    public Sampler sampler(@Value("${management.tracing.sampling.probability:0.1}") double probabilidade,
+                               @Value("${tracing.lento-ms:2000}") long limiteMs) {
+        Sampler amostragem = Sampler.parentBased(Sampler.traceIdRatioBased(probabilidade));
+        return limiteMs > 0 ? new GravacaoLocalSampler(amostragem) : amostragem;
+    }
+
+    @Bean
+    public SpanProcessor requisicaoLentaSpanProcessor(@Value("${tracing.lento-ms:2000}") long limiteMs) {
+        return new RequisicaoLentaSpanProcessor(limiteMs);
+    }
+}
@@ -0,0 +1,105 @@
+package com.fiscalsystemapi.config;
+
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registra no log o detalhamento dos spans das requisições que passaram do limite configurado.
+ * Os spans terminados são agrupados por trace até o término do span raiz local (a requisição);
+ * se a requisição foi rápida, o grupo é descartado. Com {@link GravacaoLocalSampler}, todos os traces passam
+ * por aqui, amostrados ou não; os spans terminados são guardados como estão e só convertidos em
+ * {@link SpanData} quando a requisição é lenta.
+ */
+public class RequisicaoLentaSpanProcessor implements SpanProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(RequisicaoLentaSpanProcessor.class);
+
+    // Limite de traces em aberto, para não acumular memória com traces cujo span raiz não termina
+    private static final int MAX_TRACES_ABERTOS = 10_000;
+
+    private final long limiteNanos;
+    private final Map<String, List<ReadableSpan>> tracesAbertos = new ConcurrentHashMap<>();
+
+    public RequisicaoLentaSpanProcessor(long limiteMs) {
+        this.limiteNanos = limiteMs * 1_000_000;
+    }
+
+    @Override
+    public void onStart(Context parentContext, ReadWriteSpan span) {
+    }
+
+    @Override
+    public boolean isStartRequired() {
+        return false;
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span) {
+        String traceId = span.getSpanContext().getTraceId();
+        boolean raiz = !span.getParentSpanContext().isValid() || span.getParentSpanContext().isRemote();
+        if (!raiz) {
+            List<ReadableSpan> spans = tracesAbertos.get(traceId);
+            if (spans == null && tracesAbertos.size() < MAX_TRACES_ABERTOS) {
+                spans = tracesAbertos.computeIfAbsent(traceId, id -> new ArrayList<>());
+            }
+            if (spans != null) {
+                synchronized (spans) {
+                    spans.add(span);
+                }
+            }
+            return;
+        }
+
+        List<ReadableSpan> filhos = tracesAbertos.remove(traceId);
+        if (span.getLatencyNanos() < limiteNanos) {
+            return;
+        }
+        List<SpanData> spans = new ArrayList<>();
+        spans.add(span.toSpanData());
+        if (filhos != null) {
+            synchronized (filhos) {
+                for (ReadableSpan filho : filhos) {
+                    spans.add(filho.toSpanData());
+                }
+            }
+        }
+        log.warn("Requisição lenta ({} ms, trace {}):\n{}", span.getLatencyNanos() / 1_000_000, traceId, detalhamento(spans));
+    }
+
+    @Override
+    public boolean isEndRequired() {
+        return limiteNanos > 0;
+    }
+
+    // Árvore dos spans, em ordem de início, com a duração e o início relativo ao span raiz
+    private static String detalhamento(List<SpanData> spans) {
+        spans.sort(Comparator.comparingLong(SpanData::getStartEpochNanos));
+        long inicio = spans.get(0).getStartEpochNanos();
+        Map<String, Integer> profundidades = new HashMap<>();
+        StringBuilder texto = new StringBuilder();
+        for (SpanData span : spans) {
+            int profundidade = profundidades.getOrDefault(span.getParentSpanId(), -1) + 1;
+            profundidades.put(span.getSpanId(), profundidade);
+            texto.append("  ".repeat(profundidade + 1))
+                    .append(span.getName())
+                    .append(": ")
+                    .append(Math.round((span.getEndEpochNanos() - span.getStartEpochNanos()) / 10_000.0) / 100.0)
+                    .append(" ms (+")
+                    .append((span.getStartEpochNanos() - inicio) / 1_000_000)
+                    .append(" ms)\n");
+        }
+        return texto.toString();
+    }
+}
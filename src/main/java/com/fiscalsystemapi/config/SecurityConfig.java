@@ -1,35 +1,83 @@
 package com.fiscalsystemapi.config;
 
+import com.fiscalsystemapi.util.HashUtils;
+import jakarta.servlet.DispatcherType;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
 
+    // Papel do usuário de serviço do actuator; os usuários da aplicação (JWT) não têm papéis
+    private static final String PAPEL_ADMIN = "ADMIN";
+
     private final JwtFilter jwtFilter;
     private final JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint;
+    private final String actuatorUsuario;
+    private final String actuatorSenha;
 
-    public SecurityConfig(JwtFilter jwtFilter, JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint) {
+    public SecurityConfig(JwtFilter jwtFilter, JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint,
+                          @Value("${actuator.admin.usuario:admin}") String actuatorUsuario,
+                          @Value("${actuator.admin.senha:}") String actuatorSenha) {
         this.jwtFilter = jwtFilter;
         this.jwtAuthenticationEntryPoint = jwtAuthenticationEntryPoint;
+        this.actuatorUsuario = actuatorUsuario;
+        this.actuatorSenha = actuatorSenha;
     }
 
+    /**
+     * Endpoints do actuator, em uma cadeia própria: os probes de health ficam livres para a plataforma e os
+     * demais (Prometheus, JFR, aquecimento, cache) exigem o usuário de serviço {@code actuator.admin.*},
+     * autenticado por HTTP Basic. O token JWT não vale aqui, já que qualquer pessoa pode se cadastrar.
+     */
     @Bean
+    @Order(1)
+    public SecurityFilterChain actuatorFilterChain(HttpSecurity http) throws Exception {
+        http
+                .securityMatcher("/actuator/**")
+                .csrf(AbstractHttpConfigurer::disable)
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .httpBasic(Customizer.withDefaults())
+                .authenticationProvider(usuarioServicoActuator())
+                .authorizeHttpRequests(authz -> authz
+                        .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                        // Esvazia o cache de todas as instâncias (Redis e aviso de invalidação): nunca deve ser liberado
+                        .requestMatchers(HttpMethod.DELETE, "/actuator/calculocache").hasRole(PAPEL_ADMIN)
+                        .anyRequest().hasRole(PAPEL_ADMIN)
+                );
+        return http.build();
+    }
+
+    @Bean
+    @Order(2)
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .exceptionHandling(ex -> ex.authenticationEntryPoint(jwtAuthenticationEntryPoint))
                 .authorizeHttpRequests(authz -> authz
+                        // O redespacho de respostas assíncronas já foi autorizado na requisição original
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/auth/**").permitAll()
                         .requestMatchers("/v3/api-docs/**","/swagger-ui/**","/swagger-ui.html").permitAll()
                         .anyRequest().authenticated()
@@ -44,4 +92,35 @@ public class SecurityConfig {
             throws Exception {
         return authenticationConfiguration.getAuthenticationManager();
     }
+
+    // Sem senha configurada não há usuário de serviço, e os endpoints restritos respondem 401
+    private DaoAuthenticationProvider usuarioServicoActuator() {
+        InMemoryUserDetailsManager usuarios = new InMemoryUserDetailsManager();
+        if (!actuatorSenha.isBlank()) {
+            usuarios.createUser(User.withUsername(actuatorUsuario)
+                    .password(SenhaServicoEncoder.INSTANCIA.encode(actuatorSenha))
+                    .roles(PAPEL_ADMIN)
+                    .build());
+        }
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider(SenhaServicoEncoder.INSTANCIA);
+        provider.setUserDetailsService(usuarios);
+        return provider;
+    }
+
+    // A senha de serviço vem do ambiente e tem alta entropia: basta comparar o SHA-256 em tempo constante,
+    // sem pagar o custo do bcrypt a cada coleta do Prometheus
+    private enum SenhaServicoEncoder implements PasswordEncoder {
+        INSTANCIA;
+
+        @Override
+        public String encode(CharSequence senha) {
+            return HashUtils.sha256HexTexto(senha.toString());
+        }
+
+        @Override
+        public boolean matches(CharSequence senha, String hash) {
+            return hash != null && MessageDigest.isEqual(encode(senha).getBytes(StandardCharsets.US_ASCII),
+                    hash.getBytes(StandardCharsets.US_ASCII));
+        }
+    }
 }
@@ -0,0 +1,70 @@
+package com.fiscalsystemapi.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aot.AotDetector;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.NativeDetector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Registra no log o tempo decorrido desde o início do processo até a aplicação ficar pronta e até
+ * a primeira resposta HTTP, junto com o modo de inicialização (JVM, AOT, CDS ou imagem nativa).
+ * Serve para comparar os modos de empacotamento descritos no README.
+ */
+@Component
+public class TempoInicializacaoFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(TempoInicializacaoFilter.class);
+
+    private final AtomicBoolean primeiraResposta = new AtomicBoolean(true);
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void aplicacaoPronta() {
+        log.info("Aplicação pronta em {} ms (modo: {})", tempoDesdeInicio(), modo());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (primeiraResposta.get() && primeiraResposta.compareAndSet(true, false)) {
+                log.info("Primeira resposta ({} {}) em {} ms desde o início do processo (modo: {})",
+                        request.getMethod(), request.getRequestURI(), tempoDesdeInicio(), modo());
+            }
+        }
+    }
+
+    // Mede a partir do início do processo, incluindo o carregamento da JVM
+    private static long tempoDesdeInicio() {
+        return ProcessHandle.current().info().startInstant()
+                .map(inicio -> Duration.between(inicio, Instant.now()).toMillis())
+                .orElseGet(() -> ManagementFactory.getRuntimeMXBean().getUptime());
+    }
+
+    private static String modo() {
+        if (NativeDetector.inNativeImage()) {
+            return "imagem nativa";
+        }
+        boolean cds = ManagementFactory.getRuntimeMXBean().getInputArguments().stream()
+                .anyMatch(argumento -> argumento.startsWith("-XX:SharedArchiveFile"));
+        String modo = AotDetector.useGeneratedArtifacts() ? "JVM + AOT" : "JVM";
+        return cds ? modo + " + CDS" : modo;
+    }
+}
@@ -3,7 +3,9 @@ package com.fiscalsystemapi.controller;
 import com.fiscalsystemapi.dto.auth.AuthRequest;
 import com.fiscalsystemapi.dto.auth.AuthResponse;
 import com.fiscalsystemapi.entity.User;
+import com.fiscalsystemapi.exception.TooManyRequestsException;
 import com.fiscalsystemapi.service.AuthService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -11,6 +13,14 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Cadastro e login. O bcrypt executa no pool de hash de senhas, e a thread do servlet é liberada
+ * enquanto ele não termina; com o pool sobrecarregado, a resposta é 429.
+ */
 @RestController
 @RequestMapping("/auth")
 public class AuthController {
@@ -25,10 +35,11 @@ public class AuthController {
      * Recebe um JSON representando um usuário e retorna o usuário salvo (com senha oculta).
      */
     @PostMapping("/register")
-    public ResponseEntity<User> register(@RequestBody User user) {
-        User savedUser = authService.register(user);
-        savedUser.setSenha(null);
-        return new ResponseEntity<>(savedUser, HttpStatus.CREATED);
+    public CompletableFuture<ResponseEntity<User>> register(@RequestBody User user) {
+        return limitado(() -> authService.register(user).thenApply(savedUser -> {
+            savedUser.setSenha(null);
+            return new ResponseEntity<>(savedUser, HttpStatus.CREATED);
+        }));
     }
 
     /**
@@ -36,8 +47,32 @@ public class AuthController {
      * Recebe um JSON com email e senha, e retorna um token JWT em caso de sucesso.
      */
     @PostMapping("/login")
-    public ResponseEntity<AuthResponse> login(@RequestBody AuthRequest authRequest) {
-        String token = authService.login(authRequest.getEmail(), authRequest.getSenha());
-        return ResponseEntity.ok(new AuthResponse(token));
+    public CompletableFuture<ResponseEntity<AuthResponse>> login(@RequestBody AuthRequest authRequest) {
+        return limitado(() -> authService.login(authRequest.getEmail(), authRequest.getSenha())
+                .thenApply(token -> ResponseEntity.ok(new AuthResponse(token))));
+    }
+
+    // Fila cheia (ao enfileirar) ou espera longa demais na fila (no future) resultam em 429
+    private static <T> CompletableFuture<ResponseEntity<T>> limitado(
+            Supplier<CompletableFuture<ResponseEntity<T>>> execucao) {
+        try {
+            return execucao.get().exceptionally(e -> {
+                Throwable causa = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (causa instanceof TooManyRequestsException) {
+                    return ocupado();
+                }
+                throw e instanceof CompletionException completionException
+                        ? completionException
+                        : new CompletionException(e);
+            });
+        } catch (TooManyRequestsException e) {
+            return CompletableFuture.completedFuture(ocupado());
+        }
+    }
+
+    private static <T> ResponseEntity<T> ocupado() {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .build();
     }
 }
@@ -0,0 +1,145 @@
+package com.fiscalsystemapi.controller;
+
+import com.fiscalsystemapi.dto.calculo.CalculoMemorizado;
+import com.fiscalsystemapi.dto.honorarios.CalculoHonorariosRequest;
+import com.fiscalsystemapi.dto.honorarios.CalculoHonorariosResult;
+import com.fiscalsystemapi.dto.fepa.CalculoFepaRequest;
+import com.fiscalsystemapi.dto.fepa.CalculoFepaResult;
+import com.fiscalsystemapi.dto.rra.CalculoRraRequest;
+import com.fiscalsystemapi.dto.rra.CalculoRraResult;
+import com.fiscalsystemapi.dto.pj.CalculoPjRequest;
+import com.fiscalsystemapi.dto.pj.CalculoPjResult;
+import com.fiscalsystemapi.exception.TooManyRequestsException;
+import com.fiscalsystemapi.service.AuthService;
+import com.fiscalsystemapi.service.CalculoAsyncService;
+import com.fiscalsystemapi.service.CalculoHonorariosService;
+import com.fiscalsystemapi.service.CalculoFepaService;
+import com.fiscalsystemapi.service.CalculoRraService;
+import com.fiscalsystemapi.service.CalculoPjService;
+import com.fiscalsystemapi.service.CoalescenciaService;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Variante assíncrona dos endpoints de cálculo. O cálculo é feito na thread da requisição
+ * (é apenas CPU, ou um acerto no cache de cálculos) e o registro no banco de dados é transferido para o
+ * pool limitado de {@link CalculoAsyncService}; a thread do servlet é liberada enquanto a gravação não
+ * termina, mas o JDBC continua bloqueando uma thread desse pool (não é uma pilha reativa).
+ * O usuário é lido do contexto de segurança ainda na thread da requisição e passado explicitamente
+ * para o registro. Com a fila de registros cheia, a resposta é 429 com {@code Retry-After}.
+ */
+@RestController
+@RequestMapping("/calculos/async")
+public class CalculoAsyncController {
+
+    private final CalculoHonorariosService calculoHonorariosService;
+    private final CalculoFepaService calculoFepaService;
+    private final CalculoRraService calculoRraService;
+    private final CalculoPjService calculoPjService;
+    private final CalculoAsyncService calculoAsyncService;
+    private final AuthService authService;
+    private final CoalescenciaService coalescenciaService;
+
+    public CalculoAsyncController(CalculoHonorariosService calculoHonorariosService,
+                                  CalculoFepaService calculoFepaService,
+                                  CalculoRraService calculoRraService,
+                                  CalculoPjService calculoPjService,
+                                  CalculoAsyncService calculoAsyncService,
+                                  AuthService authService,
+                                  CoalescenciaService coalescenciaService) {
+        this.calculoHonorariosService = calculoHonorariosService;
+        this.calculoFepaService = calculoFepaService;
+        this.calculoRraService = calculoRraService;
+        this.calculoPjService = calculoPjService;
+        this.calculoAsyncService = calculoAsyncService;
+        this.authService = authService;
+        this.coalescenciaService = coalescenciaService;
+    }
+
+    @PostMapping("/honorarios")
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+            schema = @Schema(implementation = CalculoHonorariosResult.class)))
+    public CompletableFuture<ResponseEntity<byte[]>> calcularHonorarios(@RequestBody CalculoHonorariosRequest request) {
+        Long usuarioId = authService.getLoggedUserId();
+        return limitado(() -> coalescenciaService.executarAssincrono("calculos/async/honorarios", request, () -> {
+            CalculoMemorizado<CalculoHonorariosResult> calculo = calculoHonorariosService.calcularMemorizado(request);
+            return calculoAsyncService.registrar(calculo.getResposta(), () -> calculoHonorariosService.registrar(calculo, usuarioId));
+        }).thenApply(CalculoAsyncController::json));
+    }
+
+    @PostMapping("/fepa")
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+            schema = @Schema(implementation = CalculoFepaResult.class)))
+    public CompletableFuture<ResponseEntity<byte[]>> calcularFepa(@RequestBody CalculoFepaRequest request) {
+        Long usuarioId = authService.getLoggedUserId();
+        return limitado(() -> coalescenciaService.executarAssincrono("calculos/async/fepa", request, () -> {
+            CalculoMemorizado<CalculoFepaResult> calculo = calculoFepaService.calcularMemorizado(request);
+            return calculoAsyncService.registrar(calculo.getResposta(), () -> calculoFepaService.registrar(calculo, usuarioId));
+        }).thenApply(CalculoAsyncController::json));
+    }
+
+    @PostMapping("/rra")
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+            schema = @Schema(implementation = CalculoRraResult.class)))
+    public CompletableFuture<ResponseEntity<byte[]>> calcularRra(@RequestBody CalculoRraRequest request) {
+        Long usuarioId = authService.getLoggedUserId();
+        return limitado(() -> coalescenciaService.executarAssincrono("calculos/async/rra", request, () -> {
+            CalculoMemorizado<CalculoRraResult> calculo = calculoRraService.calcularMemorizado(request);
+            return calculoAsyncService.registrar(calculo.getResposta(), () -> calculoRraService.registrar(calculo, usuarioId));
+        }).thenApply(CalculoAsyncController::json));
+    }
+
+    @PostMapping("/pj")
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+            schema = @Schema(implementation = CalculoPjResult.class)))
+    public CompletableFuture<ResponseEntity<byte[]>> calcularPj(@RequestBody CalculoPjRequest request) {
+        Long usuarioId = authService.getLoggedUserId();
+        return limitado(() -> coalescenciaService.executarAssincrono("calculos/async/pj", request, () -> {
+            CalculoMemorizado<CalculoPjResult> calculo = calculoPjService.calcularMemorizado(request);
+            return calculoAsyncService.registrar(calculo.getResposta(), () -> calculoPjService.registrar(calculo, usuarioId));
+        }).thenApply(CalculoAsyncController::json));
+    }
+
+    // Fila de registros cheia: ao enfileirar (exceção síncrona) ou, para uma requisição juntada a outra
+    // pela coalescência, no future compartilhado; as duas resultam em 429
+    private static CompletableFuture<ResponseEntity<byte[]>> limitado(
+            Supplier<CompletableFuture<ResponseEntity<byte[]>>> execucao) {
+        try {
+            return execucao.get().exceptionally(e -> {
+                Throwable causa = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (causa instanceof TooManyRequestsException) {
+                    return ocupado();
+                }
+                throw e instanceof CompletionException completionException
+                        ? completionException
+                        : new CompletionException(e);
+            });
+        } catch (TooManyRequestsException e) {
+            return CompletableFuture.completedFuture(ocupado());
+        }
+    }
+
+    private static ResponseEntity<byte[]> ocupado() {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .build();
+    }
+
+    // O JSON do resultado já foi serializado para o registro e é escrito diretamente na resposta
+    private static ResponseEntity<byte[]> json(byte[] json) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(json);
+    }
+}
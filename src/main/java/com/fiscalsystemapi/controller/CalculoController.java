@@ -12,12 +12,24 @@ import com.fiscalsystemapi.service.CalculoHonorariosService;
 import com.fiscalsystemapi.service.CalculoFepaService;
 import com.fiscalsystemapi.service.CalculoRraService;
 import com.fiscalsystemapi.service.CalculoPjService;
+import com.fiscalsystemapi.service.CoalescenciaService;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+/**
+ * Endpoints de cálculo. Requisições idênticas e simultâneas do mesmo usuário são atendidas por um único
+ * cálculo e um único registro (ver {@link CoalescenciaService}); novas tentativas com o cabeçalho
+ * {@code Idempotency-Key} são respondidas antes de chegar aqui (ver {@code IdempotenciaFilter}).
+ * O corpo da resposta é o JSON do resultado já serializado para o registro do cálculo, escrito
+ * diretamente, sem uma segunda serialização pelo conversor de mensagens.
+ */
 @RestController
 @RequestMapping("/calculos")
 public class CalculoController {
@@ -26,38 +38,53 @@ public class CalculoController {
     private final CalculoFepaService calculoFepaService;
     private final CalculoRraService calculoRraService;
     private final CalculoPjService calculoPjService;
+    private final CoalescenciaService coalescenciaService;
 
     public CalculoController(CalculoHonorariosService calculoHonorariosService,
                              CalculoFepaService calculoFepaService,
                              CalculoRraService calculoRraService,
-                             CalculoPjService calculoPjService) {
+                             CalculoPjService calculoPjService,
+                             CoalescenciaService coalescenciaService) {
         this.calculoHonorariosService = calculoHonorariosService;
         this.calculoFepaService = calculoFepaService;
         this.calculoRraService = calculoRraService;
         this.calculoPjService = calculoPjService;
+        this.coalescenciaService = coalescenciaService;
     }
 
     @PostMapping("/honorarios")
-    public ResponseEntity<CalculoHonorariosResult> calcularHonorarios(@RequestBody CalculoHonorariosRequest request) {
-        CalculoHonorariosResult result = calculoHonorariosService.calcular(request);
-        return ResponseEntity.ok(result);
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+            schema = @Schema(implementation = CalculoHonorariosResult.class)))
+    public ResponseEntity<byte[]> calcularHonorarios(@RequestBody CalculoHonorariosRequest request) {
+        byte[] json = coalescenciaService.executar("calculos/honorarios", request,
+                () -> calculoHonorariosService.calcular(request));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(json);
     }
 
     @PostMapping("/fepa")
-    public ResponseEntity<CalculoFepaResult> calcularFepa(@RequestBody CalculoFepaRequest request) {
-        CalculoFepaResult result = calculoFepaService.calcular(request);
-        return ResponseEntity.ok(result);
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+            schema = @Schema(implementation = CalculoFepaResult.class)))
+    public ResponseEntity<byte[]> calcularFepa(@RequestBody CalculoFepaRequest request) {
+        byte[] json = coalescenciaService.executar("calculos/fepa", request,
+                () -> calculoFepaService.calcular(request));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(json);
     }
 
     @PostMapping("/rra")
-    public ResponseEntity<CalculoRraResult> calcularRra(@RequestBody CalculoRraRequest request) {
-        CalculoRraResult result = calculoRraService.calcular(request);
-        return ResponseEntity.ok(result);
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+            schema = @Schema(implementation = CalculoRraResult.class)))
+    public ResponseEntity<byte[]> calcularRra(@RequestBody CalculoRraRequest request) {
+        byte[] json = coalescenciaService.executar("calculos/rra", request,
+                () -> calculoRraService.calcular(request));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(json);
     }
 
     @PostMapping("/pj")
-    public ResponseEntity<CalculoPjResult> calcularPj(@RequestBody CalculoPjRequest request) {
-        CalculoPjResult result = calculoPjService.calcular(request);
-        return ResponseEntity.ok(result);
+    @ApiResponse(responseCode = "200", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+            schema = @Schema(implementation = CalculoPjResult.class)))
+    public ResponseEntity<byte[]> calcularPj(@RequestBody CalculoPjRequest request) {
+        byte[] json = coalescenciaService.executar("calculos/pj", request,
+                () -> calculoPjService.calcular(request));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(json);
     }
 }
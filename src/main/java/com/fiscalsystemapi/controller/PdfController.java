@@ -2,19 +2,45 @@ package com.fiscalsystemapi.controller;
 
 import com.fiscalsystemapi.dto.pdf.PdfFepaRequest;
 import com.fiscalsystemapi.dto.pdf.PdfHonorariosRequest;
+import com.fiscalsystemapi.dto.pdf.PdfLoteItem;
+import com.fiscalsystemapi.dto.pdf.PdfLoteRequest;
 import com.fiscalsystemapi.dto.pdf.PdfPjRequest;
 import com.fiscalsystemapi.dto.pdf.PdfRraRequest;
 import com.fiscalsystemapi.dto.pdf.PdfResponse;
 import com.fiscalsystemapi.dto.pdf.PdfSignRequest;
+import com.fiscalsystemapi.dto.pdf.RelatorioPdf;
+import com.fiscalsystemapi.entity.CalculoRealizado;
+import com.fiscalsystemapi.entity.enums.CalculationType;
+import com.fiscalsystemapi.exception.ApiException;
+import com.fiscalsystemapi.service.AuthService;
+import com.fiscalsystemapi.service.CalculoRegistroService;
+import com.fiscalsystemapi.service.CoalescenciaService;
+import com.fiscalsystemapi.service.PdfExportService;
 import com.fiscalsystemapi.service.PdfFepaService;
 import com.fiscalsystemapi.service.PdfHonorariosService;
 import com.fiscalsystemapi.service.PdfPjService;
+import com.fiscalsystemapi.service.PdfRelatorioService;
 import com.fiscalsystemapi.service.PdfRraService;
 import com.fiscalsystemapi.service.PdfSignatureService;
+import com.fiscalsystemapi.util.Metricas;
+import com.fiscalsystemapi.util.Rastreamento;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/pdf")
@@ -25,22 +51,44 @@ public class PdfController {
     private final PdfRraService pdfRraService;
     private final PdfPjService pdfPjService;
     private final PdfSignatureService pdfSignatureService;
+    private final PdfRelatorioService pdfRelatorioService;
+    private final PdfExportService pdfExportService;
+    private final CalculoRegistroService calculoRegistroService;
+    private final AuthService authService;
+    private final CoalescenciaService coalescenciaService;
+    private final int maxItensExportacao;
+    private final int maxItensConsolidado;
+    private final long timeoutExportacaoMs;
 
     public PdfController(PdfHonorariosService pdfHonorariosService, PdfFepaService pdfFepaService,
                          PdfRraService pdfRraService, PdfPjService pdfPjService,
-                         PdfSignatureService pdfSignatureService) {
+                         PdfSignatureService pdfSignatureService, PdfRelatorioService pdfRelatorioService,
+                         PdfExportService pdfExportService, CalculoRegistroService calculoRegistroService,
+                         AuthService authService, CoalescenciaService coalescenciaService,
+                         @Value("${pdf.export.max-items:500}") int maxItensExportacao,
+                         @Value("${pdf.consolidado.max-items:1000}") int maxItensConsolidado,
+                         @Value("${pdf.export.timeout-ms:600000}") long timeoutExportacaoMs) {
         this.pdfHonorariosService = pdfHonorariosService;
         this.pdfFepaService = pdfFepaService;
         this.pdfRraService = pdfRraService;
         this.pdfPjService = pdfPjService;
         this.pdfSignatureService = pdfSignatureService;
+        this.pdfRelatorioService = pdfRelatorioService;
+        this.pdfExportService = pdfExportService;
+        this.calculoRegistroService = calculoRegistroService;
+        this.authService = authService;
+        this.coalescenciaService = coalescenciaService;
+        this.maxItensExportacao = maxItensExportacao;
+        this.maxItensConsolidado = maxItensConsolidado;
+        this.timeoutExportacaoMs = timeoutExportacaoMs;
     }
 
     // Endpoint para PDF de Honorários
     @PostMapping("/generate/honorarios")
     public ResponseEntity<PdfResponse> generatePdfHonorarios(@RequestBody PdfHonorariosRequest request) {
-        byte[] pdfBytes = pdfHonorariosService.gerarPDFHonorarios(request.getResultado(), request.getDados());
-        String base64Pdf = Base64.getEncoder().encodeToString(pdfBytes);
+        byte[] pdfBytes = coalescenciaService.executar("pdf/generate/honorarios", request,
+                () -> pdfHonorariosService.gerarPDFHonorarios(request.getResultado(), request.getDados()));
+        String base64Pdf = codificarBase64(CalculationType.HONORARIOS, pdfBytes);
         PdfResponse response = PdfResponse.builder()
                 .fileName("relatorio_honorarios_" + request.getDados().getNumProcesso() + ".pdf")
                 .base64Pdf(base64Pdf)
@@ -51,8 +99,9 @@ public class PdfController {
     // Endpoint para PDF de FEPA
     @PostMapping("/generate/fepa")
     public ResponseEntity<PdfResponse> generatePdfFepa(@RequestBody PdfFepaRequest request) {
-        byte[] pdfBytes = pdfFepaService.gerarPDFFepa(request.getResultado(), request.getDados());
-        String base64Pdf = Base64.getEncoder().encodeToString(pdfBytes);
+        byte[] pdfBytes = coalescenciaService.executar("pdf/generate/fepa", request,
+                () -> pdfFepaService.gerarPDFFepa(request.getResultado(), request.getDados()));
+        String base64Pdf = codificarBase64(CalculationType.FEPA, pdfBytes);
         PdfResponse response = PdfResponse.builder()
                 .fileName("relatorio_fepa_" + request.getDados().getNumProcesso() + ".pdf")
                 .base64Pdf(base64Pdf)
@@ -63,8 +112,9 @@ public class PdfController {
     // Endpoint para PDF de RRA
     @PostMapping("/generate/rra")
     public ResponseEntity<PdfResponse> generatePdfRra(@RequestBody PdfRraRequest request) {
-        byte[] pdfBytes = pdfRraService.gerarPDFFRra(request.getResultado(), request.getDados());
-        String base64Pdf = Base64.getEncoder().encodeToString(pdfBytes);
+        byte[] pdfBytes = coalescenciaService.executar("pdf/generate/rra", request,
+                () -> pdfRraService.gerarPDFFRra(request.getResultado(), request.getDados()));
+        String base64Pdf = codificarBase64(CalculationType.RRA, pdfBytes);
         PdfResponse response = PdfResponse.builder()
                 .fileName("relatorio_rra_" + request.getDados().getNumProcesso() + ".pdf")
                 .base64Pdf(base64Pdf)
@@ -75,8 +125,9 @@ public class PdfController {
     // Endpoint para PDF de PJ
     @PostMapping("/generate/pj")
     public ResponseEntity<PdfResponse> generatePdfPj(@RequestBody PdfPjRequest request) {
-        byte[] pdfBytes = pdfPjService.gerarPDFPj(request.getResultado(), request.getDados());
-        String base64Pdf = Base64.getEncoder().encodeToString(pdfBytes);
+        byte[] pdfBytes = coalescenciaService.executar("pdf/generate/pj", request,
+                () -> pdfPjService.gerarPDFPj(request.getResultado(), request.getDados()));
+        String base64Pdf = codificarBase64(CalculationType.PJ, pdfBytes);
         PdfResponse response = PdfResponse.builder()
                 .fileName("relatorio_pj_" + request.getDados().getNumProcesso() + ".pdf")
                 .base64Pdf(base64Pdf)
@@ -84,6 +135,70 @@ public class PdfController {
         return ResponseEntity.ok(response);
     }
 
+    // Endpoint para PDF de um cálculo já registrado: o relatório é gerado a partir dos valores gravados no servidor
+    @GetMapping("/calculos/{id}")
+    public ResponseEntity<PdfResponse> generatePdfCalculo(@PathVariable Long id) {
+        Optional<CalculoRealizado> registro = calculoRegistroService.buscarDoUsuario(id, authService.getLoggedUserId());
+        if (registro.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        RelatorioPdf relatorio;
+        try {
+            relatorio = pdfRelatorioService.preparar(registro.get());
+        } catch (ApiException e) {
+            return ResponseEntity.unprocessableEntity().build();
+        }
+        byte[] pdfBytes = pdfRelatorioService.gerarPdf(relatorio.getTipo(), relatorio.getResultado(), relatorio.getDados());
+        String base64Pdf = codificarBase64(relatorio.getTipo(), pdfBytes);
+        PdfResponse response = PdfResponse.builder()
+                .fileName(pdfRelatorioService.nomeArquivo(relatorio.getTipo(), relatorio.getDados()))
+                .base64Pdf(base64Pdf)
+                .build();
+        return ResponseEntity.ok(response);
+    }
+
+    // Endpoint para PDF consolidado: vários cálculos de qualquer tipo em um único documento paginado
+    @PostMapping("/generate/consolidado")
+    public ResponseEntity<PdfResponse> generatePdfConsolidado(@RequestBody PdfLoteRequest request) {
+        List<RelatorioPdf> relatorios = prepararLote(request, maxItensConsolidado);
+        if (relatorios == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        byte[] pdfBytes = coalescenciaService.executar("pdf/generate/consolidado", request,
+                () -> pdfRelatorioService.gerarPdfConsolidado(relatorios));
+        String base64Pdf = codificarBase64(null, pdfBytes);
+        PdfResponse response = PdfResponse.builder()
+                .fileName("relatorio_consolidado.pdf")
+                .base64Pdf(base64Pdf)
+                .build();
+        return ResponseEntity.ok(response);
+    }
+
+    // Endpoint para exportação em lote: gera vários relatórios de qualquer tipo e os envia em um único ZIP
+    @PostMapping("/export/zip")
+    public ResponseEntity<StreamingResponseBody> exportZip(@RequestBody PdfLoteRequest request,
+                                                           HttpServletRequest servletRequest) {
+        // Valida todos os itens antes de iniciar o streaming, para que erros de entrada ainda resultem em 400
+        List<RelatorioPdf> relatorios = prepararLote(request, maxItensExportacao);
+        if (relatorios == null) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        // Só a exportação precisa de um timeout assíncrono longo; os demais endpoints assíncronos mantêm o padrão
+        AsyncWebRequest asyncWebRequest = WebAsyncUtils.getAsyncManager(servletRequest).getAsyncWebRequest();
+        if (asyncWebRequest != null) {
+            asyncWebRequest.setTimeout(timeoutExportacaoMs);
+        }
+
+        SecurityContext contexto = SecurityContextHolder.getContext();
+        StreamingResponseBody corpo = out -> pdfExportService.exportarZip(relatorios, out, contexto);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename("relatorios.zip").build().toString())
+                .body(corpo);
+    }
+
     // Endpoint para assinatura (pode ser usado para qualquer tipo de PDF)
     @PostMapping("/sign")
     public ResponseEntity<PdfResponse> signPdf(
@@ -101,4 +216,30 @@ public class PdfController {
             return ResponseEntity.status(500).build();
         }
     }
+
+    // Codifica o PDF em Base64 para a resposta, registrando o tamanho e o tempo da etapa
+    private static String codificarBase64(CalculationType tipo, byte[] pdfBytes) {
+        return Rastreamento.etapa("fiscal.span.pdf.base64", tipo, () -> {
+            String base64Pdf = Base64.getEncoder().encodeToString(pdfBytes);
+            Metricas.base64(tipo, base64Pdf);
+            return base64Pdf;
+        });
+    }
+
+    // Valida e converte os itens de um lote; retorna null se o lote for inválido
+    private List<RelatorioPdf> prepararLote(PdfLoteRequest request, int maxItens) {
+        List<PdfLoteItem> itens = request.getRelatorios();
+        if (itens == null || itens.isEmpty() || itens.size() > maxItens) {
+            return null;
+        }
+        List<RelatorioPdf> relatorios = new ArrayList<>(itens.size());
+        try {
+            for (PdfLoteItem item : itens) {
+                relatorios.add(pdfRelatorioService.preparar(item));
+            }
+        } catch (ApiException e) {
+            return null;
+        }
+        return relatorios;
+    }
 }
@@ -0,0 +1,134 @@
+package com.fiscalsystemapi.controller;
+
+import com.fiscalsystemapi.dto.pdf.PdfFepaRequest;
+import com.fiscalsystemapi.dto.pdf.PdfHonorariosRequest;
+import com.fiscalsystemapi.dto.pdf.PdfJobMetricsResponse;
+import com.fiscalsystemapi.dto.pdf.PdfJobResponse;
+import com.fiscalsystemapi.dto.pdf.PdfPjRequest;
+import com.fiscalsystemapi.dto.pdf.PdfRraRequest;
+import com.fiscalsystemapi.dto.pdf.PdfSignRequest;
+import com.fiscalsystemapi.exception.ApiException;
+import com.fiscalsystemapi.exception.TooManyRequestsException;
+import com.fiscalsystemapi.service.PdfFepaService;
+import com.fiscalsystemapi.service.PdfHonorariosService;
+import com.fiscalsystemapi.service.PdfJobService;
+import com.fiscalsystemapi.service.PdfPjService;
+import com.fiscalsystemapi.service.PdfRraService;
+import com.fiscalsystemapi.service.PdfSignatureService;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+
+@RestController
+@RequestMapping("/pdf/jobs")
+public class PdfJobController {
+
+    private final PdfJobService pdfJobService;
+    private final PdfHonorariosService pdfHonorariosService;
+    private final PdfFepaService pdfFepaService;
+    private final PdfRraService pdfRraService;
+    private final PdfPjService pdfPjService;
+    private final PdfSignatureService pdfSignatureService;
+
+    public PdfJobController(PdfJobService pdfJobService, PdfHonorariosService pdfHonorariosService,
+                            PdfFepaService pdfFepaService, PdfRraService pdfRraService,
+                            PdfPjService pdfPjService, PdfSignatureService pdfSignatureService) {
+        this.pdfJobService = pdfJobService;
+        this.pdfHonorariosService = pdfHonorariosService;
+        this.pdfFepaService = pdfFepaService;
+        this.pdfRraService = pdfRraService;
+        this.pdfPjService = pdfPjService;
+        this.pdfSignatureService = pdfSignatureService;
+    }
+
+    // Job de PDF de Honorários
+    @PostMapping("/generate/honorarios")
+    public ResponseEntity<PdfJobResponse> submitPdfHonorarios(@RequestBody PdfHonorariosRequest request) {
+        return submeter("relatorio_honorarios_" + request.getDados().getNumProcesso() + ".pdf",
+                () -> pdfHonorariosService.gerarPDFHonorarios(request.getResultado(), request.getDados()));
+    }
+
+    // Job de PDF de FEPA
+    @PostMapping("/generate/fepa")
+    public ResponseEntity<PdfJobResponse> submitPdfFepa(@RequestBody PdfFepaRequest request) {
+        return submeter("relatorio_fepa_" + request.getDados().getNumProcesso() + ".pdf",
+                () -> pdfFepaService.gerarPDFFepa(request.getResultado(), request.getDados()));
+    }
+
+    // Job de PDF de RRA
+    @PostMapping("/generate/rra")
+    public ResponseEntity<PdfJobResponse> submitPdfRra(@RequestBody PdfRraRequest request) {
+        return submeter("relatorio_rra_" + request.getDados().getNumProcesso() + ".pdf",
+                () -> pdfRraService.gerarPDFFRra(request.getResultado(), request.getDados()));
+    }
+
+    // Job de PDF de PJ
+    @PostMapping("/generate/pj")
+    public ResponseEntity<PdfJobResponse> submitPdfPj(@RequestBody PdfPjRequest request) {
+        return submeter("relatorio_pj_" + request.getDados().getNumProcesso() + ".pdf",
+                () -> pdfPjService.gerarPDFPj(request.getResultado(), request.getDados()));
+    }
+
+    // Job de assinatura (pode ser usado para qualquer tipo de PDF)
+    @PostMapping("/sign")
+    public ResponseEntity<PdfJobResponse> submitSignPdf(@RequestBody PdfSignRequest signRequest) {
+        byte[] pdfBytes = Base64.getDecoder().decode(signRequest.getBase64Pdf());
+        return submeter("relatorio_signed.pdf", () -> pdfSignatureService.signPdf(pdfBytes));
+    }
+
+    // Consulta a situação do job
+    @GetMapping("/{id}")
+    public ResponseEntity<PdfJobResponse> getJob(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(pdfJobService.consultar(id));
+        } catch (ApiException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    // Download do PDF, disponível somente após a conclusão do job
+    @GetMapping("/{id}/download")
+    public ResponseEntity<byte[]> downloadJob(@PathVariable String id) {
+        try {
+            PdfJobResponse job = pdfJobService.consultar(id);
+            Optional<byte[]> pdf = pdfJobService.obterPdf(id);
+            if (pdf.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            }
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_PDF)
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            ContentDisposition.attachment().filename(job.getFileName()).build().toString())
+                    .body(pdf.get());
+        } catch (ApiException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    // Profundidade da fila e tempos de espera dos jobs
+    @GetMapping("/metricas")
+    public ResponseEntity<PdfJobMetricsResponse> getMetricas() {
+        return ResponseEntity.ok(pdfJobService.metricas());
+    }
+
+    private ResponseEntity<PdfJobResponse> submeter(String fileName, Callable<byte[]> tarefa) {
+        try {
+            PdfJobResponse job = pdfJobService.submeter(fileName, tarefa);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/pdf/jobs/" + job.getId()))
+                    .body(job);
+        } catch (TooManyRequestsException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .build();
+        }
+    }
+}
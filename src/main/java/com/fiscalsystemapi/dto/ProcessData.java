@@ -4,7 +4,7 @@ import lombok.Data;
 
 @Data
 public class ProcessData {
-    private String numProcesso;
+    private ProcessNumber numProcesso;
     private String nomeParteAutora;
     private String nomeParteRe;
 }
@@ -0,0 +1,225 @@
+package com.fiscalsystemapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.fiscalsystemapi.exception.ApiException;
+
+import java.util.Objects;
+
+/**
+ * Número de processo no padrão CNJ (Resolução 65/2008): NNNNNNN-DD.AAAA.J.TR.OOOO.
+ * O texto é lido em uma única passagem, aceitando os 20 dígitos com ou sem pontuação, e os dígitos
+ * verificadores DD são conferidos pelo módulo 97 (ISO 7064). A forma canônica é {@link #getChave()}: os
+ * 18 dígitos sem os verificadores (que são derivados deles) em um long, usado para indexar, comparar e
+ * deduplicar registros. Na saída (JSON, relatórios, nomes de arquivo) o número é sempre formatado.
+ * Registros gravados antes da validação podem ter um texto que não é um número válido; esses são
+ * representados por {@link #legado(String)}, que exibe o texto gravado e não tem forma canônica.
+ */
+public final class ProcessNumber implements Comparable<ProcessNumber> {
+
+    private static final int DIGITOS = 20;
+    // Posição dos dígitos verificadores entre os 20 dígitos
+    private static final int INICIO_DV = 7;
+    private static final int FIM_DV = 9;
+
+    // NNNNNNN AAAA J TR OOOO, nesta ordem
+    private final long chave;
+    private final int digitoVerificador;
+    // Texto gravado de um número legado inválido; null nos números válidos
+    private final String textoLegado;
+
+    private ProcessNumber(long chave, int digitoVerificador) {
+        this(chave, digitoVerificador, null);
+    }
+
+    private ProcessNumber(long chave, int digitoVerificador, String textoLegado) {
+        this.chave = chave;
+        this.digitoVerificador = digitoVerificador;
+        this.textoLegado = textoLegado;
+    }
+
+    /**
+     * Lê um número de processo. Pontos, hífens e espaços são ignorados; qualquer outro caractere, uma
+     * quantidade de dígitos diferente de 20 ou dígitos verificadores incorretos tornam o número inválido.
+     *
+     * @param texto Número do processo, formatado ou apenas com os dígitos.
+     * @return Número do processo, ou null se o texto for null.
+     * @throws ApiException Caso o número seja inválido.
+     */
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public static ProcessNumber parse(String texto) {
+        if (texto == null) {
+            return null;
+        }
+        long chave = 0;
+        int resto = 0;
+        int dv = 0;
+        int digitos = 0;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (digitos == DIGITOS) {
+                    throw invalido(texto);
+                }
+                int digito = c - '0';
+                if (digitos >= INICIO_DV && digitos < FIM_DV) {
+                    dv = dv * 10 + digito;
+                } else {
+                    chave = chave * 10 + digito;
+                    resto = (resto * 10 + digito) % 97;
+                }
+                digitos++;
+            } else if (c != '.' && c != '-' && c != ' ') {
+                throw invalido(texto);
+            }
+        }
+        // Com os verificadores ao final, o número completo deve deixar resto 1 na divisão por 97
+        if (digitos != DIGITOS || dv != digitoVerificador(resto)) {
+            throw invalido(texto);
+        }
+        return new ProcessNumber(chave, dv);
+    }
+
+    /**
+     * Reconstrói um número de processo a partir da forma canônica gravada no banco.
+     *
+     * @param chave Valor de {@link #getChave()}.
+     * @return Número do processo, com os dígitos verificadores recalculados.
+     */
+    public static ProcessNumber deChave(long chave) {
+        if (chave < 0 || chave >= 1_000_000_000_000_000_000L) {
+            throw new ApiException("Chave de número de processo inválida: " + chave);
+        }
+        return new ProcessNumber(chave, digitoVerificador((int) (chave % 97)));
+    }
+
+    /**
+     * Número gravado antes da validação que não é um número CNJ válido (ex.: dígitos verificadores
+     * incorretos), mantido como texto para que os registros antigos continuem legíveis. Não tem
+     * forma canônica: {@link #getChave()} não pode ser usado.
+     *
+     * @param texto Texto gravado.
+     * @return Número que exibe o texto como foi gravado.
+     */
+    public static ProcessNumber legado(String texto) {
+        return new ProcessNumber(-1, 0, texto);
+    }
+
+    /**
+     * Forma formatada de um número possivelmente ausente.
+     *
+     * @param numero Número do processo ou null.
+     * @return Número formatado, ou null se o número for null.
+     */
+    public static String formatar(ProcessNumber numero) {
+        return numero == null ? null : numero.toString();
+    }
+
+    /**
+     * Os 18 dígitos do número sem os verificadores (NNNNNNN AAAA J TR OOOO), em um long.
+     */
+    public long getChave() {
+        if (textoLegado != null) {
+            throw new ApiException("Número de processo sem forma canônica: " + textoLegado);
+        }
+        return chave;
+    }
+
+    /**
+     * Indica se o número é um texto legado inválido (ver {@link #legado(String)}).
+     */
+    public boolean isLegado() {
+        return textoLegado != null;
+    }
+
+    /**
+     * Os 20 dígitos do número, sem pontuação.
+     */
+    public String digitos() {
+        if (textoLegado != null) {
+            return textoLegado.replaceAll("[^0-9]", "");
+        }
+        char[] saida = new char[DIGITOS];
+        escreverDigitos(saida, false);
+        return new String(saida);
+    }
+
+    /**
+     * Número formatado: NNNNNNN-DD.AAAA.J.TR.OOOO.
+     */
+    @JsonValue
+    @Override
+    public String toString() {
+        if (textoLegado != null) {
+            return textoLegado;
+        }
+        char[] saida = new char[DIGITOS + 5];
+        escreverDigitos(saida, true);
+        return new String(saida);
+    }
+
+    @Override
+    public int compareTo(ProcessNumber outro) {
+        int comparacao = Long.compare(chave, outro.chave);
+        if (comparacao != 0 || textoLegado == null) {
+            return comparacao;
+        }
+        return textoLegado.compareTo(outro.textoLegado);
+    }
+
+    @Override
+    public boolean equals(Object outro) {
+        return outro instanceof ProcessNumber numero && numero.chave == chave
+                && Objects.equals(numero.textoLegado, textoLegado);
+    }
+
+    @Override
+    public int hashCode() {
+        return textoLegado == null ? Long.hashCode(chave) : textoLegado.hashCode();
+    }
+
+    // Escreve de trás para frente: OOOO, TR, J, AAAA, DD e NNNNNNN, com ou sem os separadores
+    private void escreverDigitos(char[] saida, boolean pontuacao) {
+        long restante = chave;
+        int pos = saida.length;
+        pos = escrever(saida, pos, restante % 10_000, 4);
+        restante /= 10_000;
+        pos = separar(saida, pos, pontuacao, '.');
+        pos = escrever(saida, pos, restante % 100, 2);
+        restante /= 100;
+        pos = separar(saida, pos, pontuacao, '.');
+        pos = escrever(saida, pos, restante % 10, 1);
+        restante /= 10;
+        pos = separar(saida, pos, pontuacao, '.');
+        pos = escrever(saida, pos, restante % 10_000, 4);
+        restante /= 10_000;
+        pos = separar(saida, pos, pontuacao, '.');
+        pos = escrever(saida, pos, digitoVerificador, 2);
+        pos = separar(saida, pos, pontuacao, '-');
+        escrever(saida, pos, restante, 7);
+    }
+
+    // Dígitos verificadores a partir do resto da divisão por 97 dos 18 demais dígitos
+    private static int digitoVerificador(int resto) {
+        return 98 - resto * 100 % 97;
+    }
+
+    private static int escrever(char[] saida, int pos, long valor, int tamanho) {
+        for (int i = 0; i < tamanho; i++) {
+            saida[--pos] = (char) ('0' + valor % 10);
+            valor /= 10;
+        }
+        return pos;
+    }
+
+    private static int separar(char[] saida, int pos, boolean pontuacao, char separador) {
+        if (pontuacao) {
+            saida[--pos] = separador;
+        }
+        return pos;
+    }
+
+    private static ApiException invalido(String texto) {
+        return new ApiException("Número de processo inválido: " + texto);
+    }
+}
@@ -0,0 +1,27 @@
+package com.fiscalsystemapi.dto.aquecimento;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Situação do aquecimento executado antes de a aplicação passar a receber tráfego.
+ * As latências são por tipo de cálculo (cálculo, serialização, geração e assinatura do PDF), em milissegundos.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AquecimentoResponse {
+    // DESABILITADO, EM_ANDAMENTO ou CONCLUIDO
+    private String situacao;
+    private int iteracoes;
+    private long duracaoMs;
+    // Latência da primeira iteração
+    private Map<String, Double> latenciaInicialMs;
+    // Latência média das últimas iterações
+    private Map<String, Double> latenciaFinalMs;
+}
@@ -0,0 +1,30 @@
+package com.fiscalsystemapi.dto.calculo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Situação do cache de resultados de cálculo desde a subida da aplicação.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CalculoCacheResponse {
+    private boolean habilitado;
+    // Se há cache compartilhado entre as instâncias (cache.store=redis)
+    private boolean distribuido;
+    // Versão das tabelas de cálculo que compõe as chaves atuais
+    private String versaoTabelas;
+    private long entradas;
+    private long bytes;
+    private long bytesMaximo;
+    // Acertos na camada local e, após falta local, no cache compartilhado
+    private long acertos;
+    private long acertosRemotos;
+    private long faltas;
+    private double taxaAcerto;
+    private long remocoes;
+}
@@ -0,0 +1,30 @@
+package com.fiscalsystemapi.dto.calculo;
+
+import lombok.Getter;
+
+/**
+ * Resultado de um cálculo guardado no cache, junto com o JSON já serializado que é gravado
+ * no registro do cálculo e devolvido como corpo da resposta. A mesma instância é compartilhada
+ * entre requisições e não deve ser alterada.
+ *
+ * @param <T> Tipo do DTO de resultado.
+ */
+@Getter
+public class CalculoMemorizado<T> {
+    private final T resultado;
+    // JSON (UTF-8) do resultado na forma em que é registrado no banco
+    private final byte[] json;
+    // JSON (UTF-8) da resposta HTTP; é o próprio json, exceto quando a resposta traz campos que não são
+    // registrados (detalhamento mensal do FEPA)
+    private final byte[] resposta;
+
+    public CalculoMemorizado(T resultado, byte[] json) {
+        this(resultado, json, json);
+    }
+
+    public CalculoMemorizado(T resultado, byte[] json, byte[] resposta) {
+        this.resultado = resultado;
+        this.json = json;
+        this.resposta = resposta;
+    }
+}
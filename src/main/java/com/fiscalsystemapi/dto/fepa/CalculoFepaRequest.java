@@ -1,15 +1,18 @@
 package com.fiscalsystemapi.dto.fepa;
 
+import com.fiscalsystemapi.dto.ProcessNumber;
 import lombok.Data;
 
 import java.math.BigDecimal;
 
 @Data
 public class CalculoFepaRequest {
-    private String numProcesso;
+    private ProcessNumber numProcesso;
     private String nomeParteAutora;
     private String nomeParteRe;
     private String periodoInicial;
     private String periodoFinal;
     private BigDecimal valorBruto;
+    // Quando verdadeiro, o resultado inclui o detalhamento mês a mês do FEPA
+    private Boolean detalhado;
 }
@@ -1,12 +1,14 @@
 package com.fiscalsystemapi.dto.fepa;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Builder;
 import lombok.Data;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class CalculoFepaResult {
     private String numProcesso;
     private String nomeParteAutora;
@@ -21,4 +23,7 @@ public class CalculoFepaResult {
     private BigDecimal aliquotaEfetiva;
     private BigDecimal liquido;
     private BigDecimal mediaMensal;
+    // Preenchido apenas quando o detalhamento mensal é solicitado
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<FepaMensal> detalhamento;
 }
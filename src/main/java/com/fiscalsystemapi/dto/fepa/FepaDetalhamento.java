@@ -0,0 +1,45 @@
+package com.fiscalsystemapi.dto.fepa;
+
+import com.fiscalsystemapi.util.TaxCalculationUtils;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Detalhamento mensal do cálculo FEPA, calculado sob demanda.
+ * Como o valor corrigido é o mesmo em todos os meses, cada linha é derivada da competência
+ * no momento em que é lida; nenhuma linha é mantida em memória.
+ */
+public class FepaDetalhamento extends AbstractList<FepaMensal> implements RandomAccess {
+
+    private final YearMonth inicio;
+    private final int meses;
+    private final BigDecimal valorCorrigidoPorMes;
+
+    public FepaDetalhamento(YearMonth inicio, int meses, BigDecimal valorCorrigidoPorMes) {
+        this.inicio = inicio;
+        this.meses = meses;
+        this.valorCorrigidoPorMes = valorCorrigidoPorMes;
+    }
+
+    @Override
+    public FepaMensal get(int index) {
+        if (index < 0 || index >= meses) {
+            throw new IndexOutOfBoundsException("Índice: " + index + ", meses: " + meses);
+        }
+        YearMonth competencia = inicio.plusMonths(index);
+        return FepaMensal.builder()
+                .competencia(competencia)
+                .valorCorrigido(valorCorrigidoPorMes)
+                .aliquotaFepa(TaxCalculationUtils.aliquotaFepa(competencia))
+                .valorFepa(TaxCalculationUtils.calcularFepa(competencia, valorCorrigidoPorMes))
+                .build();
+    }
+
+    @Override
+    public int size() {
+        return meses;
+    }
+}
@@ -0,0 +1,22 @@
+package com.fiscalsystemapi.dto.fepa;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FepaMensal {
+    @JsonFormat(pattern = "MM/yyyy")
+    private YearMonth competencia;
+    private BigDecimal valorCorrigido;
+    private BigDecimal aliquotaFepa;
+    private BigDecimal valorFepa;
+}
@@ -1,12 +1,13 @@
 package com.fiscalsystemapi.dto.honorarios;
 
+import com.fiscalsystemapi.dto.ProcessNumber;
 import lombok.Data;
 
 import java.math.BigDecimal;
 
 @Data
 public class CalculoHonorariosRequest {
-    private String numProcesso;
+    private ProcessNumber numProcesso;
     private String solicitante;
     private String reu;
     private BigDecimal valorBruto;
@@ -0,0 +1,22 @@
+package com.fiscalsystemapi.dto.jfr;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * Situação da gravação do JDK Flight Recorder iniciada pelo endpoint /actuator/jfr.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GravacaoJfrResponse {
+    // NEW, RUNNING, STOPPED ou CLOSED (estados de jdk.jfr.RecordingState)
+    private String estado;
+    private Date inicio;
+    private long duracaoSegundos;
+}
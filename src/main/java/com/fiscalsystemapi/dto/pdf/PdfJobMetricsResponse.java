@@ -0,0 +1,20 @@
+package com.fiscalsystemapi.dto.pdf;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class PdfJobMetricsResponse {
+    private int workers;
+    private int workersAtivos;
+    private int capacidadeFila;
+    private int tamanhoFila;
+    private long jobsArmazenados;
+    private long bytesArmazenados;
+    private long jobsDescartados;
+    private long jobsIniciados;
+    private long jobsRejeitados;
+    private double tempoMedioEsperaMs;
+    private double tempoMaximoEsperaMs;
+}
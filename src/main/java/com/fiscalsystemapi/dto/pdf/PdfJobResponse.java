@@ -0,0 +1,18 @@
+package com.fiscalsystemapi.dto.pdf;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Date;
+
+@Data
+@Builder
+public class PdfJobResponse {
+    private String id;
+    private PdfJobStatus status;
+    private String fileName;
+    private Date dataCriacao;
+    private Date dataInicio;
+    private Date dataConclusao;
+    private String erro;
+}
@@ -0,0 +1,8 @@
+package com.fiscalsystemapi.dto.pdf;
+
+public enum PdfJobStatus {
+    PENDENTE,
+    PROCESSANDO,
+    CONCLUIDO,
+    ERRO
+}
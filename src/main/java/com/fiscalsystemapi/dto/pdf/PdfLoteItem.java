@@ -0,0 +1,14 @@
+package com.fiscalsystemapi.dto.pdf;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fiscalsystemapi.dto.ProcessData;
+import lombok.Data;
+
+@Data
+public class PdfLoteItem {
+    // Tipo do cálculo: honorarios, fepa, rra ou pj
+    private String tipo;
+    private ProcessData dados;
+    // Resultado do cálculo no mesmo formato devolvido pelo endpoint /calculos correspondente
+    private JsonNode resultado;
+}
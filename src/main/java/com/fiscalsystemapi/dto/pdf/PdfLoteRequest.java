@@ -0,0 +1,10 @@
+package com.fiscalsystemapi.dto.pdf;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class PdfLoteRequest {
+    private List<PdfLoteItem> relatorios;
+}
@@ -0,0 +1,17 @@
+package com.fiscalsystemapi.dto.pdf;
+
+import com.fiscalsystemapi.dto.ProcessData;
+import com.fiscalsystemapi.entity.enums.CalculationType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Relatório já validado: tipo do cálculo, DTO de resultado correspondente e dados do processo.
+ */
+@Data
+@AllArgsConstructor
+public class RelatorioPdf {
+    private CalculationType tipo;
+    private Object resultado;
+    private ProcessData dados;
+}
@@ -1,12 +1,13 @@
 package com.fiscalsystemapi.dto.pj;
 
+import com.fiscalsystemapi.dto.ProcessNumber;
 import lombok.Data;
 
 import java.math.BigDecimal;
 
 @Data
 public class CalculoPjRequest {
-    private String numProcesso;
+    private ProcessNumber numProcesso;
     private String nomeParteAutora;
     private String nomeParteRe;
     private BigDecimal valorBruto;
@@ -1,12 +1,13 @@
 package com.fiscalsystemapi.dto.rra;
 
+import com.fiscalsystemapi.dto.ProcessNumber;
 import lombok.Data;
 
 import java.math.BigDecimal;
 
 @Data
 public class CalculoRraRequest {
-    private String numProcesso;
+    private ProcessNumber numProcesso;
     private String nomeParteAutora;
     private String nomeParteRe;
     private Integer quantidadeMeses;
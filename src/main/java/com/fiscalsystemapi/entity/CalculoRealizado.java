@@ -7,6 +7,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.Lob;
 import jakarta.persistence.ManyToOne;
@@ -25,7 +26,7 @@ import java.util.Date;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "calculos_realizados")
+@Table(name = "calculos_realizados", indexes = @Index(columnList = "num_processo_chave"))
 public class CalculoRealizado {
 
     @Id
@@ -35,6 +36,11 @@ public class CalculoRealizado {
     @Column(name = "num_processo", nullable = false)
     private String numProcesso;
 
+    // Forma canônica do número do processo (ProcessNumber#getChave), usada nas consultas; nula nos
+    // registros gravados antes da validação dos números
+    @Column(name = "num_processo_chave")
+    private Long numProcessoChave;
+
     @Column(name = "tipo_calculo", nullable = false)
     private String tipoCalculo;
 
@@ -0,0 +1,62 @@
+package com.fiscalsystemapi.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.Temporal;
+import jakarta.persistence.TemporalType;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * Resposta gravada de uma requisição enviada com o cabeçalho {@code Idempotency-Key}.
+ * Enquanto a requisição original está em andamento, {@code status} fica nulo.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "requisicoes_idempotentes",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"usuario_id", "chave"}),
+        indexes = @Index(columnList = "expira_em"))
+public class RequisicaoIdempotente {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "usuario_id", nullable = false)
+    private Long usuarioId;
+
+    @Column(name = "chave", nullable = false)
+    private String chave;
+
+    @Column(name = "endpoint", nullable = false)
+    private String endpoint;
+
+    @Column(name = "hash_corpo", nullable = false, length = 64)
+    private String hashCorpo;
+
+    @Column(name = "status")
+    private Integer status;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(name = "corpo", columnDefinition = "bytea")
+    private byte[] corpo;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "expira_em", nullable = false)
+    private Date expiraEm;
+}
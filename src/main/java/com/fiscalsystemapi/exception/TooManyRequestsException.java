@@ -0,0 +1,12 @@
+package com.fiscalsystemapi.exception;
+
+public class TooManyRequestsException extends ApiException {
+
+    public TooManyRequestsException(String message) {
+        super(message);
+    }
+
+    public TooManyRequestsException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,12 +1,40 @@
 package com.fiscalsystemapi.repository;
 
 import com.fiscalsystemapi.entity.CalculoRealizado;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface CalculoRealizadoRepository extends JpaRepository<CalculoRealizado, Long> {
-    List<CalculoRealizado> findByNumProcessoContaining(String numProcesso);
+    List<CalculoRealizado> findByNumProcessoChave(Long numProcessoChave);
+
+    // Registros ainda sem a forma canônica, comparados pelo texto gravado
+    List<CalculoRealizado> findByNumProcessoChaveIsNullAndNumProcessoIn(Collection<String> numProcessos);
+
+    Optional<CalculoRealizado> findByIdAndUsuarioId(Long id, Long usuarioId);
+
+    // Apenas o id e o texto do número, sem carregar o resultado gravado
+    @Query("select c.id as id, c.numProcesso as numProcesso from CalculoRealizado c "
+            + "where c.numProcessoChave is null and c.id > :ultimoId order by c.id")
+    List<NumProcessoSemChave> buscarSemChave(@Param("ultimoId") Long ultimoId, Pageable pagina);
+
+    @Transactional
+    @Modifying
+    @Query("update CalculoRealizado c set c.numProcessoChave = :chave where c.id = :id and c.numProcessoChave is null")
+    int preencherChave(@Param("id") Long id, @Param("chave") Long chave);
+
+    interface NumProcessoSemChave {
+        Long getId();
+
+        String getNumProcesso();
+    }
 }
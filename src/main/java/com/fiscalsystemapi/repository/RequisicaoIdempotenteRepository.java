@@ -0,0 +1,22 @@
+package com.fiscalsystemapi.repository;
+
+import com.fiscalsystemapi.entity.RequisicaoIdempotente;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.Optional;
+
+@Repository
+public interface RequisicaoIdempotenteRepository extends JpaRepository<RequisicaoIdempotente, Long> {
+    Optional<RequisicaoIdempotente> findByUsuarioIdAndChave(Long usuarioId, String chave);
+
+    @Transactional
+    @Modifying
+    @Query("delete from RequisicaoIdempotente r where r.expiraEm < :limite")
+    int removerExpiradas(@Param("limite") Date limite);
+}
@@ -2,7 +2,11 @@ package com.fiscalsystemapi.repository;
 
 import com.fiscalsystemapi.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -12,4 +16,11 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
 
     Optional<User> findByCpf(String cpf);
+
+    // Troca o hash apenas se ainda for o lido no login, sem sobrescrever uma troca de senha concorrente
+    @Transactional
+    @Modifying
+    @Query("update User u set u.senha = :novaSenha where u.id = :id and u.senha = :senhaAtual")
+    int atualizarSenha(@Param("id") Long id, @Param("senhaAtual") String senhaAtual,
+                       @Param("novaSenha") String novaSenha);
 }
@@ -0,0 +1,239 @@
+package com.fiscalsystemapi.service;
+
+import com.fiscalsystemapi.dto.ProcessData;
+import com.fiscalsystemapi.dto.ProcessNumber;
+import com.fiscalsystemapi.dto.aquecimento.AquecimentoResponse;
+import com.fiscalsystemapi.dto.fepa.CalculoFepaRequest;
+import com.fiscalsystemapi.dto.honorarios.CalculoHonorariosRequest;
+import com.fiscalsystemapi.dto.pdf.RelatorioPdf;
+import com.fiscalsystemapi.dto.pj.CalculoPjRequest;
+import com.fiscalsystemapi.dto.rra.CalculoRraRequest;
+import com.fiscalsystemapi.entity.User;
+import com.fiscalsystemapi.entity.enums.CalculationType;
+import com.fiscalsystemapi.util.Metricas;
+import com.fiscalsystemapi.util.PdfFontRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Aquecimento da JIT antes de a aplicação passar a receber tráfego, habilitado com
+ * {@code aquecimento.enabled}. Executa cálculos sintéticos de todos os tipos pelos serviços reais (sem
+ * gravar no banco), a serialização do resultado e a geração e assinatura do PDF em memória pelo
+ * conteúdo de cada Pdf*Service, no PDFBox e, se habilitada, na escrita direta, até atingir o tempo ou o
+ * número de iterações configurado. Como roda em um {@link ApplicationRunner}, o probe de readiness
+ * só informa UP depois que o aquecimento termina.
+ */
+@Service
+public class AquecimentoService implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(AquecimentoService.class);
+
+    // Quantidade de iterações consideradas na latência final
+    private static final int JANELA = 50;
+
+    // Usuário fictício usado apenas para assinar os PDFs gerados no aquecimento
+    private static final User ASSINANTE = User.builder()
+            .nomeCompleto("Aquecimento")
+            .cpf("000.000.000-00")
+            .build();
+
+    private final CalculoHonorariosService calculoHonorariosService;
+    private final CalculoFepaService calculoFepaService;
+    private final CalculoRraService calculoRraService;
+    private final CalculoPjService calculoPjService;
+    private final PdfRelatorioService pdfRelatorioService;
+    private final PdfSignatureService pdfSignatureService;
+    private final CalculoCacheService calculoCacheService;
+    private final boolean habilitado;
+    private final boolean pdfDiretoHabilitado;
+    private final long duracaoMaximaMs;
+    private final int iteracoesMaximas;
+
+    private volatile String situacao;
+    private volatile int iteracoes;
+    private volatile long duracaoMs;
+    private final Map<CalculationType, Double> latenciaInicialMs = new EnumMap<>(CalculationType.class);
+    private final Map<CalculationType, long[]> ultimasLatenciasNanos = new EnumMap<>(CalculationType.class);
+
+    public AquecimentoService(CalculoHonorariosService calculoHonorariosService,
+                              CalculoFepaService calculoFepaService,
+                              CalculoRraService calculoRraService,
+                              CalculoPjService calculoPjService,
+                              PdfRelatorioService pdfRelatorioService,
+                              PdfSignatureService pdfSignatureService,
+                              CalculoCacheService calculoCacheService,
+                              @Value("${aquecimento.enabled:false}") boolean habilitado,
+                              @Value("${aquecimento.duracao-ms:3000}") long duracaoMaximaMs,
+                              @Value("${aquecimento.iteracoes:0}") int iteracoesMaximas,
+                              @Value("${pdf.writer.direto.enabled:false}") boolean pdfDiretoHabilitado) {
+        this.calculoHonorariosService = calculoHonorariosService;
+        this.calculoFepaService = calculoFepaService;
+        this.calculoRraService = calculoRraService;
+        this.calculoPjService = calculoPjService;
+        this.pdfRelatorioService = pdfRelatorioService;
+        this.pdfSignatureService = pdfSignatureService;
+        this.calculoCacheService = calculoCacheService;
+        this.habilitado = habilitado;
+        this.pdfDiretoHabilitado = pdfDiretoHabilitado;
+        this.duracaoMaximaMs = duracaoMaximaMs;
+        this.iteracoesMaximas = iteracoesMaximas;
+        this.situacao = habilitado ? "EM_ANDAMENTO" : "DESABILITADO";
+        for (CalculationType tipo : CalculationType.values()) {
+            ultimasLatenciasNanos.put(tipo, new long[JANELA]);
+        }
+    }
+
+    /**
+     * Executa o aquecimento até atingir a duração máxima ou, se configurado (maior que zero),
+     * o número máximo de iterações, o que ocorrer primeiro. Falhas são registradas no log e
+     * não impedem a subida da aplicação.
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!habilitado) {
+            return;
+        }
+        long inicio = System.nanoTime();
+        try {
+            PdfFontRegistry.carregar();
+            int i = 0;
+            while ((iteracoesMaximas <= 0 || i < iteracoesMaximas)
+                    && (System.nanoTime() - inicio) / 1_000_000 < duracaoMaximaMs) {
+                for (CalculationType tipo : CalculationType.values()) {
+                    long inicioIteracao = System.nanoTime();
+                    executar(tipo, i);
+                    registrarLatencia(tipo, i, System.nanoTime() - inicioIteracao);
+                }
+                iteracoes = ++i;
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            Metricas.erroIgnorado(AquecimentoService.class, e);
+        } finally {
+            duracaoMs = (System.nanoTime() - inicio) / 1_000_000;
+            situacao = "CONCLUIDO";
+        }
+        AquecimentoResponse resultado = status();
+        log.info("Aquecimento concluído em {} ms ({} iterações). Latência inicial: {} ms; latência final: {} ms",
+                resultado.getDuracaoMs(), resultado.getIteracoes(),
+                resultado.getLatenciaInicialMs(), resultado.getLatenciaFinalMs());
+    }
+
+    /**
+     * Situação atual do aquecimento: duração, iterações e latências inicial e final por tipo de cálculo.
+     */
+    public AquecimentoResponse status() {
+        Map<String, Double> inicial = new LinkedHashMap<>();
+        Map<String, Double> fim = new LinkedHashMap<>();
+        synchronized (ultimasLatenciasNanos) {
+            int amostras = Math.min(iteracoes, JANELA);
+            for (CalculationType tipo : CalculationType.values()) {
+                if (latenciaInicialMs.containsKey(tipo)) {
+                    inicial.put(tipo.getType(), latenciaInicialMs.get(tipo));
+                }
+                if (amostras > 0) {
+                    long total = 0;
+                    long[] janela = ultimasLatenciasNanos.get(tipo);
+                    for (int i = 0; i < amostras; i++) {
+                        total += janela[i];
+                    }
+                    fim.put(tipo.getType(), milissegundos(total / amostras));
+                }
+            }
+        }
+        return AquecimentoResponse.builder()
+                .situacao(situacao)
+                .iteracoes(iteracoes)
+                .duracaoMs(duracaoMs)
+                .latenciaInicialMs(inicial)
+                .latenciaFinalMs(fim)
+                .build();
+    }
+
+    // Um ciclo completo de um tipo de cálculo: cálculo, serialização do registro, PDF gerado e assinado
+    // na mesma passada (PDFBox e, se habilitada, escrita direta) e assinatura de um PDF já existente. Os valores variam a cada iteração para
+    // que a JIT não especialize o código para uma única entrada.
+    private void executar(CalculationType tipo, int iteracao) throws Exception {
+        BigDecimal valor = BigDecimal.valueOf(500_000 + (iteracao % 997) * 13_757L, 2);
+        ProcessData dados = new ProcessData();
+        dados.setNumProcesso(ProcessNumber.parse("0001234-62.2024.8.05.0001"));
+        dados.setNomeParteAutora("Parte Autora");
+        dados.setNomeParteRe("Parte Ré");
+
+        Object resultado;
+        switch (tipo) {
+            case HONORARIOS:
+                CalculoHonorariosRequest honorarios = new CalculoHonorariosRequest();
+                honorarios.setNumProcesso(dados.getNumProcesso());
+                honorarios.setSolicitante(dados.getNomeParteAutora());
+                honorarios.setReu(dados.getNomeParteRe());
+                honorarios.setValorBruto(valor);
+                resultado = calculoHonorariosService.calcularResultado(honorarios);
+                break;
+            case FEPA:
+                CalculoFepaRequest fepa = new CalculoFepaRequest();
+                fepa.setNumProcesso(dados.getNumProcesso());
+                fepa.setNomeParteAutora(dados.getNomeParteAutora());
+                fepa.setNomeParteRe(dados.getNomeParteRe());
+                fepa.setPeriodoInicial("01/2019");
+                fepa.setPeriodoFinal("12/2021");
+                fepa.setValorBruto(valor);
+                fepa.setDetalhado(true);
+                resultado = calculoFepaService.calcularResultado(fepa);
+                break;
+            case RRA:
+                CalculoRraRequest rra = new CalculoRraRequest();
+                rra.setNumProcesso(dados.getNumProcesso());
+                rra.setNomeParteAutora(dados.getNomeParteAutora());
+                rra.setNomeParteRe(dados.getNomeParteRe());
+                rra.setQuantidadeMeses(1 + iteracao % 36);
+                rra.setValorBruto(valor);
+                rra.setBaseCalculoIR(valor);
+                resultado = calculoRraService.calcularResultado(rra);
+                break;
+            case PJ:
+                CalculoPjRequest pj = new CalculoPjRequest();
+                pj.setNumProcesso(dados.getNumProcesso());
+                pj.setNomeParteAutora(dados.getNomeParteAutora());
+                pj.setNomeParteRe(dados.getNomeParteRe());
+                pj.setValorBruto(valor);
+                pj.setValorCorrigido(valor);
+                pj.setOptanteSimples(iteracao % 4 == 0 ? "sim" : "nao");
+                pj.setRamoAtividade(String.valueOf(1 + iteracao % 3));
+                resultado = calculoPjService.calcularResultado(pj);
+                break;
+            default:
+                return;
+        }
+
+        calculoCacheService.serializar(resultado);
+        RelatorioPdf relatorio = new RelatorioPdf(tipo, resultado, dados);
+        if (pdfDiretoHabilitado) {
+            pdfRelatorioService.gerarPdfDireto(relatorio, ASSINANTE);
+        }
+        byte[] pdf = pdfRelatorioService.gerarPdfAssinado(relatorio, ASSINANTE);
+        pdfSignatureService.validateSignedByApi(pdfSignatureService.signPdf(pdf, ASSINANTE));
+    }
+
+    private void registrarLatencia(CalculationType tipo, int iteracao, long nanos) {
+        synchronized (ultimasLatenciasNanos) {
+            if (iteracao == 0) {
+                latenciaInicialMs.put(tipo, milissegundos(nanos));
+            }
+            ultimasLatenciasNanos.get(tipo)[iteracao % JANELA] = nanos;
+        }
+    }
+
+    private static double milissegundos(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+}
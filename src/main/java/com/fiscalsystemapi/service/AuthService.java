@@ -2,69 +2,91 @@ package com.fiscalsystemapi.service;
 
 import com.fiscalsystemapi.entity.User;
 import com.fiscalsystemapi.exception.ApiException;
+import com.fiscalsystemapi.exception.TooManyRequestsException;
 import com.fiscalsystemapi.repository.UserRepository;
+import com.fiscalsystemapi.util.Rastreamento;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 import io.jsonwebtoken.security.Keys;
 
 import java.security.Key;
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @Service
 public class AuthService {
     private final UserRepository userRepository;
-    private final BCryptPasswordEncoder passwordEncoder;
+    private final SenhaService senhaService;
     private final String jwtSecret;
     private final long jwtExpirationMs;
+    // Gravações após o hash: os workers do bcrypt são um por núcleo e não devem esperar pelo banco
+    private final Executor executorBanco;
 
     public AuthService(UserRepository userRepository,
+                       SenhaService senhaService,
                        @Value("${jwt.secret}") String jwtSecret,
-                       @Value("${jwt.expirationMs:3600000}") long jwtExpirationMs) {
+                       @Value("${jwt.expirationMs:3600000}") long jwtExpirationMs,
+                       @Qualifier("applicationTaskExecutor") Executor executorBanco) {
         this.userRepository = userRepository;
-        this.passwordEncoder = new BCryptPasswordEncoder();
+        this.senhaService = senhaService;
         this.jwtSecret = jwtSecret;
         this.jwtExpirationMs = jwtExpirationMs;
+        this.executorBanco = executorBanco;
     }
 
     /**
-     * Registra um novo usuário após validar a existência de e-mail e CPF.
+     * Registra um novo usuário após validar a existência de e-mail e CPF. O hash da senha é calculado
+     * no pool de {@link SenhaService}, fora da thread da requisição, e o usuário é salvo no executor de
+     * tarefas da aplicação, sem ocupar um worker do bcrypt durante a escrita no banco.
      *
      * @param user Objeto User contendo os dados do usuário.
-     * @return O usuário salvo.
+     * @return Future concluído com o usuário salvo.
      * @throws ApiException Caso o e-mail ou CPF já estejam cadastrados.
+     * @throws TooManyRequestsException Caso o pool de hash de senhas esteja sobrecarregado.
      */
-    public User register(User user) {
+    public CompletableFuture<User> register(User user) {
         if (userRepository.findByEmail(user.getEmail()).isPresent()) {
             throw new ApiException("E-mail já cadastrado!");
         }
         if (userRepository.findByCpf(user.getCpf()).isPresent()) {
             throw new ApiException("CPF já cadastrado!");
         }
-        user.setSenha(passwordEncoder.encode(user.getSenha()));
-        return userRepository.save(user);
+        return senhaService.codificar(user.getSenha()).thenApplyAsync(hash -> {
+            user.setSenha(hash);
+            return userRepository.save(user);
+        }, executorBanco);
     }
 
     /**
-     * Autentica o usuário e gera um token JWT caso as credenciais sejam válidas.
+     * Autentica o usuário e gera um token JWT caso as credenciais sejam válidas. A senha é conferida
+     * no pool de {@link SenhaService}; se o hash gravado usar um custo menor que o atual, ele é refeito. A
+     * gravação do novo hash e a geração do token executam no executor de tarefas da aplicação.
      *
      * @param email       E-mail do usuário.
      * @param rawPassword Senha em texto plano.
-     * @return Token JWT gerado.
+     * @return Future concluído com o token JWT gerado.
      * @throws ApiException Caso o usuário não seja encontrado ou a senha esteja incorreta.
+     * @throws TooManyRequestsException Caso o pool de hash de senhas esteja sobrecarregado.
      */
-    public String login(String email, String rawPassword) {
+    public CompletableFuture<String> login(String email, String rawPassword) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new ApiException("Usuário não encontrado!"));
-        if (!passwordEncoder.matches(rawPassword, user.getSenha())) {
-            throw new ApiException("Senha incorreta!");
-        }
-        return generateJwtToken(user);
+        return senhaService.conferir(rawPassword, user.getSenha()).thenApplyAsync(conferencia -> {
+            if (!conferencia.confere()) {
+                throw new ApiException("Senha incorreta!");
+            }
+            if (conferencia.novoHash() != null) {
+                userRepository.atualizarSenha(user.getId(), user.getSenha(), conferencia.novoHash());
+            }
+            return generateJwtToken(user);
+        }, executorBanco);
     }
 
     /**
@@ -96,18 +118,28 @@ public class AuthService {
      * @throws ApiException Se não houver usuário autenticado ou se o ID for inválido.
      */
     public User getLoggedUser() {
+        Long userId = getLoggedUserId();
+        return Rastreamento.etapa("fiscal.span.usuario.consulta", () -> userRepository.findById(userId)
+                .orElseThrow(() -> new ApiException("Usuário não encontrado!")));
+    }
+
+    /**
+     * Retorna o ID do usuário atualmente logado, lido diretamente do SecurityContext
+     * (sem consulta ao banco de dados).
+     *
+     * @return ID do usuário logado.
+     * @throws ApiException Se não houver usuário autenticado ou se o ID for inválido.
+     */
+    public Long getLoggedUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !authentication.isAuthenticated()) {
             throw new ApiException("Usuário não autenticado!");
         }
         String userIdStr = authentication.getPrincipal().toString();
-        Long userId;
         try {
-            userId = Long.valueOf(userIdStr);
+            return Long.valueOf(userIdStr);
         } catch (NumberFormatException e) {
             throw new ApiException("Usuário autenticado com ID inválido!");
         }
-        return userRepository.findById(userId)
-                .orElseThrow(() -> new ApiException("Usuário não encontrado!"));
     }
 }
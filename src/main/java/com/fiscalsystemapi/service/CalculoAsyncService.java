@@ -0,0 +1,60 @@
+package com.fiscalsystemapi.service;
+
+import com.fiscalsystemapi.exception.TooManyRequestsException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executa o registro dos cálculos fora da thread da requisição, liberando o servlet container
+ * enquanto o banco de dados é acessado. O pool tem o mesmo tamanho do pool de conexões, de modo
+ * que as gravações nunca disputem conexões entre si; o excedente aguarda em uma fila limitada.
+ */
+@Service
+public class CalculoAsyncService {
+
+    private final ThreadPoolExecutor executor;
+
+    public CalculoAsyncService(@Value("${calculo.async.workers:${spring.datasource.hikari.maximum-pool-size:10}}") int workers,
+                               @Value("${calculo.async.queue-capacity:500}") int capacidadeFila) {
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadeFila),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "calculo-async-" + contador.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Registra o cálculo em segundo plano e conclui com o próprio resultado quando a gravação termina.
+     * A tarefa não tem acesso ao contexto de segurança da requisição: o usuário deve ser
+     * capturado antes e passado explicitamente.
+     *
+     * @param resultado Resultado já calculado, devolvido ao final.
+     * @param registro  Gravação do cálculo no banco de dados.
+     * @return Future concluído com o resultado após o registro.
+     * @throws TooManyRequestsException Caso a fila de registros esteja cheia.
+     */
+    public <T> CompletableFuture<T> registrar(T resultado, Runnable registro) {
+        try {
+            return CompletableFuture.runAsync(registro, executor).thenApply(ignorado -> resultado);
+        } catch (RejectedExecutionException e) {
+            throw new TooManyRequestsException("Fila de registro de cálculos cheia. Tente novamente em instantes.", e);
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdown();
+    }
+}
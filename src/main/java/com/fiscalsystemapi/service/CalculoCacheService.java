@@ -0,0 +1,201 @@
+package com.fiscalsystemapi.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fiscalsystemapi.cache.CacheEmCamadas;
+import com.fiscalsystemapi.cache.CacheStore;
+import com.fiscalsystemapi.dto.calculo.CalculoCacheResponse;
+import com.fiscalsystemapi.dto.calculo.CalculoMemorizado;
+import com.fiscalsystemapi.entity.enums.CalculationType;
+import com.fiscalsystemapi.exception.ApiException;
+import com.fiscalsystemapi.util.Metricas;
+import com.fiscalsystemapi.util.TaxCalculationUtils;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Cache dos resultados de cálculo. Os cálculos são funções puras da requisição e das
+ * tabelas de cálculo, então a chave é a requisição normalizada mais {@link TaxCalculationUtils#VERSAO_TABELAS}:
+ * ao mudar a versão, as entradas antigas deixam de ser encontradas e saem do cache pela política de remoção.
+ * Cada entrada guarda o DTO de resultado e o JSON já serializado, que é tanto o registro quanto o corpo
+ * da resposta, de modo que um acerto não recalcula nem serializa novamente. Os ObjectWriter e ObjectReader
+ * de cada tipo de resultado são criados uma única vez e reutilizados. A camada local (Caffeine, W-TinyLFU) é limitada pelo peso estimado
+ * das entradas em bytes; com {@code cache.store=redis}, o mesmo JSON do registro é o valor compartilhado
+ * entre as instâncias (ver {@link CacheEmCamadas}). Acertos, faltas e remoções são publicados em
+ * /actuator/prometheus (cache.gets, cache.evictions com cache="fiscal.calculo") e em /actuator/calculocache.
+ */
+@Service
+public class CalculoCacheService {
+
+    // Estimativa do espaço ocupado pelo DTO de resultado (objeto, BigDecimals e strings), além do JSON e da chave
+    private static final int PESO_RESULTADO = 1024;
+
+    private final ObjectMapper objectMapper;
+    private final boolean habilitado;
+    private final long maxBytes;
+    private final Duration validadeRemota;
+    private final CacheEmCamadas<CalculoMemorizado<?>> cache;
+    private final ConcurrentHashMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+
+    public CalculoCacheService(ObjectMapper objectMapper,
+                               CacheStore cacheStore,
+                               @Value("${calculo.cache.enabled:true}") boolean habilitado,
+                               @Value("${calculo.cache.max-bytes:16777216}") long maxBytes,
+                               @Value("${calculo.cache.validade-remota-ms:86400000}") long validadeRemotaMs) {
+        this.objectMapper = objectMapper;
+        this.habilitado = habilitado;
+        this.maxBytes = maxBytes;
+        this.validadeRemota = Duration.ofMillis(validadeRemotaMs);
+        this.cache = new CacheEmCamadas<>("calculo", cacheStore, maxBytes, null,
+                calculo -> PESO_RESULTADO + calculo.getJson().length
+                        + (calculo.getResposta() == calculo.getJson() ? 0 : calculo.getResposta().length));
+    }
+
+    /**
+     * Monta a chave de cache de um cálculo a partir do tipo, da versão das tabelas e dos campos da requisição.
+     * Os valores entram exatamente como informados (BigDecimal com a escala original), pois vários deles
+     * são devolvidos no resultado; cabe ao serviço de cálculo normalizar os campos que não alteram o resultado.
+     * Cada campo é prefixado pelo tamanho, de modo que separadores dentro dos valores não geram colisões.
+     *
+     * @param tipo   Tipo do cálculo.
+     * @param campos Campos da requisição, sempre na mesma ordem; null é representado de forma distinta de "".
+     * @return Chave do cálculo.
+     */
+    public static String chave(CalculationType tipo, Object... campos) {
+        StringBuilder chave = new StringBuilder(96)
+                .append(tipo.getType())
+                .append('|')
+                .append(TaxCalculationUtils.VERSAO_TABELAS);
+        for (Object campo : campos) {
+            chave.append('|');
+            if (campo == null) {
+                chave.append('-');
+            } else {
+                String valor = campo.toString();
+                chave.append(valor.length()).append(':').append(valor);
+            }
+        }
+        return chave.toString();
+    }
+
+    /**
+     * Devolve o resultado em cache ou executa o cálculo, serializa o resultado e o guarda no cache.
+     * Exceções do cálculo (ex.: {@code ApiException} para dados inválidos) são propagadas e não vão para o cache.
+     *
+     * @param chave         Chave gerada por {@link #chave}.
+     * @param tipoResultado Classe do DTO de resultado, para desserializar o JSON vindo do cache compartilhado.
+     * @param calculo       Cálculo a executar em caso de falta.
+     * @return Resultado e JSON do registro e da resposta.
+     * @throws ApiException Caso o resultado não possa ser serializado.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CalculoMemorizado<T> obter(String chave, Class<T> tipoResultado, Supplier<T> calculo) {
+        if (habilitado) {
+            CalculoMemorizado<?> emCache = cache.buscar(chave, json -> desserializar(json, tipoResultado));
+            if (emCache != null) {
+                return (CalculoMemorizado<T>) emCache;
+            }
+        }
+        T resultado = calculo.get();
+        CalculoMemorizado<T> memorizado = new CalculoMemorizado<>(resultado, serializar(resultado));
+        if (habilitado) {
+            cache.armazenar(chave, memorizado, memorizado.getJson(), validadeRemota);
+        }
+        return memorizado;
+    }
+
+    /**
+     * Resposta derivada de um resultado já memorizado (ex.: o FEPA com o detalhamento mensal), guardada
+     * com chave própria para que um acerto não serialize a resposta novamente. O registro continua sendo
+     * o JSON do resultado de origem, e o valor compartilhado entre as instâncias é o JSON da resposta.
+     *
+     * @param chave   Chave da resposta derivada, distinta da chave do resultado de origem.
+     * @param origem  Resultado memorizado do qual a resposta é derivada.
+     * @param derivar Obtém o DTO da resposta a partir da origem; refeito a cada acerto no cache compartilhado,
+     *                por isso deve ser barato.
+     * @return Resultado derivado, JSON do registro (o da origem) e JSON da resposta.
+     * @throws ApiException Caso o resultado não possa ser serializado.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CalculoMemorizado<T> obterDerivado(String chave, CalculoMemorizado<?> origem, Supplier<T> derivar) {
+        if (habilitado) {
+            CalculoMemorizado<?> emCache = cache.buscar(chave,
+                    resposta -> new CalculoMemorizado<>(derivar.get(), origem.getJson(), resposta));
+            if (emCache != null) {
+                return (CalculoMemorizado<T>) emCache;
+            }
+        }
+        T derivado = derivar.get();
+        CalculoMemorizado<T> memorizado = new CalculoMemorizado<>(derivado, origem.getJson(), serializar(derivado));
+        if (habilitado) {
+            cache.armazenar(chave, memorizado, memorizado.getResposta(), validadeRemota);
+        }
+        return memorizado;
+    }
+
+    /**
+     * Descarta todas as entradas, em todas as instâncias. Necessário apenas se as tabelas de cálculo
+     * mudarem sem mudar {@link TaxCalculationUtils#VERSAO_TABELAS}.
+     */
+    public void invalidar() {
+        cache.limpar();
+    }
+
+    /**
+     * Tamanho atual, taxa de acerto e quantidade de remoções do cache.
+     */
+    public CalculoCacheResponse status() {
+        CacheStats stats = cache.getEstatisticasLocais();
+        return CalculoCacheResponse.builder()
+                .habilitado(habilitado)
+                .distribuido(cache.isDistribuido())
+                .versaoTabelas(TaxCalculationUtils.VERSAO_TABELAS)
+                .entradas(cache.getEntradasLocais())
+                .bytes(cache.getBytesLocais())
+                .bytesMaximo(maxBytes)
+                .acertos(stats.hitCount())
+                .acertosRemotos(cache.getAcertosRemotos())
+                .faltas(stats.missCount() - cache.getAcertosRemotos())
+                .taxaAcerto(stats.requestCount() == 0 ? 0.0
+                        : (double) (stats.hitCount() + cache.getAcertosRemotos()) / stats.requestCount())
+                .remocoes(stats.evictionCount())
+                .build();
+    }
+
+    /**
+     * Serializa um resultado em JSON (UTF-8) com o writer já preparado para o seu tipo.
+     *
+     * @param resultado DTO de resultado.
+     * @return JSON do resultado.
+     * @throws ApiException Caso o resultado não possa ser serializado.
+     */
+    public byte[] serializar(Object resultado) {
+        try {
+            return writers.computeIfAbsent(resultado.getClass(), objectMapper::writerFor)
+                    .writeValueAsBytes(resultado);
+        } catch (JsonProcessingException e) {
+            throw new ApiException("Erro ao serializar o resultado do cálculo: " + e.getMessage(), e);
+        }
+    }
+
+    // JSON inválido no cache compartilhado (ex.: gravado por uma versão com outro DTO) equivale a uma falta
+    private <T> CalculoMemorizado<T> desserializar(byte[] json, Class<T> tipoResultado) {
+        try {
+            T resultado = readers.computeIfAbsent(tipoResultado, objectMapper::readerFor).readValue(json);
+            return new CalculoMemorizado<>(resultado, json);
+        } catch (IOException e) {
+            e.printStackTrace();
+            Metricas.erroIgnorado(CalculoCacheService.class, e);
+            return null;
+        }
+    }
+}
@@ -1,21 +1,22 @@
 package com.fiscalsystemapi.service;
 
+import com.fiscalsystemapi.dto.ProcessNumber;
+import com.fiscalsystemapi.dto.calculo.CalculoMemorizado;
 import com.fiscalsystemapi.dto.fepa.CalculoFepaRequest;
 import com.fiscalsystemapi.dto.fepa.CalculoFepaResult;
-import com.fiscalsystemapi.entity.CalculoRealizado;
-import com.fiscalsystemapi.entity.User;
+import com.fiscalsystemapi.dto.fepa.FepaDetalhamento;
 import com.fiscalsystemapi.entity.enums.CalculationType;
+import com.fiscalsystemapi.util.CalculoJfrEvent;
+import com.fiscalsystemapi.util.Metricas;
+import com.fiscalsystemapi.util.Rastreamento;
 import com.fiscalsystemapi.util.TaxCalculationUtils;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
+import java.time.temporal.ChronoUnit;
 
 @Service
 public class CalculoFepaService {
@@ -24,50 +25,103 @@ public class CalculoFepaService {
 
     private final CalculoRegistroService calculoRegistroService;
     private final AuthService authService;
-    private final ObjectMapper objectMapper;
+    private final CalculoCacheService calculoCacheService;
 
     public CalculoFepaService(CalculoRegistroService calculoRegistroService,
                               AuthService authService,
-                              ObjectMapper objectMapper) {
+                              CalculoCacheService calculoCacheService) {
         this.calculoRegistroService = calculoRegistroService;
         this.authService = authService;
-        this.objectMapper = objectMapper;
+        this.calculoCacheService = calculoCacheService;
     }
 
     /**
      * Realiza o cálculo FEPA com base nos dados informados e registra o cálculo realizado.
      *
      * @param request Objeto contendo os dados do processo (número, partes, período e valor bruto)
-     * @return Resultado do cálculo FEPA com os campos calculados e os dados do processo.
+     * @return JSON (UTF-8) do resultado do cálculo FEPA com os campos calculados e os dados do processo,
+     *         o mesmo que foi registrado, pronto para a resposta.
      */
-    public CalculoFepaResult calcular(CalculoFepaRequest request) {
-        String numProcesso = request.getNumProcesso();
+    public byte[] calcular(CalculoFepaRequest request) {
+        CalculoMemorizado<CalculoFepaResult> calculo =
+                Rastreamento.etapa("fiscal.span.calculo", CalculationType.FEPA, () -> calcularMemorizado(request));
+        registrar(calculo, authService.getLoggedUserId());
+        return calculo.getResposta();
+    }
+
+    /**
+     * Cálculo com cache (ver {@link CalculoCacheService}): requisições iguais devolvem o mesmo resultado
+     * e o JSON já serializado do registro e da resposta, sem recalcular. Usado também pelos endpoints assíncronos.
+     *
+     * @param request Dados informados para o cálculo.
+     * @return Resultado do cálculo e JSON do registro e da resposta.
+     */
+    public CalculoMemorizado<CalculoFepaResult> calcularMemorizado(CalculoFepaRequest request) {
+        String chave = CalculoCacheService.chave(CalculationType.FEPA, request.getNumProcesso(),
+                request.getNomeParteAutora(), request.getNomeParteRe(), request.getPeriodoInicial(),
+                request.getPeriodoFinal(), request.getValorBruto());
+        // O resumo é o que vai para o registro; a resposta detalhada é derivada dele e guardada com chave
+        // própria, para que um acerto não monte nem serialize de novo o detalhamento mensal
+        CalculoMemorizado<CalculoFepaResult> resumo = calculoCacheService.obter(chave, CalculoFepaResult.class,
+                () -> calcularResumo(request));
+        if (!Boolean.TRUE.equals(request.getDetalhado())) {
+            return resumo;
+        }
+        return calculoCacheService.obterDerivado(chave + "|detalhado", resumo,
+                () -> resumo.getResultado().toBuilder()
+                        .detalhamento(detalhamento(resumo.getResultado()))
+                        .build());
+    }
+
+    /**
+     * Apenas o cálculo, sem cache e sem acessar o banco de dados nem o usuário logado.
+     * Usado também pelo aquecimento, que não deve ocupar o cache com requisições sintéticas.
+     *
+     * @param request Dados informados para o cálculo.
+     * @return Resultado do cálculo.
+     */
+    public CalculoFepaResult calcularResultado(CalculoFepaRequest request) {
+        CalculoFepaResult result = calcularResumo(request);
+        if (Boolean.TRUE.equals(request.getDetalhado())) {
+            result.setDetalhamento(detalhamento(result));
+        }
+        return result;
+    }
+
+    // Cálculo sem o detalhamento mensal
+    private CalculoFepaResult calcularResumo(CalculoFepaRequest request) {
+        long inicioCalculo = System.nanoTime();
+        CalculoJfrEvent evento = new CalculoJfrEvent();
+        evento.begin();
+        String numProcesso = ProcessNumber.formatar(request.getNumProcesso());
         String nomeParteAutora = request.getNomeParteAutora();
         String nomeParteRe = request.getNomeParteRe();
         String periodoInicial = request.getPeriodoInicial();
         String periodoFinal = request.getPeriodoFinal();
         BigDecimal valorBrutoRPV = request.getValorBruto();
 
-        // Gera a lista de meses no período
-        List<String> mesesLista = gerarListaMeses(periodoInicial, periodoFinal);
-        int qtdMeses = mesesLista.size();
-        if (qtdMeses == 0) {
-            throw new IllegalArgumentException("Período inválido.");
+        // Percorre o período diretamente em YearMonth, sem materializar a lista de meses
+        YearMonth inicio = YearMonth.parse(periodoInicial, formatter);
+        YearMonth fim = YearMonth.parse(periodoFinal, formatter);
+        if (inicio.isAfter(fim)) {
+            YearMonth temp = inicio;
+            inicio = fim;
+            fim = temp;
         }
+        int qtdMeses = (int) inicio.until(fim, ChronoUnit.MONTHS) + 1;
 
         BigDecimal fatorCorrecao = new BigDecimal("0.85");
         BigDecimal totalValorCorrigido = BigDecimal.ZERO;
         BigDecimal totalFEPA = BigDecimal.ZERO;
 
         BigDecimal valorPorMes = valorBrutoRPV.divide(BigDecimal.valueOf(qtdMeses), 10, RoundingMode.HALF_UP);
+        // O valor corrigido é igual para todos os meses; apenas a alíquota do FEPA varia com a competência
+        BigDecimal valorCorrigidoPorMes = valorPorMes.multiply(fatorCorrecao)
+                .setScale(2, RoundingMode.HALF_UP);
 
-        for (String mesStr : mesesLista) {
-            BigDecimal valorCorrigidoPorMes = valorPorMes.multiply(fatorCorrecao)
-                    .setScale(2, RoundingMode.HALF_UP);
+        for (YearMonth mes = inicio; !mes.isAfter(fim); mes = mes.plusMonths(1)) {
             totalValorCorrigido = totalValorCorrigido.add(valorCorrigidoPorMes);
-            // O cálculo FEPA é específico: 11% se ano < 2020 ou (ano==2020 e mês <=2), senão 7,5%
-            BigDecimal fepa = calcularFEPA(mesStr, valorCorrigidoPorMes);
-            totalFEPA = totalFEPA.add(fepa);
+            totalFEPA = totalFEPA.add(TaxCalculationUtils.calcularFepa(mes, valorCorrigidoPorMes));
         }
         totalValorCorrigido = totalValorCorrigido.setScale(2, RoundingMode.HALF_UP);
         totalFEPA = totalFEPA.setScale(2, RoundingMode.HALF_UP);
@@ -100,65 +154,28 @@ public class CalculoFepaService {
                 .mediaMensal(mediaMensal)
                 .build();
 
-        try {
-            String resultadoJson = objectMapper.writeValueAsString(result);
-            User usuarioLogado = authService.getLoggedUser();
-            CalculoRealizado registro = CalculoRealizado.builder()
-                    .numProcesso(numProcesso)
-                    .tipoCalculo(CalculationType.FEPA.getType())
-                    .resultadoJson(resultadoJson)
-                    .usuario(usuarioLogado)
-                    .dataGeracao(new Date())
-                    .build();
-            calculoRegistroService.salvarCalculo(registro);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-
+        evento.registrar(CalculationType.FEPA, qtdMeses);
+        Metricas.calculo(CalculationType.FEPA, inicioCalculo);
         return result;
     }
 
-    /**
-     * Gera uma lista de meses no formato MM/yyyy entre os períodos informados.
-     */
-    private List<String> gerarListaMeses(String periodoInicial, String periodoFinal) {
-        YearMonth inicio = YearMonth.parse(periodoInicial, formatter);
-        YearMonth fim = YearMonth.parse(periodoFinal, formatter);
-
-        if (inicio.isAfter(fim)) {
-            YearMonth temp = inicio;
-            inicio = fim;
-            fim = temp;
-        }
-
-        List<String> meses = new ArrayList<>();
-        YearMonth atual = inicio;
-        while (!atual.isAfter(fim)) {
-            meses.add(atual.format(formatter));
-            atual = atual.plusMonths(1);
-        }
-        return meses;
+    // O valor corrigido é igual em todos os meses, então o total corrigido é múltiplo exato da quantidade de meses
+    private static FepaDetalhamento detalhamento(CalculoFepaResult result) {
+        YearMonth inicio = YearMonth.parse(result.getPeriodoInicial(), formatter);
+        YearMonth fim = YearMonth.parse(result.getPeriodoFinal(), formatter);
+        BigDecimal valorCorrigidoPorMes = result.getTotalValorCorrigido()
+                .divide(BigDecimal.valueOf(result.getMeses()), 2, RoundingMode.HALF_UP);
+        return new FepaDetalhamento(inicio.isAfter(fim) ? fim : inicio, result.getMeses(), valorCorrigidoPorMes);
     }
 
     /**
-     * Calcula o FEPA para um determinado mês/ano e o valor corrigido informado.
-     * Aplica 11% se o ano for anterior a 2020 ou for 2020 com mês <= 2; caso contrário, 7,5%.
+     * Registra o cálculo realizado em nome do usuário informado.
      *
-     * @param mesAno         Mês e ano no formato "MM/yyyy".
-     * @param valorCorrigido Valor corrigido para o mês.
-     * @return FEPA calculado com 2 casas decimais.
+     * @param calculo   Resultado do cálculo e JSON do registro (sem o detalhamento).
+     * @param usuarioId Id do usuário que realizou o cálculo.
      */
-    private BigDecimal calcularFEPA(String mesAno, BigDecimal valorCorrigido) {
-        String[] parts = mesAno.split("/");
-        int mes = Integer.parseInt(parts[0]);
-        int ano = Integer.parseInt(parts[1]);
-
-        BigDecimal percentual;
-        if (ano < 2020 || (ano == 2020 && mes <= 2)) {
-            percentual = new BigDecimal("0.11");
-        } else {
-            percentual = new BigDecimal("0.075");
-        }
-        return valorCorrigido.multiply(percentual).setScale(2, RoundingMode.HALF_UP);
+    public void registrar(CalculoMemorizado<CalculoFepaResult> calculo, Long usuarioId) {
+        calculoRegistroService.registrar(CalculationType.FEPA, calculo.getResultado().getNumProcesso(),
+                calculo.getJson(), usuarioId);
     }
 }
@@ -1,31 +1,32 @@
 package com.fiscalsystemapi.service;
 
+import com.fiscalsystemapi.dto.ProcessNumber;
+import com.fiscalsystemapi.dto.calculo.CalculoMemorizado;
 import com.fiscalsystemapi.dto.honorarios.CalculoHonorariosRequest;
 import com.fiscalsystemapi.dto.honorarios.CalculoHonorariosResult;
-import com.fiscalsystemapi.entity.CalculoRealizado;
-import com.fiscalsystemapi.entity.User;
 import com.fiscalsystemapi.entity.enums.CalculationType;
+import com.fiscalsystemapi.util.CalculoJfrEvent;
+import com.fiscalsystemapi.util.Metricas;
+import com.fiscalsystemapi.util.Rastreamento;
 import com.fiscalsystemapi.util.TaxCalculationUtils;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.Date;
 
 @Service
 public class CalculoHonorariosService {
 
     private final CalculoRegistroService calculoRegistroService;
     private final AuthService authService;
-    private final ObjectMapper objectMapper;
+    private final CalculoCacheService calculoCacheService;
 
     public CalculoHonorariosService(CalculoRegistroService calculoRegistroService,
                                     AuthService authService,
-                                    ObjectMapper objectMapper) {
+                                    CalculoCacheService calculoCacheService) {
         this.calculoRegistroService = calculoRegistroService;
         this.authService = authService;
-        this.objectMapper = objectMapper;
+        this.calculoCacheService = calculoCacheService;
     }
 
     /**
@@ -33,9 +34,41 @@ public class CalculoHonorariosService {
      * propagando os dados do processo e registrando o cálculo realizado no banco de dados.
      *
      * @param request Objeto que contém numProcesso, solicitante, réu e valorBruto.
-     * @return Resultado do cálculo, incluindo imposto, valor líquido, alíquota efetiva e dados do processo.
+     * @return JSON (UTF-8) do resultado, incluindo imposto, valor líquido, alíquota efetiva e dados do processo,
+     *         o mesmo que foi registrado, pronto para a resposta.
      */
-    public CalculoHonorariosResult calcular(CalculoHonorariosRequest request) {
+    public byte[] calcular(CalculoHonorariosRequest request) {
+        CalculoMemorizado<CalculoHonorariosResult> calculo =
+                Rastreamento.etapa("fiscal.span.calculo", CalculationType.HONORARIOS, () -> calcularMemorizado(request));
+        registrar(calculo, authService.getLoggedUserId());
+        return calculo.getResposta();
+    }
+
+    /**
+     * Cálculo com cache (ver {@link CalculoCacheService}): requisições iguais devolvem o mesmo resultado
+     * e o JSON já serializado do registro e da resposta, sem recalcular. Usado também pelos endpoints assíncronos.
+     *
+     * @param request Dados informados para o cálculo.
+     * @return Resultado do cálculo e JSON do registro e da resposta.
+     */
+    public CalculoMemorizado<CalculoHonorariosResult> calcularMemorizado(CalculoHonorariosRequest request) {
+        String chave = CalculoCacheService.chave(CalculationType.HONORARIOS, request.getNumProcesso(), request.getSolicitante(), request.getReu(),
+                request.getValorBruto());
+        return calculoCacheService.obter(chave, CalculoHonorariosResult.class,
+                () -> calcularResultado(request));
+    }
+
+    /**
+     * Apenas o cálculo, sem cache e sem acessar o banco de dados nem o usuário logado.
+     * Usado também pelo aquecimento, que não deve ocupar o cache com requisições sintéticas.
+     *
+     * @param request Dados informados para o cálculo.
+     * @return Resultado do cálculo.
+     */
+    public CalculoHonorariosResult calcularResultado(CalculoHonorariosRequest request) {
+        long inicioCalculo = System.nanoTime();
+        CalculoJfrEvent evento = new CalculoJfrEvent();
+        evento.begin();
         BigDecimal valorBruto = request.getValorBruto();
 
         BigDecimal imposto = TaxCalculationUtils.calcularImpostoProgressivo(valorBruto);
@@ -45,7 +78,7 @@ public class CalculoHonorariosService {
         BigDecimal aliquotaEfetiva = TaxCalculationUtils.calcularAliquotaEfetiva(imposto, valorBruto);
 
         CalculoHonorariosResult result = CalculoHonorariosResult.builder()
-                .numProcesso(request.getNumProcesso())
+                .numProcesso(ProcessNumber.formatar(request.getNumProcesso()))
                 .solicitante(request.getSolicitante())
                 .reu(request.getReu())
                 .valorBruto(request.getValorBruto())
@@ -54,20 +87,19 @@ public class CalculoHonorariosService {
                 .aliquotaEfetiva(aliquotaEfetiva)
                 .build();
 
-        try {
-            String resultadoJson = objectMapper.writeValueAsString(result);
-            User usuarioLogado = authService.getLoggedUser();
-            CalculoRealizado registro = CalculoRealizado.builder()
-                    .numProcesso(request.getNumProcesso())
-                    .tipoCalculo(CalculationType.HONORARIOS.getType())
-                    .resultadoJson(resultadoJson)
-                    .usuario(usuarioLogado)
-                    .dataGeracao(new Date())
-                    .build();
-            calculoRegistroService.salvarCalculo(registro);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        evento.registrar(CalculationType.HONORARIOS, 0);
+        Metricas.calculo(CalculationType.HONORARIOS, inicioCalculo);
         return result;
     }
+
+    /**
+     * Registra o cálculo realizado em nome do usuário informado.
+     *
+     * @param calculo   Resultado do cálculo e JSON do registro.
+     * @param usuarioId Id do usuário que realizou o cálculo.
+     */
+    public void registrar(CalculoMemorizado<CalculoHonorariosResult> calculo, Long usuarioId) {
+        calculoRegistroService.registrar(CalculationType.HONORARIOS, calculo.getResultado().getNumProcesso(),
+                calculo.getJson(), usuarioId);
+    }
 }
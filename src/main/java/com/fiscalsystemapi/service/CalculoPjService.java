@@ -1,31 +1,32 @@
 package com.fiscalsystemapi.service;
 
+import com.fiscalsystemapi.dto.ProcessNumber;
+import com.fiscalsystemapi.dto.calculo.CalculoMemorizado;
 import com.fiscalsystemapi.dto.pj.CalculoPjRequest;
 import com.fiscalsystemapi.dto.pj.CalculoPjResult;
-import com.fiscalsystemapi.entity.CalculoRealizado;
-import com.fiscalsystemapi.entity.User;
 import com.fiscalsystemapi.entity.enums.CalculationType;
 import com.fiscalsystemapi.exception.ApiException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fiscalsystemapi.util.CalculoJfrEvent;
+import com.fiscalsystemapi.util.Metricas;
+import com.fiscalsystemapi.util.Rastreamento;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.Date;
 
 @Service
 public class CalculoPjService {
 
     private final CalculoRegistroService calculoRegistroService;
     private final AuthService authService;
-    private final ObjectMapper objectMapper;
+    private final CalculoCacheService calculoCacheService;
 
     public CalculoPjService(CalculoRegistroService calculoRegistroService,
                             AuthService authService,
-                            ObjectMapper objectMapper) {
+                            CalculoCacheService calculoCacheService) {
         this.calculoRegistroService = calculoRegistroService;
         this.authService = authService;
-        this.objectMapper = objectMapper;
+        this.calculoCacheService = calculoCacheService;
     }
 
     /**
@@ -34,11 +35,47 @@ public class CalculoPjService {
      *
      * @param request Objeto contendo numProcesso, nomeParteAutora, nomeParteRe, valorBruto, valorCorrigido,
      *                optanteSimples e ramoAtividade.
-     * @return CalculoPjResult com os dados do processo e os valores calculados.
+     * @return JSON (UTF-8) do CalculoPjResult com os dados do processo e os valores calculados, o mesmo que foi
+     *         registrado, pronto para a resposta.
      * @throws ApiException Caso os valores informados sejam inválidos ou o ramo de atividade seja inválido.
      */
-    public CalculoPjResult calcular(CalculoPjRequest request) {
-        String numProcesso = request.getNumProcesso();
+    public byte[] calcular(CalculoPjRequest request) {
+        CalculoMemorizado<CalculoPjResult> calculo =
+                Rastreamento.etapa("fiscal.span.calculo", CalculationType.PJ, () -> calcularMemorizado(request));
+        registrar(calculo, authService.getLoggedUserId());
+        return calculo.getResposta();
+    }
+
+    /**
+     * Cálculo com cache (ver {@link CalculoCacheService}): requisições iguais devolvem o mesmo resultado
+     * e o JSON já serializado do registro e da resposta, sem recalcular. Usado também pelos endpoints assíncronos.
+     *
+     * @param request Dados informados para o cálculo.
+     * @return Resultado do cálculo e JSON do registro e da resposta.
+     */
+    public CalculoMemorizado<CalculoPjResult> calcularMemorizado(CalculoPjRequest request) {
+        // Os valores só entram no cálculo arredondados para 2 casas, então a escala informada é irrelevante;
+        // o ramo de atividade só importa para quem não é optante do Simples
+        String ramoAtividade = "nao".equalsIgnoreCase(request.getOptanteSimples()) ? request.getRamoAtividade() : null;
+        String chave = CalculoCacheService.chave(CalculationType.PJ, request.getNumProcesso(),
+                request.getNomeParteAutora(), request.getNomeParteRe(), semZerosADireita(request.getValorBruto()),
+                semZerosADireita(request.getValorCorrigido()), request.getOptanteSimples(), ramoAtividade);
+        return calculoCacheService.obter(chave, CalculoPjResult.class,
+                () -> calcularResultado(request));
+    }
+
+    /**
+     * Apenas o cálculo, sem cache e sem acessar o banco de dados nem o usuário logado.
+     * Usado também pelo aquecimento, que não deve ocupar o cache com requisições sintéticas.
+     *
+     * @param request Dados informados para o cálculo.
+     * @return Resultado do cálculo.
+     */
+    public CalculoPjResult calcularResultado(CalculoPjRequest request) {
+        long inicioCalculo = System.nanoTime();
+        CalculoJfrEvent evento = new CalculoJfrEvent();
+        evento.begin();
+        String numProcesso = ProcessNumber.formatar(request.getNumProcesso());
         String nomeParteAutora = request.getNomeParteAutora();
         String nomeParteRe = request.getNomeParteRe();
         BigDecimal valorBruto = request.getValorBruto();
@@ -94,21 +131,23 @@ public class CalculoPjService {
                 .build();
 
         // Registro do cálculo no banco de dados
-        try {
-            String resultadoJson = objectMapper.writeValueAsString(result);
-            User usuarioLogado = authService.getLoggedUser();
-            CalculoRealizado registro = CalculoRealizado.builder()
-                    .numProcesso(numProcesso)
-                    .tipoCalculo(CalculationType.PJ.getType())
-                    .resultadoJson(resultadoJson)
-                    .usuario(usuarioLogado)
-                    .dataGeracao(new Date())
-                    .build();
-            calculoRegistroService.salvarCalculo(registro);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-
+        evento.registrar(CalculationType.PJ, 0);
+        Metricas.calculo(CalculationType.PJ, inicioCalculo);
         return result;
     }
+
+    /**
+     * Registra o cálculo realizado em nome do usuário informado.
+     *
+     * @param calculo   Resultado do cálculo e JSON do registro.
+     * @param usuarioId Id do usuário que realizou o cálculo.
+     */
+    public void registrar(CalculoMemorizado<CalculoPjResult> calculo, Long usuarioId) {
+        calculoRegistroService.registrar(CalculationType.PJ, calculo.getResultado().getNumProcesso(),
+                calculo.getJson(), usuarioId);
+    }
+
+    private static BigDecimal semZerosADireita(BigDecimal valor) {
+        return valor == null ? null : valor.stripTrailingZeros();
+    }
 }
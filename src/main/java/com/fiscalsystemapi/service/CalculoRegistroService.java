@@ -1,18 +1,74 @@
 package com.fiscalsystemapi.service;
 
+import com.fiscalsystemapi.dto.ProcessNumber;
 import com.fiscalsystemapi.entity.CalculoRealizado;
+import com.fiscalsystemapi.entity.enums.CalculationType;
+import com.fiscalsystemapi.exception.ApiException;
 import com.fiscalsystemapi.repository.CalculoRealizadoRepository;
+import com.fiscalsystemapi.repository.UserRepository;
+import com.fiscalsystemapi.util.Metricas;
+import com.fiscalsystemapi.util.Rastreamento;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 @Service
 public class CalculoRegistroService {
 
+    private static final Logger log = LoggerFactory.getLogger(CalculoRegistroService.class);
+
+    // Registros lidos por consulta no preenchimento da chave do número do processo
+    private static final int LOTE_CHAVES = 500;
+
     private final CalculoRealizadoRepository repository;
+    private final UserRepository userRepository;
+    // Maior id já verificado pelo preenchimento; os registros sem chave até ele têm números inválidos
+    private volatile long ultimoIdVerificado;
 
-    public CalculoRegistroService(CalculoRealizadoRepository repository) {
+    public CalculoRegistroService(CalculoRealizadoRepository repository,
+                                  UserRepository userRepository) {
         this.repository = repository;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Registra um cálculo realizado, com o resultado já serializado em JSON (ver {@link CalculoCacheService}).
+     * O usuário é referenciado apenas pelo id, sem consultá-lo no banco de dados.
+     * Falhas no registro não interrompem o cálculo: são apenas registradas no log.
+     *
+     * @param tipo          Tipo do cálculo.
+     * @param numProcesso   Número do processo formatado, já validado na requisição (ver {@link ProcessNumber}).
+     * @param resultadoJson JSON (UTF-8) do resultado; se for null (falha na serialização), nada é registrado.
+     * @param usuarioId     Id do usuário que realizou o cálculo.
+     */
+    public void registrar(CalculationType tipo, String numProcesso, byte[] resultadoJson, Long usuarioId) {
+        if (resultadoJson == null) {
+            return;
+        }
+        long inicio = System.nanoTime();
+        try {
+            CalculoRealizado registro = CalculoRealizado.builder()
+                    .numProcesso(numProcesso)
+                    .numProcessoChave(numProcesso == null ? null : ProcessNumber.parse(numProcesso).getChave())
+                    .tipoCalculo(tipo.getType())
+                    .resultadoJson(new String(resultadoJson, StandardCharsets.UTF_8))
+                    .usuario(userRepository.getReferenceById(usuarioId))
+                    .dataGeracao(new Date())
+                    .build();
+            Rastreamento.etapa("fiscal.span.calculo.persistencia", tipo, () -> salvarCalculo(registro));
+            Metricas.persistencia(tipo, inicio);
+        } catch (Exception e) {
+            e.printStackTrace();
+            Metricas.erroIgnorado(CalculoRegistroService.class, e);
+        }
     }
 
     /**
@@ -26,12 +82,69 @@ public class CalculoRegistroService {
     }
 
     /**
-     * Busca os registros de cálculo cujo número do processo contenha a string informada.
+     * Busca os registros de cálculo de um processo, pela forma canônica do número (coluna indexada).
+     * Números com ou sem pontuação encontram os mesmos registros.
      *
-     * @param numProcesso Substring a ser buscada no número do processo.
+     * @param numProcesso Número do processo.
      * @return Lista de registros encontrados.
      */
-    public List<CalculoRealizado> buscarPorNumProcesso(String numProcesso) {
-        return repository.findByNumProcessoContaining(numProcesso);
+    public List<CalculoRealizado> buscarPorNumProcesso(ProcessNumber numProcesso) {
+        List<CalculoRealizado> registros = new ArrayList<>(repository.findByNumProcessoChave(numProcesso.getChave()));
+        // Registros gravados por uma versão anterior e ainda não alcançados por preencherChavesLegadas
+        registros.addAll(repository.findByNumProcessoChaveIsNullAndNumProcessoIn(
+                List.of(numProcesso.toString(), numProcesso.digitos())));
+        return registros;
+    }
+
+    /**
+     * Preenche a forma canônica do número (num_processo_chave) dos registros gravados antes da coluna,
+     * em lotes e sem carregar os resultados. Executa pouco depois da subida e depois periodicamente, para
+     * alcançar registros gravados por instâncias de uma versão anterior durante a atualização. Registros
+     * com números inválidos ficam sem chave e continuam sendo exibidos pelo texto gravado
+     * (ver {@link ProcessNumber#legado(String)}).
+     */
+    @Scheduled(initialDelayString = "${calculo.chave-processo.atraso-inicial-ms:10000}",
+            fixedDelayString = "${calculo.chave-processo.intervalo-ms:3600000}")
+    public void preencherChavesLegadas() {
+        int preenchidos = 0;
+        int invalidos = 0;
+        List<CalculoRealizadoRepository.NumProcessoSemChave> lote;
+        do {
+            lote = repository.buscarSemChave(ultimoIdVerificado, PageRequest.of(0, LOTE_CHAVES));
+            for (CalculoRealizadoRepository.NumProcessoSemChave registro : lote) {
+                Long chave = chaveOuNull(registro.getNumProcesso());
+                if (chave == null) {
+                    invalidos++;
+                } else {
+                    preenchidos += repository.preencherChave(registro.getId(), chave);
+                }
+                ultimoIdVerificado = registro.getId();
+            }
+        } while (lote.size() == LOTE_CHAVES);
+        if (preenchidos > 0 || invalidos > 0) {
+            log.info("Chave do número do processo preenchida em {} registros; {} com número inválido ficaram sem chave",
+                    preenchidos, invalidos);
+        }
+    }
+
+    // Forma canônica do texto gravado, ou null se ele não for um número de processo válido
+    static Long chaveOuNull(String numProcesso) {
+        try {
+            ProcessNumber numero = ProcessNumber.parse(numProcesso);
+            return numero == null ? null : numero.getChave();
+        } catch (ApiException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Busca um registro de cálculo pelo id, desde que pertença ao usuário informado.
+     *
+     * @param id        Id do registro.
+     * @param usuarioId Id do usuário dono do registro.
+     * @return Registro encontrado, ou vazio se não existir ou pertencer a outro usuário.
+     */
+    public Optional<CalculoRealizado> buscarDoUsuario(Long id, Long usuarioId) {
+        return repository.findByIdAndUsuarioId(id, usuarioId);
     }
 }
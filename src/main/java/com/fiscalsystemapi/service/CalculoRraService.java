@@ -1,41 +1,74 @@
 package com.fiscalsystemapi.service;
 
+import com.fiscalsystemapi.dto.ProcessNumber;
+import com.fiscalsystemapi.dto.calculo.CalculoMemorizado;
 import com.fiscalsystemapi.dto.rra.CalculoRraRequest;
 import com.fiscalsystemapi.dto.rra.CalculoRraResult;
-import com.fiscalsystemapi.entity.CalculoRealizado;
-import com.fiscalsystemapi.entity.User;
 import com.fiscalsystemapi.entity.enums.CalculationType;
+import com.fiscalsystemapi.util.CalculoJfrEvent;
+import com.fiscalsystemapi.util.Metricas;
+import com.fiscalsystemapi.util.Rastreamento;
 import com.fiscalsystemapi.util.TaxCalculationUtils;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.Date;
 
 @Service
 public class CalculoRraService {
 
     private final CalculoRegistroService calculoRegistroService;
     private final AuthService authService;
-    private final ObjectMapper objectMapper;
+    private final CalculoCacheService calculoCacheService;
 
     public CalculoRraService(CalculoRegistroService calculoRegistroService,
                              AuthService authService,
-                             ObjectMapper objectMapper) {
+                             CalculoCacheService calculoCacheService) {
         this.calculoRegistroService = calculoRegistroService;
         this.authService = authService;
-        this.objectMapper = objectMapper;
+        this.calculoCacheService = calculoCacheService;
     }
 
     /**
      * Realiza o cálculo do IR para RRA com base nos dados informados e registra o cálculo realizado.
      *
      * @param request Objeto contendo numProcesso, nomeParteAutora, nomeParteRe, quantidadeMeses, valorBruto e baseCalculoIR.
-     * @return Objeto contendo os dados do processo e os valores calculados (imposto total, imposto mensal, alíquota efetiva, valor líquido e média mensal).
+     * @return JSON (UTF-8) com os dados do processo e os valores calculados (imposto total, imposto mensal, alíquota efetiva, valor líquido e média mensal),
+     *         o mesmo que foi registrado, pronto para a resposta.
      */
-    public CalculoRraResult calcular(CalculoRraRequest request) {
-        String numProcesso = request.getNumProcesso();
+    public byte[] calcular(CalculoRraRequest request) {
+        CalculoMemorizado<CalculoRraResult> calculo =
+                Rastreamento.etapa("fiscal.span.calculo", CalculationType.RRA, () -> calcularMemorizado(request));
+        registrar(calculo, authService.getLoggedUserId());
+        return calculo.getResposta();
+    }
+
+    /**
+     * Cálculo com cache (ver {@link CalculoCacheService}): requisições iguais devolvem o mesmo resultado
+     * e o JSON já serializado do registro e da resposta, sem recalcular. Usado também pelos endpoints assíncronos.
+     *
+     * @param request Dados informados para o cálculo.
+     * @return Resultado do cálculo e JSON do registro e da resposta.
+     */
+    public CalculoMemorizado<CalculoRraResult> calcularMemorizado(CalculoRraRequest request) {
+        String chave = CalculoCacheService.chave(CalculationType.RRA, request.getNumProcesso(), request.getNomeParteAutora(),
+                request.getNomeParteRe(), request.getQuantidadeMeses(), request.getValorBruto(), request.getBaseCalculoIR());
+        return calculoCacheService.obter(chave, CalculoRraResult.class,
+                () -> calcularResultado(request));
+    }
+
+    /**
+     * Apenas o cálculo, sem cache e sem acessar o banco de dados nem o usuário logado.
+     * Usado também pelo aquecimento, que não deve ocupar o cache com requisições sintéticas.
+     *
+     * @param request Dados informados para o cálculo.
+     * @return Resultado do cálculo.
+     */
+    public CalculoRraResult calcularResultado(CalculoRraRequest request) {
+        long inicioCalculo = System.nanoTime();
+        CalculoJfrEvent evento = new CalculoJfrEvent();
+        evento.begin();
+        String numProcesso = ProcessNumber.formatar(request.getNumProcesso());
         String nomeParteAutora = request.getNomeParteAutora();
         String nomeParteRe = request.getNomeParteRe();
         Integer quantidadeMeses = request.getQuantidadeMeses();
@@ -78,21 +111,19 @@ public class CalculoRraService {
                 .build();
 
         // Registra o cálculo no banco de dados
-        try {
-            String resultadoJson = objectMapper.writeValueAsString(result);
-            User usuarioLogado = authService.getLoggedUser();
-            CalculoRealizado registro = CalculoRealizado.builder()
-                    .numProcesso(numProcesso)
-                    .tipoCalculo(CalculationType.RRA.getType())
-                    .resultadoJson(resultadoJson)
-                    .usuario(usuarioLogado)
-                    .dataGeracao(new Date())
-                    .build();
-            calculoRegistroService.salvarCalculo(registro);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-
+        evento.registrar(CalculationType.RRA, quantidadeMeses);
+        Metricas.calculo(CalculationType.RRA, inicioCalculo);
         return result;
     }
+
+    /**
+     * Registra o cálculo realizado em nome do usuário informado.
+     *
+     * @param calculo   Resultado do cálculo e JSON do registro.
+     * @param usuarioId Id do usuário que realizou o cálculo.
+     */
+    public void registrar(CalculoMemorizado<CalculoRraResult> calculo, Long usuarioId) {
+        calculoRegistroService.registrar(CalculationType.RRA, calculo.getResultado().getNumProcesso(),
+                calculo.getJson(), usuarioId);
+    }
 }
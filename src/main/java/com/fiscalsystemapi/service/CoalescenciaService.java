@@ -0,0 +1,133 @@
+package com.fiscalsystemapi.service;
+
+import com.fiscalsystemapi.util.HashUtils;
+import com.fiscalsystemapi.util.Metricas;
+import io.micrometer.core.instrument.Counter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Junta requisições idênticas que chegam enquanto a primeira ainda está em andamento (duplo clique,
+ * novas tentativas do front end). A chave é o hash de (usuário, endpoint, corpo canônico): a primeira
+ * requisição executa o trabalho e as demais aguardam e recebem o mesmo resultado, inclusive o mesmo
+ * registro de cálculo gravado, ou a mesma exceção. Sem duplicata em andamento, o custo é um
+ * {@code putIfAbsent} no ConcurrentHashMap (CAS em um bin vazio, sem lock) e um {@code remove} ao final.
+ * A quantidade de requisições juntadas é publicada em {@code fiscal.requisicoes.coalescidas}.
+ */
+@Service
+public class CoalescenciaService {
+
+    private final AuthService authService;
+    private final boolean habilitado;
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> emAndamento = new ConcurrentHashMap<>();
+    private final AtomicLong coalescidas = new AtomicLong();
+    // Contador de cada endpoint, registrado na primeira requisição juntada e reaproveitado nas seguintes
+    private final ConcurrentHashMap<String, Counter> contadores = new ConcurrentHashMap<>();
+
+    public CoalescenciaService(AuthService authService,
+                               @Value("${coalescencia.enabled:true}") boolean habilitado) {
+        this.authService = authService;
+        this.habilitado = habilitado;
+    }
+
+    /**
+     * Executa o trabalho ou, se uma requisição idêntica do mesmo usuário estiver em andamento,
+     * aguarda o resultado dela.
+     *
+     * @param endpoint Identificação do endpoint (ex.: "calculos/honorarios").
+     * @param corpo    Corpo da requisição; DTOs com o mesmo conteúdo geram a mesma chave.
+     * @param execucao Trabalho da requisição.
+     * @return Resultado da execução, próprio ou compartilhado.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T executar(String endpoint, Object corpo, Supplier<T> execucao) {
+        if (!habilitado) {
+            return execucao.get();
+        }
+        String chave = chave(endpoint, corpo);
+        CompletableFuture<Object> novo = new CompletableFuture<>();
+        CompletableFuture<Object> existente = emAndamento.putIfAbsent(chave, novo);
+        if (existente != null) {
+            registrarCoalescida(endpoint);
+            return (T) aguardar(existente);
+        }
+        try {
+            T resultado = execucao.get();
+            novo.complete(resultado);
+            return resultado;
+        } catch (RuntimeException | Error e) {
+            novo.completeExceptionally(e);
+            throw e;
+        } finally {
+            emAndamento.remove(chave, novo);
+        }
+    }
+
+    /**
+     * Igual a {@link #executar}, para trabalhos que terminam de forma assíncrona: a requisição fica
+     * em andamento até o future devolvido pela execução ser concluído.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> executarAssincrono(String endpoint, Object corpo,
+                                                       Supplier<CompletableFuture<T>> execucao) {
+        if (!habilitado) {
+            return execucao.get();
+        }
+        String chave = chave(endpoint, corpo);
+        CompletableFuture<Object> novo = new CompletableFuture<>();
+        CompletableFuture<Object> existente = emAndamento.putIfAbsent(chave, novo);
+        if (existente != null) {
+            registrarCoalescida(endpoint);
+            return (CompletableFuture<T>) (CompletableFuture<?>) existente;
+        }
+        try {
+            execucao.get().whenComplete((resultado, erro) -> {
+                emAndamento.remove(chave, novo);
+                if (erro != null) {
+                    novo.completeExceptionally(erro);
+                } else {
+                    novo.complete(resultado);
+                }
+            });
+        } catch (RuntimeException | Error e) {
+            emAndamento.remove(chave, novo);
+            novo.completeExceptionally(e);
+            throw e;
+        }
+        return (CompletableFuture<T>) (CompletableFuture<?>) novo;
+    }
+
+    public long getCoalescidas() {
+        return coalescidas.get();
+    }
+
+    private String chave(String endpoint, Object corpo) {
+        return HashUtils.sha256Hex(authService.getLoggedUserId(), endpoint, corpo);
+    }
+
+    private void registrarCoalescida(String endpoint) {
+        coalescidas.incrementAndGet();
+        contadores.computeIfAbsent(endpoint, Metricas::coalescidas).increment();
+    }
+
+    // Repassa a exceção da requisição original como se tivesse ocorrido nesta
+    private static Object aguardar(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            if (e.getCause() instanceof Error causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+}
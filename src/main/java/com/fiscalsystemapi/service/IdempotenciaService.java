@@ -0,0 +1,122 @@
+package com.fiscalsystemapi.service;
+
+import com.fiscalsystemapi.entity.RequisicaoIdempotente;
+import com.fiscalsystemapi.repository.RequisicaoIdempotenteRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.Optional;
+
+/**
+ * Guarda as respostas das requisições enviadas com {@code Idempotency-Key}, por usuário e chave, na
+ * tabela {@code requisicoes_idempotentes}. A primeira requisição reserva a chave (linha sem status) antes
+ * de executar; a restrição única em (usuario_id, chave) garante que apenas uma instância execute mesmo com
+ * várias instâncias atrás do balanceador. A resposta fica gravada por {@code idempotencia.ttl-ms}; uma
+ * reserva que não foi concluída (ex.: instância encerrada no meio da requisição) expira em
+ * {@code idempotencia.reserva-ms}.
+ */
+@Service
+public class IdempotenciaService {
+
+    /**
+     * Situação de uma chave ao chegar uma requisição.
+     */
+    public enum Situacao {
+        /** Chave reservada para esta requisição, que deve executar e depois chamar concluir ou liberar. */
+        NOVA,
+        /** Resposta já gravada para o mesmo endpoint e corpo. */
+        REPETIDA,
+        /** Chave usada antes com outro endpoint ou outro corpo. */
+        CONFLITO,
+        /** Requisição original ainda em andamento. */
+        EM_ANDAMENTO
+    }
+
+    public record Reserva(Situacao situacao, RequisicaoIdempotente registro) {
+    }
+
+    private final RequisicaoIdempotenteRepository repository;
+    private final long ttlMs;
+    private final long reservaMs;
+
+    public IdempotenciaService(RequisicaoIdempotenteRepository repository,
+                               @Value("${idempotencia.ttl-ms:86400000}") long ttlMs,
+                               @Value("${idempotencia.reserva-ms:600000}") long reservaMs) {
+        this.repository = repository;
+        this.ttlMs = ttlMs;
+        this.reservaMs = reservaMs;
+    }
+
+    /**
+     * Reserva a chave para a requisição ou informa que ela já foi usada.
+     *
+     * @param usuarioId ID do usuário logado; chaves iguais de usuários diferentes são independentes.
+     * @param chave     Valor do cabeçalho {@code Idempotency-Key}.
+     * @param endpoint  Endpoint da requisição (ex.: "calculos/honorarios").
+     * @param hashCorpo SHA-256 do corpo da requisição.
+     * @return Situação da chave e, exceto em EM_ANDAMENTO após uma disputa, o registro correspondente.
+     */
+    public Reserva reservar(Long usuarioId, String chave, String endpoint, String hashCorpo) {
+        Optional<RequisicaoIdempotente> existente = repository.findByUsuarioIdAndChave(usuarioId, chave);
+        if (existente.isPresent()) {
+            if (!existente.get().getExpiraEm().before(new Date())) {
+                return avaliar(existente.get(), endpoint, hashCorpo);
+            }
+            repository.delete(existente.get());
+        }
+        RequisicaoIdempotente registro = RequisicaoIdempotente.builder()
+                .usuarioId(usuarioId)
+                .chave(chave)
+                .endpoint(endpoint)
+                .hashCorpo(hashCorpo)
+                .expiraEm(new Date(System.currentTimeMillis() + reservaMs))
+                .build();
+        try {
+            return new Reserva(Situacao.NOVA, repository.saveAndFlush(registro));
+        } catch (DataIntegrityViolationException e) {
+            // Outra requisição com a mesma chave reservou primeiro
+            return repository.findByUsuarioIdAndChave(usuarioId, chave)
+                    .map(vencedora -> avaliar(vencedora, endpoint, hashCorpo))
+                    .orElseGet(() -> new Reserva(Situacao.EM_ANDAMENTO, null));
+        }
+    }
+
+    /**
+     * Grava a resposta de uma requisição reservada, que passa a ser devolvida às repetições.
+     */
+    public void concluir(RequisicaoIdempotente registro, int status, String contentType, byte[] corpo) {
+        registro.setStatus(status);
+        registro.setContentType(contentType);
+        registro.setCorpo(corpo);
+        registro.setExpiraEm(new Date(System.currentTimeMillis() + ttlMs));
+        repository.save(registro);
+    }
+
+    /**
+     * Desfaz a reserva de uma requisição que falhou, permitindo repeti-la com a mesma chave.
+     */
+    public void liberar(RequisicaoIdempotente registro) {
+        repository.deleteById(registro.getId());
+    }
+
+    /**
+     * Remove periodicamente as respostas e reservas expiradas.
+     */
+    @Scheduled(fixedDelayString = "${idempotencia.cleanup-interval-ms:3600000}")
+    public void removerExpiradas() {
+        repository.removerExpiradas(new Date());
+    }
+
+    private static Reserva avaliar(RequisicaoIdempotente registro, String endpoint, String hashCorpo) {
+        if (!registro.getEndpoint().equals(endpoint) || !registro.getHashCorpo().equals(hashCorpo)) {
+            return new Reserva(Situacao.CONFLITO, registro);
+        }
+        if (registro.getStatus() == null) {
+            return new Reserva(Situacao.EM_ANDAMENTO, registro);
+        }
+        return new Reserva(Situacao.REPETIDA, registro);
+    }
+}
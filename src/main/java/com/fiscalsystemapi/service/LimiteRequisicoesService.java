@@ -0,0 +1,175 @@
+package com.fiscalsystemapi.service;
+
+import com.fiscalsystemapi.util.Metricas;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limites de uso dos endpoints caros, para que um único usuário não ocupe a CPU de todos.
+ * <ul>
+ *     <li>Taxa por usuário e classe de endpoint: um balde de fichas com reposição contínua
+ *     ({@code limite.<classe>.por-segundo}) e capacidade para rajadas ({@code limite.<classe>.rajada}).
+ *     Os baldes ficam em um ConcurrentHashMap por classe, indexado pelo usuário do token JWT; cada balde
+ *     é um único AtomicLong com o instante em que volta a ficar cheio (forma GCRA do balde de fichas),
+ *     atualizado por CAS, sem lock nem alocação por requisição.</li>
+ *     <li>Concorrência global de PDF: um semáforo limita quantas gerações e assinaturas síncronas executam
+ *     ao mesmo tempo, deixando as demais threads livres para os cálculos.</li>
+ * </ul>
+ */
+@Service
+public class LimiteRequisicoesService {
+
+    /**
+     * Classe de endpoint, com balde de fichas próprio para cada usuário.
+     */
+    public enum Classe {
+        CALCULO("calculo"),
+        PDF("pdf");
+
+        private final String nome;
+
+        Classe(String nome) {
+            this.nome = nome;
+        }
+
+        public String getNome() {
+            return nome;
+        }
+    }
+
+    private final boolean habilitado;
+    private final Map<Classe, Taxa> taxas = new EnumMap<>(Classe.class);
+    private final Map<Classe, ConcurrentHashMap<String, AtomicLong>> baldes = new EnumMap<>(Classe.class);
+    private final Semaphore pdfEmExecucao;
+    private final long esperaPdfMs;
+
+    public LimiteRequisicoesService(@Value("${limite.enabled:true}") boolean habilitado,
+                                    @Value("${limite.calculo.por-segundo:20}") double calculoPorSegundo,
+                                    @Value("${limite.calculo.rajada:40}") int calculoRajada,
+                                    @Value("${limite.pdf.por-segundo:1}") double pdfPorSegundo,
+                                    @Value("${limite.pdf.rajada:10}") int pdfRajada,
+                                    @Value("${limite.pdf.concorrencia:0}") int pdfConcorrencia,
+                                    @Value("${limite.pdf.fracao-threads:0.5}") double fracaoThreads,
+                                    @Value("${limite.pdf.espera-ms:200}") long esperaPdfMs,
+                                    @Value("${server.tomcat.threads.max:200}") int threadsTomcat,
+                                    @Value("${spring.threads.virtual.enabled:false}") boolean threadsVirtuais) {
+        this.habilitado = habilitado;
+        this.esperaPdfMs = esperaPdfMs;
+        registrarTaxa(Classe.CALCULO, calculoPorSegundo, calculoRajada);
+        registrarTaxa(Classe.PDF, pdfPorSegundo, pdfRajada);
+
+        // Com virtual threads não há pool de threads do Tomcat; a fração passa a valer sobre os núcleos,
+        // pois a geração de PDF é limitada por CPU
+        int threads = threadsVirtuais ? Runtime.getRuntime().availableProcessors() : threadsTomcat;
+        int limite = pdfConcorrencia > 0 ? pdfConcorrencia : Math.max(1, (int) (threads * fracaoThreads));
+        this.pdfEmExecucao = new Semaphore(limite);
+        Metricas.pdfEmExecucao(pdfEmExecucao, limite);
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    /**
+     * Consome uma ficha do balde do usuário na classe de endpoint.
+     *
+     * @param classe  Classe do endpoint chamado.
+     * @param usuario Usuário autenticado (subject do token JWT).
+     * @return 0 se a requisição pode seguir; caso contrário, o tempo em nanossegundos até haver uma ficha.
+     */
+    public long consumir(Classe classe, String usuario) {
+        return consumir(classe, usuario, System.nanoTime());
+    }
+
+    long consumir(Classe classe, String usuario, long agora) {
+        Taxa taxa = taxas.get(classe);
+        if (taxa == null) {
+            return 0;
+        }
+        ConcurrentHashMap<String, AtomicLong> baldesDaClasse = baldes.get(classe);
+        AtomicLong cheioEm = baldesDaClasse.get(usuario);
+        if (cheioEm == null) {
+            // Balde novo começa cheio
+            cheioEm = baldesDaClasse.computeIfAbsent(usuario, u -> new AtomicLong(agora));
+        }
+        while (true) {
+            long atual = cheioEm.get();
+            // Cada ficha consumida adia em um intervalo o instante em que o balde volta a ficar cheio;
+            // a requisição é recusada se isso ultrapassar a capacidade do balde
+            long novo = (atual - agora > 0 ? atual : agora) + taxa.intervaloNanos();
+            long excesso = novo - agora - taxa.capacidadeNanos();
+            if (excesso > 0) {
+                return excesso;
+            }
+            if (cheioEm.compareAndSet(atual, novo)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Ocupa uma das vagas de geração de PDF, aguardando até {@code limite.pdf.espera-ms} por uma vaga livre.
+     * Uma vaga obtida deve ser devolvida com {@link #sairPdf()}.
+     *
+     * @return true se a vaga foi obtida.
+     */
+    public boolean entrarPdf() {
+        if (pdfEmExecucao.tryAcquire()) {
+            return true;
+        }
+        try {
+            return pdfEmExecucao.tryAcquire(esperaPdfMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Devolve a vaga obtida em {@link #entrarPdf()}.
+     */
+    public void sairPdf() {
+        pdfEmExecucao.release();
+    }
+
+    /**
+     * Remove os baldes que já voltaram a ficar cheios, equivalentes a um balde novo.
+     */
+    @Scheduled(fixedDelayString = "${limite.cleanup-interval-ms:60000}")
+    public void removerOciosos() {
+        removerOciosos(System.nanoTime());
+    }
+
+    void removerOciosos(long agora) {
+        // Uma requisição que obteve o balde antes da remoção consome a ficha de um balde descartado;
+        // no pior caso o usuário ganha essa ficha, sem precisar de lock
+        for (ConcurrentHashMap<String, AtomicLong> baldesDaClasse : baldes.values()) {
+            baldesDaClasse.values().removeIf(cheioEm -> cheioEm.get() - agora <= 0);
+        }
+    }
+
+    int baldesAtivos(Classe classe) {
+        return baldes.get(classe).size();
+    }
+
+    // Taxa menor ou igual a zero desabilita o limite da classe
+    private void registrarTaxa(Classe classe, double porSegundo, int rajada) {
+        baldes.put(classe, new ConcurrentHashMap<>());
+        if (porSegundo > 0) {
+            long intervalo = Math.max(1, Math.round(TimeUnit.SECONDS.toNanos(1) / porSegundo));
+            taxas.put(classe, new Taxa(intervalo, intervalo * Math.max(1, rajada)));
+        }
+    }
+
+    // Intervalo de reposição de uma ficha e capacidade do balde, ambos em nanossegundos
+    private record Taxa(long intervaloNanos, long capacidadeNanos) {
+    }
+}
@@ -0,0 +1,264 @@
+package com.fiscalsystemapi.service;
+
+import com.fiscalsystemapi.cache.CacheEmCamadas;
+import com.fiscalsystemapi.cache.CacheStore;
+import com.fiscalsystemapi.dto.ProcessData;
+import com.fiscalsystemapi.entity.User;
+import com.fiscalsystemapi.entity.enums.CalculationType;
+import com.fiscalsystemapi.util.HashUtils;
+import com.fiscalsystemapi.util.Metricas;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache endereçado por conteúdo dos PDFs assinados.
+ * A chave é o hash de (tipo do relatório, versão do template, resultado, dados do processo, assinante),
+ * de modo que um acerto devolve os bytes prontos sem passar pelo PDFBox.
+ * Há três níveis: memória (limitada em bytes), o cache compartilhado entre as instâncias quando
+ * {@code cache.store=redis} (ver {@link CacheEmCamadas}) e disco (lido via memory-mapping).
+ * A única regra de expiração é a validade da assinatura: uma cópia assinada há mais tempo
+ * que {@code pdf.cache.signature-max-age-ms} é descartada e o PDF é gerado novamente.
+ */
+@Service
+public class PdfCacheService {
+
+    private static final String EXTENSAO = ".pdf";
+
+    private final boolean habilitado;
+    private final long memoriaMaxBytes;
+    private final long validadeAssinaturaMs;
+    private final Path diretorio;
+
+    // Memória e cache compartilhado; o valor compartilhado é o instante da assinatura (8 bytes) seguido do PDF
+    private final CacheEmCamadas<EntradaCache> memoria;
+
+    private final AtomicLong acertosMemoria = new AtomicLong();
+    private final AtomicLong acertosDisco = new AtomicLong();
+    private final AtomicLong faltas = new AtomicLong();
+
+    public PdfCacheService(CacheStore cacheStore,
+                           @Value("${pdf.cache.enabled:true}") boolean habilitado,
+                           @Value("${pdf.cache.memory-max-bytes:67108864}") long memoriaMaxBytes,
+                           @Value("${pdf.cache.signature-max-age-ms:86400000}") long validadeAssinaturaMs,
+                           @Value("${pdf.cache.dir:}") String diretorio) {
+        this.habilitado = habilitado;
+        this.memoriaMaxBytes = memoriaMaxBytes;
+        this.validadeAssinaturaMs = validadeAssinaturaMs;
+        this.diretorio = diretorio == null || diretorio.isBlank() ? null : Paths.get(diretorio);
+        this.memoria = new CacheEmCamadas<>("pdf", cacheStore, memoriaMaxBytes,
+                Duration.ofMillis(validadeAssinaturaMs), entrada -> entrada.pdf.length);
+        if (this.habilitado && this.diretorio != null) {
+            try {
+                Files.createDirectories(this.diretorio);
+            } catch (IOException e) {
+                throw new IllegalStateException("Não foi possível criar o diretório de cache de PDF: " + diretorio, e);
+            }
+        }
+    }
+
+    /**
+     * Monta a chave de cache de um relatório.
+     *
+     * @param tipo            Tipo de cálculo do relatório.
+     * @param versaoTemplate  Versão do template do relatório; deve mudar sempre que o layout mudar.
+     * @param resultado       DTO de resultado do cálculo.
+     * @param dados           Dados do processo.
+     * @param signer          Usuário que assina o PDF.
+     * @return Hash SHA-256 em hexadecimal, ou null se o cache estiver desabilitado ou não houver assinante.
+     */
+    public String chave(CalculationType tipo, String versaoTemplate, Object resultado, ProcessData dados, User signer) {
+        if (!habilitado || signer == null) {
+            return null;
+        }
+        return HashUtils.sha256Hex(tipo.getType(), versaoTemplate, resultado, dados,
+                signer.getId(), signer.getCpf(), signer.getNomeCompleto());
+    }
+
+    /**
+     * Busca um PDF assinado no cache, primeiro em memória e depois em disco.
+     *
+     * @param chave Chave gerada por {@link #chave}.
+     * @return PDF assinado, se existir e a assinatura ainda estiver dentro da validade.
+     */
+    public Optional<byte[]> buscar(String chave) {
+        if (chave == null) {
+            return Optional.empty();
+        }
+        long agora = System.currentTimeMillis();
+        EntradaCache entrada = buscarEmMemoria(chave, agora);
+        if (entrada != null) {
+            acertosMemoria.incrementAndGet();
+            return Optional.of(entrada.pdf);
+        }
+        entrada = buscarEmDisco(chave, agora);
+        if (entrada != null) {
+            acertosDisco.incrementAndGet();
+            armazenarEmMemoria(chave, entrada);
+            return Optional.of(entrada.pdf);
+        }
+        faltas.incrementAndGet();
+        return Optional.empty();
+    }
+
+    /**
+     * Armazena um PDF recém-assinado nos dois níveis do cache.
+     *
+     * @param chave Chave gerada por {@link #chave}; se for null nada é armazenado.
+     * @param pdf   PDF assinado.
+     */
+    public void armazenar(String chave, byte[] pdf) {
+        if (chave == null || pdf == null) {
+            return;
+        }
+        EntradaCache entrada = new EntradaCache(pdf, System.currentTimeMillis());
+        armazenarEmMemoria(chave, entrada);
+        armazenarEmDisco(chave, entrada);
+    }
+
+    public long getAcertosMemoria() {
+        return acertosMemoria.get();
+    }
+
+    public long getAcertosDisco() {
+        return acertosDisco.get();
+    }
+
+    public long getFaltas() {
+        return faltas.get();
+    }
+
+    public long getMemoriaBytes() {
+        return memoria.getBytesLocais();
+    }
+
+    /**
+     * Remove periodicamente do disco as cópias cuja assinatura expirou.
+     */
+    @Scheduled(fixedDelayString = "${pdf.cache.cleanup-interval-ms:3600000}")
+    public void removerExpiradosDoDisco() {
+        if (!habilitado || diretorio == null) {
+            return;
+        }
+        long limite = System.currentTimeMillis() - validadeAssinaturaMs;
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(diretorio, "*" + EXTENSAO)) {
+            for (Path arquivo : arquivos) {
+                if (Files.getLastModifiedTime(arquivo).toMillis() < limite) {
+                    Files.deleteIfExists(arquivo);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            Metricas.erroIgnorado(PdfCacheService.class, e);
+        }
+    }
+
+    private EntradaCache buscarEmMemoria(String chave, long agora) {
+        EntradaCache entrada = memoria.buscar(chave, PdfCacheService::desserializar);
+        if (entrada != null && expirada(entrada.assinadoEm, agora)) {
+            memoria.remover(chave);
+            return null;
+        }
+        return entrada;
+    }
+
+    private void armazenarEmMemoria(String chave, EntradaCache entrada) {
+        if (entrada.pdf.length > memoriaMaxBytes) {
+            return;
+        }
+        // No cache compartilhado a cópia vale apenas pelo tempo que resta da validade da assinatura
+        Duration restante = Duration.ofMillis(validadeAssinaturaMs - (System.currentTimeMillis() - entrada.assinadoEm));
+        memoria.armazenar(chave, entrada, serializar(entrada), restante);
+    }
+
+    private static byte[] serializar(EntradaCache entrada) {
+        return ByteBuffer.allocate(Long.BYTES + entrada.pdf.length)
+                .putLong(entrada.assinadoEm)
+                .put(entrada.pdf)
+                .array();
+    }
+
+    private static EntradaCache desserializar(byte[] valor) {
+        if (valor.length <= Long.BYTES) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(valor);
+        long assinadoEm = buffer.getLong();
+        byte[] pdf = new byte[buffer.remaining()];
+        buffer.get(pdf);
+        return new EntradaCache(pdf, assinadoEm);
+    }
+
+    private EntradaCache buscarEmDisco(String chave, long agora) {
+        if (diretorio == null) {
+            return null;
+        }
+        Path arquivo = diretorio.resolve(chave + EXTENSAO);
+        try (FileChannel channel = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            long assinadoEm = Files.getLastModifiedTime(arquivo).toMillis();
+            if (expirada(assinadoEm, agora)) {
+                Files.deleteIfExists(arquivo);
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            byte[] pdf = new byte[buffer.remaining()];
+            buffer.get(pdf);
+            return new EntradaCache(pdf, assinadoEm);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            e.printStackTrace();
+            Metricas.erroIgnorado(PdfCacheService.class, e);
+            return null;
+        }
+    }
+
+    private void armazenarEmDisco(String chave, EntradaCache entrada) {
+        if (diretorio == null) {
+            return;
+        }
+        // Escreve em arquivo temporário e move de forma atômica para que leitores nunca vejam um PDF parcial
+        Path destino = diretorio.resolve(chave + EXTENSAO);
+        Path temporario = null;
+        try {
+            temporario = Files.createTempFile(diretorio, chave, ".tmp");
+            Files.write(temporario, entrada.pdf);
+            Files.setLastModifiedTime(temporario, FileTime.fromMillis(entrada.assinadoEm));
+            Files.move(temporario, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            e.printStackTrace();
+            Metricas.erroIgnorado(PdfCacheService.class, e);
+            try {
+                if (temporario != null) {
+                    Files.deleteIfExists(temporario);
+                }
+            } catch (IOException ex) {
+                ex.printStackTrace();
+                Metricas.erroIgnorado(PdfCacheService.class, ex);
+            }
+        }
+    }
+
+    private boolean expirada(long assinadoEm, long agora) {
+        return agora - assinadoEm > validadeAssinaturaMs;
+    }
+
+    private record EntradaCache(byte[] pdf, long assinadoEm) {
+    }
+}
@@ -0,0 +1,143 @@
+package com.fiscalsystemapi.service;
+
+import com.fiscalsystemapi.dto.pdf.RelatorioPdf;
+import com.fiscalsystemapi.util.Metricas;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextCallable;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Exportação de relatórios em ZIP, renderizados em um pool próprio. Cada exportação mantém no máximo
+ * {@code pdf.export.max-in-flight} PDFs em andamento, e a fila do pool, compartilhada por todas as
+ * exportações, é limitada a {@code pdf.export.queue-capacity} tarefas: com a fila cheia, a própria
+ * thread da exportação renderiza o PDF, o que segura o ritmo de quem submete sem perder itens do ZIP.
+ */
+@Service
+public class PdfExportService {
+
+    private final PdfRelatorioService pdfRelatorioService;
+    private final ThreadPoolExecutor executor;
+    private final int maxEmAndamento;
+
+    public PdfExportService(PdfRelatorioService pdfRelatorioService,
+                            @Value("${pdf.export.workers:0}") int workers,
+                            @Value("${pdf.export.max-in-flight:0}") int maxEmAndamento,
+                            @Value("${pdf.export.queue-capacity:0}") int capacidadeFila) {
+        this.pdfRelatorioService = pdfRelatorioService;
+        int totalWorkers = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        // A janela de PDFs em andamento limita a memória por exportação; o padrão mantém todos os workers ocupados
+        this.maxEmAndamento = maxEmAndamento > 0 ? maxEmAndamento : totalWorkers * 2;
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(totalWorkers, totalWorkers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadeFila > 0 ? capacidadeFila : this.maxEmAndamento * 4),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "pdf-export-" + contador.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                // Fila cheia: a thread da exportação renderiza o item, em vez de descartá-lo
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Gera os relatórios em paralelo e os grava em um ZIP no fluxo de saída à medida que ficam prontos.
+     * No máximo {@code pdf.export.max-in-flight} PDFs ficam em memória ao mesmo tempo, e os primeiros
+     * bytes do ZIP são enviados antes do último PDF ser renderizado. Se um relatório falhar, o ZIP recebe
+     * um arquivo de texto com o erro no lugar do PDF e a exportação continua.
+     *
+     * @param relatorios Relatórios já validados.
+     * @param out        Fluxo de saída da resposta.
+     * @param contexto   Contexto de segurança da requisição, usado para assinar os PDFs nos workers.
+     * @throws IOException Se ocorrer erro ao escrever no fluxo de saída (por exemplo, cliente desconectado).
+     */
+    public void exportarZip(List<RelatorioPdf> relatorios, OutputStream out, SecurityContext contexto) throws IOException {
+        CompletionService<ArquivoZip> completionService = new ExecutorCompletionService<>(executor);
+        Set<Future<ArquivoZip>> emAndamento = new HashSet<>();
+        int proximo = 0;
+        int pendentes = 0;
+
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            // Os PDFs já têm os content streams comprimidos; a compressão rápida evita gastar CPU à toa
+            zip.setLevel(Deflater.BEST_SPEED);
+            while (proximo < relatorios.size() || pendentes > 0) {
+                while (pendentes < maxEmAndamento && proximo < relatorios.size()) {
+                    int indice = proximo++;
+                    RelatorioPdf relatorio = relatorios.get(indice);
+                    emAndamento.add(completionService.submit(
+                            new DelegatingSecurityContextCallable<>(() -> renderizar(indice, relatorio), contexto)));
+                    pendentes++;
+                }
+
+                Future<ArquivoZip> concluido = completionService.take();
+                emAndamento.remove(concluido);
+                pendentes--;
+                ArquivoZip arquivo = concluido.get();
+                zip.putNextEntry(new ZipEntry(arquivo.nome()));
+                zip.write(arquivo.conteudo());
+                zip.closeEntry();
+                zip.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Exportação interrompida.");
+        } catch (ExecutionException e) {
+            throw new IOException("Erro ao gerar os relatórios: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            // Em caso de falha (ex.: cliente desconectado) os PDFs ainda pendentes não precisam mais ser gerados
+            for (Future<ArquivoZip> future : emAndamento) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdownNow();
+    }
+
+    private ArquivoZip renderizar(int indice, RelatorioPdf relatorio) {
+        String prefixo = String.format("%04d_", indice + 1);
+        try {
+            byte[] pdf = pdfRelatorioService.gerarPdf(relatorio.getTipo(), relatorio.getResultado(), relatorio.getDados());
+            if (pdf == null) {
+                throw new IllegalStateException("Falha ao gerar o PDF.");
+            }
+            String nome = pdfRelatorioService.nomeArquivo(relatorio.getTipo(), relatorio.getDados());
+            return new ArquivoZip(prefixo + sanitizarNome(nome), pdf);
+        } catch (Exception e) {
+            e.printStackTrace();
+            Metricas.erroIgnorado(PdfExportService.class, e);
+            String mensagem = "Erro ao gerar o relatório " + (indice + 1) + ": " + e.getMessage();
+            return new ArquivoZip(prefixo + "erro.txt", mensagem.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    // Evita separadores de diretório e caracteres problemáticos no nome das entradas do ZIP
+    private String sanitizarNome(String nome) {
+        return nome.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    private record ArquivoZip(String nome, byte[] conteudo) {
+    }
+}
@@ -2,130 +2,147 @@ package com.fiscalsystemapi.service;
 
 import com.fiscalsystemapi.dto.ProcessData;
 import com.fiscalsystemapi.dto.fepa.CalculoFepaResult;
+import com.fiscalsystemapi.dto.fepa.FepaMensal;
 import com.fiscalsystemapi.entity.User;
-import com.fiscalsystemapi.service.PdfSignatureService;
+import com.fiscalsystemapi.entity.enums.CalculationType;
+import com.fiscalsystemapi.util.DirectPdfWriter;
 import com.fiscalsystemapi.util.FormatUtils;
+import com.fiscalsystemapi.util.Metricas;
+import com.fiscalsystemapi.util.PdfJfrEvent;
+import com.fiscalsystemapi.util.PdfPageWriter;
+import com.fiscalsystemapi.util.Rastreamento;
+import com.fiscalsystemapi.util.RelatorioWriter;
 import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDDocumentInformation;
-import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.PDPageContentStream;
-import org.apache.pdfbox.pdmodel.common.PDRectangle;
-import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
 
 @Service
 public class PdfFepaService {
 
+    public static final String SUBTITULO = "Cálculo de RRA + FEPA - Lei 14.848/2024";
+
+    // Deve ser incrementada sempre que o layout do relatório mudar, invalidando o cache de PDF
+    private static final String TEMPLATE_VERSION = "4";
+
+    private static final BigDecimal CEM = new BigDecimal("100");
+    private static final DateTimeFormatter COMPETENCIA = DateTimeFormatter.ofPattern("MM/yyyy");
+    // Posição das colunas do detalhamento mensal, relativa à margem esquerda
+    private static final float[] COLUNAS_DETALHAMENTO = {0, 110, 270, 400};
+
     private final PdfSignatureService pdfSignatureService;
     private final AuthService authService;
+    private final PdfCacheService pdfCacheService;
+    private final boolean pdfDiretoHabilitado;
 
-    public PdfFepaService(PdfSignatureService pdfSignatureService, AuthService authService) {
+    public PdfFepaService(PdfSignatureService pdfSignatureService, AuthService authService,
+                          PdfCacheService pdfCacheService,
+                          @Value("${pdf.writer.direto.enabled:false}") boolean pdfDiretoHabilitado) {
         this.pdfSignatureService = pdfSignatureService;
         this.authService = authService;
+        this.pdfCacheService = pdfCacheService;
+        this.pdfDiretoHabilitado = pdfDiretoHabilitado;
     }
 
     /**
      * Gera o PDF para o cálculo FEPA com base nos resultados e dados do processo.
-     * Após gerar o PDF, tenta assiná-lo; se a assinatura falhar, retorna o PDF sem assinatura.
+     * O PDF é assinado em nome do usuário logado; se não houver usuário, retorna o PDF sem assinatura.
      *
      * @param resultado Objeto CalculoFepaResult contendo os resultados do cálculo FEPA.
      * @param dados     Objeto ProcessData contendo os dados do processo.
      * @return PDF final (assinado, se possível) em formato byte[].
      */
     public byte[] gerarPDFFepa(CalculoFepaResult resultado, ProcessData dados) {
-        PDDocument document = new PDDocument();
-        PDPage page = new PDPage(PDRectangle.A4);
-        document.addPage(page);
-
-        // Define metadado indicando que o PDF foi gerado pela API
-        PDDocumentInformation info = document.getDocumentInformation();
-        info.setCustomMetadataValue("API_GENERATED", "true");
-        document.setDocumentInformation(info);
-
-        float margin = 20;
-        float yPosition = page.getMediaBox().getHeight() - margin;
-        float pageWidth = page.getMediaBox().getWidth();
-
-        try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
-            // Cabeçalho e título centralizado
-            yPosition = writeHeader(contentStream, pageWidth, yPosition, margin);
-            // Dados do processo
-            yPosition = writeProcessData(contentStream, dados, margin, yPosition);
-            // Seção FEPA
-            yPosition = writeFepaSection(contentStream, resultado, margin, yPosition);
-            // Nota Explicativa
-            yPosition = writeExplanatoryNote(contentStream, pageWidth, margin, yPosition);
-        } catch (IOException e) {
-            e.printStackTrace();
+        return Rastreamento.etapa("fiscal.span.pdf.geracao", CalculationType.FEPA, () -> gerar(resultado, dados));
+    }
+
+    private byte[] gerar(CalculoFepaResult resultado, ProcessData dados) {
+        PdfJfrEvent evento = new PdfJfrEvent();
+        evento.begin();
+        // Um relatório idêntico já assinado pelo mesmo usuário é devolvido do cache, sem acionar o PDFBox
+        User signer = pdfSignatureService.resolverAssinante();
+        String chaveCache = pdfCacheService.chave(CalculationType.FEPA, versaoTemplate(), resultado, dados, signer);
+        Optional<byte[]> pdfEmCache = pdfCacheService.buscar(chaveCache);
+        if (pdfEmCache.isPresent()) {
+            evento.registrar(CalculationType.FEPA, 0, pdfEmCache.get(), true);
+            return pdfEmCache.get();
         }
+        long inicio = System.nanoTime();
 
-        byte[] unsignedPdf = saveDocument(document);
+        // Relatórios que cabem em uma página e só usam caracteres WinAnsi saem prontos e assinados,
+        // sem passar pelo PDFBox; os demais seguem o fluxo normal
+        if (pdfDiretoHabilitado && signer != null) {
+            try {
+                DirectPdfWriter direto = new DirectPdfWriter(SUBTITULO);
+                escreverRelatorio(direto, resultado, dados);
+                byte[] pdfDireto = direto.gerarAssinado(PdfSignatureService.textoAssinatura(signer),
+                        PdfSignatureService.dataAssinatura());
+                if (pdfDireto != null) {
+                    Metricas.pdfGerado(CalculationType.FEPA, inicio, pdfDireto);
+                    evento.registrar(CalculationType.FEPA, 1, pdfDireto, false);
+                    pdfCacheService.armazenar(chaveCache, pdfDireto);
+                    return pdfDireto;
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                Metricas.erroIgnorado(PdfFepaService.class, e);
+            }
+        }
 
-        // Tenta assinar o PDF; se ocorrer erro, retorna o PDF sem assinatura
-        byte[] finalPdf = unsignedPdf;
-        try {
-            finalPdf = pdfSignatureService.signPdf(unsignedPdf);
-        } catch (Exception e) {
+        // A assinatura é aplicada na mesma etapa que gera as páginas; sem usuário, o PDF sai sem assinatura
+        PDDocument document = PdfPageWriter.novoDocumento();
+        boolean assinado = false;
+        try (PdfPageWriter writer = new PdfPageWriter(document, SUBTITULO)) {
+            escreverRelatorio(writer, resultado, dados);
+            if (signer != null) {
+                writer.assinar(PdfSignatureService.textoAssinatura(signer), PdfSignatureService.dataAssinatura());
+                assinado = true;
+            }
+        } catch (IOException e) {
             e.printStackTrace();
+            Metricas.erroIgnorado(PdfFepaService.class, e);
+            assinado = false;
+        }
+
+        int paginas = document.getNumberOfPages();
+        byte[] finalPdf = PdfPageWriter.salvar(document);
+        Metricas.pdfGerado(CalculationType.FEPA, inicio, finalPdf);
+        evento.registrar(CalculationType.FEPA, paginas, finalPdf, false);
+        if (assinado && finalPdf != null) {
+            pdfCacheService.armazenar(chaveCache, finalPdf);
         }
         return finalPdf;
     }
 
-    // Cabeçalho: título principal e subtítulo específico para FEPA
-    private float writeHeader(PDPageContentStream contentStream, float pageWidth, float yPosition, float margin) throws IOException {
-        // Título principal
-        contentStream.beginText();
-        contentStream.setFont(PDType1Font.HELVETICA_BOLD, 16);
-        contentStream.newLineAtOffset((pageWidth - 200) / 2, yPosition);
-        contentStream.showText("RELATÓRIO OFICIAL");
-        contentStream.endText();
-        yPosition -= 25;
-
-        // Subtítulo específico para FEPA
-        contentStream.beginText();
-        contentStream.setFont(PDType1Font.HELVETICA, 12);
-        contentStream.newLineAtOffset((pageWidth - 200) / 2, yPosition);
-        contentStream.showText("Cálculo de RRA + FEPA - Lei 14.848/2024");
-        contentStream.endText();
-        yPosition -= 20;
-        return yPosition - 15;
+    // O writer direto gera um layout diferente, por isso tem versão própria no cache
+    private String versaoTemplate() {
+        return pdfDiretoHabilitado ? TEMPLATE_VERSION + "-direto" : TEMPLATE_VERSION;
     }
 
-    // Escreve os dados do processo
-    private float writeProcessData(PDPageContentStream contentStream, ProcessData dados, float margin, float yPosition) throws IOException {
-        contentStream.beginText();
-        contentStream.setFont(PDType1Font.HELVETICA_BOLD, 12);
-        contentStream.newLineAtOffset(margin, yPosition);
-        contentStream.showText("Dados do Processo:");
-        contentStream.endText();
-        yPosition -= 15;
-
-        contentStream.beginText();
-        contentStream.setFont(PDType1Font.HELVETICA, 12);
-        contentStream.newLineAtOffset(margin, yPosition);
-        contentStream.showText("Número do Processo: " + dados.getNumProcesso());
-        contentStream.endText();
-        yPosition -= 15;
-
-        contentStream.beginText();
-        contentStream.newLineAtOffset(margin, yPosition);
-        contentStream.showText("Nome da parte autora: " + dados.getNomeParteAutora());
-        contentStream.endText();
-        yPosition -= 15;
-
-        contentStream.beginText();
-        contentStream.newLineAtOffset(margin, yPosition);
-        contentStream.showText("Nome da parte ré: " + dados.getNomeParteRe());
-        contentStream.endText();
-        yPosition -= 20;
-        return yPosition - 15;
+    /**
+     * Escreve o conteúdo do relatório FEPA (dados do processo, seção FEPA e nota explicativa)
+     * a partir da posição atual do writer. Usado também pelo relatório consolidado.
+     */
+    public void escreverRelatorio(RelatorioWriter writer, CalculoFepaResult resultado, ProcessData dados) throws IOException {
+        // Dados do processo
+        writer.escreverDadosProcesso(dados);
+        // Seção FEPA
+        writeFepaSection(writer, resultado);
+        // Detalhamento mensal, quando solicitado no cálculo
+        if (resultado.getDetalhamento() != null && !resultado.getDetalhamento().isEmpty()) {
+            writeDetalhamento(writer, resultado.getDetalhamento());
+        }
+        // Nota Explicativa
+        writeExplanatoryNote(writer);
     }
 
     // Escreve a seção FEPA usando os getters do CalculoFepaResult
-    private float writeFepaSection(PDPageContentStream contentStream, CalculoFepaResult resultado, float margin, float yPosition) throws IOException {
+    private void writeFepaSection(RelatorioWriter writer, CalculoFepaResult resultado) throws IOException {
         String periodoInicial = resultado.getPeriodoInicial();
         String periodoFinal = resultado.getPeriodoFinal();
         String meses = resultado.getMeses().toString();
@@ -137,53 +154,38 @@ public class PdfFepaService {
         String aliquota = FormatUtils.formatCurrency(resultado.getAliquotaEfetiva(), true);
         String liquido = FormatUtils.formatCurrency(resultado.getLiquido(), false);
 
-        yPosition = writeTextLine(contentStream, "Período Inicial: " + periodoInicial, margin, yPosition);
-        yPosition = writeTextLine(contentStream, "Período Final: " + periodoFinal, margin, yPosition);
-        yPosition = writeTextLine(contentStream, "Quantidade de meses (RRA): " + meses, margin, yPosition);
-        yPosition = writeTextLine(contentStream, "Valor Bruto do RPV: " + valorBruto, margin, yPosition);
-        yPosition = writeTextLine(contentStream, "Valor Bruto Corrigido: " + totalValorCorrigido, margin, yPosition);
-        yPosition = writeTextLine(contentStream, "Média Mensal: " + mediaMensal, margin, yPosition);
-        yPosition = writeTextLine(contentStream, "Total FEPA: " + totalFEPA, margin, yPosition);
-        yPosition = writeTextLine(contentStream, "IR (RRA): " + ir, margin, yPosition);
-        yPosition = writeTextLine(contentStream, "Alíquota Efetiva: " + aliquota, margin, yPosition);
-        return writeTextLine(contentStream, "Valor Líquido: " + liquido, margin, yPosition);
+        writer.escreverLinha("Período Inicial: " + periodoInicial);
+        writer.escreverLinha("Período Final: " + periodoFinal);
+        writer.escreverLinha("Quantidade de meses (RRA): " + meses);
+        writer.escreverLinha("Valor Bruto do RPV: " + valorBruto);
+        writer.escreverLinha("Valor Bruto Corrigido: " + totalValorCorrigido);
+        writer.escreverLinha("Média Mensal: " + mediaMensal);
+        writer.escreverLinha("Total FEPA: " + totalFEPA);
+        writer.escreverLinha("IR (RRA): " + ir);
+        writer.escreverLinha("Alíquota Efetiva: " + aliquota);
+        writer.escreverLinha("Valor Líquido: " + liquido);
     }
 
-    // Escreve a nota explicativa
-    private float writeExplanatoryNote(PDPageContentStream contentStream, float pageWidth, float margin, float yPosition) throws IOException {
-        String notaExplicativa = "Nota Explicativa: Base de Cálculo: Valor Bruto Corrigido (não incidindo juros); FEPA: 11% até 02/2020 e 7,5% a partir de 03/2020; IR (RRA): conforme Tabela Progressiva da Lei nº 14.848/2024.";
-        String[] notaLines = notaExplicativa.split("\n");
-        for (String line : notaLines) {
-            yPosition = writeTextLine(contentStream, line, margin, yPosition);
+    // Tabela mês a mês; cada linha é formatada e gravada apenas no momento em que é escrita
+    private void writeDetalhamento(RelatorioWriter writer, List<FepaMensal> detalhamento) throws IOException {
+        writer.espaco(10);
+        writer.garantirEspaco(4 * PdfPageWriter.LINE_HEIGHT);
+        writer.escreverLinhaNegrito("Detalhamento Mensal:");
+        writer.iniciarTabela(COLUNAS_DETALHAMENTO, "Competência", "Valor Corrigido", "Alíquota FEPA", "Valor FEPA");
+        for (FepaMensal mes : detalhamento) {
+            writer.escreverLinhaTabela(
+                    mes.getCompetencia().format(COMPETENCIA),
+                    FormatUtils.formatCurrency(mes.getValorCorrigido(), false),
+                    FormatUtils.formatCurrency(mes.getAliquotaFepa().multiply(CEM), true),
+                    FormatUtils.formatCurrency(mes.getValorFepa(), false));
         }
-        return yPosition - 5;
-    }
-
-    // Método auxiliar para escrever uma linha de texto e retornar a nova posição vertical
-    private float writeTextLine(PDPageContentStream contentStream, String text, float margin, float yPosition) throws IOException {
-        contentStream.beginText();
-        contentStream.setFont(PDType1Font.HELVETICA, 12);
-        contentStream.newLineAtOffset(margin, yPosition);
-        contentStream.showText(text);
-        contentStream.endText();
-        return yPosition - 15;
+        writer.encerrarTabela();
     }
 
-    // Salva o documento e retorna os bytes
-    private byte[] saveDocument(PDDocument document) {
-        byte[] pdfBytes = null;
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            document.save(baos);
-            pdfBytes = baos.toByteArray();
-        } catch (IOException e) {
-            e.printStackTrace();
-        } finally {
-            try {
-                document.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-        }
-        return pdfBytes;
+    // Escreve a nota explicativa
+    private void writeExplanatoryNote(RelatorioWriter writer) throws IOException {
+        String notaExplicativa = "Nota Explicativa: Base de Cálculo: Valor Bruto Corrigido (não incidindo juros); FEPA: 11% até 02/2020 e 7,5% a partir de 03/2020; IR (RRA): conforme Tabela Progressiva da Lei nº 14.848/2024.";
+        writer.escreverLinha(notaExplicativa);
+        writer.espaco(5);
     }
 }
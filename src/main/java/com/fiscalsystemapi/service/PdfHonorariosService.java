@@ -3,172 +3,146 @@ package com.fiscalsystemapi.service;
 import com.fiscalsystemapi.dto.ProcessData;
 import com.fiscalsystemapi.dto.honorarios.CalculoHonorariosResult;
 import com.fiscalsystemapi.entity.User;
+import com.fiscalsystemapi.entity.enums.CalculationType;
+import com.fiscalsystemapi.util.DirectPdfWriter;
 import com.fiscalsystemapi.util.FormatUtils;
+import com.fiscalsystemapi.util.Metricas;
+import com.fiscalsystemapi.util.PdfJfrEvent;
+import com.fiscalsystemapi.util.PdfPageWriter;
+import com.fiscalsystemapi.util.Rastreamento;
+import com.fiscalsystemapi.util.RelatorioWriter;
 import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDDocumentInformation;
-import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.PDPageContentStream;
-import org.apache.pdfbox.pdmodel.common.PDRectangle;
-import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Optional;
 
 @Service
 public class PdfHonorariosService {
 
+    public static final String SUBTITULO = "Cálculo de Imposto de Renda - Lei 14.848/2024";
+
+    // Deve ser incrementada sempre que o layout do relatório mudar, invalidando o cache de PDF
+    private static final String TEMPLATE_VERSION = "3";
+
     private final PdfSignatureService pdfSignatureService;
     private final AuthService authService;
+    private final PdfCacheService pdfCacheService;
+    private final boolean pdfDiretoHabilitado;
 
-    public PdfHonorariosService(PdfSignatureService pdfSignatureService, AuthService authService) {
+    public PdfHonorariosService(PdfSignatureService pdfSignatureService, AuthService authService,
+                                PdfCacheService pdfCacheService,
+                                @Value("${pdf.writer.direto.enabled:false}") boolean pdfDiretoHabilitado) {
         this.pdfSignatureService = pdfSignatureService;
         this.authService = authService;
+        this.pdfCacheService = pdfCacheService;
+        this.pdfDiretoHabilitado = pdfDiretoHabilitado;
     }
 
     /**
      * Gera o PDF para o cálculo de honorários com base nos resultados e dados do processo.
-     * Após gerar o PDF, tenta assiná-lo; se a assinatura falhar, retorna o PDF sem assinatura.
+     * O PDF é assinado em nome do usuário logado; se não houver usuário, retorna o PDF sem assinatura.
      *
      * @param resultado Objeto CalculoHonorariosResult contendo os resultados do cálculo.
      * @param dados     Objeto ProcessData contendo os dados do processo.
      * @return PDF final (assinado, se possível) em formato byte[].
      */
     public byte[] gerarPDFHonorarios(CalculoHonorariosResult resultado, ProcessData dados) {
-        PDDocument document = new PDDocument();
-        PDPage page = new PDPage(PDRectangle.A4);
-        document.addPage(page);
-
-        // Define metadado que indica que o PDF foi gerado pela API
-        PDDocumentInformation info = document.getDocumentInformation();
-        info.setCustomMetadataValue("API_GENERATED", "true");
-        document.setDocumentInformation(info);
-
-        float margin = 20;
-        float yPosition = page.getMediaBox().getHeight() - margin;
-        float pageWidth = page.getMediaBox().getWidth();
-
-        try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
-            // Cabeçalho e título centralizado
-            yPosition = writeHeader(contentStream, pageWidth, yPosition, margin);
-            // Dados do processo
-            yPosition = writeProcessData(contentStream, dados, margin, yPosition);
-            // Seção específica para honorários
-            yPosition = writeHonorariosSection(contentStream, resultado, margin, yPosition);
-            // Nota explicativa
-            yPosition = writeExplanatoryNote(contentStream, pageWidth, margin, yPosition);
-        } catch (IOException e) {
-            e.printStackTrace();
+        return Rastreamento.etapa("fiscal.span.pdf.geracao", CalculationType.HONORARIOS, () -> gerar(resultado, dados));
+    }
+
+    private byte[] gerar(CalculoHonorariosResult resultado, ProcessData dados) {
+        PdfJfrEvent evento = new PdfJfrEvent();
+        evento.begin();
+        // Um relatório idêntico já assinado pelo mesmo usuário é devolvido do cache, sem acionar o PDFBox
+        User signer = pdfSignatureService.resolverAssinante();
+        String chaveCache = pdfCacheService.chave(CalculationType.HONORARIOS, versaoTemplate(), resultado, dados, signer);
+        Optional<byte[]> pdfEmCache = pdfCacheService.buscar(chaveCache);
+        if (pdfEmCache.isPresent()) {
+            evento.registrar(CalculationType.HONORARIOS, 0, pdfEmCache.get(), true);
+            return pdfEmCache.get();
         }
+        long inicio = System.nanoTime();
 
-        byte[] unsignedPdf = saveDocument(document);
+        // Relatórios que cabem em uma página e só usam caracteres WinAnsi saem prontos e assinados,
+        // sem passar pelo PDFBox; os demais seguem o fluxo normal
+        if (pdfDiretoHabilitado && signer != null) {
+            try {
+                DirectPdfWriter direto = new DirectPdfWriter(SUBTITULO);
+                escreverRelatorio(direto, resultado, dados);
+                byte[] pdfDireto = direto.gerarAssinado(PdfSignatureService.textoAssinatura(signer),
+                        PdfSignatureService.dataAssinatura());
+                if (pdfDireto != null) {
+                    Metricas.pdfGerado(CalculationType.HONORARIOS, inicio, pdfDireto);
+                    evento.registrar(CalculationType.HONORARIOS, 1, pdfDireto, false);
+                    pdfCacheService.armazenar(chaveCache, pdfDireto);
+                    return pdfDireto;
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                Metricas.erroIgnorado(PdfHonorariosService.class, e);
+            }
+        }
 
-        // Tenta assinar o PDF; se ocorrer erro, retorna o PDF sem assinatura
-        byte[] finalPdf = unsignedPdf;
-        try {
-            finalPdf = pdfSignatureService.signPdf(unsignedPdf);
-        } catch (Exception e) {
+        // A assinatura é aplicada na mesma etapa que gera as páginas; sem usuário, o PDF sai sem assinatura
+        PDDocument document = PdfPageWriter.novoDocumento();
+        boolean assinado = false;
+        try (PdfPageWriter writer = new PdfPageWriter(document, SUBTITULO)) {
+            escreverRelatorio(writer, resultado, dados);
+            if (signer != null) {
+                writer.assinar(PdfSignatureService.textoAssinatura(signer), PdfSignatureService.dataAssinatura());
+                assinado = true;
+            }
+        } catch (IOException e) {
             e.printStackTrace();
+            Metricas.erroIgnorado(PdfHonorariosService.class, e);
+            assinado = false;
+        }
+
+        int paginas = document.getNumberOfPages();
+        byte[] finalPdf = PdfPageWriter.salvar(document);
+        Metricas.pdfGerado(CalculationType.HONORARIOS, inicio, finalPdf);
+        evento.registrar(CalculationType.HONORARIOS, paginas, finalPdf, false);
+        if (assinado && finalPdf != null) {
+            pdfCacheService.armazenar(chaveCache, finalPdf);
         }
         return finalPdf;
     }
 
-    private float writeHeader(PDPageContentStream contentStream, float pageWidth, float yPosition, float margin) throws IOException {
-        // Título principal
-        contentStream.beginText();
-        contentStream.setFont(PDType1Font.HELVETICA_BOLD, 16);
-        // Centraliza o texto (ajuste conforme necessário)
-        contentStream.newLineAtOffset((pageWidth - 200) / 2, yPosition);
-        contentStream.showText("RELATÓRIO OFICIAL");
-        contentStream.endText();
-        yPosition -= 25;
-
-        // Título do cálculo de honorários
-        contentStream.beginText();
-        contentStream.setFont(PDType1Font.HELVETICA, 12);
-        contentStream.newLineAtOffset((pageWidth - 200) / 2, yPosition);
-        contentStream.showText("Cálculo de Imposto de Renda - Lei 14.848/2024");
-        contentStream.endText();
-        yPosition -= 20;
-        return yPosition - 15;
+    // O writer direto gera um layout diferente, por isso tem versão própria no cache
+    private String versaoTemplate() {
+        return pdfDiretoHabilitado ? TEMPLATE_VERSION + "-direto" : TEMPLATE_VERSION;
     }
 
-    private float writeProcessData(PDPageContentStream contentStream, ProcessData dados, float margin, float yPosition) throws IOException {
-        contentStream.beginText();
-        contentStream.setFont(PDType1Font.HELVETICA_BOLD, 12);
-        contentStream.newLineAtOffset(margin, yPosition);
-        contentStream.showText("Dados do Processo:");
-        contentStream.endText();
-        yPosition -= 15;
-
-        contentStream.beginText();
-        contentStream.setFont(PDType1Font.HELVETICA, 12);
-        contentStream.newLineAtOffset(margin, yPosition);
-        contentStream.showText("Número do Processo: " + dados.getNumProcesso());
-        contentStream.endText();
-        yPosition -= 15;
-
-        contentStream.beginText();
-        contentStream.newLineAtOffset(margin, yPosition);
-        contentStream.showText("Nome da parte autora: " + dados.getNomeParteAutora());
-        contentStream.endText();
-        yPosition -= 15;
-
-        contentStream.beginText();
-        contentStream.newLineAtOffset(margin, yPosition);
-        contentStream.showText("Nome da parte ré: " + dados.getNomeParteRe());
-        contentStream.endText();
-        yPosition -= 20;
-        return yPosition - 15;
+    /**
+     * Escreve o conteúdo do relatório de honorários (dados do processo, seção de honorários e nota explicativa)
+     * a partir da posição atual do writer. Usado também pelo relatório consolidado.
+     */
+    public void escreverRelatorio(RelatorioWriter writer, CalculoHonorariosResult resultado, ProcessData dados) throws IOException {
+        // Dados do processo
+        writer.escreverDadosProcesso(dados);
+        // Seção específica para honorários
+        writeHonorariosSection(writer, resultado);
+        // Nota explicativa
+        writeExplanatoryNote(writer);
     }
 
-    private float writeHonorariosSection(PDPageContentStream contentStream, CalculoHonorariosResult resultado, float margin, float yPosition) throws IOException {
+    private void writeHonorariosSection(RelatorioWriter writer, CalculoHonorariosResult resultado) throws IOException {
         String valorBruto = FormatUtils.formatCurrency(resultado.getValorBruto(), false);
         String imposto = FormatUtils.formatCurrency(resultado.getImposto(), false);
         String aliquota = FormatUtils.formatCurrency(resultado.getAliquotaEfetiva(), true);
         String liquido = FormatUtils.formatCurrency(resultado.getLiquido(), false);
 
-        yPosition = writeTextLine(contentStream, "Valor Bruto do Pagamento: " + valorBruto, margin, yPosition);
-        yPosition = writeTextLine(contentStream, "Imposto de Renda Calculado: " + imposto, margin, yPosition);
-        yPosition = writeTextLine(contentStream, "Alíquota Efetiva: " + aliquota, margin, yPosition);
-        return writeTextLine(contentStream, "Valor Líquido: " + liquido, margin, yPosition);
+        writer.escreverLinha("Valor Bruto do Pagamento: " + valorBruto);
+        writer.escreverLinha("Imposto de Renda Calculado: " + imposto);
+        writer.escreverLinha("Alíquota Efetiva: " + aliquota);
+        writer.escreverLinha("Valor Líquido: " + liquido);
     }
 
-    private float writeExplanatoryNote(PDPageContentStream contentStream, float pageWidth, float margin, float yPosition) throws IOException {
+    private void writeExplanatoryNote(RelatorioWriter writer) throws IOException {
         String notaExplicativa = "Nota Explicativa: Dedução do IRRF, conforme a tabela progressiva contida na Lei nº 14.848/2024.";
-        // Divisão simples considerando quebra por \n (não há quebras, mas pode ser expandido se necessário)
-        String[] notaLines = notaExplicativa.split("\n");
-        for (String line : notaLines) {
-            yPosition = writeTextLine(contentStream, line, margin, yPosition);
-        }
-        return yPosition - 5;
-    }
-
-    // Método auxiliar para escrever uma linha de texto e retornar a nova posição vertical
-    private float writeTextLine(PDPageContentStream contentStream, String text, float margin, float yPosition) throws IOException {
-        contentStream.beginText();
-        contentStream.setFont(PDType1Font.HELVETICA, 12);
-        contentStream.newLineAtOffset(margin, yPosition);
-        contentStream.showText(text);
-        contentStream.endText();
-        return yPosition - 15;
-    }
-
-    // Salva o documento e retorna os bytes
-    private byte[] saveDocument(PDDocument document) {
-        byte[] pdfBytes = null;
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            document.save(baos);
-            pdfBytes = baos.toByteArray();
-        } catch (IOException e) {
-            e.printStackTrace();
-        } finally {
-            try {
-                document.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-        }
-        return pdfBytes;
+        writer.escreverLinha(notaExplicativa);
+        writer.espaco(5);
     }
 }
@@ -0,0 +1,284 @@
+package com.fiscalsystemapi.service;
+
+import com.fiscalsystemapi.dto.pdf.PdfJobMetricsResponse;
+import com.fiscalsystemapi.dto.pdf.PdfJobResponse;
+import com.fiscalsystemapi.dto.pdf.PdfJobStatus;
+import com.fiscalsystemapi.exception.ApiException;
+import com.fiscalsystemapi.exception.TooManyRequestsException;
+import com.fiscalsystemapi.util.Metricas;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fila de jobs de geração e assinatura de PDF, executados em um pool limitado. Os jobs ficam em memória
+ * até o TTL após a conclusão, limitados em quantidade ({@code pdf.jobs.max-jobs}, contando os pendentes) e
+ * no total de bytes dos PDFs concluídos ({@code pdf.jobs.max-bytes}): acima do limite de bytes, os jobs
+ * concluídos há mais tempo são descartados antes do TTL; com o limite de quantidade atingido, novos
+ * jobs são recusados como se a fila estivesse cheia.
+ */
+@Service
+public class PdfJobService {
+
+    private final ThreadPoolExecutor executor;
+    private final Map<String, PdfJob> jobs = new ConcurrentHashMap<>();
+    private final AuthService authService;
+    private final int capacidadeFila;
+    private final long ttlMs;
+    private final int maxJobs;
+    private final long maxBytes;
+
+    // Soma do tamanho dos PDFs dos jobs concluídos ainda armazenados
+    private final AtomicLong bytesArmazenados = new AtomicLong();
+    private final AtomicLong jobsDescartados = new AtomicLong();
+    private final AtomicLong jobsIniciados = new AtomicLong();
+    private final AtomicLong jobsRejeitados = new AtomicLong();
+    private final AtomicLong esperaTotalNanos = new AtomicLong();
+    private final AtomicLong esperaMaximaNanos = new AtomicLong();
+
+    public PdfJobService(AuthService authService,
+                         @Value("${pdf.jobs.workers:0}") int workers,
+                         @Value("${pdf.jobs.queue-capacity:100}") int capacidadeFila,
+                         @Value("${pdf.jobs.ttl-ms:900000}") long ttlMs,
+                         @Value("${pdf.jobs.max-jobs:1000}") int maxJobs,
+                         @Value("${pdf.jobs.max-bytes:268435456}") long maxBytes) {
+        this.authService = authService;
+        this.capacidadeFila = capacidadeFila;
+        this.ttlMs = ttlMs;
+        this.maxJobs = maxJobs;
+        this.maxBytes = maxBytes;
+
+        // Por padrão o pool tem um worker por núcleo, pois a geração de PDF é limitada por CPU
+        int totalWorkers = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(totalWorkers, totalWorkers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadeFila),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "pdf-job-" + contador.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Enfileira um job de geração ou assinatura de PDF para o usuário logado.
+     * O contexto de segurança da requisição é propagado para o worker, de modo que a
+     * assinatura continue identificando o usuário que submeteu o job.
+     *
+     * @param fileName Nome do arquivo que será entregue no download.
+     * @param tarefa   Tarefa que produz os bytes do PDF final.
+     * @return Situação inicial do job (PENDENTE) com o seu identificador.
+     * @throws TooManyRequestsException Caso a fila de jobs esteja cheia ou o limite de jobs armazenados
+     *                                  tenha sido atingido.
+     */
+    public PdfJobResponse submeter(String fileName, Callable<byte[]> tarefa) {
+        PdfJob job = new PdfJob(UUID.randomUUID().toString(), authService.getLoggedUserId(), fileName);
+        if (jobs.size() >= maxJobs) {
+            removerJobsExpirados();
+            if (jobs.size() >= maxJobs) {
+                jobsRejeitados.incrementAndGet();
+                throw new TooManyRequestsException("Limite de jobs de PDF armazenados atingido. Tente novamente em instantes.");
+            }
+        }
+        jobs.put(job.id, job);
+
+        Runnable execucao = new DelegatingSecurityContextRunnable(() -> executar(job, tarefa),
+                SecurityContextHolder.getContext());
+        try {
+            executor.execute(execucao);
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            jobsRejeitados.incrementAndGet();
+            throw new TooManyRequestsException("Fila de geração de PDF cheia. Tente novamente em instantes.", e);
+        }
+        return job.toResponse();
+    }
+
+    /**
+     * Consulta a situação de um job do usuário logado.
+     *
+     * @param id Identificador do job.
+     * @return Situação atual do job.
+     * @throws ApiException Caso o job não exista, tenha expirado ou pertença a outro usuário.
+     */
+    public PdfJobResponse consultar(String id) {
+        return buscarJobDoUsuario(id).toResponse();
+    }
+
+    /**
+     * Retorna o PDF produzido por um job do usuário logado, se já estiver concluído.
+     *
+     * @param id Identificador do job.
+     * @return PDF final, ou vazio se o job ainda não foi concluído com sucesso.
+     * @throws ApiException Caso o job não exista, tenha expirado ou pertença a outro usuário.
+     */
+    public Optional<byte[]> obterPdf(String id) {
+        PdfJob job = buscarJobDoUsuario(id);
+        if (job.status != PdfJobStatus.CONCLUIDO) {
+            return Optional.empty();
+        }
+        return Optional.of(job.pdf);
+    }
+
+    /**
+     * Retorna as métricas da fila de jobs: profundidade, workers ativos e tempo de espera.
+     */
+    public PdfJobMetricsResponse metricas() {
+        long iniciados = jobsIniciados.get();
+        return PdfJobMetricsResponse.builder()
+                .workers(executor.getMaximumPoolSize())
+                .workersAtivos(executor.getActiveCount())
+                .capacidadeFila(capacidadeFila)
+                .tamanhoFila(executor.getQueue().size())
+                .jobsArmazenados(jobs.size())
+                .bytesArmazenados(bytesArmazenados.get())
+                .jobsDescartados(jobsDescartados.get())
+                .jobsIniciados(iniciados)
+                .jobsRejeitados(jobsRejeitados.get())
+                .tempoMedioEsperaMs(iniciados == 0 ? 0 : esperaTotalNanos.get() / (double) iniciados / 1_000_000)
+                .tempoMaximoEsperaMs(esperaMaximaNanos.get() / 1_000_000.0)
+                .build();
+    }
+
+    /**
+     * Remove periodicamente os jobs finalizados cujo TTL expirou.
+     */
+    @Scheduled(fixedDelayString = "${pdf.jobs.cleanup-interval-ms:60000}")
+    public void removerJobsExpirados() {
+        removerJobsExpirados(System.currentTimeMillis());
+    }
+
+    void removerJobsExpirados(long agoraMs) {
+        long limite = agoraMs - ttlMs;
+        for (PdfJob job : jobs.values()) {
+            if (job.dataConclusao != null && job.dataConclusao.getTime() < limite) {
+                remover(job);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdownNow();
+    }
+
+    private void executar(PdfJob job, Callable<byte[]> tarefa) {
+        long espera = System.nanoTime() - job.enfileiradoEmNanos;
+        jobsIniciados.incrementAndGet();
+        esperaTotalNanos.addAndGet(espera);
+        esperaMaximaNanos.accumulateAndGet(espera, Math::max);
+
+        job.dataInicio = new Date();
+        job.status = PdfJobStatus.PROCESSANDO;
+        try {
+            byte[] pdf = tarefa.call();
+            if (pdf == null) {
+                throw new ApiException("Falha ao gerar o PDF.");
+            }
+            job.pdf = pdf;
+            job.dataConclusao = new Date();
+            bytesArmazenados.addAndGet(pdf.length);
+            // O excedente é descartado antes de o job aparecer como concluído
+            descartarExcedente();
+            job.status = PdfJobStatus.CONCLUIDO;
+        } catch (Exception e) {
+            e.printStackTrace();
+            Metricas.erroIgnorado(PdfJobService.class, e);
+            job.erro = e.getMessage();
+            job.dataConclusao = new Date();
+            job.status = PdfJobStatus.ERRO;
+        }
+    }
+
+    // Acima do limite de bytes, descarta os jobs concluídos há mais tempo (no máximo max-jobs, então a
+    // busca linear é barata e só ocorre quando o limite é ultrapassado)
+    private void descartarExcedente() {
+        while (bytesArmazenados.get() > maxBytes) {
+            PdfJob maisAntigo = null;
+            for (PdfJob job : jobs.values()) {
+                if (job.pdf != null && job.dataConclusao != null
+                        && (maisAntigo == null || job.dataConclusao.before(maisAntigo.dataConclusao))) {
+                    maisAntigo = job;
+                }
+            }
+            if (maisAntigo == null) {
+                return;
+            }
+            if (remover(maisAntigo)) {
+                jobsDescartados.incrementAndGet();
+            }
+        }
+    }
+
+    // Remove o job uma única vez, mesmo com a limpeza agendada e o descarte por bytes concorrentes
+    private boolean remover(PdfJob job) {
+        if (!jobs.remove(job.id, job)) {
+            return false;
+        }
+        byte[] pdf = job.pdf;
+        if (pdf != null) {
+            bytesArmazenados.addAndGet(-pdf.length);
+        }
+        return true;
+    }
+
+    private PdfJob buscarJobDoUsuario(String id) {
+        PdfJob job = jobs.get(id);
+        if (job == null || !job.usuarioId.equals(authService.getLoggedUserId())) {
+            throw new ApiException("Job não encontrado!");
+        }
+        return job;
+    }
+
+    /**
+     * Estado em memória de um job. Os campos mutáveis são escritos apenas pelo worker
+     * e lidos pelas requisições de consulta, por isso são voláteis.
+     */
+    private static class PdfJob {
+        private final String id;
+        private final Long usuarioId;
+        private final String fileName;
+        private final Date dataCriacao = new Date();
+        private final long enfileiradoEmNanos = System.nanoTime();
+        private volatile PdfJobStatus status = PdfJobStatus.PENDENTE;
+        private volatile Date dataInicio;
+        private volatile Date dataConclusao;
+        private volatile byte[] pdf;
+        private volatile String erro;
+
+        private PdfJob(String id, Long usuarioId, String fileName) {
+            this.id = id;
+            this.usuarioId = usuarioId;
+            this.fileName = fileName;
+        }
+
+        private PdfJobResponse toResponse() {
+            return PdfJobResponse.builder()
+                    .id(id)
+                    .status(status)
+                    .fileName(fileName)
+                    .dataCriacao(dataCriacao)
+                    .dataInicio(dataInicio)
+                    .dataConclusao(dataConclusao)
+                    .erro(erro)
+                    .build();
+        }
+    }
+}
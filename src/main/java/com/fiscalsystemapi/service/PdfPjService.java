@@ -3,128 +3,132 @@ package com.fiscalsystemapi.service;
 import com.fiscalsystemapi.dto.ProcessData;
 import com.fiscalsystemapi.dto.pj.CalculoPjResult;
 import com.fiscalsystemapi.entity.User;
-import com.fiscalsystemapi.service.PdfSignatureService;
+import com.fiscalsystemapi.entity.enums.CalculationType;
+import com.fiscalsystemapi.util.DirectPdfWriter;
 import com.fiscalsystemapi.util.FormatUtils;
+import com.fiscalsystemapi.util.Metricas;
+import com.fiscalsystemapi.util.PdfJfrEvent;
+import com.fiscalsystemapi.util.PdfPageWriter;
+import com.fiscalsystemapi.util.Rastreamento;
+import com.fiscalsystemapi.util.RelatorioWriter;
 import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDDocumentInformation;
-import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.PDPageContentStream;
-import org.apache.pdfbox.pdmodel.common.PDRectangle;
-import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.Optional;
 
 @Service
 public class PdfPjService {
 
+    public static final String SUBTITULO = "Cálculo de IR para Pessoa Jurídica - Lei 14.848/2024";
+
+    // Deve ser incrementada sempre que o layout do relatório mudar, invalidando o cache de PDF
+    private static final String TEMPLATE_VERSION = "3";
+
     private final PdfSignatureService pdfSignatureService;
     private final AuthService authService;
+    private final PdfCacheService pdfCacheService;
+    private final boolean pdfDiretoHabilitado;
 
-    public PdfPjService(PdfSignatureService pdfSignatureService, AuthService authService) {
+    public PdfPjService(PdfSignatureService pdfSignatureService, AuthService authService,
+                        PdfCacheService pdfCacheService,
+                        @Value("${pdf.writer.direto.enabled:false}") boolean pdfDiretoHabilitado) {
         this.pdfSignatureService = pdfSignatureService;
         this.authService = authService;
+        this.pdfCacheService = pdfCacheService;
+        this.pdfDiretoHabilitado = pdfDiretoHabilitado;
     }
 
     /**
      * Gera o PDF para o cálculo de IR para Pessoa Jurídica (PJ) com base nos resultados e dados do processo.
-     * Após gerar o PDF, tenta assiná-lo; se a assinatura falhar, retorna o PDF sem assinatura.
+     * O PDF é assinado em nome do usuário logado; se não houver usuário, retorna o PDF sem assinatura.
      *
      * @param resultado Objeto CalculoPjResult contendo os resultados do cálculo.
      * @param dados     Objeto ProcessData contendo os dados do processo.
      * @return PDF final (assinado, se possível) em formato byte[].
      */
     public byte[] gerarPDFPj(CalculoPjResult resultado, ProcessData dados) {
-        PDDocument document = new PDDocument();
-        PDPage page = new PDPage(PDRectangle.A4);
-        document.addPage(page);
-
-        // Define metadado indicando que o PDF foi gerado pela API
-        PDDocumentInformation info = document.getDocumentInformation();
-        info.setCustomMetadataValue("API_GENERATED", "true");
-        document.setDocumentInformation(info);
-
-        float margin = 20;
-        float yPosition = page.getMediaBox().getHeight() - margin;
-        float pageWidth = page.getMediaBox().getWidth();
-
-        try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
-            // Cabeçalho e título centralizado
-            yPosition = writeHeader(contentStream, pageWidth, yPosition, margin);
-            // Dados do processo
-            yPosition = writeProcessData(contentStream, dados, margin, yPosition);
-            // Seção de cálculo para PJ
-            yPosition = writePjSection(contentStream, resultado, margin, yPosition);
-            // Nota explicativa
-            yPosition = writeExplanatoryNote(contentStream, pageWidth, margin, yPosition);
-        } catch (IOException e) {
-            e.printStackTrace();
+        return Rastreamento.etapa("fiscal.span.pdf.geracao", CalculationType.PJ, () -> gerar(resultado, dados));
+    }
+
+    private byte[] gerar(CalculoPjResult resultado, ProcessData dados) {
+        PdfJfrEvent evento = new PdfJfrEvent();
+        evento.begin();
+        // Um relatório idêntico já assinado pelo mesmo usuário é devolvido do cache, sem acionar o PDFBox
+        User signer = pdfSignatureService.resolverAssinante();
+        String chaveCache = pdfCacheService.chave(CalculationType.PJ, versaoTemplate(), resultado, dados, signer);
+        Optional<byte[]> pdfEmCache = pdfCacheService.buscar(chaveCache);
+        if (pdfEmCache.isPresent()) {
+            evento.registrar(CalculationType.PJ, 0, pdfEmCache.get(), true);
+            return pdfEmCache.get();
         }
+        long inicio = System.nanoTime();
 
-        byte[] unsignedPdf = saveDocument(document);
+        // Relatórios que cabem em uma página e só usam caracteres WinAnsi saem prontos e assinados,
+        // sem passar pelo PDFBox; os demais seguem o fluxo normal
+        if (pdfDiretoHabilitado && signer != null) {
+            try {
+                DirectPdfWriter direto = new DirectPdfWriter(SUBTITULO);
+                escreverRelatorio(direto, resultado, dados);
+                byte[] pdfDireto = direto.gerarAssinado(PdfSignatureService.textoAssinatura(signer),
+                        PdfSignatureService.dataAssinatura());
+                if (pdfDireto != null) {
+                    Metricas.pdfGerado(CalculationType.PJ, inicio, pdfDireto);
+                    evento.registrar(CalculationType.PJ, 1, pdfDireto, false);
+                    pdfCacheService.armazenar(chaveCache, pdfDireto);
+                    return pdfDireto;
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                Metricas.erroIgnorado(PdfPjService.class, e);
+            }
+        }
 
-        // Tenta assinar o PDF; se ocorrer erro, retorna o PDF sem assinatura
-        byte[] finalPdf = unsignedPdf;
-        try {
-            finalPdf = pdfSignatureService.signPdf(unsignedPdf);
-        } catch (Exception e) {
+        // A assinatura é aplicada na mesma etapa que gera as páginas; sem usuário, o PDF sai sem assinatura
+        PDDocument document = PdfPageWriter.novoDocumento();
+        boolean assinado = false;
+        try (PdfPageWriter writer = new PdfPageWriter(document, SUBTITULO)) {
+            escreverRelatorio(writer, resultado, dados);
+            if (signer != null) {
+                writer.assinar(PdfSignatureService.textoAssinatura(signer), PdfSignatureService.dataAssinatura());
+                assinado = true;
+            }
+        } catch (IOException e) {
             e.printStackTrace();
+            Metricas.erroIgnorado(PdfPjService.class, e);
+            assinado = false;
+        }
+
+        int paginas = document.getNumberOfPages();
+        byte[] finalPdf = PdfPageWriter.salvar(document);
+        Metricas.pdfGerado(CalculationType.PJ, inicio, finalPdf);
+        evento.registrar(CalculationType.PJ, paginas, finalPdf, false);
+        if (assinado && finalPdf != null) {
+            pdfCacheService.armazenar(chaveCache, finalPdf);
         }
         return finalPdf;
     }
 
-    private float writeHeader(PDPageContentStream contentStream, float pageWidth, float yPosition, float margin) throws IOException {
-        // Título principal
-        contentStream.beginText();
-        contentStream.setFont(PDType1Font.HELVETICA_BOLD, 16);
-        contentStream.newLineAtOffset((pageWidth - 200) / 2, yPosition);
-        contentStream.showText("RELATÓRIO OFICIAL");
-        contentStream.endText();
-        yPosition -= 25;
-
-        // Título específico para cálculo de IRPJ
-        contentStream.beginText();
-        contentStream.setFont(PDType1Font.HELVETICA, 12);
-        contentStream.newLineAtOffset((pageWidth - 200) / 2, yPosition);
-        contentStream.showText("Cálculo de IR para Pessoa Jurídica - Lei 14.848/2024");
-        contentStream.endText();
-        yPosition -= 20;
-        return yPosition - 15;
+    // O writer direto gera um layout diferente, por isso tem versão própria no cache
+    private String versaoTemplate() {
+        return pdfDiretoHabilitado ? TEMPLATE_VERSION + "-direto" : TEMPLATE_VERSION;
     }
 
-    private float writeProcessData(PDPageContentStream contentStream, ProcessData dados, float margin, float yPosition) throws IOException {
-        contentStream.beginText();
-        contentStream.setFont(PDType1Font.HELVETICA_BOLD, 12);
-        contentStream.newLineAtOffset(margin, yPosition);
-        contentStream.showText("Dados do Processo:");
-        contentStream.endText();
-        yPosition -= 15;
-
-        contentStream.beginText();
-        contentStream.setFont(PDType1Font.HELVETICA, 12);
-        contentStream.newLineAtOffset(margin, yPosition);
-        contentStream.showText("Número do Processo: " + dados.getNumProcesso());
-        contentStream.endText();
-        yPosition -= 15;
-
-        contentStream.beginText();
-        contentStream.newLineAtOffset(margin, yPosition);
-        contentStream.showText("Nome da parte autora: " + dados.getNomeParteAutora());
-        contentStream.endText();
-        yPosition -= 15;
-
-        contentStream.beginText();
-        contentStream.newLineAtOffset(margin, yPosition);
-        contentStream.showText("Nome da parte ré: " + dados.getNomeParteRe());
-        contentStream.endText();
-        yPosition -= 20;
-        return yPosition - 15;
+    /**
+     * Escreve o conteúdo do relatório de PJ (dados do processo, seção de cálculo e nota explicativa)
+     * a partir da posição atual do writer. Usado também pelo relatório consolidado.
+     */
+    public void escreverRelatorio(RelatorioWriter writer, CalculoPjResult resultado, ProcessData dados) throws IOException {
+        // Dados do processo
+        writer.escreverDadosProcesso(dados);
+        // Seção de cálculo para PJ
+        writePjSection(writer, resultado);
+        // Nota explicativa
+        writeExplanatoryNote(writer);
     }
 
-    private float writePjSection(PDPageContentStream contentStream, CalculoPjResult resultado, float margin, float yPosition) throws IOException {
+    private void writePjSection(RelatorioWriter writer, CalculoPjResult resultado) throws IOException {
         String valorBrutoRPV = FormatUtils.formatCurrency(resultado.getValorBrutoRPV(), false);
         String valorCorrigidoRPV = FormatUtils.formatCurrency(resultado.getValorCorrigidoRPV(), false);
         String optante = resultado.getOptanteSimples().equalsIgnoreCase("sim") ? "Sim" : "Não";
@@ -133,49 +137,20 @@ public class PdfPjService {
         String impostoIR = FormatUtils.formatCurrency(resultado.getImpostoIR(), false);
         String valorLiquido = FormatUtils.formatCurrency(resultado.getValorLiquido(), false);
 
-        yPosition = writeTextLine(contentStream, "Valor Bruto do RPV: " + valorBrutoRPV, margin, yPosition);
-        yPosition = writeTextLine(contentStream, "Valor Corrigido do RPV: " + valorCorrigidoRPV, margin, yPosition);
-        yPosition = writeTextLine(contentStream, "Optante pelo Simples Nacional: " + optante, margin, yPosition);
+        writer.escreverLinha("Valor Bruto do RPV: " + valorBrutoRPV);
+        writer.escreverLinha("Valor Corrigido do RPV: " + valorCorrigidoRPV);
+        writer.escreverLinha("Optante pelo Simples Nacional: " + optante);
         if ("Não".equalsIgnoreCase(optante)) {
-            yPosition = writeTextLine(contentStream, "Ramo de Atividade: " + ramoAtividade, margin, yPosition);
-            yPosition = writeTextLine(contentStream, "Alíquota do IRPJ: " + aliquotaIR, margin, yPosition);
-            yPosition = writeTextLine(contentStream, "Imposto de Renda Pessoa Jurídica (IRPJ): " + impostoIR, margin, yPosition);
+            writer.escreverLinha("Ramo de Atividade: " + ramoAtividade);
+            writer.escreverLinha("Alíquota do IRPJ: " + aliquotaIR);
+            writer.escreverLinha("Imposto de Renda Pessoa Jurídica (IRPJ): " + impostoIR);
         }
-        return writeTextLine(contentStream, "Valor Líquido após IRPJ: " + valorLiquido, margin, yPosition);
+        writer.escreverLinha("Valor Líquido após IRPJ: " + valorLiquido);
     }
 
-    private float writeExplanatoryNote(PDPageContentStream contentStream, float pageWidth, float margin, float yPosition) throws IOException {
+    private void writeExplanatoryNote(RelatorioWriter writer) throws IOException {
         String notaExplicativa = "Nota Explicativa: O cálculo do IRPJ é baseado no regime de tributação da empresa. Empresas optantes pelo Simples Nacional estão isentas. Para demais empresas, aplicam-se as alíquotas conforme a atividade desempenhada.";
-        String[] notaLines = notaExplicativa.split("\n");
-        for (String line : notaLines) {
-            yPosition = writeTextLine(contentStream, line, margin, yPosition);
-        }
-        return yPosition - 5;
-    }
-
-    private float writeTextLine(PDPageContentStream contentStream, String text, float margin, float yPosition) throws IOException {
-        contentStream.beginText();
-        contentStream.setFont(PDType1Font.HELVETICA, 12);
-        contentStream.newLineAtOffset(margin, yPosition);
-        contentStream.showText(text);
-        contentStream.endText();
-        return yPosition - 15;
-    }
-
-    private byte[] saveDocument(PDDocument document) {
-        byte[] pdfBytes = null;
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            document.save(baos);
-            pdfBytes = baos.toByteArray();
-        } catch (IOException e) {
-            e.printStackTrace();
-        } finally {
-            try {
-                document.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-        }
-        return pdfBytes;
+        writer.escreverLinha(notaExplicativa);
+        writer.espaco(5);
     }
 }
@@ -0,0 +1,310 @@
+package com.fiscalsystemapi.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fiscalsystemapi.dto.ProcessData;
+import com.fiscalsystemapi.dto.ProcessNumber;
+import com.fiscalsystemapi.dto.fepa.CalculoFepaResult;
+import com.fiscalsystemapi.dto.honorarios.CalculoHonorariosResult;
+import com.fiscalsystemapi.dto.pdf.PdfLoteItem;
+import com.fiscalsystemapi.dto.pdf.RelatorioPdf;
+import com.fiscalsystemapi.dto.pj.CalculoPjResult;
+import com.fiscalsystemapi.dto.rra.CalculoRraResult;
+import com.fiscalsystemapi.entity.CalculoRealizado;
+import com.fiscalsystemapi.entity.User;
+import com.fiscalsystemapi.entity.enums.CalculationType;
+import com.fiscalsystemapi.exception.ApiException;
+import com.fiscalsystemapi.util.DirectPdfWriter;
+import com.fiscalsystemapi.util.Metricas;
+import com.fiscalsystemapi.util.PdfJfrEvent;
+import com.fiscalsystemapi.util.PdfPageWriter;
+import com.fiscalsystemapi.util.Rastreamento;
+import com.fiscalsystemapi.util.RelatorioWriter;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Ponto único de despacho dos relatórios em PDF por tipo de cálculo.
+ * Usado pelos fluxos que recebem relatórios de tipos variados (exportação em lote, relatório consolidado, etc.).
+ */
+@Service
+public class PdfRelatorioService {
+
+    private final PdfHonorariosService pdfHonorariosService;
+    private final PdfFepaService pdfFepaService;
+    private final PdfRraService pdfRraService;
+    private final PdfPjService pdfPjService;
+    private final PdfSignatureService pdfSignatureService;
+    private final ObjectMapper objectMapper;
+
+    public PdfRelatorioService(PdfHonorariosService pdfHonorariosService, PdfFepaService pdfFepaService,
+                               PdfRraService pdfRraService, PdfPjService pdfPjService,
+                               PdfSignatureService pdfSignatureService, ObjectMapper objectMapper) {
+        this.pdfHonorariosService = pdfHonorariosService;
+        this.pdfFepaService = pdfFepaService;
+        this.pdfRraService = pdfRraService;
+        this.pdfPjService = pdfPjService;
+        this.pdfSignatureService = pdfSignatureService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Retorna a classe do DTO de resultado correspondente ao tipo de cálculo.
+     *
+     * @param tipo Tipo de cálculo.
+     * @return Classe do DTO de resultado.
+     */
+    public Class<?> tipoResultado(CalculationType tipo) {
+        switch (tipo) {
+            case HONORARIOS:
+                return CalculoHonorariosResult.class;
+            case FEPA:
+                return CalculoFepaResult.class;
+            case RRA:
+                return CalculoRraResult.class;
+            case PJ:
+                return CalculoPjResult.class;
+            default:
+                throw new ApiException("Tipo de cálculo sem relatório: " + tipo.getType());
+        }
+    }
+
+    /**
+     * Converte o JSON de um resultado para o DTO correspondente ao tipo de cálculo.
+     *
+     * @param tipo      Tipo de cálculo.
+     * @param resultado Resultado em JSON.
+     * @return DTO de resultado.
+     * @throws ApiException Caso o JSON não corresponda ao tipo informado.
+     */
+    public Object converterResultado(CalculationType tipo, JsonNode resultado) {
+        if (resultado == null || resultado.isNull()) {
+            throw new ApiException("Resultado do cálculo não informado.");
+        }
+        try {
+            return objectMapper.treeToValue(resultado, tipoResultado(tipo));
+        } catch (JsonProcessingException e) {
+            throw new ApiException("Resultado inválido para o tipo " + tipo.getType() + ": " + e.getOriginalMessage(), e);
+        }
+    }
+
+    /**
+     * Valida um item de lote e converte o seu resultado para o DTO do tipo informado.
+     *
+     * @param item Item recebido na requisição.
+     * @return Relatório pronto para renderização.
+     * @throws ApiException Caso o tipo, os dados do processo ou o resultado sejam inválidos.
+     */
+    public RelatorioPdf preparar(PdfLoteItem item) {
+        if (item == null || item.getDados() == null) {
+            throw new ApiException("Dados do processo não informados.");
+        }
+        CalculationType tipo;
+        try {
+            tipo = CalculationType.fromString(item.getTipo());
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(e.getMessage(), e);
+        }
+        return new RelatorioPdf(tipo, converterResultado(tipo, item.getResultado()), item.getDados());
+    }
+
+    /**
+     * Converte um cálculo registrado para o relatório correspondente, usando apenas os valores
+     * gravados no servidor. Os dados do processo são lidos do próprio resultado (nos honorários,
+     * "solicitante" e "reu" fazem o papel das partes autora e ré).
+     *
+     * @param registro Cálculo registrado.
+     * @return Relatório pronto para renderização.
+     * @throws ApiException Caso o tipo ou o resultado gravado sejam inválidos.
+     */
+    public RelatorioPdf preparar(CalculoRealizado registro) {
+        CalculationType tipo;
+        try {
+            tipo = CalculationType.fromString(registro.getTipoCalculo());
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(e.getMessage(), e);
+        }
+        JsonNode resultado;
+        try {
+            resultado = objectMapper.readTree(registro.getResultadoJson());
+        } catch (JsonProcessingException e) {
+            throw new ApiException("Resultado gravado inválido para o cálculo " + registro.getId(), e);
+        }
+
+        ProcessData dados = new ProcessData();
+        dados.setNumProcesso(numeroGravado(registro));
+        if (tipo == CalculationType.HONORARIOS) {
+            dados.setNomeParteAutora(resultado.path("solicitante").asText(null));
+            dados.setNomeParteRe(resultado.path("reu").asText(null));
+        } else {
+            dados.setNomeParteAutora(resultado.path("nomeParteAutora").asText(null));
+            dados.setNomeParteRe(resultado.path("nomeParteRe").asText(null));
+        }
+        return new RelatorioPdf(tipo, converterResultado(tipo, resultado), dados);
+    }
+
+    // Registros anteriores à forma canônica têm apenas o texto gravado, que pode não ser um número válido
+    static ProcessNumber numeroGravado(CalculoRealizado registro) {
+        if (registro.getNumProcessoChave() != null) {
+            return ProcessNumber.deChave(registro.getNumProcessoChave());
+        }
+        try {
+            return ProcessNumber.parse(registro.getNumProcesso());
+        } catch (ApiException e) {
+            return ProcessNumber.legado(registro.getNumProcesso());
+        }
+    }
+
+    /**
+     * Gera o PDF final (assinado, se possível) do tipo de cálculo informado.
+     *
+     * @param tipo      Tipo de cálculo.
+     * @param resultado DTO de resultado compatível com o tipo.
+     * @param dados     Dados do processo.
+     * @return PDF em formato byte[].
+     */
+    public byte[] gerarPdf(CalculationType tipo, Object resultado, ProcessData dados) {
+        switch (tipo) {
+            case HONORARIOS:
+                return pdfHonorariosService.gerarPDFHonorarios((CalculoHonorariosResult) resultado, dados);
+            case FEPA:
+                return pdfFepaService.gerarPDFFepa((CalculoFepaResult) resultado, dados);
+            case RRA:
+                return pdfRraService.gerarPDFFRra((CalculoRraResult) resultado, dados);
+            case PJ:
+                return pdfPjService.gerarPDFPj((CalculoPjResult) resultado, dados);
+            default:
+                throw new ApiException("Tipo de cálculo sem relatório: " + tipo.getType());
+        }
+    }
+
+    /**
+     * Gera um único PDF com todos os relatórios informados, em sequência, paginando automaticamente.
+     * Cada relatório é precedido de um título numerado com o tipo do cálculo; cabeçalho e número
+     * da página se repetem em todas as páginas. O documento é gerado e assinado em uma única passada;
+     * se não houver usuário logado, retorna o PDF sem assinatura.
+     *
+     * @param relatorios Relatórios já validados.
+     * @return PDF consolidado em formato byte[].
+     */
+    public byte[] gerarPdfConsolidado(List<RelatorioPdf> relatorios) {
+        return Rastreamento.etapa("fiscal.span.pdf.geracao", null, () -> gerarConsolidado(relatorios));
+    }
+
+    private byte[] gerarConsolidado(List<RelatorioPdf> relatorios) {
+        long inicio = System.nanoTime();
+        PdfJfrEvent evento = new PdfJfrEvent();
+        evento.begin();
+        PDDocument document = PdfPageWriter.novoDocumento();
+        String subtitulo = "Relatório Consolidado - " + relatorios.size()
+                + (relatorios.size() == 1 ? " cálculo" : " cálculos");
+        User signer = pdfSignatureService.resolverAssinante();
+        try (PdfPageWriter writer = new PdfPageWriter(document, subtitulo)) {
+            for (int i = 0; i < relatorios.size(); i++) {
+                RelatorioPdf relatorio = relatorios.get(i);
+                // Evita que o título de um cálculo fique sozinho no fim da página
+                writer.garantirEspaco(6 * PdfPageWriter.LINE_HEIGHT);
+                writer.escreverLinhaNegrito((i + 1) + ". " + subtitulo(relatorio.getTipo()));
+                writer.espaco(5);
+                escreverRelatorio(writer, relatorio);
+                writer.espaco(10);
+            }
+            // As páginas são geradas em paralelo e o carimbo de assinatura entra na mesma etapa
+            if (signer != null) {
+                writer.assinar(PdfSignatureService.textoAssinatura(signer), PdfSignatureService.dataAssinatura());
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            Metricas.erroIgnorado(PdfRelatorioService.class, e);
+        }
+
+        int paginas = document.getNumberOfPages();
+        byte[] finalPdf = PdfPageWriter.salvar(document);
+        Metricas.pdfGerado(null, inicio, finalPdf);
+        evento.registrar(null, paginas, finalPdf, false);
+        return finalPdf;
+    }
+
+    /**
+     * Gera o PDF de um único relatório assinado em nome do usuário informado, sem consultar nem
+     * alimentar o cache de PDFs. Usado no aquecimento da aplicação.
+     *
+     * @param relatorio Relatório já validado.
+     * @param signer    Usuário em nome de quem o PDF é assinado.
+     * @return PDF assinado em formato byte[].
+     */
+    public byte[] gerarPdfAssinado(RelatorioPdf relatorio, User signer) {
+        PDDocument document = PdfPageWriter.novoDocumento();
+        try (PdfPageWriter writer = new PdfPageWriter(document, subtitulo(relatorio.getTipo()))) {
+            escreverRelatorio(writer, relatorio);
+            writer.assinar(PdfSignatureService.textoAssinatura(signer), PdfSignatureService.dataAssinatura());
+        } catch (IOException e) {
+            e.printStackTrace();
+            Metricas.erroIgnorado(PdfRelatorioService.class, e);
+        }
+        return PdfPageWriter.salvar(document);
+    }
+
+    /**
+     * Gera o PDF de um único relatório assinado pela escrita direta ({@link DirectPdfWriter}), sem consultar
+     * nem alimentar o cache de PDFs. Usado no aquecimento da aplicação.
+     *
+     * @param relatorio Relatório já validado.
+     * @param signer    Usuário em nome de quem o PDF é assinado.
+     * @return PDF assinado, ou null se o relatório não couber em uma página ou usar caracteres fora do WinAnsi.
+     */
+    public byte[] gerarPdfDireto(RelatorioPdf relatorio, User signer) throws IOException {
+        DirectPdfWriter writer = new DirectPdfWriter(subtitulo(relatorio.getTipo()));
+        escreverRelatorio(writer, relatorio);
+        return writer.gerarAssinado(PdfSignatureService.textoAssinatura(signer), PdfSignatureService.dataAssinatura());
+    }
+
+    /**
+     * Subtítulo do relatório do tipo de cálculo informado.
+     */
+    public String subtitulo(CalculationType tipo) {
+        switch (tipo) {
+            case HONORARIOS:
+                return PdfHonorariosService.SUBTITULO;
+            case FEPA:
+                return PdfFepaService.SUBTITULO;
+            case RRA:
+                return PdfRraService.SUBTITULO;
+            case PJ:
+                return PdfPjService.SUBTITULO;
+            default:
+                throw new ApiException("Tipo de cálculo sem relatório: " + tipo.getType());
+        }
+    }
+
+    /**
+     * Nome do arquivo do relatório, no mesmo padrão usado pelos endpoints /pdf/generate.
+     */
+    public String nomeArquivo(CalculationType tipo, ProcessData dados) {
+        return "relatorio_" + tipo.getType() + "_" + dados.getNumProcesso() + ".pdf";
+    }
+
+    private void escreverRelatorio(RelatorioWriter writer, RelatorioPdf relatorio) throws IOException {
+        ProcessData dados = relatorio.getDados();
+        switch (relatorio.getTipo()) {
+            case HONORARIOS:
+                pdfHonorariosService.escreverRelatorio(writer, (CalculoHonorariosResult) relatorio.getResultado(), dados);
+                break;
+            case FEPA:
+                pdfFepaService.escreverRelatorio(writer, (CalculoFepaResult) relatorio.getResultado(), dados);
+                break;
+            case RRA:
+                pdfRraService.escreverRelatorio(writer, (CalculoRraResult) relatorio.getResultado(), dados);
+                break;
+            case PJ:
+                pdfPjService.escreverRelatorio(writer, (CalculoPjResult) relatorio.getResultado(), dados);
+                break;
+            default:
+                throw new ApiException("Tipo de cálculo sem relatório: " + relatorio.getTipo().getType());
+        }
+    }
+}
@@ -1,12 +1,17 @@
 package com.fiscalsystemapi.service;
 
 import com.fiscalsystemapi.entity.User;
+import com.fiscalsystemapi.exception.ApiException;
+import com.fiscalsystemapi.util.AssinaturaPdfJfrEvent;
+import com.fiscalsystemapi.util.Metricas;
+import com.fiscalsystemapi.util.PdfFontRegistry;
+import com.fiscalsystemapi.util.Rastreamento;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDDocumentInformation;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.PDPageTree;
-import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.PDFont;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayInputStream;
@@ -56,6 +61,20 @@ public class PdfSignatureService {
         }
     }
 
+    /**
+     * Retorna o usuário logado que assinará os PDFs, ou null se não for possível identificá-lo.
+     * Nesse caso os serviços de PDF devolvem o documento sem assinatura, como já faziam.
+     *
+     * @return Usuário logado ou null.
+     */
+    public User resolverAssinante() {
+        try {
+            return authService.getLoggedUser();
+        } catch (ApiException e) {
+            return null;
+        }
+    }
+
     /**
      * Assina o documento PDF.
      * Antes de assinar, valida se o documento foi gerado pela API e se ainda não foi assinado.
@@ -67,24 +86,51 @@ public class PdfSignatureService {
      * @throws Exception Caso o documento não seja válido para assinatura ou ocorra algum erro.
      */
     public byte[] signPdf(byte[] pdfBytes) throws Exception {
+        return signPdf(pdfBytes, authService.getLoggedUser());
+    }
+
+    /**
+     * Assina o documento PDF em nome do usuário informado.
+     * Permite que quem já resolveu o usuário logado (por exemplo, para montar a chave do cache de PDF)
+     * não precise consultá-lo novamente.
+     *
+     * @param pdfBytes PDF original em formato byte[]
+     * @param signer   Usuário em nome de quem o PDF é assinado.
+     * @return PDF assinado em formato byte[]
+     * @throws Exception Caso ocorra algum erro ao assinar o documento.
+     */
+    public byte[] signPdf(byte[] pdfBytes, User signer) throws Exception {
+        if (signer == null) {
+            throw new ApiException("Usuário não autenticado!");
+        }
+        long inicio = System.nanoTime();
+        AssinaturaPdfJfrEvent evento = new AssinaturaPdfJfrEvent();
+        evento.begin();
+        try {
+            return Rastreamento.etapa("fiscal.span.pdf.assinatura", () -> assinar(pdfBytes, signer, inicio, evento));
+        } catch (IOException e) {
+            throw new Exception("Erro ao assinar o PDF: " + e.getMessage(), e);
+        }
+    }
+
+    // Carimba a assinatura visual em cada página e marca os metadados do documento
+    private byte[] assinar(byte[] pdfBytes, User signer, long inicio, AssinaturaPdfJfrEvent evento) throws IOException {
         try (PDDocument document = PDDocument.load(new ByteArrayInputStream(pdfBytes))) {
             PDDocumentInformation info = document.getDocumentInformation();
 
-            User signer = authService.getLoggedUser();
-            String signerName = signer.getNomeCompleto();
-            String signerId = signer.getCpf();
             // Adiciona a assinatura visual em cada página
             PDPageTree pages = document.getDocumentCatalog().getPages();
+            PDFont fonte = PdfFontRegistry.negrito(document);
+            String signatureText = PdfFontRegistry.normalizar(textoAssinatura(signer));
             for (PDPage page : pages) {
                 try (PDPageContentStream contentStream = new PDPageContentStream(document, page, PDPageContentStream.AppendMode.APPEND, true)) {
                     contentStream.beginText();
-                    contentStream.setFont(PDType1Font.HELVETICA_BOLD, 10);
+                    contentStream.setFont(fonte, 10);
                     // Posiciona a assinatura no canto inferior direito
                     float margin = 20;
                     float x = page.getMediaBox().getWidth() - margin - 200; // Ajuste a largura conforme necessário
                     float y = margin;
                     contentStream.newLineAtOffset(x, y);
-                    String signatureText = "Assinado por " + signerName + " (" + signerId + ")";
                     contentStream.showText(signatureText);
                     contentStream.endText();
                 }
@@ -92,15 +138,30 @@ public class PdfSignatureService {
 
             // Atualiza os metadados para indicar que o documento foi assinado
             info.setCustomMetadataValue("SIGNED_BY_API", "true");
-            String signatureDate = new SimpleDateFormat("dd/MM/yyyy HH:mm:ss").format(new Date());
+            String signatureDate = dataAssinatura();
             info.setCustomMetadataValue("SIGNATURE_DATE", signatureDate);
             document.setDocumentInformation(info);
 
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
             document.save(baos);
-            return baos.toByteArray();
-        } catch (IOException e) {
-            throw new Exception("Erro ao assinar o PDF: " + e.getMessage(), e);
+            byte[] pdfAssinado = baos.toByteArray();
+            Metricas.assinatura(inicio);
+            evento.registrar(pages.getCount(), pdfBytes.length, pdfAssinado.length);
+            return pdfAssinado;
         }
     }
+
+    /**
+     * Texto da assinatura visual inserida em cada página.
+     */
+    public static String textoAssinatura(User signer) {
+        return "Assinado por " + signer.getNomeCompleto() + " (" + signer.getCpf() + ")";
+    }
+
+    /**
+     * Data da assinatura no formato gravado no metadado "SIGNATURE_DATE".
+     */
+    public static String dataAssinatura() {
+        return new SimpleDateFormat("dd/MM/yyyy HH:mm:ss").format(new Date());
+    }
 }
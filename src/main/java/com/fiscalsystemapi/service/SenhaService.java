@@ -0,0 +1,171 @@
+package com.fiscalsystemapi.service;
+
+import com.fiscalsystemapi.exception.TooManyRequestsException;
+import com.fiscalsystemapi.util.Metricas;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Hash e conferência de senhas com bcrypt fora das threads do servlet container. O bcrypt consome
+ * ~100 ms de CPU por senha no custo 10; um pico de logins executado nas threads do Tomcat ocupava
+ * todas elas e travava os demais endpoints. Aqui o trabalho vai para um pool limitado (um worker por
+ * núcleo, por padrão) com fila limitada: com a fila cheia, ou se a espera na fila passar de
+ * {@code auth.senha.timeout-ms}, a operação é recusada com {@link TooManyRequestsException} sem calcular
+ * o hash. O custo do bcrypt é fixo ({@code auth.senha.custo}) ou calibrado na inicialização para
+ * aproximar {@code auth.senha.tempo-alvo-ms}; hashes gravados com custo menor são refeitos no login.
+ * Hashes com custo maior são mantidos: com a calibração, cada instância pode chegar a um custo diferente,
+ * e refazer nos dois sentidos faria o hash de um usuário alternar entre os custos a cada login.
+ * A espera na fila e o tempo de hash são publicados em {@code fiscal.auth.senha.espera} e
+ * {@code fiscal.auth.senha.hash}.
+ */
+@Service
+public class SenhaService {
+
+    private static final Logger log = LoggerFactory.getLogger(SenhaService.class);
+
+    // Limites de custo aceitos pelo bcrypt
+    private static final int CUSTO_MINIMO = 4;
+    private static final int CUSTO_MAXIMO = 31;
+    // Custo medido na calibração: rápido o bastante para a inicialização e acima do ruído do relógio
+    private static final int CUSTO_CALIBRACAO = 8;
+
+    /**
+     * Resultado da conferência de uma senha.
+     *
+     * @param confere  Se a senha corresponde ao hash gravado.
+     * @param novoHash Hash da mesma senha com o custo atual, quando o gravado usa um custo menor; senão null.
+     */
+    public record Conferencia(boolean confere, String novoHash) {
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final BCryptPasswordEncoder passwordEncoder;
+    private final int custo;
+    private final long timeoutNanos;
+
+    public SenhaService(@Value("${auth.senha.workers:0}") int workers,
+                        @Value("${auth.senha.queue-capacity:200}") int capacidadeFila,
+                        @Value("${auth.senha.timeout-ms:5000}") long timeoutMs,
+                        @Value("${auth.senha.custo:10}") int custo,
+                        @Value("${auth.senha.tempo-alvo-ms:0}") long tempoAlvoMs) {
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        this.custo = tempoAlvoMs > 0 ? calibrar(tempoAlvoMs) : custo;
+        this.passwordEncoder = new BCryptPasswordEncoder(this.custo);
+
+        // O bcrypt é limitado por CPU: mais workers que núcleos apenas disputariam a CPU com as requisições
+        int totalWorkers = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(totalWorkers, totalWorkers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadeFila),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "senha-hash-" + contador.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Calcula o hash de uma nova senha com o custo atual.
+     *
+     * @param senha Senha em texto plano.
+     * @return Future concluído com o hash.
+     * @throws TooManyRequestsException Caso a fila de hashes esteja cheia; o future também pode falhar com
+     *                                  essa exceção se a espera na fila passar do timeout.
+     */
+    public CompletableFuture<String> codificar(String senha) {
+        return executar(Metricas.OperacaoSenha.REGISTRO, () -> passwordEncoder.encode(senha));
+    }
+
+    /**
+     * Confere uma senha com o hash gravado e, se conferir e o hash usar um custo menor que o atual, calcula
+     * o novo hash.
+     *
+     * @param senha Senha em texto plano.
+     * @param hash  Hash gravado.
+     * @return Future concluído com o resultado da conferência.
+     * @throws TooManyRequestsException Nas mesmas condições de {@link #codificar(String)}.
+     */
+    public CompletableFuture<Conferencia> conferir(String senha, String hash) {
+        return executar(Metricas.OperacaoSenha.LOGIN, () -> {
+            if (!passwordEncoder.matches(senha, hash)) {
+                return new Conferencia(false, null);
+            }
+            return new Conferencia(true, custo(hash) >= custo ? null : passwordEncoder.encode(senha));
+        });
+    }
+
+    public int getCusto() {
+        return custo;
+    }
+
+    private <T> CompletableFuture<T> executar(Metricas.OperacaoSenha operacao, Supplier<T> hash) {
+        long enfileiradoEm = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                long inicio = System.nanoTime();
+                Metricas.senhaEspera(operacao, inicio - enfileiradoEm);
+                // Quem esperou demais na fila provavelmente já desistiu; não gasta CPU com o hash
+                if (inicio - enfileiradoEm > timeoutNanos) {
+                    throw new TooManyRequestsException("Muitas autenticações em andamento. Tente novamente em instantes.");
+                }
+                try {
+                    return hash.get();
+                } finally {
+                    Metricas.senhaHash(operacao, System.nanoTime() - inicio);
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            throw new TooManyRequestsException("Muitas autenticações em andamento. Tente novamente em instantes.", e);
+        }
+    }
+
+    // Cada unidade de custo dobra o tempo do bcrypt: mede um custo baixo e extrapola para o tempo alvo
+    private static int calibrar(long tempoAlvoMs) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(CUSTO_CALIBRACAO);
+        long melhor = Long.MAX_VALUE;
+        // A primeira medição inclui o aquecimento da JIT; vale a menor das três
+        for (int i = 0; i < 3; i++) {
+            long inicio = System.nanoTime();
+            encoder.encode("calibracao");
+            melhor = Math.min(melhor, System.nanoTime() - inicio);
+        }
+        double razao = (double) TimeUnit.MILLISECONDS.toNanos(tempoAlvoMs) / Math.max(1, melhor);
+        int custo = CUSTO_CALIBRACAO + (int) Math.round(Math.log(razao) / Math.log(2));
+        custo = Math.max(CUSTO_MINIMO, Math.min(CUSTO_MAXIMO, custo));
+        log.info("Custo do bcrypt calibrado em {} (custo {} em {} ms; alvo {} ms)", custo, CUSTO_CALIBRACAO,
+                TimeUnit.NANOSECONDS.toMillis(melhor), tempoAlvoMs);
+        return custo;
+    }
+
+    // Custo gravado no hash ($2a$10$...); -1 se o formato não for reconhecido
+    static int custo(String hash) {
+        if (hash == null || hash.length() < 7 || hash.charAt(0) != '$' || hash.charAt(3) != '$'
+                || hash.charAt(6) != '$') {
+            return -1;
+        }
+        char dezena = hash.charAt(4);
+        char unidade = hash.charAt(5);
+        if (dezena < '0' || dezena > '9' || unidade < '0' || unidade > '9') {
+            return -1;
+        }
+        return (dezena - '0') * 10 + (unidade - '0');
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdown();
+    }
+}
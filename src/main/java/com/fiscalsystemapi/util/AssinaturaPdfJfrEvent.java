@@ -0,0 +1,47 @@
+package com.fiscalsystemapi.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento do JDK Flight Recorder emitido a cada assinatura de um PDF existente. Desabilitado por padrão
+ * (ver {@link CalculoJfrEvent}).
+ */
+@Name("com.fiscalsystemapi.AssinaturaPdf")
+@Label("Assinatura de PDF")
+@Description("Assinatura de um PDF existente, com o número de páginas e os tamanhos de entrada e saída")
+@Category({"FiscalSystem", "PDF"})
+@Enabled(false)
+@StackTrace(false)
+public class AssinaturaPdfJfrEvent extends Event {
+
+    @Label("Páginas")
+    private int paginas;
+
+    @Label("Tamanho de entrada")
+    @DataAmount
+    private long tamanhoEntrada;
+
+    @Label("Tamanho de saída")
+    @DataAmount
+    private long tamanhoSaida;
+
+    /**
+     * Encerra o evento iniciado com {@link #begin()} e o grava, se estiver habilitado.
+     */
+    public void registrar(int paginas, long tamanhoEntrada, long tamanhoSaida) {
+        end();
+        if (shouldCommit()) {
+            this.paginas = paginas;
+            this.tamanhoEntrada = tamanhoEntrada;
+            this.tamanhoSaida = tamanhoSaida;
+            commit();
+        }
+    }
+}
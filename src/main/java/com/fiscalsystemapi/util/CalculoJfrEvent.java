@@ -0,0 +1,43 @@
+package com.fiscalsystemapi.util;
+
+import com.fiscalsystemapi.entity.enums.CalculationType;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento do JDK Flight Recorder emitido a cada cálculo. Desabilitado por padrão: só é gravado
+ * quando habilitado na configuração da gravação (ver jfr/fiscalsystem.jfc); desabilitado,
+ * o custo é praticamente nulo.
+ */
+@Name("com.fiscalsystemapi.Calculo")
+@Label("Cálculo")
+@Description("Cálculo realizado, com o tipo e a quantidade de meses do período")
+@Category({"FiscalSystem", "Cálculo"})
+@Enabled(false)
+@StackTrace(false)
+public class CalculoJfrEvent extends Event {
+
+    @Label("Tipo")
+    private String tipo;
+
+    @Label("Meses")
+    @Description("Quantidade de meses do período (0 quando o cálculo não é por período)")
+    private int meses;
+
+    /**
+     * Encerra o evento iniciado com {@link #begin()} e o grava, se estiver habilitado.
+     */
+    public void registrar(CalculationType tipo, int meses) {
+        end();
+        if (shouldCommit()) {
+            this.tipo = tipo.getType();
+            this.meses = meses;
+            commit();
+        }
+    }
+}
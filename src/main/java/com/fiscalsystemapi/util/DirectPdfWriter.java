@@ -0,0 +1,307 @@
+package com.fiscalsystemapi.util;
+
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.fiscalsystemapi.util.PdfPageWriter.numero;
+
+/**
+ * Escreve relatórios de uma única página diretamente no formato PDF, sem montar o modelo de objetos
+ * do PDFBox. Os objetos fixos (catálogo, árvore de páginas, página e fontes) são bytes pré-calculados;
+ * apenas o content stream, as informações do documento e a tabela xref são gerados por requisição.
+ * O documento já sai com a assinatura visual e os metadados "API_GENERATED", "SIGNED_BY_API"
+ * e "SIGNATURE_DATE", equivalentes aos gravados pelo {@code PdfSignatureService}.
+ * <p>
+ * Usa Helvetica (fonte padrão do PDF, sem incorporação) com codificação WinAnsi. Se o conteúdo não
+ * couber em uma página ou tiver caracteres fora do WinAnsi, {@link #gerarAssinado} retorna null e
+ * o relatório deve ser gerado pelo {@link PdfPageWriter}.
+ */
+public class DirectPdfWriter implements RelatorioWriter {
+
+    private static final float MARGIN = PdfPageWriter.MARGIN;
+    private static final float LINE_HEIGHT = PdfPageWriter.LINE_HEIGHT;
+    private static final float FONT_SIZE = PdfPageWriter.FONT_SIZE;
+    private static final float BOTTOM_LIMIT = 50;
+    private static final float PAGE_WIDTH = PDRectangle.A4.getWidth();
+    private static final float PAGE_HEIGHT = PDRectangle.A4.getHeight();
+    private static final String TITULO = "RELATÓRIO OFICIAL";
+
+    private static final Charset WIN_ANSI = Charset.forName("windows-1252");
+
+    // Larguras (em milésimos do tamanho) dos 256 códigos WinAnsi, para a Helvetica normal e negrito
+    private static final float[] LARGURAS = larguras(PDType1Font.HELVETICA);
+    private static final float[] LARGURAS_NEGRITO = larguras(PDType1Font.HELVETICA_BOLD);
+
+    private static final byte[] CABECALHO = ascii("%PDF-1.4\n%âãÏÓ\n");
+    // Objetos 1 a 5, que não dependem do conteúdo do relatório
+    private static final String[] OBJETOS_FIXOS = {
+            "1 0 obj\n<< /Type /Catalog /Pages 2 0 R >>\nendobj\n",
+            "2 0 obj\n<< /Type /Pages /Kids [3 0 R] /Count 1 >>\nendobj\n",
+            "3 0 obj\n<< /Type /Page /Parent 2 0 R /MediaBox [0 0 " + numero(PAGE_WIDTH) + " " + numero(PAGE_HEIGHT) + "]"
+                    + " /Resources << /Font << /F1 4 0 R /F2 5 0 R >> >> /Contents 6 0 R >>\nendobj\n",
+            "4 0 obj\n<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica /Encoding /WinAnsiEncoding >>\nendobj\n",
+            "5 0 obj\n<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica-Bold /Encoding /WinAnsiEncoding >>\nendobj\n"
+    };
+    private static final byte[] BLOCO_FIXO;
+    private static final int[] OFFSETS_FIXOS = new int[OBJETOS_FIXOS.length];
+
+    static {
+        ByteArrayOutputStream bloco = new ByteArrayOutputStream();
+        bloco.writeBytes(CABECALHO);
+        for (int i = 0; i < OBJETOS_FIXOS.length; i++) {
+            OFFSETS_FIXOS[i] = bloco.size();
+            bloco.writeBytes(ascii(OBJETOS_FIXOS[i]));
+        }
+        BLOCO_FIXO = bloco.toByteArray();
+    }
+
+    private final CharsetEncoder encoder = WIN_ANSI.newEncoder();
+    private final ByteArrayOutputStream conteudo = new ByteArrayOutputStream(4096);
+    private float yPosition;
+    private float[] colunasTabela;
+    private boolean suportado = true;
+
+    public DirectPdfWriter(String subtitulo) {
+        yPosition = PAGE_HEIGHT - MARGIN;
+        texto(true, 16, (PAGE_WIDTH - 200) / 2, yPosition, TITULO);
+        yPosition -= 25;
+        texto(false, FONT_SIZE, (PAGE_WIDTH - 200) / 2, yPosition, subtitulo);
+        yPosition -= 35;
+        texto(false, 10, MARGIN, MARGIN, "Página 1");
+    }
+
+    @Override
+    public void escreverLinha(String texto) {
+        escrever(texto, false);
+    }
+
+    @Override
+    public void escreverLinhaNegrito(String texto) {
+        escrever(texto, true);
+    }
+
+    @Override
+    public void espaco(float pontos) {
+        yPosition -= pontos;
+    }
+
+    @Override
+    public void garantirEspaco(float altura) {
+        if (yPosition - altura < BOTTOM_LIMIT) {
+            suportado = false;
+        }
+    }
+
+    @Override
+    public void iniciarTabela(float[] colunas, String... titulos) {
+        colunasTabela = colunas;
+        linhaTabela(titulos, true);
+        escreverAscii(numero(MARGIN) + " " + numero(yPosition + LINE_HEIGHT - 3) + " m "
+                + numero(PAGE_WIDTH - MARGIN) + " " + numero(yPosition + LINE_HEIGHT - 3) + " l S\n");
+        yPosition -= 3;
+    }
+
+    @Override
+    public void escreverLinhaTabela(String... valores) {
+        linhaTabela(valores, false);
+    }
+
+    @Override
+    public void encerrarTabela() {
+        colunasTabela = null;
+        espaco(10);
+    }
+
+    /**
+     * Indica se todo o conteúdo escrito até aqui coube em uma página e pode ser codificado em WinAnsi.
+     */
+    public boolean isSuportado() {
+        return suportado;
+    }
+
+    /**
+     * Monta o PDF completo, já com a assinatura visual no canto inferior direito e os metadados de assinatura.
+     *
+     * @param textoAssinatura Texto da assinatura visual.
+     * @param dataAssinatura  Data da assinatura, gravada em "SIGNATURE_DATE".
+     * @return PDF em formato byte[], ou null se o conteúdo não puder ser escrito por este writer.
+     */
+    public byte[] gerarAssinado(String textoAssinatura, String dataAssinatura) {
+        texto(true, 10, PAGE_WIDTH - MARGIN - 200, MARGIN, textoAssinatura);
+        if (!suportado) {
+            return null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(BLOCO_FIXO.length + conteudo.size() + 512);
+        try {
+            escreverDocumento(out, "<< /API_GENERATED (true) /SIGNED_BY_API (true) /SIGNATURE_DATE ("
+                    + literal(dataAssinatura) + ") >>");
+        } catch (IOException e) {
+            // ByteArrayOutputStream não lança IOException
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private void escreverDocumento(OutputStream out, String info) throws IOException {
+        int[] offsets = new int[8];
+        out.write(BLOCO_FIXO);
+        System.arraycopy(OFFSETS_FIXOS, 0, offsets, 1, OFFSETS_FIXOS.length);
+        int posicao = BLOCO_FIXO.length;
+
+        offsets[6] = posicao;
+        byte[] inicioStream = ascii("6 0 obj\n<< /Length " + conteudo.size() + " >>\nstream\n");
+        byte[] fimStream = ascii("\nendstream\nendobj\n");
+        out.write(inicioStream);
+        conteudo.writeTo(out);
+        out.write(fimStream);
+        posicao += inicioStream.length + conteudo.size() + fimStream.length;
+
+        offsets[7] = posicao;
+        byte[] objetoInfo = ascii("7 0 obj\n" + info + "\nendobj\n");
+        out.write(objetoInfo);
+        posicao += objetoInfo.length;
+
+        StringBuilder xref = new StringBuilder(256);
+        xref.append("xref\n0 8\n0000000000 65535 f \n");
+        for (int i = 1; i < offsets.length; i++) {
+            String offset = Integer.toString(offsets[i]);
+            xref.append("0000000000", offset.length(), 10).append(offset).append(" 00000 n \n");
+        }
+        xref.append("trailer\n<< /Size 8 /Root 1 0 R /Info 7 0 R >>\nstartxref\n")
+                .append(posicao).append("\n%%EOF\n");
+        out.write(ascii(xref.toString()));
+    }
+
+    private void escrever(String texto, boolean negrito) {
+        for (String linha : quebrarLinhas(texto, negrito)) {
+            if (yPosition < BOTTOM_LIMIT) {
+                suportado = false;
+                return;
+            }
+            texto(negrito, FONT_SIZE, MARGIN, yPosition, linha);
+            yPosition -= LINE_HEIGHT;
+        }
+    }
+
+    private void linhaTabela(String[] valores, boolean negrito) {
+        if (yPosition < BOTTOM_LIMIT) {
+            suportado = false;
+            return;
+        }
+        for (int i = 0; i < valores.length; i++) {
+            texto(negrito, FONT_SIZE, MARGIN + colunasTabela[i], yPosition, valores[i]);
+        }
+        yPosition -= LINE_HEIGHT;
+    }
+
+    private void texto(boolean negrito, float tamanho, float x, float y, String texto) {
+        if (!suportado) {
+            return;
+        }
+        byte[] codificado = codificar(texto);
+        if (codificado == null) {
+            suportado = false;
+            return;
+        }
+        escreverAscii("BT /" + (negrito ? "F2 " : "F1 ") + numero(tamanho) + " Tf "
+                + numero(x) + " " + numero(y) + " Td (");
+        for (byte b : codificado) {
+            // Parênteses e barra invertida precisam de escape em strings literais
+            if (b == '(' || b == ')' || b == '\\') {
+                conteudo.write('\\');
+            }
+            conteudo.write(b);
+        }
+        escreverAscii(") Tj ET\n");
+    }
+
+    private List<String> quebrarLinhas(String texto, boolean negrito) {
+        List<String> linhas = new ArrayList<>();
+        float larguraMaxima = PAGE_WIDTH - 2 * MARGIN;
+        if (largura(texto, negrito) <= larguraMaxima) {
+            linhas.add(texto);
+            return linhas;
+        }
+        StringBuilder linhaAtual = new StringBuilder();
+        for (String palavra : texto.split(" ")) {
+            String candidata = linhaAtual.length() == 0 ? palavra : linhaAtual + " " + palavra;
+            if (linhaAtual.length() > 0 && largura(candidata, negrito) > larguraMaxima) {
+                linhas.add(linhaAtual.toString());
+                linhaAtual.setLength(0);
+                linhaAtual.append(palavra);
+            } else {
+                linhaAtual.setLength(0);
+                linhaAtual.append(candidata);
+            }
+        }
+        if (linhaAtual.length() > 0) {
+            linhas.add(linhaAtual.toString());
+        }
+        return linhas;
+    }
+
+    private float largura(String texto, boolean negrito) {
+        byte[] codificado = codificar(texto);
+        if (codificado == null) {
+            suportado = false;
+            return 0;
+        }
+        float[] tabela = negrito ? LARGURAS_NEGRITO : LARGURAS;
+        float total = 0;
+        for (byte b : codificado) {
+            total += tabela[b & 0xFF];
+        }
+        return total / 1000 * FONT_SIZE;
+    }
+
+    // Retorna null se o texto tiver caracteres de controle ou fora do WinAnsi
+    private byte[] codificar(String texto) {
+        if (texto == null) {
+            texto = "null";
+        }
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) < 0x20) {
+                return null;
+            }
+        }
+        if (!encoder.canEncode(texto)) {
+            return null;
+        }
+        return texto.getBytes(WIN_ANSI);
+    }
+
+    private void escreverAscii(String texto) {
+        conteudo.writeBytes(ascii(texto));
+    }
+
+    private static byte[] ascii(String texto) {
+        return texto.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static String literal(String texto) {
+        return texto.replace("\\", "\\\\").replace("(", "\\(").replace(")", "\\)");
+    }
+
+    // Calculadas uma única vez, na inicialização da classe, a partir das métricas da fonte padrão
+    private static float[] larguras(PDType1Font fonte) {
+        float[] larguras = new float[256];
+        for (int codigo = 0x20; codigo < 256; codigo++) {
+            String caractere = new String(new byte[]{(byte) codigo}, WIN_ANSI);
+            try {
+                larguras[codigo] = fonte.getStringWidth(caractere);
+            } catch (IOException | IllegalArgumentException e) {
+                larguras[codigo] = 0;
+            }
+        }
+        return larguras;
+    }
+}
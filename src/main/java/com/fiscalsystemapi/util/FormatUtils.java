@@ -1,11 +1,27 @@
 package com.fiscalsystemapi.util;
 
 import java.math.BigDecimal;
-import java.text.NumberFormat;
-import java.util.Locale;
+import java.math.RoundingMode;
 
+/**
+ * Formatação de valores, números de processo e CPF para os relatórios, no padrão brasileiro.
+ * A saída é idêntica à de {@code NumberFormat} em pt-BR (dados CLDR: "R$", espaço não separável,
+ * ponto como separador de milhares, vírgula decimal, duas casas com arredondamento HALF_EVEN e sinal
+ * do valor original), mas montada à mão sobre os centavos em um único char[], sem criar Locale nem
+ * NumberFormat por chamada. Os métodos não guardam estado e podem ser chamados de qualquer thread;
+ * além do texto devolvido, alocam apenas o char[] de trabalho e, na moeda, um BigDecimal compacto.
+ */
 public class FormatUtils {
 
+    // "R$" seguido de espaço não separável, como no NumberFormat de pt-BR
+    private static final char[] PREFIXO_MOEDA = {'R', '$', '\u00A0'};
+    private static final char SEPARADOR_MILHAR = '.';
+    private static final char SEPARADOR_DECIMAL = ',';
+
+    // Maior quantidade de caracteres de até 18 dígitos de centavos formatados: sinal, 16 dígitos inteiros
+    // com 5 separadores de milhar, vírgula e 2 casas
+    private static final int TAMANHO_MAXIMO_LONG = 1 + 16 + 5 + 1 + 2;
+
     /**
      * Formata um valor numérico para o padrão de moeda brasileiro.
      * Se for porcentagem, formata o número com duas casas decimais e adiciona o símbolo "%".
@@ -18,15 +34,14 @@ public class FormatUtils {
         if (value == null) {
             return "";
         }
-        if (isPercent) {
-            NumberFormat numberFormat = NumberFormat.getNumberInstance(new Locale("pt", "BR"));
-            numberFormat.setMinimumFractionDigits(2);
-            numberFormat.setMaximumFractionDigits(2);
-            return numberFormat.format(value) + "%";
-        } else {
-            NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(new Locale("pt", "BR"));
-            return currencyFormat.format(value);
+        boolean negativo = value.signum() < 0;
+        BigDecimal centavos = value.setScale(2, RoundingMode.HALF_EVEN);
+        char[] prefixo = isPercent ? null : PREFIXO_MOEDA;
+        // Até 18 dígitos os centavos cabem em um long
+        if (centavos.precision() <= 18) {
+            return formatar(Math.abs(centavos.movePointRight(2).longValue()), negativo, prefixo, isPercent);
         }
+        return formatar(centavos.unscaledValue().abs().toString(), negativo, prefixo, isPercent);
     }
 
     /**
@@ -41,17 +56,19 @@ public class FormatUtils {
         if (num == null) {
             return "";
         }
-        String digits = num.replaceAll("\\D", "");
-        if (digits.length() == 20) {
-            String part1 = digits.substring(0, 7);
-            String part2 = digits.substring(7, 9);
-            String part3 = digits.substring(9, 13);
-            String part4 = digits.substring(13, 14);
-            String part5 = digits.substring(14, 16);
-            String part6 = digits.substring(16, 20);
-            return String.format("%s-%s.%s.%s.%s.%s", part1, part2, part3, part4, part5, part6);
-        }
-        return num;
+        // Dígitos nas posições 0-6, 8-9, 11-14, 16, 18-19 e 21-24; separadores nas demais
+        char[] saida = {0, 0, 0, 0, 0, 0, 0, '-', 0, 0, '.', 0, 0, 0, 0, '.', 0, '.', 0, 0, '.', 0, 0, 0, 0};
+        int digitos = 0;
+        for (int i = 0; i < num.length(); i++) {
+            char c = num.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (digitos == 20) {
+                    return num;
+                }
+                saida[posicaoCnj(digitos++)] = c;
+            }
+        }
+        return digitos == 20 ? new String(saida) : num;
     }
 
     /**
@@ -61,17 +78,107 @@ public class FormatUtils {
      * @return CPF formatado ou "CPF N/A" se o CPF estiver vazio ou nulo.
      */
     public static String formatCPF(String cpf) {
-        if (cpf == null || cpf.trim().isEmpty()) {
+        if (cpf == null || vazio(cpf)) {
             return "CPF N/A";
         }
-        String digits = cpf.replaceAll("\\D", "");
-        if (digits.length() == 11) {
-            return String.format("%s.%s.%s-%s",
-                    digits.substring(0, 3),
-                    digits.substring(3, 6),
-                    digits.substring(6, 9),
-                    digits.substring(9, 11));
+        char[] saida = {0, 0, 0, '.', 0, 0, 0, '.', 0, 0, 0, '-', 0, 0};
+        int digitos = 0;
+        for (int i = 0; i < cpf.length(); i++) {
+            char c = cpf.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (digitos == 11) {
+                    return cpf;
+                }
+                // Um separador a cada três dígitos
+                saida[digitos + digitos / 3] = c;
+                digitos++;
+            }
+        }
+        return digitos == 11 ? new String(saida) : cpf;
+    }
+
+    // Posição do n-ésimo dígito no número CNJ formatado (NNNNNNN-DD.AAAA.J.TR.OOOO)
+    private static int posicaoCnj(int digito) {
+        if (digito < 7) {
+            return digito;
+        }
+        if (digito < 9) {
+            return digito + 1;
+        }
+        if (digito < 13) {
+            return digito + 2;
+        }
+        if (digito < 14) {
+            return digito + 3;
+        }
+        if (digito < 16) {
+            return digito + 4;
+        }
+        return digito + 5;
+    }
+
+    // Equivalente a String.trim().isEmpty(), sem criar a String aparada
+    private static boolean vazio(String texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Preenche o char[] de trás para frente: casas decimais, vírgula e parte inteira com separadores de milhar
+    private static String formatar(long centavos, boolean negativo, char[] prefixo, boolean percentual) {
+        char[] saida = new char[TAMANHO_MAXIMO_LONG + PREFIXO_MOEDA.length + 1];
+        int pos = saida.length;
+        if (percentual) {
+            saida[--pos] = '%';
+        }
+        saida[--pos] = (char) ('0' + centavos % 10);
+        centavos /= 10;
+        saida[--pos] = (char) ('0' + centavos % 10);
+        centavos /= 10;
+        saida[--pos] = SEPARADOR_DECIMAL;
+        int grupo = 0;
+        do {
+            if (grupo == 3) {
+                saida[--pos] = SEPARADOR_MILHAR;
+                grupo = 0;
+            }
+            saida[--pos] = (char) ('0' + centavos % 10);
+            centavos /= 10;
+            grupo++;
+        } while (centavos > 0);
+        if (prefixo != null) {
+            pos -= prefixo.length;
+            System.arraycopy(prefixo, 0, saida, pos, prefixo.length);
+        }
+        if (negativo) {
+            saida[--pos] = '-';
+        }
+        return new String(saida, pos, saida.length - pos);
+    }
+
+    // Valores que não cabem em um long de centavos: os dígitos vêm do BigInteger
+    private static String formatar(String digitos, boolean negativo, char[] prefixo, boolean percentual) {
+        int inteiros = digitos.length() - 2;
+        StringBuilder saida = new StringBuilder(digitos.length() + inteiros / 3 + 8);
+        if (negativo) {
+            saida.append('-');
+        }
+        if (prefixo != null) {
+            saida.append(prefixo);
+        }
+        for (int i = 0; i < inteiros; i++) {
+            if (i > 0 && (inteiros - i) % 3 == 0) {
+                saida.append(SEPARADOR_MILHAR);
+            }
+            saida.append(digitos.charAt(i));
+        }
+        saida.append(SEPARADOR_DECIMAL).append(digitos, inteiros, digitos.length());
+        if (percentual) {
+            saida.append('%');
         }
-        return cpf;
+        return saida.toString();
     }
 }
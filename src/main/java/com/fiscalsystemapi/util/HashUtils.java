@@ -0,0 +1,75 @@
+package com.fiscalsystemapi.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+public class HashUtils {
+
+    // Serialização canônica: propriedades e chaves de mapas em ordem alfabética e BigDecimal sem notação científica
+    private static final ObjectMapper CANONICAL_MAPPER = JsonMapper.builder()
+            .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .enable(JsonGenerator.Feature.WRITE_BIGDECIMAL_AS_PLAIN)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .build();
+
+    /**
+     * Calcula o SHA-256 (em hexadecimal) da serialização JSON canônica das partes informadas.
+     * Objetos com o mesmo conteúdo produzem sempre o mesmo hash, independentemente da ordem
+     * em que os campos foram preenchidos. As partes são separadas por um byte nulo.
+     *
+     * @param partes Objetos que compõem a chave (DTOs, strings, números ou null).
+     * @return Hash SHA-256 em hexadecimal.
+     */
+    public static String sha256Hex(Object... partes) {
+        MessageDigest digest = newSha256();
+        try (OutputStream out = new DigestOutputStream(OutputStream.nullOutputStream(), digest)) {
+            for (Object parte : partes) {
+                CANONICAL_MAPPER.writeValue(out, parte);
+                out.write(0);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Erro ao serializar a chave canônica: " + e.getMessage(), e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Calcula o SHA-256 (em hexadecimal) de um texto em UTF-8, sem serialização JSON.
+     *
+     * @param texto Texto de entrada.
+     * @return Hash SHA-256 em hexadecimal.
+     */
+    public static String sha256HexTexto(String texto) {
+        return HexFormat.of().formatHex(newSha256().digest(texto.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Calcula o SHA-256 (em hexadecimal) de bytes brutos, sem serialização JSON.
+     *
+     * @param bytes Bytes de entrada.
+     * @return Hash SHA-256 em hexadecimal.
+     */
+    public static String sha256HexBytes(byte[] bytes) {
+        return HexFormat.of().formatHex(newSha256().digest(bytes));
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+}
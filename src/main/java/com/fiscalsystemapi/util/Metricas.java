@@ -0,0 +1,249 @@
+package com.fiscalsystemapi.util;
+
+import com.fiscalsystemapi.entity.enums.CalculationType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Métricas das etapas de cálculo, registro e geração de PDF, expostas em /actuator/prometheus.
+ * Os medidores são criados uma única vez, por tipo de cálculo, no registro global do Micrometer
+ * (ao qual o Spring Boot associa o registro do Prometheus); registrar uma medição é apenas uma
+ * consulta ao EnumMap, sem alocação por chamada. O início de cada etapa é lido com System.nanoTime().
+ */
+public final class Metricas {
+
+    // Valor da tag "tipo" nas métricas do relatório consolidado, que mistura vários tipos de cálculo
+    private static final String CONSOLIDADO = "consolidado";
+
+    private static final Map<CalculationType, Timer> CALCULO = timers("fiscal.calculo",
+            "Tempo do cálculo, sem o registro no banco");
+    private static final Map<CalculationType, Timer> PERSISTENCIA = timers("fiscal.calculo.persistencia",
+            "Tempo de gravação do registro do cálculo");
+    private static final Map<CalculationType, Timer> RENDERIZACAO = timers("fiscal.pdf.renderizacao",
+            "Tempo de geração do PDF (já assinado), sem acerto no cache");
+    // Faixa esperada dos tamanhos de PDF (e do Base64): de um relatório mínimo ao limite dos jobs de PDF
+    private static final double TAMANHO_MINIMO_BYTES = 1024;
+    private static final double TAMANHO_MAXIMO_BYTES = 256.0 * 1024 * 1024;
+
+    private static final Map<CalculationType, DistributionSummary> TAMANHO_PDF = tamanhos("fiscal.pdf.tamanho",
+            "Tamanho do PDF gerado");
+    private static final Map<CalculationType, DistributionSummary> TAMANHO_BASE64 = tamanhos("fiscal.pdf.base64.tamanho",
+            "Tamanho do PDF em Base64 devolvido na resposta");
+
+    private static final Timer RENDERIZACAO_CONSOLIDADO = timer("fiscal.pdf.renderizacao",
+            "Tempo de geração do PDF (já assinado), sem acerto no cache", CONSOLIDADO);
+    private static final DistributionSummary TAMANHO_PDF_CONSOLIDADO = tamanho("fiscal.pdf.tamanho",
+            "Tamanho do PDF gerado", CONSOLIDADO);
+    private static final DistributionSummary TAMANHO_BASE64_CONSOLIDADO = tamanho("fiscal.pdf.base64.tamanho",
+            "Tamanho do PDF em Base64 devolvido na resposta", CONSOLIDADO);
+    private static final Timer ASSINATURA = Timer.builder("fiscal.pdf.assinatura")
+            .description("Tempo de assinatura de um PDF existente")
+            .publishPercentileHistogram()
+            .register(Metrics.globalRegistry);
+
+    private static final Map<OperacaoSenha, Timer> SENHA_ESPERA = timersSenha("fiscal.auth.senha.espera",
+            "Espera na fila do pool de hash de senhas");
+    private static final Map<OperacaoSenha, Timer> SENHA_HASH = timersSenha("fiscal.auth.senha.hash",
+            "Tempo de bcrypt das operações de senha");
+
+    /**
+     * Operações do pool de hash de senhas, publicadas na tag "operacao".
+     */
+    public enum OperacaoSenha {
+        LOGIN("login"),
+        REGISTRO("registro");
+
+        private final String tag;
+
+        OperacaoSenha(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private Metricas() {
+    }
+
+    /**
+     * Registra o tempo de um cálculo iniciado em {@code inicioNanos}.
+     */
+    public static void calculo(CalculationType tipo, long inicioNanos) {
+        CALCULO.get(tipo).record(System.nanoTime() - inicioNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Registra o tempo de gravação do registro de um cálculo iniciada em {@code inicioNanos}.
+     */
+    public static void persistencia(CalculationType tipo, long inicioNanos) {
+        PERSISTENCIA.get(tipo).record(System.nanoTime() - inicioNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Registra o tempo de geração e o tamanho de um PDF. Tipo nulo indica o relatório consolidado.
+     */
+    public static void pdfGerado(CalculationType tipo, long inicioNanos, byte[] pdf) {
+        long duracao = System.nanoTime() - inicioNanos;
+        (tipo == null ? RENDERIZACAO_CONSOLIDADO : RENDERIZACAO.get(tipo)).record(duracao, TimeUnit.NANOSECONDS);
+        if (pdf != null) {
+            (tipo == null ? TAMANHO_PDF_CONSOLIDADO : TAMANHO_PDF.get(tipo)).record(pdf.length);
+        }
+    }
+
+    /**
+     * Registra o tamanho do PDF em Base64 devolvido ao cliente. Tipo nulo indica o relatório consolidado.
+     */
+    public static void base64(CalculationType tipo, String base64) {
+        (tipo == null ? TAMANHO_BASE64_CONSOLIDADO : TAMANHO_BASE64.get(tipo)).record(base64.length());
+    }
+
+    /**
+     * Registra o tempo de assinatura de um PDF existente iniciada em {@code inicioNanos}.
+     */
+    public static void assinatura(long inicioNanos) {
+        ASSINATURA.record(System.nanoTime() - inicioNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Contador das consultas ao cache compartilhado feitas após uma falta na camada local, por região e
+     * resultado. Criado uma vez por região (ver {@code CacheEmCamadas}), fora do caminho de cada consulta.
+     */
+    public static Counter cacheRemoto(String regiao, boolean acerto) {
+        return Counter.builder("fiscal.cache.remoto")
+                .description("Consultas ao cache compartilhado após falta na camada local")
+                .tag("regiao", regiao)
+                .tag("resultado", acerto ? "acerto" : "falta")
+                .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * Contador das requisições que aguardaram o resultado de uma requisição idêntica já em andamento, por
+     * endpoint. Criado uma vez por endpoint (ver {@code CoalescenciaService}).
+     */
+    public static Counter coalescidas(String endpoint) {
+        return Counter.builder("fiscal.requisicoes.coalescidas")
+                .description("Requisições idênticas atendidas pelo resultado de outra já em andamento")
+                .tag("endpoint", endpoint)
+                .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * Contador das requisições com {@code Idempotency-Key} já usada, por endpoint e resultado
+     * (repetida: respondida com a resposta gravada; conflito: outro endpoint ou corpo; em_andamento: original
+     * ainda sem resposta). Criado uma vez por endpoint e resultado (ver {@code IdempotenciaFilter}).
+     */
+    public static Counter idempotencia(String endpoint, String resultado) {
+        return Counter.builder("fiscal.requisicoes.idempotentes")
+                .description("Requisições com Idempotency-Key já usada")
+                .tag("endpoint", endpoint)
+                .tag("resultado", resultado)
+                .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * Contador das requisições recusadas com 429 pelos limites de uso, por classe de endpoint e motivo
+     * (taxa: balde de fichas do usuário vazio; concorrencia: todas as vagas de geração de PDF ocupadas).
+     * Criado uma vez por classe e motivo (ver {@code LimiteRequisicoesFilter}).
+     */
+    public static Counter requisicoesLimitadas(String classe, String motivo) {
+        return Counter.builder("fiscal.requisicoes.limitadas")
+                .description("Requisições recusadas pelos limites de uso")
+                .tag("classe", classe)
+                .tag("motivo", motivo)
+                .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * Publica a quantidade de gerações de PDF síncronas em execução e o limite configurado.
+     */
+    public static void pdfEmExecucao(Semaphore vagas, int limite) {
+        Gauge.builder("fiscal.pdf.em.execucao", vagas, semaforo -> limite - semaforo.availablePermits())
+                .description("Gerações e assinaturas de PDF síncronas em execução")
+                .register(Metrics.globalRegistry);
+        Gauge.builder("fiscal.pdf.em.execucao.limite", () -> limite)
+                .description("Limite de gerações e assinaturas de PDF síncronas simultâneas")
+                .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * Registra o tempo que uma operação de senha aguardou na fila do pool de bcrypt, por operação
+     * (login ou registro).
+     */
+    public static void senhaEspera(OperacaoSenha operacao, long nanos) {
+        SENHA_ESPERA.get(operacao).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Registra o tempo de bcrypt de uma operação de senha, por operação; no login inclui o novo hash
+     * quando o custo gravado é menor que o atual.
+     */
+    public static void senhaHash(OperacaoSenha operacao, long nanos) {
+        SENHA_HASH.get(operacao).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Conta uma exceção tratada apenas com registro no log, por classe de origem e tipo da exceção.
+     */
+    public static void erroIgnorado(Class<?> origem, Throwable erro) {
+        Counter.builder("fiscal.erros.ignorados")
+                .description("Exceções capturadas e apenas registradas no log")
+                .tag("origem", origem.getSimpleName())
+                .tag("excecao", erro.getClass().getSimpleName())
+                .register(Metrics.globalRegistry)
+                .increment();
+    }
+
+    private static Map<CalculationType, Timer> timers(String nome, String descricao) {
+        Map<CalculationType, Timer> timers = new EnumMap<>(CalculationType.class);
+        for (CalculationType tipo : CalculationType.values()) {
+            timers.put(tipo, timer(nome, descricao, tipo.getType()));
+        }
+        return timers;
+    }
+
+    private static Timer timer(String nome, String descricao, String tipo) {
+        return Timer.builder(nome)
+                .description(descricao)
+                .tag("tipo", tipo)
+                .publishPercentileHistogram()
+                .register(Metrics.globalRegistry);
+    }
+
+    private static Map<OperacaoSenha, Timer> timersSenha(String nome, String descricao) {
+        Map<OperacaoSenha, Timer> timers = new EnumMap<>(OperacaoSenha.class);
+        for (OperacaoSenha operacao : OperacaoSenha.values()) {
+            timers.put(operacao, Timer.builder(nome)
+                    .description(descricao)
+                    .tag("operacao", operacao.tag)
+                    .publishPercentileHistogram()
+                    .register(Metrics.globalRegistry));
+        }
+        return timers;
+    }
+
+    private static Map<CalculationType, DistributionSummary> tamanhos(String nome, String descricao) {
+        Map<CalculationType, DistributionSummary> tamanhos = new EnumMap<>(CalculationType.class);
+        for (CalculationType tipo : CalculationType.values()) {
+            tamanhos.put(tipo, tamanho(nome, descricao, tipo.getType()));
+        }
+        return tamanhos;
+    }
+
+    private static DistributionSummary tamanho(String nome, String descricao, String tipo) {
+        return DistributionSummary.builder(nome)
+                .description(descricao)
+                .baseUnit("bytes")
+                .tag("tipo", tipo)
+                .publishPercentileHistogram()
+                // Sem a faixa esperada o histograma vai de 1 byte a Long.MAX_VALUE, com centenas de buckets vazios
+                .minimumExpectedValue(TAMANHO_MINIMO_BYTES)
+                .maximumExpectedValue(TAMANHO_MAXIMO_BYTES)
+                .register(Metrics.globalRegistry);
+    }
+}
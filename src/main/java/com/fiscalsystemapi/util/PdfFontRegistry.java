@@ -0,0 +1,152 @@
+package com.fiscalsystemapi.util;
+
+import org.apache.fontbox.ttf.CmapLookup;
+import org.apache.fontbox.ttf.TTFParser;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Fontes TrueType (DejaVu Sans normal e negrito) usadas nos relatórios em PDF.
+ * Os arquivos são lidos e analisados uma única vez, na primeira utilização, e os dados resultantes
+ * são compartilhados por todas as threads. Cada documento recebe apenas o subconjunto de glifos
+ * que de fato utilizou. As larguras dos caracteres são mantidas em tabela para medir textos
+ * sem consultar a fonte.
+ * <p>
+ * O compartilhamento do {@link TrueTypeFont} entre threads é seguro na versão do FontBox em uso (2.0.x):
+ * a fonte é analisada a partir de um fluxo em memória, as leituras de tabelas e de glifos sincronizam
+ * no fluxo da fonte, o subconjunto copia os glifos de uma cópia independente dos bytes originais e o
+ * {@code close()} chamado ao fim do subconjunto não libera nada nesse fluxo. As tabelas são lidas
+ * antecipadamente, então os documentos concorrentes só consultam dados já carregados.
+ * {@code PdfFontRegistryTest} verifica que subconjuntos gerados em paralelo são idênticos aos sequenciais.
+ */
+public class PdfFontRegistry {
+
+    private static final String REGULAR = "/fonts/DejaVuSans.ttf";
+    private static final String NEGRITO = "/fonts/DejaVuSans-Bold.ttf";
+
+    // Caractere usado no lugar daqueles que a fonte não possui
+    private static final char SUBSTITUTO = '?';
+
+    private static final Fonte FONTE_REGULAR = new Fonte(REGULAR);
+    private static final Fonte FONTE_NEGRITO = new Fonte(NEGRITO);
+
+    private PdfFontRegistry() {
+    }
+
+    /**
+     * Garante que as fontes já foram carregadas. Chamar durante a inicialização evita que
+     * a primeira requisição pague o custo da análise dos arquivos.
+     */
+    public static void carregar() {
+        // A inicialização estática da classe já carrega as duas fontes
+    }
+
+    /**
+     * Fonte normal para o documento informado, com incorporação apenas dos glifos usados.
+     */
+    public static PDFont regular(PDDocument document) throws IOException {
+        return FONTE_REGULAR.carregar(document);
+    }
+
+    /**
+     * Fonte em negrito para o documento informado, com incorporação apenas dos glifos usados.
+     */
+    public static PDFont negrito(PDDocument document) throws IOException {
+        return FONTE_NEGRITO.carregar(document);
+    }
+
+    /**
+     * Largura do texto, em pontos, no tamanho informado.
+     */
+    public static float largura(String texto, boolean negrito, float tamanho) {
+        return (negrito ? FONTE_NEGRITO : FONTE_REGULAR).largura(texto) * tamanho / 1000;
+    }
+
+    /**
+     * Identificador do glifo do caractere na fonte, usado como CID no texto codificado em Identity-H.
+     * O caractere deve ter passado por {@link #normalizar(String)}.
+     */
+    public static int glifo(char c, boolean negrito) {
+        return (negrito ? FONTE_NEGRITO : FONTE_REGULAR).glifos[c];
+    }
+
+    /**
+     * Substitui os caracteres que não existem na fonte (nem normal nem negrito) por "?",
+     * evitando erro na escrita do texto no PDF.
+     */
+    public static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        StringBuilder resultado = null;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (!FONTE_REGULAR.possui(c) || !FONTE_NEGRITO.possui(c)) {
+                if (resultado == null) {
+                    resultado = new StringBuilder(texto.length());
+                    resultado.append(texto, 0, i);
+                }
+                resultado.append(SUBSTITUTO);
+            } else if (resultado != null) {
+                resultado.append(c);
+            }
+        }
+        return resultado == null ? texto : resultado.toString();
+    }
+
+    // Fonte analisada e tabelas de glifos e larguras (em milésimos do tamanho) dos caracteres do plano básico
+    private static final class Fonte {
+        private final TrueTypeFont ttf;
+        private final float[] larguras = new float[Character.MAX_VALUE + 1];
+        private final char[] glifos = new char[Character.MAX_VALUE + 1];
+
+        Fonte(String recurso) {
+            try (InputStream in = PdfFontRegistry.class.getResourceAsStream(recurso)) {
+                if (in == null) {
+                    throw new IOException("Fonte não encontrada: " + recurso);
+                }
+                ttf = new TTFParser().parse(in);
+                CmapLookup cmap = ttf.getUnicodeCmapLookup();
+                float escala = 1000f / ttf.getUnitsPerEm();
+                for (int c = 0; c <= Character.MAX_VALUE; c++) {
+                    int gid = cmap.getGlyphId(c);
+                    // Largura negativa marca caractere sem glifo na fonte
+                    larguras[c] = gid == 0 ? -1 : ttf.getAdvanceWidth(gid) * escala;
+                    glifos[c] = (char) gid;
+                }
+                // Lê antecipadamente as tabelas usadas na geração do subconjunto, para que os
+                // documentos concorrentes apenas consultem dados já carregados
+                ttf.getGlyph();
+                ttf.getHorizontalMetrics();
+                ttf.getPostScript();
+                ttf.getNaming();
+                ttf.getOS2Windows();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Erro ao carregar a fonte " + recurso, e);
+            }
+        }
+
+        PDFont carregar(PDDocument document) throws IOException {
+            return PDType0Font.load(document, ttf, true);
+        }
+
+        boolean possui(char c) {
+            return larguras[c] >= 0;
+        }
+
+        float largura(String texto) {
+            float total = 0;
+            for (int i = 0; i < texto.length(); i++) {
+                float largura = larguras[texto.charAt(i)];
+                total += largura >= 0 ? largura : larguras[SUBSTITUTO];
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.fiscalsystemapi.util;
+
+import com.fiscalsystemapi.entity.enums.CalculationType;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento do JDK Flight Recorder emitido a cada geração de relatório em PDF. Desabilitado por padrão
+ * (ver {@link CalculoJfrEvent}).
+ */
+@Name("com.fiscalsystemapi.GeracaoPdf")
+@Label("Geração de PDF")
+@Description("Geração de relatório em PDF, com o tipo de cálculo, o número de páginas e o tamanho do arquivo")
+@Category({"FiscalSystem", "PDF"})
+@Enabled(false)
+@StackTrace(false)
+public class PdfJfrEvent extends Event {
+
+    @Label("Tipo")
+    @Description("Tipo de cálculo, ou \"consolidado\" para o relatório com vários cálculos")
+    private String tipo;
+
+    @Label("Páginas")
+    @Description("Número de páginas (0 quando o PDF veio do cache)")
+    private int paginas;
+
+    @Label("Tamanho")
+    @DataAmount
+    private long tamanho;
+
+    @Label("Cache")
+    @Description("PDF devolvido do cache, sem geração")
+    private boolean cache;
+
+    /**
+     * Encerra o evento iniciado com {@link #begin()} e o grava, se estiver habilitado.
+     * Tipo nulo indica o relatório consolidado.
+     */
+    public void registrar(CalculationType tipo, int paginas, byte[] pdf, boolean cache) {
+        end();
+        if (shouldCommit()) {
+            this.tipo = tipo == null ? "consolidado" : tipo.getType();
+            this.paginas = paginas;
+            this.tamanho = pdf == null ? 0 : pdf.length;
+            this.cache = cache;
+            commit();
+        }
+    }
+}
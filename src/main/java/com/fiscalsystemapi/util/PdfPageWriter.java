@@ -0,0 +1,531 @@
+package com.fiscalsystemapi.util;
+
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDDocumentInformation;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Escreve relatórios de texto em páginas A4, quebrando linhas longas e criando novas páginas
+ * sempre que o conteúdo atinge a margem inferior. Cada página recebe o mesmo cabeçalho
+ * (título e subtítulo) e o número da página no rodapé.
+ * As fontes vêm do {@link PdfFontRegistry} e são compartilhadas por todas as páginas do documento.
+ * <p>
+ * Durante a diagramação a página atual guarda apenas a lista de textos e traços com a sua posição.
+ * Quando a página termina, o seu content stream é gerado e comprimido e a página entra no documento,
+ * na ordem original, sem esperar o fim do relatório. Nos relatórios longos as páginas concluídas são
+ * renderizadas em paralelo em um pool próprio e limitado, com no máximo {@code JANELA} páginas em
+ * andamento por documento; as listas de operações das páginas já gravadas são descartadas. Se
+ * {@link #assinar} tiver sido chamado, o {@link #close()} acrescenta a todas as páginas um único
+ * content stream com o carimbo de assinatura, sem que o PDF precise ser reaberto.
+ */
+public class PdfPageWriter implements RelatorioWriter, Closeable {
+
+    public static final float MARGIN = 20;
+    public static final float LINE_HEIGHT = 15;
+    public static final float FONT_SIZE = 12;
+
+    // Abaixo desta altura ficam o número da página e o carimbo de assinatura
+    private static final float BOTTOM_LIMIT = 50;
+    private static final String TITULO = "RELATÓRIO OFICIAL";
+
+    // Acima deste tamanho os content streams passam a ser mantidos em arquivo temporário
+    private static final long MAX_MAIN_MEMORY_BYTES = 16L * 1024 * 1024;
+
+    // As primeiras páginas são renderizadas na própria thread: relatórios curtos não pagam a troca de thread
+    private static final int PAGINAS_SEQUENCIAIS = 8;
+    private static final int WORKERS = Runtime.getRuntime().availableProcessors();
+    // Páginas renderizadas em paralelo e ainda não gravadas no documento, por documento
+    private static final int JANELA = Math.max(2, WORKERS * 2);
+
+    private static final byte[] FONTE_REGULAR = ascii("/F1 ");
+    private static final byte[] FONTE_NEGRITO = ascii("/F2 ");
+
+    private final PDDocument document;
+    private final String subtitulo;
+    private final PDFont fonte;
+    private final PDFont fonteNegrito;
+    private final float pageWidth = PDRectangle.A4.getWidth();
+    private final float pageHeight = PDRectangle.A4.getHeight();
+    private final Executor executor;
+    // Os recursos (fontes) são os mesmos para todas as páginas
+    private final PDResources resources = new PDResources();
+
+    private List<Operacao> paginaAtual;
+    private int totalPaginas;
+    // Páginas em renderização no pool, na ordem em que devem entrar no documento
+    private final Deque<CompletableFuture<byte[]>> pendentes = new ArrayDeque<>();
+    // Content streams das páginas já gravadas, que recebem o carimbo de assinatura no fechamento
+    private final List<PaginaGravada> gravadas = new ArrayList<>();
+    private IOException erro;
+    // Caracteres usados em cada fonte, para montar o subconjunto incorporado
+    private final BitSet usadosRegular = new BitSet();
+    private final BitSet usadosNegrito = new BitSet();
+
+    // Cabeçalho da tabela em andamento, repetido no topo de cada nova página
+    private float[] colunasTabela;
+    private String[] titulosTabela;
+    private float yPosition;
+    private String textoAssinatura;
+    private boolean fechado;
+
+    public PdfPageWriter(PDDocument document, String subtitulo) throws IOException {
+        // Com um único núcleo a renderização em paralelo só acrescentaria a troca de thread
+        this(document, subtitulo, WORKERS > 1 ? Renderizacao.EXECUTOR : null);
+    }
+
+    /**
+     * @param executor Executor das páginas renderizadas em paralelo; null renderiza todas na própria thread.
+     */
+    public PdfPageWriter(PDDocument document, String subtitulo, Executor executor) throws IOException {
+        this.document = document;
+        this.subtitulo = subtitulo;
+        this.executor = executor;
+        this.fonte = PdfFontRegistry.regular(document);
+        this.fonteNegrito = PdfFontRegistry.negrito(document);
+        resources.put(COSName.getPDFName("F1"), fonte);
+        resources.put(COSName.getPDFName("F2"), fonteNegrito);
+        novaPagina();
+    }
+
+    /**
+     * Cria um documento já marcado com o metadado "API_GENERATED", exigido para a assinatura.
+     * A memória usada pelos content streams é limitada, o que permite relatórios com muitas páginas.
+     */
+    public static PDDocument novoDocumento() {
+        PDDocument document = new PDDocument(MemoryUsageSetting.setupMixed(MAX_MAIN_MEMORY_BYTES));
+        PDDocumentInformation info = document.getDocumentInformation();
+        info.setCustomMetadataValue("API_GENERATED", "true");
+        document.setDocumentInformation(info);
+        return document;
+    }
+
+    /**
+     * Salva o documento, fecha-o e retorna os bytes; retorna null se ocorrer erro.
+     */
+    public static byte[] salvar(PDDocument document) {
+        byte[] pdfBytes = null;
+        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+            document.save(baos);
+            pdfBytes = baos.toByteArray();
+        } catch (IOException e) {
+            e.printStackTrace();
+            Metricas.erroIgnorado(PdfPageWriter.class, e);
+        } finally {
+            try {
+                document.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+                Metricas.erroIgnorado(PdfPageWriter.class, e);
+            }
+        }
+        return pdfBytes;
+    }
+
+    /**
+     * Escreve uma linha de texto na fonte normal, quebrando-a se ultrapassar a largura útil da página.
+     */
+    @Override
+    public void escreverLinha(String texto) {
+        escrever(texto, false);
+    }
+
+    /**
+     * Escreve uma linha de texto em negrito, quebrando-a se ultrapassar a largura útil da página.
+     */
+    @Override
+    public void escreverLinhaNegrito(String texto) {
+        escrever(texto, true);
+    }
+
+    /**
+     * Inicia uma tabela: escreve a linha de títulos em negrito e passa a repeti-la no topo
+     * de cada nova página até que {@link #encerrarTabela()} seja chamado.
+     *
+     * @param colunas Posição horizontal de cada coluna, relativa à margem esquerda.
+     * @param titulos Título de cada coluna.
+     */
+    @Override
+    public void iniciarTabela(float[] colunas, String... titulos) {
+        garantirEspaco(3 * LINE_HEIGHT);
+        this.colunasTabela = colunas;
+        this.titulosTabela = titulos;
+        escreverCabecalhoTabela();
+    }
+
+    /**
+     * Escreve uma linha da tabela em andamento, abrindo uma nova página ao atingir a margem inferior.
+     */
+    @Override
+    public void escreverLinhaTabela(String... valores) {
+        if (yPosition < BOTTOM_LIMIT) {
+            novaPagina();
+        }
+        escreverColunas(valores, false);
+    }
+
+    /**
+     * Encerra a tabela em andamento; as próximas páginas não repetem mais o seu cabeçalho.
+     */
+    @Override
+    public void encerrarTabela() {
+        colunasTabela = null;
+        titulosTabela = null;
+        espaco(10);
+    }
+
+    /**
+     * Avança a posição vertical sem escrever nada.
+     */
+    @Override
+    public void espaco(float pontos) {
+        yPosition -= pontos;
+    }
+
+    /**
+     * Inicia uma nova página se não houver pelo menos a altura informada disponível na página atual.
+     * Útil para não separar o título de um bloco do seu conteúdo.
+     */
+    @Override
+    public void garantirEspaco(float altura) {
+        if (yPosition - altura < BOTTOM_LIMIT) {
+            novaPagina();
+        }
+    }
+
+    /**
+     * Largura útil da página (descontadas as margens).
+     */
+    public float larguraUtil() {
+        return pageWidth - 2 * MARGIN;
+    }
+
+    /**
+     * Inclui o carimbo de assinatura no canto inferior direito de todas as páginas e grava os metadados
+     * "SIGNED_BY_API" e "SIGNATURE_DATE", com o mesmo resultado do {@code PdfSignatureService}.
+     *
+     * @param texto          Texto da assinatura visual.
+     * @param dataAssinatura Data da assinatura, gravada em "SIGNATURE_DATE".
+     */
+    public void assinar(String texto, String dataAssinatura) {
+        this.textoAssinatura = PdfFontRegistry.normalizar(texto);
+        marcarUsados(textoAssinatura, true);
+        PDDocumentInformation info = document.getDocumentInformation();
+        info.setCustomMetadataValue("SIGNED_BY_API", "true");
+        info.setCustomMetadataValue("SIGNATURE_DATE", dataAssinatura);
+        document.setDocumentInformation(info);
+    }
+
+    /**
+     * Grava a última página, aguarda as páginas ainda em renderização e aplica o carimbo de assinatura.
+     *
+     * @throws IOException Se a renderização ou a gravação de alguma página tiver falhado.
+     */
+    @Override
+    public void close() throws IOException {
+        if (fechado) {
+            return;
+        }
+        fechado = true;
+
+        concluirPagina(paginaAtual);
+        paginaAtual = null;
+        try {
+            while (erro == null && !pendentes.isEmpty()) {
+                gravar(aguardar(pendentes.poll()));
+            }
+        } catch (IOException e) {
+            erro = e;
+        }
+        if (erro != null) {
+            // As páginas ainda pendentes não serão usadas
+            for (CompletableFuture<byte[]> pendente : pendentes) {
+                pendente.cancel(true);
+            }
+            pendentes.clear();
+            throw erro;
+        }
+
+        if (textoAssinatura != null) {
+            // Um único stream com o carimbo, referenciado por todas as páginas depois do conteúdo de cada uma
+            PDStream carimbo = criarStream(renderizar(List.of(
+                    new Texto(true, 10, pageWidth - MARGIN - 200, MARGIN, textoAssinatura))));
+            for (PaginaGravada gravada : gravadas) {
+                gravada.pagina().setContents(List.of(gravada.conteudo(), carimbo));
+            }
+        }
+
+        adicionarAoSubconjunto(fonte, usadosRegular);
+        adicionarAoSubconjunto(fonteNegrito, usadosNegrito);
+    }
+
+    /**
+     * Formata números com no máximo duas casas decimais, sem notação científica,
+     * como esperado pelos operadores do content stream.
+     */
+    static String numero(float valor) {
+        long centesimos = Math.round(valor * 100);
+        if (centesimos % 100 == 0) {
+            return Long.toString(centesimos / 100);
+        }
+        return Float.toString(centesimos / 100f);
+    }
+
+    private void escrever(String texto, boolean negrito) {
+        for (String linha : quebrarLinhas(PdfFontRegistry.normalizar(texto), negrito)) {
+            if (yPosition < BOTTOM_LIMIT) {
+                novaPagina();
+            }
+            adicionarTexto(negrito, FONT_SIZE, MARGIN, yPosition, linha);
+            yPosition -= LINE_HEIGHT;
+        }
+    }
+
+    private void escreverColunas(String[] valores, boolean negrito) {
+        for (int i = 0; i < valores.length; i++) {
+            adicionarTexto(negrito, FONT_SIZE, MARGIN + colunasTabela[i], yPosition,
+                    PdfFontRegistry.normalizar(valores[i]));
+        }
+        yPosition -= LINE_HEIGHT;
+    }
+
+    private void escreverCabecalhoTabela() {
+        escreverColunas(titulosTabela, true);
+        float y = yPosition + LINE_HEIGHT - 3;
+        paginaAtual.add(new Traco(MARGIN, y, pageWidth - MARGIN, y));
+        yPosition -= 3;
+    }
+
+    private List<String> quebrarLinhas(String texto, boolean negrito) {
+        List<String> linhas = new ArrayList<>();
+        float larguraMaxima = larguraUtil();
+        if (largura(texto, negrito) <= larguraMaxima) {
+            linhas.add(texto);
+            return linhas;
+        }
+        StringBuilder linhaAtual = new StringBuilder();
+        for (String palavra : texto.split(" ")) {
+            String candidata = linhaAtual.length() == 0 ? palavra : linhaAtual + " " + palavra;
+            if (linhaAtual.length() > 0 && largura(candidata, negrito) > larguraMaxima) {
+                linhas.add(linhaAtual.toString());
+                linhaAtual.setLength(0);
+                linhaAtual.append(palavra);
+            } else {
+                linhaAtual.setLength(0);
+                linhaAtual.append(candidata);
+            }
+        }
+        if (linhaAtual.length() > 0) {
+            linhas.add(linhaAtual.toString());
+        }
+        return linhas;
+    }
+
+    private float largura(String texto, boolean negrito) {
+        return PdfFontRegistry.largura(texto, negrito, FONT_SIZE);
+    }
+
+    private void novaPagina() {
+        if (paginaAtual != null) {
+            concluirPagina(paginaAtual);
+        }
+        paginaAtual = new ArrayList<>();
+        totalPaginas++;
+        yPosition = pageHeight - MARGIN;
+        escreverCabecalho();
+        escreverRodape();
+        if (colunasTabela != null) {
+            escreverCabecalhoTabela();
+        }
+    }
+
+    // Cabeçalho repetido em todas as páginas: título principal e subtítulo centralizados
+    private void escreverCabecalho() {
+        adicionarTexto(true, 16, (pageWidth - 200) / 2, yPosition, TITULO);
+        yPosition -= 25;
+        adicionarTexto(false, FONT_SIZE, (pageWidth - 200) / 2, yPosition, PdfFontRegistry.normalizar(subtitulo));
+        yPosition -= 35;
+    }
+
+    // Número da página no canto inferior esquerdo (o canto direito fica para a assinatura)
+    private void escreverRodape() {
+        adicionarTexto(false, 10, MARGIN, MARGIN, "Página " + totalPaginas);
+    }
+
+    private void adicionarTexto(boolean negrito, float tamanho, float x, float y, String texto) {
+        marcarUsados(texto, negrito);
+        paginaAtual.add(new Texto(negrito, tamanho, x, y, texto));
+    }
+
+    private void marcarUsados(String texto, boolean negrito) {
+        BitSet usados = negrito ? usadosNegrito : usadosRegular;
+        for (int i = 0; i < texto.length(); i++) {
+            usados.set(texto.charAt(i));
+        }
+    }
+
+    // Página terminada: grava na própria thread ou envia ao pool; um erro é guardado e relançado no close()
+    private void concluirPagina(List<Operacao> operacoes) {
+        if (erro != null) {
+            return;
+        }
+        try {
+            if (executor == null || totalPaginas <= PAGINAS_SEQUENCIAIS) {
+                gravar(renderizar(operacoes));
+                return;
+            }
+            pendentes.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return renderizar(operacoes);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, executor));
+            // Limita as páginas em memória: a mais antiga é gravada antes de diagramar mais uma
+            while (pendentes.size() > JANELA) {
+                gravar(aguardar(pendentes.poll()));
+            }
+        } catch (IOException e) {
+            erro = e;
+        }
+    }
+
+    private static byte[] aguardar(CompletableFuture<byte[]> pendente) throws IOException {
+        try {
+            return pendente.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Renderização das páginas interrompida.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException causa) {
+                throw causa.getCause();
+            }
+            throw new IOException("Erro ao renderizar a página: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private void gravar(byte[] conteudo) throws IOException {
+        PDPage page = new PDPage(PDRectangle.A4);
+        page.setResources(resources);
+        PDStream stream = criarStream(conteudo);
+        page.setContents(stream);
+        document.addPage(page);
+        gravadas.add(new PaginaGravada(page, stream));
+    }
+
+    private PDStream criarStream(byte[] conteudo) throws IOException {
+        COSStream stream = document.getDocument().createCOSStream();
+        try (OutputStream out = stream.createRawOutputStream()) {
+            out.write(conteudo);
+        }
+        stream.setItem(COSName.FILTER, COSName.FLATE_DECODE);
+        return new PDStream(stream);
+    }
+
+    // Executado em paralelo: lê apenas as operações diagramadas e as tabelas do registro de fontes
+    private static byte[] renderizar(List<Operacao> operacoes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(2048);
+        Deflater deflater = new Deflater();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(bytes, deflater, 4096)) {
+            for (Operacao operacao : operacoes) {
+                operacao.escrever(out);
+            }
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    // Informa ao PDFBox os caracteres usados, já que o texto não passa pelo showText
+    private static void adicionarAoSubconjunto(PDFont font, BitSet usados) {
+        PDType0Font type0 = (PDType0Font) font;
+        for (int c = usados.nextSetBit(0); c >= 0; c = usados.nextSetBit(c + 1)) {
+            type0.addToSubset(c);
+        }
+    }
+
+    private static byte[] ascii(String texto) {
+        return texto.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    // Pool da renderização em paralelo, compartilhado pelos documentos e criado só no primeiro uso. A fila é
+    // limitada; com ela cheia a própria thread do documento renderiza a página
+    private static final class Renderizacao {
+        private static final ThreadPoolExecutor EXECUTOR;
+
+        static {
+            AtomicInteger contador = new AtomicInteger();
+            EXECUTOR = new ThreadPoolExecutor(WORKERS, WORKERS, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(WORKERS * JANELA),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "pdf-paginas-" + contador.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+    }
+
+    private record PaginaGravada(PDPage pagina, PDStream conteudo) {
+    }
+
+    private interface Operacao {
+        void escrever(OutputStream out) throws IOException;
+    }
+
+    // Texto já normalizado, escrito em Identity-H: cada caractere vira o identificador do glifo em 2 bytes
+    private record Texto(boolean negrito, float tamanho, float x, float y, String texto) implements Operacao {
+        private static final byte[] HEX = ascii("0123456789ABCDEF");
+
+        @Override
+        public void escrever(OutputStream out) throws IOException {
+            out.write(ascii("BT "));
+            out.write(negrito ? FONTE_NEGRITO : FONTE_REGULAR);
+            out.write(ascii(numero(tamanho) + " Tf " + numero(x) + " " + numero(y) + " Td <"));
+            for (int i = 0; i < texto.length(); i++) {
+                int glifo = PdfFontRegistry.glifo(texto.charAt(i), negrito);
+                out.write(HEX[(glifo >> 12) & 0xF]);
+                out.write(HEX[(glifo >> 8) & 0xF]);
+                out.write(HEX[(glifo >> 4) & 0xF]);
+                out.write(HEX[glifo & 0xF]);
+            }
+            out.write(ascii("> Tj ET\n"));
+        }
+    }
+
+    private record Traco(float x1, float y1, float x2, float y2) implements Operacao {
+        @Override
+        public void escrever(OutputStream out) throws IOException {
+            out.write(ascii(numero(x1) + " " + numero(y1) + " m " + numero(x2) + " " + numero(y2) + " l S\n"));
+        }
+    }
+}
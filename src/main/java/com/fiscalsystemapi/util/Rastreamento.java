@@ -0,0 +1,73 @@
+package com.fiscalsystemapi.util;
+
+import com.fiscalsystemapi.entity.enums.CalculationType;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+/**
+ * Spans das etapas de uma requisição (validação do JWT, consulta do usuário, cálculo, registro,
+ * geração e assinatura do PDF, codificação em Base64), criados pela Observation API do Micrometer
+ * e exportados no padrão OpenTelemetry. O registro de observações é definido na subida por
+ * {@code RastreamentoConfig}; até lá, e fora do Spring, as etapas não registram nada.
+ * <p>
+ * Os nomes ficam sob {@code fiscal.span.*}: o registro de observações também gera um timer por etapa,
+ * com a tag {@code error}, que não pode ter o nome dos timers de {@link Metricas}. Uma exceção lançada
+ * pelo trecho marca o span com o erro antes de ser repassada.
+ *
+ * <pre>
+ * byte[] pdf = Rastreamento.etapa("fiscal.span.pdf.geracao", CalculationType.FEPA, () -> gerar(resultado, dados));
+ * </pre>
+ */
+public final class Rastreamento {
+
+    private static volatile ObservationRegistry registro = ObservationRegistry.NOOP;
+
+    private Rastreamento() {
+    }
+
+    /**
+     * Define o registro de observações usado pelas etapas.
+     */
+    public static void configurar(ObservationRegistry novoRegistro) {
+        registro = novoRegistro;
+    }
+
+    /**
+     * Executa o trecho em uma etapa, filha do span corrente.
+     */
+    public static <T, E extends Exception> T etapa(String nome, Trecho<T, E> trecho) throws E {
+        return executar(Observation.createNotStarted(nome, registro), trecho);
+    }
+
+    /**
+     * Executa o trecho em uma etapa com a tag "tipo" do cálculo. Tipo nulo indica o relatório consolidado.
+     */
+    public static <T, E extends Exception> T etapa(String nome, CalculationType tipo, Trecho<T, E> trecho) throws E {
+        Observation observacao = Observation.createNotStarted(nome, registro)
+                .lowCardinalityKeyValue("tipo", tipo == null ? "consolidado" : tipo.getType());
+        return executar(observacao, trecho);
+    }
+
+    // O span fica corrente na thread enquanto o trecho executa
+    private static <T, E extends Exception> T executar(Observation observacao, Trecho<T, E> trecho) throws E {
+        observacao.start();
+        Observation.Scope escopo = observacao.openScope();
+        try {
+            return trecho.executar();
+        } catch (Throwable erro) {
+            observacao.error(erro);
+            throw erro;
+        } finally {
+            escopo.close();
+            observacao.stop();
+        }
+    }
+
+    /**
+     * Trecho executado dentro de uma etapa.
+     */
+    @FunctionalInterface
+    public interface Trecho<T, E extends Exception> {
+        T executar() throws E;
+    }
+}
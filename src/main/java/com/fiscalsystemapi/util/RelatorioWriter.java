@@ -0,0 +1,66 @@
+package com.fiscalsystemapi.util;
+
+import com.fiscalsystemapi.dto.ProcessData;
+
+import java.io.IOException;
+
+/**
+ * Operações usadas pelos serviços de PDF para escrever o conteúdo dos relatórios,
+ * independentemente de como o documento é montado.
+ *
+ * @see PdfPageWriter
+ * @see DirectPdfWriter
+ */
+public interface RelatorioWriter {
+
+    /**
+     * Escreve uma linha de texto na fonte normal, quebrando-a se ultrapassar a largura útil da página.
+     */
+    void escreverLinha(String texto) throws IOException;
+
+    /**
+     * Escreve uma linha de texto em negrito, quebrando-a se ultrapassar a largura útil da página.
+     */
+    void escreverLinhaNegrito(String texto) throws IOException;
+
+    /**
+     * Avança a posição vertical sem escrever nada.
+     */
+    void espaco(float pontos);
+
+    /**
+     * Garante que haja pelo menos a altura informada disponível na página atual.
+     * Útil para não separar o título de um bloco do seu conteúdo.
+     */
+    void garantirEspaco(float altura) throws IOException;
+
+    /**
+     * Inicia uma tabela, escrevendo a linha de títulos das colunas.
+     *
+     * @param colunas Posição horizontal de cada coluna, relativa à margem esquerda.
+     * @param titulos Título de cada coluna.
+     */
+    void iniciarTabela(float[] colunas, String... titulos) throws IOException;
+
+    /**
+     * Escreve uma linha da tabela em andamento.
+     */
+    void escreverLinhaTabela(String... valores) throws IOException;
+
+    /**
+     * Encerra a tabela em andamento.
+     */
+    void encerrarTabela();
+
+    /**
+     * Escreve o bloco "Dados do Processo", comum a todos os relatórios.
+     */
+    default void escreverDadosProcesso(ProcessData dados) throws IOException {
+        garantirEspaco(4 * PdfPageWriter.LINE_HEIGHT);
+        escreverLinhaNegrito("Dados do Processo:");
+        escreverLinha("Número do Processo: " + dados.getNumProcesso());
+        escreverLinha("Nome da parte autora: " + dados.getNomeParteAutora());
+        escreverLinha("Nome da parte ré: " + dados.getNomeParteRe());
+        espaco(20);
+    }
+}
@@ -2,9 +2,14 @@ package com.fiscalsystemapi.util;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.YearMonth;
 
 public class TaxCalculationUtils {
 
+    // Versão das tabelas de cálculo (faixas, alíquotas e deduções deste arquivo e alíquotas de PJ em CalculoPjService).
+    // Deve ser incrementada sempre que alguma delas mudar: faz parte da chave do cache de resultados de cálculo
+    public static final String VERSAO_TABELAS = "2024.1";
+
     // Limites para as faixas progressivas
     public static final BigDecimal LIMITE1 = new BigDecimal("2259.20");
     public static final BigDecimal LIMITE2 = new BigDecimal("2826.65");
@@ -24,6 +29,11 @@ public class TaxCalculationUtils {
     public static final BigDecimal ALIQUOTA4 = new BigDecimal("0.275");
     public static final BigDecimal DEDUCAO4 = new BigDecimal("896");
 
+    // Alíquotas do FEPA: 11% até 02/2020 e 7,5% a partir de 03/2020
+    public static final BigDecimal ALIQUOTA_FEPA_ANTERIOR = new BigDecimal("0.11");
+    public static final BigDecimal ALIQUOTA_FEPA_ATUAL = new BigDecimal("0.075");
+    public static final YearMonth INICIO_ALIQUOTA_FEPA_ATUAL = YearMonth.of(2020, 3);
+
     /**
      * Calcula o imposto progressivo com base na base informada.
      * Esse método é utilizado em cálculos de honorários, RRA e FEPA.
@@ -60,4 +70,25 @@ public class TaxCalculationUtils {
         }
         return BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP);
     }
+
+    /**
+     * Alíquota do FEPA aplicável à competência informada.
+     *
+     * @param competencia Mês e ano de referência.
+     * @return 11% se a competência for anterior a 03/2020; caso contrário, 7,5%.
+     */
+    public static BigDecimal aliquotaFepa(YearMonth competencia) {
+        return competencia.isBefore(INICIO_ALIQUOTA_FEPA_ATUAL) ? ALIQUOTA_FEPA_ANTERIOR : ALIQUOTA_FEPA_ATUAL;
+    }
+
+    /**
+     * Calcula o FEPA de uma competência sobre o valor corrigido informado.
+     *
+     * @param competencia    Mês e ano de referência.
+     * @param valorCorrigido Valor corrigido para o mês.
+     * @return FEPA calculado com 2 casas decimais.
+     */
+    public static BigDecimal calcularFepa(YearMonth competencia, BigDecimal valorCorrigido) {
+        return valorCorrigido.multiply(aliquotaFepa(competencia)).setScale(2, RoundingMode.HALF_UP);
+    }
 }
@@ -0,0 +1,149 @@
+package com.fiscalsystemapi.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CacheStoreTest {
+
+    private static final Duration VALIDADE = Duration.ofMinutes(1);
+
+    private static byte[] bytes(String texto) {
+        return texto.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String texto(byte[] valor) {
+        return new String(valor, StandardCharsets.UTF_8);
+    }
+
+    // Contrato comum às implementações de CacheStore
+    private static void verificarContrato(CacheStore store) throws InterruptedException {
+        store.armazenar("calculo:a", bytes("{\"valor\":1}"), VALIDADE);
+        store.armazenar("calculo:b", bytes("{\"valor\":2}"), VALIDADE);
+        store.armazenar("pdf:a", bytes("%PDF"), VALIDADE);
+        assertArrayEquals(bytes("{\"valor\":1}"), store.buscar("calculo:a").orElseThrow());
+
+        store.remover("calculo:a");
+        assertTrue(store.buscar("calculo:a").isEmpty());
+
+        store.removerPorPrefixo("calculo:");
+        assertTrue(store.buscar("calculo:b").isEmpty());
+        assertTrue(store.buscar("pdf:a").isPresent());
+
+        store.armazenar("jwt:expira", bytes("x"), Duration.ofMillis(20));
+        Thread.sleep(60);
+        assertTrue(store.buscar("jwt:expira").isEmpty());
+    }
+
+    @Test
+    void memoria_cumpreContratoDoArmazenamento() throws InterruptedException {
+        MemoriaCacheStore store = new MemoriaCacheStore(1 << 20);
+        verificarContrato(store);
+        assertFalse(store.distribuido());
+    }
+
+    @Test
+    void redis_cumpreContratoDoArmazenamento() throws Exception {
+        try (RedisStandIn servidor = new RedisStandIn();
+             RedisCacheStore store = new RedisCacheStore(servidor.url(), "teste:", Duration.ofSeconds(2))) {
+            verificarContrato(store);
+            assertTrue(store.distribuido());
+        }
+    }
+
+    @Test
+    void camadas_comArmazenamentoEmMemoria_usamApenasACamadaLocal() {
+        MemoriaCacheStore store = new MemoriaCacheStore(1 << 20);
+        CacheEmCamadas<String> cache = new CacheEmCamadas<>("calculo", store, 1 << 20, null, String::length);
+
+        cache.armazenar("a", "resultado", bytes("resultado"), VALIDADE);
+        assertEquals("resultado", cache.buscar("a", CacheStoreTest::texto));
+        assertTrue(store.buscar("calculo:a").isEmpty());
+        assertFalse(cache.isDistribuido());
+    }
+
+    @Test
+    void camadas_compartilhamValoresEInvalidacoesEntreInstancias() throws Exception {
+        try (RedisStandIn servidor = new RedisStandIn();
+             RedisCacheStore storeA = new RedisCacheStore(servidor.url(), "teste:", Duration.ofSeconds(2));
+             RedisCacheStore storeB = new RedisCacheStore(servidor.url(), "teste:", Duration.ofSeconds(2))) {
+            CacheEmCamadas<String> instanciaA = new CacheEmCamadas<>("calculo", storeA, 1 << 20, null, String::length);
+            CacheEmCamadas<String> instanciaB = new CacheEmCamadas<>("calculo", storeB, 1 << 20, null, String::length);
+            AtomicInteger desserializacoes = new AtomicInteger();
+
+            // A instância B encontra no armazenamento compartilhado o valor calculado por A e o guarda localmente
+            instanciaA.armazenar("a", "resultado", bytes("resultado"), VALIDADE);
+            assertEquals("resultado", instanciaB.buscar("a", valor -> {
+                desserializacoes.incrementAndGet();
+                return texto(valor);
+            }));
+            assertEquals("resultado", instanciaB.buscar("a", valor -> {
+                desserializacoes.incrementAndGet();
+                return texto(valor);
+            }));
+            assertEquals(1, desserializacoes.get());
+            assertEquals(1, instanciaB.getAcertosRemotos());
+
+            // A remoção em A chega à camada local de B pelo canal de invalidação
+            instanciaA.remover("a");
+            long limite = System.currentTimeMillis() + 2000;
+            while (instanciaB.getEntradasLocais() > 0 && System.currentTimeMillis() < limite) {
+                Thread.sleep(10);
+            }
+            assertNull(instanciaB.buscar("a", CacheStoreTest::texto));
+            assertEquals(0, servidor.tamanho());
+        }
+    }
+
+    @Test
+    void camadas_sobrescritaDescartaCopiaLocalDasDemaisInstancias() throws Exception {
+        try (RedisStandIn servidor = new RedisStandIn();
+             RedisCacheStore storeA = new RedisCacheStore(servidor.url(), "teste:", Duration.ofSeconds(2));
+             RedisCacheStore storeB = new RedisCacheStore(servidor.url(), "teste:", Duration.ofSeconds(2))) {
+            CacheEmCamadas<String> instanciaA = new CacheEmCamadas<>("calculo", storeA, 1 << 20, null, String::length);
+            CacheEmCamadas<String> instanciaB = new CacheEmCamadas<>("calculo", storeB, 1 << 20, null, String::length);
+
+            instanciaA.armazenar("a", "versao1", bytes("versao1"), VALIDADE);
+            assertEquals("versao1", instanciaB.buscar("a", CacheStoreTest::texto));
+
+            // A nova versão gravada em A substitui a cópia local de B; a própria A mantém o valor que gravou
+            instanciaA.armazenar("a", "versao2", bytes("versao2"), VALIDADE);
+            long limite = System.currentTimeMillis() + 2000;
+            while (instanciaB.getEntradasLocais() > 0 && System.currentTimeMillis() < limite) {
+                Thread.sleep(10);
+            }
+            assertEquals("versao2", instanciaB.buscar("a", CacheStoreTest::texto));
+            Thread.sleep(50);
+            assertEquals(1, instanciaA.getEntradasLocais());
+            assertEquals("versao2", instanciaA.buscar("a", valor -> null));
+        }
+    }
+
+    @Test
+    void redis_foraDoArNaCriacao_equivaleAFalta() throws Exception {
+        int porta;
+        try (ServerSocket livre = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            porta = livre.getLocalPort();
+        }
+        try (RedisCacheStore store = new RedisCacheStore("redis://127.0.0.1:" + porta, "teste:", Duration.ofMillis(200))) {
+            CacheEmCamadas<String> cache = new CacheEmCamadas<>("calculo", store, 1 << 20, null, String::length);
+
+            store.armazenar("calculo:a", bytes("x"), VALIDADE);
+            assertFalse(store.buscar("calculo:a").isPresent());
+            cache.armazenar("a", "resultado", bytes("resultado"), VALIDADE);
+            assertEquals("resultado", cache.buscar("a", CacheStoreTest::texto));
+            cache.remover("a");
+            assertNull(cache.buscar("a", CacheStoreTest::texto));
+        }
+    }
+}
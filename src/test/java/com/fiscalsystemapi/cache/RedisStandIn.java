@@ -0,0 +1,218 @@
+package com.fiscalsystemapi.cache;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Servidor local mínimo que fala RESP2, com os comandos usados por {@link RedisCacheStore}
+ * (GET, SET com PX, DEL, SCAN, PUBLISH e SUBSCRIBE). Serve apenas para os testes, sem precisar de um Redis real.
+ */
+class RedisStandIn implements AutoCloseable {
+
+    private final ServerSocket servidor;
+    private final Map<String, Valor> dados = new ConcurrentHashMap<>();
+    private final Map<String, List<OutputStream>> inscritos = new ConcurrentHashMap<>();
+    private final List<Socket> conexoes = new CopyOnWriteArrayList<>();
+
+    RedisStandIn() throws IOException {
+        servidor = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread aceitador = new Thread(this::aceitar, "redis-stand-in");
+        aceitador.setDaemon(true);
+        aceitador.start();
+    }
+
+    String url() {
+        return "redis://127.0.0.1:" + servidor.getLocalPort();
+    }
+
+    int tamanho() {
+        return dados.size();
+    }
+
+    private void aceitar() {
+        while (!servidor.isClosed()) {
+            try {
+                Socket socket = servidor.accept();
+                conexoes.add(socket);
+                Thread thread = new Thread(() -> atender(socket), "redis-stand-in-conexao");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void atender(Socket socket) {
+        try (socket) {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+            List<byte[]> comando;
+            while ((comando = lerComando(in)) != null) {
+                byte[] resposta = executar(comando, out);
+                synchronized (out) {
+                    out.write(resposta);
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            // Conexão encerrada pelo cliente
+        }
+    }
+
+    private byte[] executar(List<byte[]> comando, OutputStream out) {
+        String nome = texto(comando.get(0)).toUpperCase(Locale.ROOT);
+        switch (nome) {
+            case "PING":
+                return "+PONG\r\n".getBytes(StandardCharsets.UTF_8);
+            case "GET": {
+                Valor valor = dados.get(texto(comando.get(1)));
+                if (valor == null || valor.expirado()) {
+                    return "$-1\r\n".getBytes(StandardCharsets.UTF_8);
+                }
+                return bulk(valor.bytes);
+            }
+            case "SET": {
+                long expiraEm = Long.MAX_VALUE;
+                if (comando.size() >= 5 && "PX".equalsIgnoreCase(texto(comando.get(3)))) {
+                    expiraEm = System.currentTimeMillis() + Long.parseLong(texto(comando.get(4)));
+                }
+                dados.put(texto(comando.get(1)), new Valor(comando.get(2), expiraEm));
+                return "+OK\r\n".getBytes(StandardCharsets.UTF_8);
+            }
+            case "DEL": {
+                int removidos = 0;
+                for (int i = 1; i < comando.size(); i++) {
+                    removidos += dados.remove(texto(comando.get(i))) != null ? 1 : 0;
+                }
+                return (":" + removidos + "\r\n").getBytes(StandardCharsets.UTF_8);
+            }
+            case "SCAN": {
+                String prefixo = "";
+                for (int i = 2; i + 1 < comando.size(); i++) {
+                    if ("MATCH".equalsIgnoreCase(texto(comando.get(i)))) {
+                        String padrao = texto(comando.get(i + 1));
+                        prefixo = padrao.substring(0, padrao.length() - 1);
+                    }
+                }
+                List<byte[]> chaves = new ArrayList<>();
+                for (String chave : dados.keySet()) {
+                    if (chave.startsWith(prefixo)) {
+                        chaves.add(chave.getBytes(StandardCharsets.UTF_8));
+                    }
+                }
+                ByteArrayOutputStream resposta = new ByteArrayOutputStream();
+                resposta.writeBytes("*2\r\n".getBytes(StandardCharsets.UTF_8));
+                resposta.writeBytes(bulk("0".getBytes(StandardCharsets.UTF_8)));
+                resposta.writeBytes(array(chaves));
+                return resposta.toByteArray();
+            }
+            case "PUBLISH": {
+                List<OutputStream> destinos = inscritos.getOrDefault(texto(comando.get(1)), List.of());
+                byte[] mensagem = array(List.of("message".getBytes(StandardCharsets.UTF_8), comando.get(1), comando.get(2)));
+                for (OutputStream destino : destinos) {
+                    try {
+                        synchronized (destino) {
+                            destino.write(mensagem);
+                            destino.flush();
+                        }
+                    } catch (IOException e) {
+                        // Inscrito desconectado
+                    }
+                }
+                return (":" + destinos.size() + "\r\n").getBytes(StandardCharsets.UTF_8);
+            }
+            case "SUBSCRIBE": {
+                ByteArrayOutputStream resposta = new ByteArrayOutputStream();
+                for (int i = 1; i < comando.size(); i++) {
+                    inscritos.computeIfAbsent(texto(comando.get(i)), canal -> new CopyOnWriteArrayList<>()).add(out);
+                    resposta.writeBytes(("*3\r\n").getBytes(StandardCharsets.UTF_8));
+                    resposta.writeBytes(bulk("subscribe".getBytes(StandardCharsets.UTF_8)));
+                    resposta.writeBytes(bulk(comando.get(i)));
+                    resposta.writeBytes((":" + i + "\r\n").getBytes(StandardCharsets.UTF_8));
+                }
+                return resposta.toByteArray();
+            }
+            default:
+                // CLIENT SETINFO e demais comandos de inicialização da conexão
+                return "+OK\r\n".getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private static List<byte[]> lerComando(InputStream in) throws IOException {
+        String cabecalho = lerLinha(in);
+        if (cabecalho == null) {
+            return null;
+        }
+        int partes = Integer.parseInt(cabecalho.substring(1));
+        List<byte[]> comando = new ArrayList<>(partes);
+        for (int i = 0; i < partes; i++) {
+            int tamanho = Integer.parseInt(lerLinha(in).substring(1));
+            byte[] parte = in.readNBytes(tamanho);
+            in.readNBytes(2);
+            comando.add(parte);
+        }
+        return comando;
+    }
+
+    private static String lerLinha(InputStream in) throws IOException {
+        ByteArrayOutputStream linha = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\r') {
+                in.read();
+                return linha.toString(StandardCharsets.UTF_8);
+            }
+            linha.write(b);
+        }
+        return null;
+    }
+
+    private static byte[] bulk(byte[] valor) {
+        ByteArrayOutputStream resposta = new ByteArrayOutputStream();
+        resposta.writeBytes(("$" + valor.length + "\r\n").getBytes(StandardCharsets.UTF_8));
+        resposta.writeBytes(valor);
+        resposta.writeBytes("\r\n".getBytes(StandardCharsets.UTF_8));
+        return resposta.toByteArray();
+    }
+
+    private static byte[] array(List<byte[]> valores) {
+        ByteArrayOutputStream resposta = new ByteArrayOutputStream();
+        resposta.writeBytes(("*" + valores.size() + "\r\n").getBytes(StandardCharsets.UTF_8));
+        for (byte[] valor : valores) {
+            resposta.writeBytes(bulk(valor));
+        }
+        return resposta.toByteArray();
+    }
+
+    private static String texto(byte[] valor) {
+        return new String(valor, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        servidor.close();
+        for (Socket socket : conexoes) {
+            socket.close();
+        }
+    }
+
+    private record Valor(byte[] bytes, long expiraEm) {
+        boolean expirado() {
+            return System.currentTimeMillis() > expiraEm;
+        }
+    }
+}
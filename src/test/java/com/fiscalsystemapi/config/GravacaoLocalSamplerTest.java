@@ -0,0 +1,107 @@
+package com.fiscalsystemapi.config;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GravacaoLocalSamplerTest {
+
+    private final List<ReadableSpan> gravados = new ArrayList<>();
+    private final List<SpanData> exportados = new ArrayList<>();
+
+    @Test
+    void traceNaoAmostradoGravadoLocalmenteSemExportar() {
+        executarRequisicao(0.0);
+
+        // O span raiz e o filho chegam ao processador, sem a marca de amostrado
+        assertEquals(2, gravados.size());
+        gravados.forEach(span -> assertFalse(span.getSpanContext().isSampled()));
+        assertTrue(exportados.isEmpty());
+    }
+
+    @Test
+    void traceAmostradoGravadoEExportado() {
+        executarRequisicao(1.0);
+
+        assertEquals(2, gravados.size());
+        gravados.forEach(span -> assertTrue(span.getSpanContext().isSampled()));
+        assertEquals(2, exportados.size());
+    }
+
+    private void executarRequisicao(double probabilidade) {
+        SdkTracerProvider provider = SdkTracerProvider.builder()
+                .setSampler(new GravacaoLocalSampler(Sampler.parentBased(Sampler.traceIdRatioBased(probabilidade))))
+                .addSpanProcessor(new Gravador())
+                .addSpanProcessor(SimpleSpanProcessor.create(new Exportador()))
+                .build();
+        try {
+            Tracer tracer = provider.get("teste");
+            Span requisicao = tracer.spanBuilder("http post /calculos/fepa").startSpan();
+            try (Scope ignorado = requisicao.makeCurrent()) {
+                tracer.spanBuilder("fiscal.span.calculo").startSpan().end();
+            } finally {
+                requisicao.end();
+            }
+        } finally {
+            provider.close();
+        }
+    }
+
+    private class Gravador implements SpanProcessor {
+        @Override
+        public void onStart(Context parentContext, ReadWriteSpan span) {
+        }
+
+        @Override
+        public boolean isStartRequired() {
+            return false;
+        }
+
+        @Override
+        public void onEnd(ReadableSpan span) {
+            gravados.add(span);
+        }
+
+        @Override
+        public boolean isEndRequired() {
+            return true;
+        }
+    }
+
+    private class Exportador implements SpanExporter {
+        @Override
+        public CompletableResultCode export(Collection<SpanData> spans) {
+            exportados.addAll(spans);
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode flush() {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return CompletableResultCode.ofSuccess();
+        }
+    }
+}
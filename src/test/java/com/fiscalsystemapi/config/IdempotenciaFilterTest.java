@@ -0,0 +1,84 @@
+package com.fiscalsystemapi.config;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdempotenciaFilterTest {
+
+    private static byte[] bytes(String texto) {
+        return texto.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void hashCorpo_ignoraOrdemDasPropriedadesEFormatacao() {
+        String hash = IdempotenciaFilter.hashCorpo(bytes("{\"valorBruto\": 1000.50, \"dados\": {\"b\": 1, \"a\": [1, 2]}}"));
+
+        assertEquals(hash, IdempotenciaFilter.hashCorpo(bytes("{\"dados\":{\"a\":[1,2],\"b\":1},\"valorBruto\":1000.50}")));
+        assertNotEquals(hash, IdempotenciaFilter.hashCorpo(bytes("{\"dados\":{\"a\":[2,1],\"b\":1},\"valorBruto\":1000.50}")));
+        assertNotEquals(hash, IdempotenciaFilter.hashCorpo(bytes("{\"dados\":{\"a\":[1,2],\"b\":1},\"valorBruto\":1000.51}")));
+    }
+
+    @Test
+    void hashCorpo_corpoQueNaoEJsonValidoComparadoByteAByte() {
+        String json = "{\"a\":1}";
+
+        assertNotEquals(IdempotenciaFilter.hashCorpo(bytes(json)), IdempotenciaFilter.hashCorpo(bytes(json + " lixo")));
+        assertEquals(IdempotenciaFilter.hashCorpo(bytes("nao json")), IdempotenciaFilter.hashCorpo(bytes("nao json")));
+        assertNotEquals(IdempotenciaFilter.hashCorpo(bytes("nao json")), IdempotenciaFilter.hashCorpo(bytes("nao  json")));
+    }
+
+    @Test
+    void corpoLido_leituraNaoBloqueanteAvisaDadosDisponiveisEFim() throws IOException {
+        byte[] corpo = bytes("{\"a\":1}");
+        ServletInputStream entrada = new IdempotenciaFilter.CorpoLidoRequest(requisicaoVazia(), corpo)
+                .getInputStream();
+        ByteArrayOutputStream lido = new ByteArrayOutputStream();
+        List<String> eventos = new ArrayList<>();
+
+        entrada.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                eventos.add("dados");
+                byte[] buffer = new byte[4];
+                while (entrada.isReady() && !entrada.isFinished()) {
+                    int n = entrada.read(buffer);
+                    lido.write(buffer, 0, n);
+                }
+            }
+
+            @Override
+            public void onAllDataRead() {
+                eventos.add("fim");
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                eventos.add("erro");
+            }
+        });
+
+        assertEquals(List.of("dados", "fim"), eventos);
+        assertArrayEquals(corpo, lido.toByteArray());
+        assertTrue(entrada.isFinished());
+    }
+
+    // Requisição original sem nada: o wrapper só responde pelo corpo já lido
+    private static HttpServletRequest requisicaoVazia() {
+        return (HttpServletRequest) Proxy.newProxyInstance(IdempotenciaFilterTest.class.getClassLoader(),
+                new Class<?>[]{HttpServletRequest.class}, (proxy, metodo, argumentos) -> null);
+    }
+}
@@ -0,0 +1,111 @@
+package com.fiscalsystemapi.controller;
+
+import com.fiscalsystemapi.cache.MemoriaCacheStore;
+import com.fiscalsystemapi.dto.ProcessNumber;
+import com.fiscalsystemapi.dto.pj.CalculoPjRequest;
+import com.fiscalsystemapi.repository.CalculoRealizadoRepository;
+import com.fiscalsystemapi.repository.UserRepository;
+import com.fiscalsystemapi.service.AuthService;
+import com.fiscalsystemapi.service.CalculoAsyncService;
+import com.fiscalsystemapi.service.CalculoCacheService;
+import com.fiscalsystemapi.service.CalculoPjService;
+import com.fiscalsystemapi.service.CalculoRegistroService;
+import com.fiscalsystemapi.service.CoalescenciaService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CalculoAsyncControllerTest {
+
+    // Segura as gravações no banco até o fim do teste
+    private final CountDownLatch liberarGravacoes = new CountDownLatch(1);
+    private final CountDownLatch gravacaoIniciada = new CountDownLatch(1);
+    private final CalculoAsyncService calculoAsyncService = new CalculoAsyncService(1, 1);
+    private CalculoAsyncController controller;
+
+    @BeforeEach
+    void preparar() {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("1", null, Collections.emptyList()));
+        AuthService authService = new AuthService(null, null, "", 0, Runnable::run);
+        CalculoCacheService calculoCacheService = new CalculoCacheService(Jackson2ObjectMapperBuilder.json().build(),
+                new MemoriaCacheStore(1 << 20), true, 1 << 20, 86_400_000);
+        CalculoRegistroService calculoRegistroService = new CalculoRegistroService(
+                proxy(CalculoRealizadoRepository.class, (metodo, args) -> {
+                    gravacaoIniciada.countDown();
+                    liberarGravacoes.await();
+                    return args[0];
+                }),
+                proxy(UserRepository.class, (metodo, args) -> null));
+        CalculoPjService calculoPjService = new CalculoPjService(calculoRegistroService, authService, calculoCacheService);
+        controller = new CalculoAsyncController(null, null, null, calculoPjService, calculoAsyncService, authService,
+                new CoalescenciaService(authService, true));
+    }
+
+    @AfterEach
+    void encerrar() {
+        liberarGravacoes.countDown();
+        calculoAsyncService.encerrar();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void filaDeRegistrosCheiaRespondeTooManyRequests() throws Exception {
+        // A primeira gravação ocupa o único worker e a segunda, a única posição da fila
+        CompletableFuture<ResponseEntity<byte[]>> primeira = controller.calcularPj(request("100"));
+        assertTrue(gravacaoIniciada.await(10, TimeUnit.SECONDS));
+        CompletableFuture<ResponseEntity<byte[]>> segunda = controller.calcularPj(request("200"));
+
+        ResponseEntity<byte[]> recusada = controller.calcularPj(request("300")).get(10, TimeUnit.SECONDS);
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, recusada.getStatusCode());
+        assertEquals("1", recusada.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertFalse(primeira.isDone());
+
+        liberarGravacoes.countDown();
+        assertEquals(HttpStatus.OK, primeira.get(10, TimeUnit.SECONDS).getStatusCode());
+        assertEquals(HttpStatus.OK, segunda.get(10, TimeUnit.SECONDS).getStatusCode());
+        // Com a fila livre, a requisição recusada é aceita na nova tentativa
+        assertEquals(HttpStatus.OK, controller.calcularPj(request("300")).get(10, TimeUnit.SECONDS).getStatusCode());
+    }
+
+    private static CalculoPjRequest request(String valor) {
+        CalculoPjRequest request = new CalculoPjRequest();
+        request.setNumProcesso(ProcessNumber.parse("0001234-62.2024.8.05.0001"));
+        request.setNomeParteAutora("Empresa Ltda");
+        request.setNomeParteRe("Estado");
+        request.setValorBruto(new BigDecimal(valor));
+        request.setValorCorrigido(new BigDecimal(valor));
+        request.setOptanteSimples("nao");
+        request.setRamoAtividade("1");
+        return request;
+    }
+
+    private interface Metodo {
+        Object invocar(Method metodo, Object[] args) throws Exception;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> tipo, Metodo metodo) {
+        return (T) Proxy.newProxyInstance(CalculoAsyncControllerTest.class.getClassLoader(), new Class<?>[]{tipo},
+                (proxy, m, args) -> metodo.invocar(m, args));
+    }
+}
@@ -0,0 +1,99 @@
+package com.fiscalsystemapi.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fiscalsystemapi.dto.honorarios.CalculoHonorariosRequest;
+import com.fiscalsystemapi.exception.ApiException;
+import com.fiscalsystemapi.util.FormatUtils;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProcessNumberTest {
+
+    private static final String FORMATADO = "0001234-62.2024.8.05.0001";
+
+    @Test
+    void parse_aceitaNumeroFormatadoOuApenasDigitosComAMesmaChave() {
+        ProcessNumber formatado = ProcessNumber.parse(FORMATADO);
+        ProcessNumber digitos = ProcessNumber.parse("00012346220248050001");
+        ProcessNumber espacos = ProcessNumber.parse(" 0001234-62 2024.8.05.0001 ");
+
+        assertEquals(formatado, digitos);
+        assertEquals(formatado, espacos);
+        assertEquals(formatado.hashCode(), digitos.hashCode());
+        assertEquals(123_420_248_050_001L, formatado.getChave());
+        assertEquals(FORMATADO, digitos.toString());
+        assertEquals("00012346220248050001", formatado.digitos());
+        assertNull(ProcessNumber.parse(null));
+    }
+
+    @Test
+    void parse_rejeitaDigitosVerificadoresTamanhoECaracteresInvalidos() {
+        assertThrows(ApiException.class, () -> ProcessNumber.parse("0001234-56.2024.8.05.0001"));
+        assertThrows(ApiException.class, () -> ProcessNumber.parse("0001234-62.2024.8.05.000"));
+        assertThrows(ApiException.class, () -> ProcessNumber.parse("0001234-62.2024.8.05.00011"));
+        assertThrows(ApiException.class, () -> ProcessNumber.parse("0001234-62/2024.8.05.0001"));
+        assertThrows(ApiException.class, () -> ProcessNumber.parse(""));
+        // Com resto zero, 01 também satisfaz o módulo 97, mas o verificador calculado é 98
+        assertThrows(ApiException.class, () -> ProcessNumber.parse("0000000-01.0000.0.00.0000"));
+        assertEquals("0000000-98.0000.0.00.0000", ProcessNumber.parse("00000009800000000000").toString());
+    }
+
+    @Test
+    void deChave_recalculaOsVerificadoresEmNumerosAleatorios() {
+        Random random = new Random(20240503L);
+        for (int i = 0; i < 100_000; i++) {
+            long chave = Math.floorMod(random.nextLong(), 1_000_000_000_000_000_000L);
+            ProcessNumber numero = ProcessNumber.deChave(chave);
+            String texto = numero.toString();
+
+            assertEquals(numero, ProcessNumber.parse(texto), texto);
+            assertEquals(texto, ProcessNumber.parse(numero.digitos()).toString());
+            assertEquals(texto, FormatUtils.formatProcessNumber(numero.digitos()));
+            // NNNNNNN AAAA J TR OOOO DD deve deixar resto 1 na divisão por 97
+            String conferencia = texto.substring(0, 7) + texto.substring(11).replace(".", "") + texto.substring(8, 10);
+            assertEquals(BigInteger.ONE, new BigInteger(conferencia).mod(BigInteger.valueOf(97)), texto);
+        }
+        assertThrows(ApiException.class, () -> ProcessNumber.deChave(-1));
+        assertThrows(ApiException.class, () -> ProcessNumber.deChave(1_000_000_000_000_000_000L));
+    }
+
+    @Test
+    void compareTo_ordenaPelaChave() {
+        assertTrue(ProcessNumber.deChave(1).compareTo(ProcessNumber.deChave(2)) < 0);
+        assertEquals(0, ProcessNumber.parse(FORMATADO).compareTo(ProcessNumber.parse("00012346220248050001")));
+    }
+
+    @Test
+    void legado_exibeOTextoGravadoSemFormaCanonica() throws Exception {
+        ProcessNumber legado = ProcessNumber.legado("0001234-56.2024.8.05.0001");
+
+        assertTrue(legado.isLegado());
+        assertEquals("0001234-56.2024.8.05.0001", legado.toString());
+        assertEquals("00012345620248050001", legado.digitos());
+        assertEquals(legado, ProcessNumber.legado("0001234-56.2024.8.05.0001"));
+        assertNotEquals(legado, ProcessNumber.legado("0001234-57.2024.8.05.0001"));
+        assertNotEquals(ProcessNumber.parse(FORMATADO), legado);
+        assertThrows(ApiException.class, legado::getChave);
+        assertEquals("\"0001234-56.2024.8.05.0001\"", new ObjectMapper().writeValueAsString(legado));
+    }
+
+    @Test
+    void json_lidoSemPontuacaoEEscritoFormatado() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        CalculoHonorariosRequest request = objectMapper.readValue(
+                "{\"numProcesso\":\"00012346220248050001\"}", CalculoHonorariosRequest.class);
+
+        assertEquals(ProcessNumber.parse(FORMATADO), request.getNumProcesso());
+        assertTrue(objectMapper.writeValueAsString(request).contains("\"numProcesso\":\"" + FORMATADO + "\""));
+        assertThrows(Exception.class, () -> objectMapper.readValue(
+                "{\"numProcesso\":\"0001234-56.2024.8.05.0001\"}", CalculoHonorariosRequest.class));
+    }
+}
@@ -0,0 +1,71 @@
+package com.fiscalsystemapi.service;
+
+import com.fiscalsystemapi.entity.User;
+import com.fiscalsystemapi.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.lang.reflect.Proxy;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class AuthServiceTest {
+
+    private static final String JWT_SECRET = Base64.getEncoder().encodeToString(new byte[64]);
+
+    // Método do repositório -> thread em que foi chamado
+    private final Map<String, String> threads = new ConcurrentHashMap<>();
+    private final ExecutorService executorBanco = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "banco"));
+    private final SenhaService senhaService = new SenhaService(1, 10, 5000, 5, 0);
+    private User gravado;
+
+    @AfterEach
+    void encerrar() {
+        executorBanco.shutdownNow();
+        senhaService.encerrar();
+    }
+
+    @Test
+    void register_salvaOUsuarioForaDoPoolDeHash() {
+        AuthService authService = new AuthService(repositorio(), senhaService, JWT_SECRET, 60_000, executorBanco);
+
+        User salvo = authService.register(User.builder().email("a@b.c").cpf("12345678900").senha("segredo").build())
+                .join();
+
+        assertEquals(5, SenhaService.custo(salvo.getSenha()));
+        assertEquals("banco", threads.get("save"));
+    }
+
+    @Test
+    void login_gravaONovoHashForaDoPoolDeHash() {
+        gravado = User.builder().id(1L).email("a@b.c").senha(new BCryptPasswordEncoder(4).encode("segredo")).build();
+        AuthService authService = new AuthService(repositorio(), senhaService, JWT_SECRET, 60_000, executorBanco);
+
+        assertNotNull(authService.login("a@b.c", "segredo").join());
+
+        assertEquals("banco", threads.get("atualizarSenha"));
+    }
+
+    private UserRepository repositorio() {
+        return (UserRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{UserRepository.class}, (proxy, metodo, args) -> {
+                    threads.put(metodo.getName(), Thread.currentThread().getName());
+                    return switch (metodo.getName()) {
+                        case "findByEmail" -> Optional.ofNullable(gravado);
+                        case "findByCpf" -> Optional.empty();
+                        case "save" -> args[0];
+                        case "atualizarSenha" -> 1;
+                        default -> throw new UnsupportedOperationException(metodo.getName());
+                    };
+                });
+    }
+}
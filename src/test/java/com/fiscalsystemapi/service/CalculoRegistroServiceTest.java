@@ -0,0 +1,100 @@
+package com.fiscalsystemapi.service;
+
+import com.fiscalsystemapi.dto.ProcessNumber;
+import com.fiscalsystemapi.entity.CalculoRealizado;
+import com.fiscalsystemapi.repository.CalculoRealizadoRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CalculoRegistroServiceTest {
+
+    private static final String VALIDO = "0001234-62.2024.8.05.0001";
+    private static final String INVALIDO = "0001234-56.2024.8.05.0001";
+
+    // id -> [texto gravado, chave]
+    private final TreeMap<Long, Object[]> registros = new TreeMap<>();
+
+    @Test
+    void preencheAChaveDosNumerosValidosEmLotes() {
+        for (long id = 1; id <= 1200; id++) {
+            registros.put(id, new Object[]{id % 100 == 0 ? INVALIDO : "00012346220248050001", null});
+        }
+        CalculoRegistroService servico = new CalculoRegistroService(repositorio(), null);
+
+        servico.preencherChavesLegadas();
+
+        long chave = ProcessNumber.parse(VALIDO).getChave();
+        registros.forEach((id, registro) -> assertEquals(id % 100 == 0 ? null : chave, registro[1]));
+
+        // Os inválidos já verificados não são lidos de novo; os gravados depois sim
+        registros.put(1201L, new Object[]{VALIDO, null});
+        servico.preencherChavesLegadas();
+        assertEquals(chave, registros.get(1201L)[1]);
+    }
+
+    @Test
+    void textoInvalidoNaoTemChave() {
+        assertNull(CalculoRegistroService.chaveOuNull(INVALIDO));
+        assertNull(CalculoRegistroService.chaveOuNull(null));
+        assertEquals(Long.valueOf(ProcessNumber.parse(VALIDO).getChave()), CalculoRegistroService.chaveOuNull(VALIDO));
+    }
+
+    @Test
+    void registroLegadoInvalidoExibidoPeloTextoGravado() {
+        CalculoRealizado invalido = CalculoRealizado.builder().numProcesso(INVALIDO).build();
+        CalculoRealizado semChave = CalculoRealizado.builder().numProcesso("00012346220248050001").build();
+
+        ProcessNumber numero = PdfRelatorioService.numeroGravado(invalido);
+        assertTrue(numero.isLegado());
+        assertEquals(INVALIDO, numero.toString());
+        assertEquals(VALIDO, PdfRelatorioService.numeroGravado(semChave).toString());
+    }
+
+    private CalculoRealizadoRepository repositorio() {
+        return (CalculoRealizadoRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{CalculoRealizadoRepository.class}, (proxy, metodo, args) -> switch (metodo.getName()) {
+                    case "buscarSemChave" -> {
+                        long ultimoId = (Long) args[0];
+                        int tamanho = ((Pageable) args[1]).getPageSize();
+                        List<CalculoRealizadoRepository.NumProcessoSemChave> lote = new ArrayList<>();
+                        registros.tailMap(ultimoId, false).entrySet().stream()
+                                .filter(e -> e.getValue()[1] == null)
+                                .limit(tamanho)
+                                .forEach(e -> lote.add(semChave(e.getKey(), (String) e.getValue()[0])));
+                        yield lote;
+                    }
+                    case "preencherChave" -> {
+                        Object[] registro = registros.get((Long) args[0]);
+                        if (registro[1] != null) {
+                            yield 0;
+                        }
+                        registro[1] = args[1];
+                        yield 1;
+                    }
+                    default -> throw new UnsupportedOperationException(metodo.getName());
+                });
+    }
+
+    private static CalculoRealizadoRepository.NumProcessoSemChave semChave(Long id, String numProcesso) {
+        return new CalculoRealizadoRepository.NumProcessoSemChave() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getNumProcesso() {
+                return numProcesso;
+            }
+        };
+    }
+}
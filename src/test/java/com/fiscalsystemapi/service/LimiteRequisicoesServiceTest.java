@@ -0,0 +1,118 @@
+package com.fiscalsystemapi.service;
+
+import com.fiscalsystemapi.service.LimiteRequisicoesService.Classe;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LimiteRequisicoesServiceTest {
+
+    private static final long SEGUNDO = TimeUnit.SECONDS.toNanos(1);
+
+    // 2 fichas por segundo e rajada de 4 nos cálculos; 1 por segundo e rajada de 2 no PDF, com 2 vagas
+    private static LimiteRequisicoesService servico() {
+        return new LimiteRequisicoesService(true, 2, 4, 1, 2, 2, 0.5, 0, 200, false);
+    }
+
+    @Test
+    void consumir_permiteRajadaERecusaComEsperaAteAProximaFicha() {
+        LimiteRequisicoesService servico = servico();
+        long agora = 1_000 * SEGUNDO;
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(0L, servico.consumir(Classe.CALCULO, "1", agora));
+        }
+        assertEquals(SEGUNDO / 2, servico.consumir(Classe.CALCULO, "1", agora));
+        assertEquals(SEGUNDO / 4, servico.consumir(Classe.CALCULO, "1", agora + SEGUNDO / 4));
+        // Meio segundo depois há uma nova ficha, e apenas uma
+        assertEquals(0L, servico.consumir(Classe.CALCULO, "1", agora + SEGUNDO / 2));
+        assertTrue(servico.consumir(Classe.CALCULO, "1", agora + SEGUNDO / 2) > 0);
+    }
+
+    @Test
+    void consumir_separaUsuariosEClasses() {
+        LimiteRequisicoesService servico = servico();
+        long agora = 5 * SEGUNDO;
+
+        assertEquals(0L, servico.consumir(Classe.PDF, "1", agora));
+        assertEquals(0L, servico.consumir(Classe.PDF, "1", agora));
+        assertEquals(SEGUNDO, servico.consumir(Classe.PDF, "1", agora));
+
+        assertEquals(0L, servico.consumir(Classe.PDF, "2", agora));
+        assertEquals(0L, servico.consumir(Classe.CALCULO, "1", agora));
+    }
+
+    @Test
+    void consumir_semTaxaConfiguradaNaoLimita() {
+        LimiteRequisicoesService servico = new LimiteRequisicoesService(true, 0, 4, 1, 2, 2, 0.5, 0, 200, false);
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(0L, servico.consumir(Classe.CALCULO, "1", 0));
+        }
+        assertEquals(0, servico.baldesAtivos(Classe.CALCULO));
+    }
+
+    @Test
+    void removerOciosos_descartaApenasBaldesCheios() {
+        LimiteRequisicoesService servico = servico();
+        long agora = 10 * SEGUNDO;
+        servico.consumir(Classe.CALCULO, "1", agora);
+        servico.consumir(Classe.CALCULO, "2", agora);
+        servico.consumir(Classe.CALCULO, "2", agora);
+
+        servico.removerOciosos(agora + SEGUNDO / 2);
+
+        assertEquals(1, servico.baldesAtivos(Classe.CALCULO));
+        servico.removerOciosos(agora + SEGUNDO);
+        assertEquals(0, servico.baldesAtivos(Classe.CALCULO));
+    }
+
+    @Test
+    void consumir_concedeExatamenteACapacidadeEntreThreadsConcorrentes() throws Exception {
+        LimiteRequisicoesService servico = new LimiteRequisicoesService(true, 1, 1_000, 1, 2, 2, 0.5, 0, 200, false);
+        long agora = 0;
+        AtomicInteger permitidas = new AtomicInteger();
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int t = 0; t < 8; t++) {
+                executor.execute(() -> {
+                    try {
+                        largada.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = 0; i < 500; i++) {
+                        if (servico.consumir(Classe.CALCULO, "1", agora) == 0) {
+                            permitidas.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            largada.countDown();
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1_000, permitidas.get());
+    }
+
+    @Test
+    void entrarPdf_limitaAsVagasSimultaneas() {
+        LimiteRequisicoesService servico = servico();
+
+        assertTrue(servico.entrarPdf());
+        assertTrue(servico.entrarPdf());
+        assertFalse(servico.entrarPdf());
+        servico.sairPdf();
+        assertTrue(servico.entrarPdf());
+    }
+}
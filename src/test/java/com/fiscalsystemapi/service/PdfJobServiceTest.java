@@ -0,0 +1,144 @@
+package com.fiscalsystemapi.service;
+
+import com.fiscalsystemapi.dto.pdf.PdfJobResponse;
+import com.fiscalsystemapi.dto.pdf.PdfJobStatus;
+import com.fiscalsystemapi.exception.ApiException;
+import com.fiscalsystemapi.exception.TooManyRequestsException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PdfJobServiceTest {
+
+    private static final long TTL_MS = 60_000;
+
+    private final AuthService authService = new AuthService(null, null, "", 0, Runnable::run);
+    private PdfJobService servico;
+
+    @BeforeEach
+    void autenticar() {
+        entrarComo("1");
+    }
+
+    @AfterEach
+    void encerrar() {
+        if (servico != null) {
+            servico.encerrar();
+        }
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void submeter_consultarEBaixarOPdfConcluido() throws Exception {
+        servico = new PdfJobService(authService, 1, 10, TTL_MS, 100, 1_000_000);
+        CountDownLatch liberar = new CountDownLatch(1);
+        byte[] pdf = {'%', 'P', 'D', 'F'};
+
+        PdfJobResponse job = servico.submeter("relatorio.pdf", () -> {
+            liberar.await();
+            return pdf;
+        });
+
+        assertEquals("relatorio.pdf", job.getFileName());
+        assertTrue(servico.obterPdf(job.getId()).isEmpty());
+        liberar.countDown();
+        assertEquals(PdfJobStatus.CONCLUIDO, aguardar(job.getId()).getStatus());
+        assertArrayEquals(pdf, servico.obterPdf(job.getId()).orElseThrow());
+        assertEquals(4L, servico.metricas().getBytesArmazenados());
+    }
+
+    @Test
+    void consultar_jobDeOutroUsuarioNaoEncontrado() throws Exception {
+        servico = new PdfJobService(authService, 1, 10, TTL_MS, 100, 1_000_000);
+        String id = servico.submeter("a.pdf", () -> new byte[1]).getId();
+        aguardar(id);
+
+        entrarComo("2");
+        assertThrows(ApiException.class, () -> servico.consultar(id));
+        assertThrows(ApiException.class, () -> servico.obterPdf(id));
+    }
+
+    @Test
+    void executar_falhaDaTarefaFicaRegistradaNoJob() throws Exception {
+        servico = new PdfJobService(authService, 1, 10, TTL_MS, 100, 1_000_000);
+        String id = servico.submeter("a.pdf", () -> {
+            throw new IllegalStateException("falhou");
+        }).getId();
+
+        PdfJobResponse job = aguardar(id);
+
+        assertEquals(PdfJobStatus.ERRO, job.getStatus());
+        assertEquals("falhou", job.getErro());
+        assertTrue(servico.obterPdf(id).isEmpty());
+    }
+
+    @Test
+    void removerJobsExpirados_descartaConcluidosAposOTtl() throws Exception {
+        servico = new PdfJobService(authService, 1, 10, TTL_MS, 100, 1_000_000);
+        String id = servico.submeter("a.pdf", () -> new byte[10]).getId();
+        aguardar(id);
+
+        servico.removerJobsExpirados(System.currentTimeMillis());
+        assertEquals(PdfJobStatus.CONCLUIDO, servico.consultar(id).getStatus());
+
+        servico.removerJobsExpirados(System.currentTimeMillis() + TTL_MS + 1);
+        assertThrows(ApiException.class, () -> servico.consultar(id));
+        assertEquals(0L, servico.metricas().getBytesArmazenados());
+    }
+
+    @Test
+    void executar_acimaDoLimiteDeBytesDescartaOsMaisAntigos() throws Exception {
+        servico = new PdfJobService(authService, 1, 10, TTL_MS, 100, 250);
+        String primeiro = servico.submeter("1.pdf", () -> new byte[100]).getId();
+        aguardar(primeiro);
+        Thread.sleep(2);
+        String segundo = servico.submeter("2.pdf", () -> new byte[100]).getId();
+        aguardar(segundo);
+        Thread.sleep(2);
+        String terceiro = servico.submeter("3.pdf", () -> new byte[100]).getId();
+
+        assertEquals(PdfJobStatus.CONCLUIDO, aguardar(terceiro).getStatus());
+        assertThrows(ApiException.class, () -> servico.consultar(primeiro));
+        assertEquals(PdfJobStatus.CONCLUIDO, servico.consultar(segundo).getStatus());
+        assertEquals(200L, servico.metricas().getBytesArmazenados());
+        assertEquals(1L, servico.metricas().getJobsDescartados());
+    }
+
+    @Test
+    void submeter_recusaAcimaDoLimiteDeJobsArmazenados() throws Exception {
+        servico = new PdfJobService(authService, 1, 10, TTL_MS, 2, 1_000_000);
+        aguardar(servico.submeter("1.pdf", () -> new byte[1]).getId());
+        aguardar(servico.submeter("2.pdf", () -> new byte[1]).getId());
+
+        assertThrows(TooManyRequestsException.class, () -> servico.submeter("3.pdf", () -> new byte[1]));
+        assertEquals(1L, servico.metricas().getJobsRejeitados());
+    }
+
+    private static void entrarComo(String usuarioId) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(usuarioId, null, Collections.emptyList()));
+    }
+
+    private PdfJobResponse aguardar(String id) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < limite) {
+            PdfJobResponse job = servico.consultar(id);
+            if (job.getStatus() == PdfJobStatus.CONCLUIDO || job.getStatus() == PdfJobStatus.ERRO) {
+                return job;
+            }
+            Thread.sleep(5);
+        }
+        throw new AssertionError("Job não concluído: " + id);
+    }
+}
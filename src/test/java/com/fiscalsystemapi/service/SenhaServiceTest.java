@@ -0,0 +1,105 @@
+package com.fiscalsystemapi.service;
+
+import com.fiscalsystemapi.exception.TooManyRequestsException;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SenhaServiceTest {
+
+    @Test
+    void conferir_aceitaASenhaCodificadaERecusaOutra() {
+        SenhaService servico = new SenhaService(2, 10, 5000, 4, 0);
+        try {
+            String hash = servico.codificar("segredo").join();
+
+            assertEquals(4, SenhaService.custo(hash));
+            SenhaService.Conferencia conferencia = servico.conferir("segredo", hash).join();
+            assertTrue(conferencia.confere());
+            assertNull(conferencia.novoHash());
+            assertFalse(servico.conferir("outra", hash).join().confere());
+        } finally {
+            servico.encerrar();
+        }
+    }
+
+    @Test
+    void conferir_refazOHashGravadoComCustoMenor() {
+        SenhaService servico = new SenhaService(1, 10, 5000, 5, 0);
+        try {
+            String hashAntigo = new BCryptPasswordEncoder(4).encode("segredo");
+
+            SenhaService.Conferencia conferencia = servico.conferir("segredo", hashAntigo).join();
+
+            assertTrue(conferencia.confere());
+            assertNotNull(conferencia.novoHash());
+            assertEquals(5, SenhaService.custo(conferencia.novoHash()));
+            assertTrue(new BCryptPasswordEncoder().matches("segredo", conferencia.novoHash()));
+            // Senha errada não gera novo hash
+            assertNull(servico.conferir("outra", hashAntigo).join().novoHash());
+        } finally {
+            servico.encerrar();
+        }
+    }
+
+    @Test
+    void conferir_mantemOHashGravadoComCustoMaior() {
+        // Instância calibrada em um custo menor que o de outra: não rebaixa o hash gravado por ela
+        SenhaService servico = new SenhaService(1, 10, 5000, 4, 0);
+        try {
+            String hashAtual = new BCryptPasswordEncoder(5).encode("segredo");
+
+            SenhaService.Conferencia conferencia = servico.conferir("segredo", hashAtual).join();
+
+            assertTrue(conferencia.confere());
+            assertNull(conferencia.novoHash());
+        } finally {
+            servico.encerrar();
+        }
+    }
+
+    @Test
+    void codificar_recusaComAFilaCheia() {
+        SenhaService servico = new SenhaService(1, 1, 5000, 10, 0);
+        try {
+            // A primeira tarefa ocupa o único worker e a segunda, a única posição da fila
+            CompletableFuture<String> primeira = servico.codificar("a");
+            CompletableFuture<String> segunda = servico.codificar("b");
+
+            assertThrows(TooManyRequestsException.class, () -> servico.codificar("c"));
+            assertNotNull(primeira.join());
+            assertNotNull(segunda.join());
+        } finally {
+            servico.encerrar();
+        }
+    }
+
+    @Test
+    void construtor_calibraOCustoPeloTempoAlvo() {
+        SenhaService rapido = new SenhaService(1, 1, 5000, 10, 1);
+        SenhaService lento = new SenhaService(1, 1, 5000, 10, 400);
+        try {
+            assertTrue(rapido.getCusto() >= 4);
+            assertTrue(lento.getCusto() > rapido.getCusto());
+        } finally {
+            rapido.encerrar();
+            lento.encerrar();
+        }
+    }
+
+    @Test
+    void custo_lidoDoPrefixoDoHash() {
+        assertEquals(10, SenhaService.custo("$2a$10$N9qo8uLOickgx2ZMRZoMyeIjZAgcfl7p92ldGxad68LJZdL17lhWy"));
+        assertEquals(12, SenhaService.custo("$2b$12$abc"));
+        assertEquals(-1, SenhaService.custo("texto-plano"));
+        assertEquals(-1, SenhaService.custo(null));
+    }
+}
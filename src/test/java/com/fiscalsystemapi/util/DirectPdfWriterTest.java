@@ -0,0 +1,74 @@
+package com.fiscalsystemapi.util;
+
+import com.fiscalsystemapi.dto.ProcessData;
+import com.fiscalsystemapi.dto.ProcessNumber;
+import com.fiscalsystemapi.service.PdfSignatureService;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDDocumentInformation;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DirectPdfWriterTest {
+
+    private static ProcessData dados(String autora) {
+        ProcessData dados = new ProcessData();
+        dados.setNumProcesso(ProcessNumber.parse("0001234-62.2024.8.05.0001"));
+        dados.setNomeParteAutora(autora);
+        dados.setNomeParteRe("Estado (Fazenda Pública)");
+        return dados;
+    }
+
+    @Test
+    void gerarAssinado_produzPdfLidoPeloPdfBoxComMetadadosDeAssinatura() throws Exception {
+        DirectPdfWriter writer = new DirectPdfWriter("Cálculo de Imposto de Renda - Lei 14.848/2024");
+        writer.escreverDadosProcesso(dados("João da Conceição \\ Ações"));
+        writer.escreverLinha("Valor Bruto do Pagamento: " + FormatUtils.formatCurrency(new BigDecimal("12345.67"), false));
+        writer.escreverLinha("Nota Explicativa: " + "texto longo que precisa ser quebrado em mais de uma linha ".repeat(5));
+
+        byte[] pdf = writer.gerarAssinado("Assinado por Maria Ribeiro (12345678900)", "01/02/2025 10:20:30");
+        assertNotNull(pdf);
+
+        PdfSignatureService signatureService = new PdfSignatureService(null);
+        assertTrue(signatureService.validateGeneratedByApi(pdf));
+        assertTrue(signatureService.validateSignedByApi(pdf));
+
+        try (PDDocument document = PDDocument.load(pdf)) {
+            assertEquals(1, document.getNumberOfPages());
+            PDDocumentInformation info = document.getDocumentInformation();
+            assertEquals("01/02/2025 10:20:30", info.getCustomMetadataValue("SIGNATURE_DATE"));
+
+            String texto = new PDFTextStripper().getText(document);
+            assertTrue(texto.contains("RELATÓRIO OFICIAL"));
+            assertTrue(texto.contains("Nome da parte autora: João da Conceição \\ Ações"));
+            assertTrue(texto.contains("Nome da parte ré: Estado (Fazenda Pública)"));
+            assertTrue(texto.contains("Assinado por Maria Ribeiro (12345678900)"));
+            assertTrue(texto.contains("Página 1"));
+        }
+    }
+
+    @Test
+    void gerarAssinado_retornaNullParaCaracteresForaDoWinAnsi() throws Exception {
+        DirectPdfWriter writer = new DirectPdfWriter("Subtítulo");
+        writer.escreverDadosProcesso(dados("Łukasz Nowak"));
+
+        assertNull(writer.gerarAssinado("Assinado por Maria (1)", "01/02/2025 10:20:30"));
+    }
+
+    @Test
+    void gerarAssinado_retornaNullQuandoConteudoExcedeUmaPagina() {
+        DirectPdfWriter writer = new DirectPdfWriter("Subtítulo");
+        writer.iniciarTabela(new float[]{0, 200}, "Competência", "Valor");
+        for (int i = 0; i < 100; i++) {
+            writer.escreverLinhaTabela("01/2020", "R$ 1,00");
+        }
+
+        assertNull(writer.gerarAssinado("Assinado por Maria (1)", "01/02/2025 10:20:30"));
+    }
+}
@@ -0,0 +1,96 @@
+package com.fiscalsystemapi.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FormatUtilsTest {
+
+    private static final int AMOSTRAS = 200_000;
+
+    // Caracteres usados para montar números de processo e CPFs, inclusive dígitos não ASCII, que o \D da
+    // implementação anterior também descartava
+    private static final String CARACTERES = "0123456789012345678901234567890123456789.-/ \t\u00A0abcXYZ\u0663\uFF11";
+
+    @Test
+    void formatCurrency_igualAoNumberFormatEmValoresAleatorios() {
+        Random random = new Random(20240501L);
+        for (int i = 0; i < AMOSTRAS; i++) {
+            BigDecimal valor = valorAleatorio(random);
+            assertEquals(FormatUtilsLegado.formatCurrency(valor, false), FormatUtils.formatCurrency(valor, false),
+                    () -> "moeda: " + valor.toPlainString());
+            assertEquals(FormatUtilsLegado.formatCurrency(valor, true), FormatUtils.formatCurrency(valor, true),
+                    () -> "percentual: " + valor.toPlainString());
+        }
+    }
+
+    @Test
+    void formatCurrency_casosLimite() {
+        String[] valores = {"0", "-0", "0.00", "-0.001", "-0.005", "-0.006", "0.005", "0.015", "0.125", "0.135",
+                "999.995", "-999.995", "1E+3", "1.5E-7", "123456789012345678.99", "1234567890123456789012.345",
+                "-9223372036854775.807", "92233720368547758.07", "-92233720368547758.08"};
+        for (String texto : valores) {
+            BigDecimal valor = new BigDecimal(texto);
+            assertEquals(FormatUtilsLegado.formatCurrency(valor, false), FormatUtils.formatCurrency(valor, false), texto);
+            assertEquals(FormatUtilsLegado.formatCurrency(valor, true), FormatUtils.formatCurrency(valor, true), texto);
+        }
+        assertEquals("", FormatUtils.formatCurrency(null, false));
+        assertEquals("R$\u00A01.234,56", FormatUtils.formatCurrency(new BigDecimal("1234.56"), false));
+        assertEquals("27,50%", FormatUtils.formatCurrency(new BigDecimal("27.5"), true));
+    }
+
+    @Test
+    void formatProcessNumberEFormatCPF_iguaisAosAnterioresEmTextosAleatorios() {
+        Random random = new Random(20240502L);
+        for (int i = 0; i < AMOSTRAS; i++) {
+            String texto = textoAleatorio(random, random.nextInt(30));
+            assertEquals(FormatUtilsLegado.formatProcessNumber(texto), FormatUtils.formatProcessNumber(texto),
+                    () -> "processo: " + texto);
+            assertEquals(FormatUtilsLegado.formatCPF(texto), FormatUtils.formatCPF(texto), () -> "CPF: " + texto);
+        }
+        assertEquals("", FormatUtils.formatProcessNumber(null));
+        assertEquals("CPF N/A", FormatUtils.formatCPF(null));
+        assertEquals("CPF N/A", FormatUtils.formatCPF(" \t "));
+        assertEquals("0001234-56.2024.5.01.0001", FormatUtils.formatProcessNumber("00012345620245010001"));
+        assertEquals("123.456.789-01", FormatUtils.formatCPF("12345678901"));
+    }
+
+    // Valores com escalas, sinais e magnitudes variados, inclusive além do alcance de um long de centavos
+    private static BigDecimal valorAleatorio(Random random) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return BigDecimal.valueOf(random.nextInt(100_000_000) - 10_000_000L, 2);
+            case 1:
+                return BigDecimal.valueOf(random.nextLong(), random.nextInt(8));
+            case 2:
+                return new BigDecimal(new BigInteger(90, random).subtract(BigInteger.ONE.shiftLeft(89)), random.nextInt(6));
+            default:
+                // Frações terminadas em 5 na terceira casa, onde o arredondamento HALF_EVEN faz diferença
+                return BigDecimal.valueOf(random.nextInt(2_000_000) * 10L + 5 - 10_000_000L, 3);
+        }
+    }
+
+    private static String textoAleatorio(Random random, int tamanho) {
+        // Metade das amostras tem exatamente 20 ou 11 dígitos, formato em que a formatação é aplicada
+        if (random.nextBoolean()) {
+            StringBuilder texto = new StringBuilder();
+            int digitos = random.nextBoolean() ? 20 : 11;
+            for (int i = 0; i < digitos; i++) {
+                texto.append((char) ('0' + random.nextInt(10)));
+                if (random.nextInt(5) == 0) {
+                    texto.append(CARACTERES.charAt(40 + random.nextInt(CARACTERES.length() - 40)));
+                }
+            }
+            return texto.toString();
+        }
+        StringBuilder texto = new StringBuilder(tamanho);
+        for (int i = 0; i < tamanho; i++) {
+            texto.append(CARACTERES.charAt(random.nextInt(CARACTERES.length())));
+        }
+        return texto.toString();
+    }
+}
@@ -0,0 +1,123 @@
+package com.fiscalsystemapi.util;
+
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PdfFontRegistryTest {
+
+    private static final int THREADS = 8;
+    private static final int DOCUMENTOS_POR_THREAD = 20;
+
+    // Textos com conjuntos de glifos diferentes, para que cada documento gere um subconjunto próprio
+    private static final String[] TEXTOS = {
+            "Cálculo de Imposto de Renda - Lei 14.848/2024",
+            "João da Conceição \\ Ações (Fazenda Pública)",
+            "Łukasz Nowak - Ørsted - Ñandú",
+            "ΑΒΓΔ Ελληνικά - Кириллица 0123456789",
+            "Honorários: R$ 1.234,56 - 27,5%",
+    };
+
+    @Test
+    void subconjuntosGeradosEmParaleloSaoIguaisAosSequenciais() throws Exception {
+        List<byte[]> esperados = new ArrayList<>();
+        for (int i = 0; i < TEXTOS.length; i++) {
+            esperados.add(fontesIncorporadas(gerar(i)));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch largada = new CountDownLatch(1);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int primeiro = t;
+                Callable<Void> tarefa = () -> {
+                    largada.await();
+                    for (int d = 0; d < DOCUMENTOS_POR_THREAD; d++) {
+                        int indice = (primeiro + d) % TEXTOS.length;
+                        byte[] pdf = gerar(indice);
+                        assertArrayEquals(esperados.get(indice), fontesIncorporadas(pdf));
+                        try (PDDocument document = PDDocument.load(pdf)) {
+                            String texto = new PDFTextStripper().getText(document);
+                            assertEquals(TEXTOS[indice] + "\n" + TEXTOS[indice], texto.strip().replace("\r", ""));
+                        }
+                    }
+                    return null;
+                };
+                futures.add(executor.submit(tarefa));
+            }
+            largada.countDown();
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void normalizar_substituiCaracteresAusentesDaFonte() {
+        assertEquals("Ação ?", PdfFontRegistry.normalizar("Ação 中"));
+        assertEquals("", PdfFontRegistry.normalizar(null));
+    }
+
+    // Página com o texto em fonte normal e em negrito, ambas subconjuntos da fonte compartilhada
+    private static byte[] gerar(int indice) throws Exception {
+        try (PDDocument document = new PDDocument()) {
+            PDPage page = new PDPage();
+            document.addPage(page);
+            PDFont regular = PdfFontRegistry.regular(document);
+            PDFont negrito = PdfFontRegistry.negrito(document);
+            try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                content.beginText();
+                content.setFont(regular, 12);
+                content.newLineAtOffset(50, 700);
+                content.showText(TEXTOS[indice]);
+                content.setFont(negrito, 12);
+                content.newLineAtOffset(0, -20);
+                content.showText(TEXTOS[indice]);
+                content.endText();
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    // Bytes dos programas de fonte incorporados, na ordem dos recursos da página
+    private static byte[] fontesIncorporadas(byte[] pdf) throws Exception {
+        ByteArrayOutputStream fontes = new ByteArrayOutputStream();
+        try (PDDocument document = PDDocument.load(pdf)) {
+            PDResources resources = document.getPage(0).getResources();
+            List<COSName> nomes = new ArrayList<>();
+            resources.getFontNames().forEach(nomes::add);
+            nomes.sort((a, b) -> a.getName().compareTo(b.getName()));
+            for (COSName nome : nomes) {
+                PDType0Font fonte = (PDType0Font) resources.getFont(nome);
+                try (InputStream in = fonte.getDescendantFont().getFontDescriptor().getFontFile2().createInputStream()) {
+                    fontes.write(in.readAllBytes());
+                }
+            }
+        }
+        return fontes.toByteArray();
+    }
+}
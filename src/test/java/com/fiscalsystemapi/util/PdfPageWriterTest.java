@@ -0,0 +1,74 @@
+package com.fiscalsystemapi.util;
+
+import com.fiscalsystemapi.service.PdfSignatureService;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PdfPageWriterTest {
+
+    private static final int LINHAS = 2500;
+
+    @Test
+    void relatorioLongoRenderizadoEmParaleloIgualAoSequencial() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            byte[] paralelo = gerar(executor);
+            byte[] sequencial = gerar(null);
+
+            String textoParalelo = texto(paralelo);
+            assertEquals(texto(sequencial), textoParalelo);
+
+            // As linhas aparecem na ordem em que foram escritas, com o número e o carimbo em todas as páginas
+            int posicao = -1;
+            for (int i = 0; i < LINHAS; i += 97) {
+                int encontrada = textoParalelo.indexOf("Linha " + i + " ");
+                assertTrue(encontrada > posicao, "linha fora de ordem: " + i);
+                posicao = encontrada;
+            }
+            try (PDDocument document = PDDocument.load(paralelo)) {
+                int paginas = document.getNumberOfPages();
+                assertTrue(paginas > 40);
+                assertTrue(textoParalelo.contains("Página " + paginas));
+                assertEquals(paginas, ocorrencias(textoParalelo, "Assinado por Maria Ribeiro"));
+            }
+
+            PdfSignatureService signatureService = new PdfSignatureService(null);
+            assertTrue(signatureService.validateSignedByApi(paralelo));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static byte[] gerar(Executor executor) throws Exception {
+        PDDocument document = PdfPageWriter.novoDocumento();
+        try (PdfPageWriter writer = new PdfPageWriter(document, "Subtítulo", executor)) {
+            for (int i = 0; i < LINHAS; i++) {
+                writer.escreverLinha("Linha " + i + " do relatório com acentuação: ação, número, três");
+            }
+            writer.assinar("Assinado por Maria Ribeiro (12345678900)", "01/02/2025 10:20:30");
+        }
+        return PdfPageWriter.salvar(document);
+    }
+
+    private static String texto(byte[] pdf) throws Exception {
+        try (PDDocument document = PDDocument.load(pdf)) {
+            return new PDFTextStripper().getText(document);
+        }
+    }
+
+    private static int ocorrencias(String texto, String trecho) {
+        int total = 0;
+        for (int i = texto.indexOf(trecho); i >= 0; i = texto.indexOf(trecho, i + 1)) {
+            total++;
+        }
+        return total;
+    }
+}
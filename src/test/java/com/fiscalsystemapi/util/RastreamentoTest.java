@@ -0,0 +1,72 @@
+package com.fiscalsystemapi.util;
+
+import com.fiscalsystemapi.entity.enums.CalculationType;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RastreamentoTest {
+
+    private final List<Observation.Context> encerradas = new ArrayList<>();
+
+    @AfterEach
+    void restaurar() {
+        Rastreamento.configurar(ObservationRegistry.NOOP);
+    }
+
+    @Test
+    void etapaConcluidaDevolveOResultadoSemErro() {
+        configurar();
+
+        String resultado = Rastreamento.etapa("fiscal.span.calculo", CalculationType.FEPA, () -> "ok");
+
+        assertEquals("ok", resultado);
+        assertEquals(1, encerradas.size());
+        Observation.Context contexto = encerradas.get(0);
+        assertEquals("fiscal.span.calculo", contexto.getName());
+        assertEquals("fepa", contexto.getLowCardinalityKeyValue("tipo").getValue());
+        assertNull(contexto.getError());
+    }
+
+    @Test
+    void excecaoDoTrechoMarcaOErroERepassada() {
+        configurar();
+        IOException falha = new IOException("falha");
+
+        IOException lancada = assertThrows(IOException.class,
+                () -> Rastreamento.etapa("fiscal.span.pdf.assinatura", () -> {
+                    throw falha;
+                }));
+
+        assertSame(falha, lancada);
+        assertEquals(1, encerradas.size());
+        assertSame(falha, encerradas.get(0).getError());
+    }
+
+    private void configurar() {
+        ObservationRegistry registro = ObservationRegistry.create();
+        registro.observationConfig().observationHandler(new ObservationHandler<>() {
+            @Override
+            public void onStop(Observation.Context context) {
+                encerradas.add(context);
+            }
+
+            @Override
+            public boolean supportsContext(Observation.Context context) {
+                return true;
+            }
+        });
+        Rastreamento.configurar(registro);
+    }
+}